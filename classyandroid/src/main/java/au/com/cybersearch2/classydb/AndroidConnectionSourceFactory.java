@@ -28,6 +28,8 @@ import android.database.sqlite.SQLiteOpenHelper;
  * AndroidConnectionSourceFactory
  * Creates OpenHelperConnectionSource objects which extend AndroidConnectionSource by
  * attaching an SQLiteOpenHelper implemented as an OpenEventHandler object.
+ * Set persistence unit property "android-read-connections" to "true" to enable write-ahead logging
+ * and concurrent read connections.
  * @author Andrew Bowley
  * 10/07/2014
  */
@@ -35,6 +37,9 @@ public class AndroidConnectionSourceFactory implements ConnectionSourceFactory
 {
     //private static final String TAG = "AndroidConnectionSourceFactory";
     //static Log log = JavaLogger.getLogger(TAG);
+    /** Property key for read connections flag */
+    public static final String READ_CONNECTIONS = "android-read-connections";
+
     /** The owner of this factory **/
     protected Map<String, OpenEventHandler> openEventHandlerMap;
 
@@ -64,6 +69,8 @@ public class AndroidConnectionSourceFactory implements ConnectionSourceFactory
         // implement get/set database version methods.
         OpenHelperConnectionSource openHelperConnectionSource = 
         		new OpenHelperConnectionSource(getSQLiteDatabase(openEventHandler), openEventHandler);
+        if ((properties != null) && Boolean.parseBoolean(properties.getProperty(READ_CONNECTIONS)))
+            openHelperConnectionSource.enableReadConnections();
         return openHelperConnectionSource;
     }
 
@@ -15,6 +15,7 @@
     along with this program.  If not, see <http://www.gnu.org/licenses/> */
 package au.com.cybersearch2.classydb;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -59,9 +60,14 @@ public class AndroidDatabaseSupport implements DatabaseSupport
     private static final String TAG = "DatabaseSupport";
     static Log log = JavaLogger.getLogger(TAG);
 
+    /** Default result cache size, which disables lazy result lists */
+    public static final int DEFAULT_RESULT_CACHE_SIZE = 0;
+
     /** Maps database name to a single connection associated with it */
     protected Map<String, ConnectionSource> androidSQLiteMap;
     protected List<OpenHelperCallbacks> openHelperCallbacksList;
+    /** Result sets larger than this are returned as lazy lists. Zero, the default, means always map eagerly. */
+    protected int resultCacheSize = DEFAULT_RESULT_CACHE_SIZE;
 
     static
     {
@@ -136,6 +142,27 @@ public class AndroidDatabaseSupport implements DatabaseSupport
         return openHelperCallbacksList;
     }
 
+    /**
+     * Set number of rows above which getResultList() returns a lazy list backed by the cursor.
+     * This is also the number of mapped objects the lazy list retains. Lazy lists are disabled by default
+     * because the caller must close each one to release its cursor, so only enable them where every result
+     * list of a native query is closed.
+     * @param resultCacheSize Row count or 0 to always map all rows
+     */
+    public void setResultCacheSize(int resultCacheSize)
+    {
+        this.resultCacheSize = resultCacheSize;
+    }
+
+    /**
+     * Returns number of rows above which getResultList() returns a lazy list
+     * @return int
+     */
+    public int getResultCacheSize()
+    {
+        return resultCacheSize;
+    }
+
     /**
      * Returns SQLiteOpenHelper
      * @param connectionSource Sub class of AndroidConnectionSource which exposes the internal SOLiteOpenHelper object
@@ -151,7 +178,9 @@ public class AndroidDatabaseSupport implements DatabaseSupport
      * @param queryInfo QueryInfo object
      * @param startPosition offset
      * @param maxResults limit
-     * @return Object list which will be empty if no result returned from the query
+     * @return Object list which will be empty if no result returned from the query.
+     * If there are more rows than the result cache size, the list is a CursorResultList which maps rows on demand
+     * and should be closed when no longer required. Otherwise all rows are mapped and the cursor is closed.
      * @see au.com.cybersearch2.classydb.DatabaseSupport#getResultList(com.j256.ormlite.support.ConnectionSource, au.com.cybersearch2.classyjpa.query.QueryInfo, int, int)
      */
     @Override
@@ -166,15 +195,31 @@ public class AndroidDatabaseSupport implements DatabaseSupport
         Cursor cursor = db.query(queryInfo.getTable(), queryInfo.getColumns(), queryInfo.getSelection(),
                 queryInfo.getSelectionArgs(), queryInfo.getGroupBy(), queryInfo.getHaving(),
                 queryInfo.getOrderBy(), limitValue);
-        List<Object> results = new ArrayList<Object>(cursor.getCount());
-        if (cursor.moveToFirst())
+        boolean isLazy = false;
+        try
         {
-            do
+            int count = cursor.getCount();
+            if ((resultCacheSize > 0) && (count > resultCacheSize))
+            {   // Large result set is mapped on demand and the list takes ownership of the cursor
+                isLazy = true;
+                return new CursorResultList(cursor, queryInfo.getRowMapper(), resultCacheSize);
+            }
+            List<Object> results = new ArrayList<Object>(count);
+            if (cursor.moveToFirst())
             {
-                results.add(queryInfo.getRowMapper().mapRow(new AndroidResultRow(cursor)));
-            } while (cursor.moveToNext());
+                AndroidResultRow resultRow = new AndroidResultRow(cursor);
+                do
+                {
+                    results.add(queryInfo.getRowMapper().mapRow(resultRow));
+                } while (cursor.moveToNext());
+            }
+            return results;
+        }
+        finally
+        {
+            if (!isLazy)
+                cursor.close();
         }
-        return results;
     }
 
     /**
@@ -193,8 +238,15 @@ public class AndroidDatabaseSupport implements DatabaseSupport
         Cursor cursor = db.query(queryInfo.getTable(), queryInfo.getColumns(), queryInfo.getSelection(),
                 queryInfo.getSelectionArgs(), queryInfo.getGroupBy(), queryInfo.getHaving(),
                 queryInfo.getOrderBy(), limitValue);
-        if (cursor.moveToFirst())
-             result = queryInfo.getRowMapper().mapRow(new AndroidResultRow(cursor));
+        try
+        {
+            if (cursor.moveToFirst())
+                 result = queryInfo.getRowMapper().mapRow(new AndroidResultRow(cursor));
+        }
+        finally
+        {
+            cursor.close();
+        }
         return result;
     }
 
@@ -220,13 +272,36 @@ public class AndroidDatabaseSupport implements DatabaseSupport
  
 
     /**
-     * Returns Object implementing WritableDatabase interface for performing a database query
+     * Not supported, as the Android SQLite API does not expose the online backup API
+     * @see au.com.cybersearch2.classydb.DatabaseSupport#snapshot(com.j256.ormlite.support.ConnectionSource, java.io.File, au.com.cybersearch2.classydb.SnapshotOptions)
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void snapshot(ConnectionSource connectionSource, File snapshotFile, SnapshotOptions snapshotOptions)
+    {
+        throw new UnsupportedOperationException("Online snapshot is not supported by Android SQLite");
+    }
+
+    /**
+     * Not supported, as snapshots cannot be taken
+     * @see au.com.cybersearch2.classydb.DatabaseSupport#restoreSnapshot(java.io.File, java.lang.String)
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public ConnectionSource restoreSnapshot(File snapshotFile, String databaseName)
+    {
+        throw new UnsupportedOperationException("Online snapshot is not supported by Android SQLite");
+    }
+
+    /**
+     * Returns Object implementing WritableDatabase interface for performing a database query.
+     * The query runs on a read connection if these are enabled and the calling thread is not in a transaction.
      * @param connectionSource
      * @return SQLiteQueryExecutor
      */
     protected SQLiteQueryExecutor getSQLiteQueryExecutor(ConnectionSource connectionSource)
     {
-        final SQLiteDatabase sqLiteDatabase = getSQLiteOpenHelper(connectionSource).getWritableDatabase();
+        final SQLiteDatabase sqLiteDatabase = ((OpenHelperConnectionSource)connectionSource).getQueryDatabase();
         return  new SQLiteQueryExecutor(){
 
             @Override
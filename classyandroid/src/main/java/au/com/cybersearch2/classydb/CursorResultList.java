@@ -0,0 +1,127 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+import java.io.Closeable;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import android.database.Cursor;
+import au.com.cybersearch2.classyjpa.query.QueryInfo.RowMapper;
+
+/**
+ * CursorResultList
+ * Read-only list backed by an open Cursor. Rows are mapped on access through a single
+ * AndroidResultRow flyweight and the most recently used objects are kept in a bounded cache.
+ * The cursor fills its window on demand as the list is traversed, so memory use is bounded
+ * by the window and cache sizes, not the number of rows. Call close() when the list is no longer
+ * required, after which only cached rows remain accessible.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class CursorResultList extends AbstractList<Object> implements RandomAccess, Closeable
+{
+    /** Open cursor positioned before the first row */
+    protected Cursor cursor;
+    /** Maps the current cursor row to an object */
+    protected RowMapper rowMapper;
+    /** Flyweight result row re-used for every row mapped */
+    protected AndroidResultRow resultRow;
+    /** Mapped objects in least recently used order */
+    protected Map<Integer, Object> rowCache;
+    /** Number of rows in the result set */
+    protected int count;
+
+    /**
+     * Create CursorResultList object
+     * @param cursor Open cursor
+     * @param rowMapper Maps cursor rows to objects
+     * @param cacheSize Maximum number of mapped objects to retain
+     */
+    public CursorResultList(Cursor cursor, RowMapper rowMapper, final int cacheSize)
+    {
+        this.cursor = cursor;
+        this.rowMapper = rowMapper;
+        resultRow = new AndroidResultRow(cursor);
+        count = cursor.getCount();
+        rowCache = new LinkedHashMap<Integer, Object>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 3297412398410283525L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Object> eldest)
+            {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the object for the row at specified position, mapping the row if it is not cached
+     * @see java.util.AbstractList#get(int)
+     * @throws IllegalStateException if the row is not cached and the list is closed
+     */
+    @Override
+    public synchronized Object get(int index)
+    {
+        if ((index < 0) || (index >= count))
+            throw new IndexOutOfBoundsException("Index " + index + " out of range for size " + count);
+        Integer key = Integer.valueOf(index);
+        Object result = rowCache.get(key);
+        if ((result == null) && !rowCache.containsKey(key))
+        {
+            if (cursor.isClosed())
+                throw new IllegalStateException("Row " + index + " requested after result list closed");
+            if (!cursor.moveToPosition(index))
+                throw new IllegalStateException("Cursor failed to move to row " + index);
+            result = rowMapper.mapRow(resultRow);
+            rowCache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns number of rows in the result set
+     * @see java.util.AbstractCollection#size()
+     */
+    @Override
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * Close the cursor. Safe to call more than once.
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public synchronized void close()
+    {
+        if (!cursor.isClosed())
+            cursor.close();
+    }
+
+    /**
+     * Returns flag set true if the cursor is closed
+     * @return boolean
+     */
+    public boolean isClosed()
+    {
+        return cursor.isClosed();
+    }
+}
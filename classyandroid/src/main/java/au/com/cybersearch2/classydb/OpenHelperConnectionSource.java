@@ -35,6 +35,7 @@ import javax.persistence.PersistenceException;
 
 import com.j256.ormlite.support.DatabaseConnection;
 import com.j256.ormlite.android.AndroidConnectionSource;
+import com.j256.ormlite.android.AndroidDatabaseConnection;
 import com.j256.ormlite.db.DatabaseType;
 
 import android.database.sqlite.SQLiteDatabase;
@@ -43,7 +44,12 @@ import android.database.sqlite.SQLiteOpenHelper;
 /**
  * OpenHelperConnectionSource
  * Extends AndroidConnectionSource by attaching an 
- * SQLiteOpenHelper implemented as an OpenEventHandler object 
+ * SQLiteOpenHelper implemented as an OpenEventHandler object.
+ * When read connections are enabled, the database is switched to write-ahead logging and a second,
+ * read-only SQLiteDatabase is opened on the same file. Read-only connections and native queries requested
+ * by a thread which is not in a transaction are served by the read database, so they proceed concurrently
+ * with a writer instead of queuing for the single read-write connection. A thread in a transaction
+ * always uses the read-write connection so it sees its own uncommitted changes.
  * @author kevingalligan, graywatson
  * @author Andrew Bowley
  * 22/06/2014
@@ -58,6 +64,10 @@ public class OpenHelperConnectionSource extends AndroidConnectionSource
     protected SQLiteOpenHelper sqLiteOpenHelper;
     /** The SQLiteDatabase db in the onOpen() callback */
     protected SQLiteDatabase sqLiteDatabase;
+    /** Read-only database on the same file or null if read connections are not enabled */
+    protected volatile SQLiteDatabase readDatabase;
+    /** Read-only connection to readDatabase */
+    protected volatile DatabaseConnection readConnection;
 
     /**
      * Create OpenHelperConnectionSource object
@@ -72,6 +82,71 @@ public class OpenHelperConnectionSource extends AndroidConnectionSource
         this.sqLiteOpenHelper = sqLiteOpenHelper;
     }
 
+    /**
+     * Enable write-ahead logging and open read-only database for queries outside of transactions.
+     * Must not be called while a transaction is in progress.
+     * @return flag set true if read connections are enabled, false if the database is in-memory or read-only
+     * @throws PersistenceException if the read database cannot be opened
+     */
+    public synchronized boolean enableReadConnections()
+    {
+        if (readDatabase != null)
+            return true;
+        SQLiteDatabase database = getDatabase();
+        // In-memory databases cannot be shared between connections
+        if (!database.enableWriteAheadLogging())
+            return false;
+        try
+        {
+            readDatabase = SQLiteDatabase.openDatabase(database.getPath(), null,
+                    SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING);
+        }
+        catch (android.database.SQLException e)
+        {
+            throw new PersistenceException("Error opening read database " + database.getPath(), e);
+        }
+        readConnection = new AndroidDatabaseConnection(readDatabase, false, cancelQueriesEnabled);
+        return true;
+    }
+
+    /**
+     * Returns flag set true if read connections are enabled
+     * @return boolean
+     */
+    public boolean isReadConnectionsEnabled()
+    {
+        return readDatabase != null;
+    }
+
+    /**
+     * Returns read-only connection. This is served by the read database if read connections are
+     * enabled and the calling thread is not in a transaction.
+     * @param tableName Table name
+     * @return DatabaseConnection
+     * @throws SQLException if database error occurs
+     */
+    @Override
+    public DatabaseConnection getReadOnlyConnection(String tableName) throws SQLException
+    {
+        DatabaseConnection connection = readConnection;
+        if ((connection == null) || (getSavedConnection() != null))
+            return super.getReadOnlyConnection(tableName);
+        return connection;
+    }
+
+    /**
+     * Returns database to use for a native query. This is the read database if read connections are
+     * enabled and the calling thread is not in a transaction.
+     * @return SQLiteDatabase
+     */
+    public SQLiteDatabase getQueryDatabase()
+    {
+        SQLiteDatabase database = readDatabase;
+        if ((database == null) || (getSavedConnection() != null))
+            return sqLiteOpenHelper.getWritableDatabase();
+        return database;
+    }
+
     @Override
     public DatabaseType getDatabaseType() 
     {
@@ -170,6 +245,15 @@ public class OpenHelperConnectionSource extends AndroidConnectionSource
     {
         super.close();
         isOpen = false;
+        synchronized (this)
+        {
+            if (readDatabase != null)
+            {
+                readDatabase.close();
+                readDatabase = null;
+                readConnection = null;
+            }
+        }
     }
 
 }
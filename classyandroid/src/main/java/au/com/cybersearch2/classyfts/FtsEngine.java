@@ -32,15 +32,33 @@
  */
 package au.com.cybersearch2.classyfts;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import au.com.cybersearch2.classyfts.Bm25Scorer.ScoredDocument;
+import au.com.cybersearch2.classyfts.Bm25Scorer.TopDocuments;
 
 import android.app.SearchManager;
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.MergeCursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.provider.BaseColumns;
 import android.util.Log;
 
@@ -49,6 +67,11 @@ import android.util.Log;
  * Fast text search engine with dictionary.
  * Contains logic to return specific words from the dictionary, and
  * load the dictionary table when it needs to be created.
+ * In incremental mode, triggers on the source table record changed rows in a change log,
+ * which synchronize() applies to the dictionary in small batches. The last change applied
+ * is stored in the dictionary database so synchronization resumes after a restart.
+ * In ranked mode, word matches are returned in Okapi BM25 order, calculated from FTS3 matchinfo()
+ * statistics, and only the top "limit" matches are kept while ranking.
  * @author Andrew Bowley
  * 27/04/2014
  */
@@ -64,6 +87,89 @@ public class FtsEngine implements FtsQuery
         Loaded,
         Error
     }
+
+    /**
+     * ProgressListener - receives dictionary load progress
+     */
+    public interface ProgressListener
+    {
+        /**
+         * Report load progress
+         * @param status Engine status - Loading while words are being added, then Loaded or Error
+         * @param wordCount Number of words added so far
+         * @param totalWords Number of rows in source table
+         */
+        void onProgress(FtsStatus status, int wordCount, int totalWords);
+    }
+
+    /**
+     * DictionaryListener - notified when words in the dictionary change
+     */
+    public interface DictionaryListener
+    {
+        /**
+         * Called after a dictionary load or synchronization transaction has completed
+         */
+        void onDictionaryChange();
+    }
+
+    /** Source row passed from cursor to filter stage to writer */
+    static class DictionaryRow
+    {
+        long dataId;
+        String text1;
+        String text2;
+
+        DictionaryRow(long dataId, String text1, String text2)
+        {
+            this.dataId = dataId;
+            this.text1 = text1;
+            this.text2 = text2;
+        }
+    }
+
+    /**
+     * CorpusStatistics
+     * Dictionary totals used by BM25, which FTS3 matchinfo() does not provide
+     */
+    static class CorpusStatistics
+    {
+        /** Number of words in dictionary */
+        final long rowCount;
+        /** Average length of each dictionary column in dictionary column order */
+        final double[] averageLengths;
+
+        CorpusStatistics(long rowCount, double[] averageLengths)
+        {
+            this.rowCount = rowCount;
+            this.averageLengths = averageLengths;
+        }
+    }
+
+    /** Default number of words added per transaction */
+    public static final int DEFAULT_COMMIT_SIZE = 10000;
+    /** Default number of words added between progress reports */
+    public static final int DEFAULT_PROGRESS_INTERVAL = 5000;
+    /** Number of source rows filtered as one unit of work */
+    protected static final int FILTER_CHUNK_SIZE = 500;
+    /** Default number of change log entries applied per transaction */
+    public static final int DEFAULT_SYNC_BATCH_SIZE = 200;
+    /** Prefix of change log table in source database. Table name is completed with the source table name */
+    protected static final String CHANGE_LOG_PREFIX = "fts_log_";
+    /** Table in dictionary database which holds the last change log sequence number applied for each source table */
+    protected static final String SYNC_TABLE = "fts_sync";
+    /** Synchronization table creation SQL statement */
+    protected static final String SYNC_TABLE_CREATE =
+                "CREATE TABLE IF NOT EXISTS " + SYNC_TABLE + " (source_table TEXT PRIMARY KEY, last_seq INTEGER NOT NULL)";
+    
+    /** BM25 term frequency saturation default */
+    public static final double DEFAULT_K1 = Bm25Scorer.DEFAULT_K1;
+    /** BM25 document length normalization default */
+    public static final double DEFAULT_B = Bm25Scorer.DEFAULT_B;
+    /** Default relative weight of second text column */
+    public static final double DEFAULT_TEXT_2_WEIGHT = 0.5;
+    /** Maximum number of row ids per fetch query */
+    protected static final int MAX_FETCH_IDS = 500;
     
     private static final String TAG = "FtsEngine";
     /** Dictionary database name */
@@ -89,6 +195,30 @@ public class FtsEngine implements FtsQuery
     volatile FtsStatus status;
     /** SQLiteOpenHelper concrete implementation */
     protected FtsOpenHelper ftsOpenHelper;
+    /** Number of words added per transaction */
+    protected int commitSize = DEFAULT_COMMIT_SIZE;
+    /** Number of threads to run word filters. If 1, filters run on the loading thread */
+    protected int filterThreads = 1;
+    /** Optional load progress listener */
+    protected ProgressListener progressListener;
+    /** Number of words added between progress reports */
+    protected int progressInterval = DEFAULT_PROGRESS_INTERVAL;
+    /** Flag set true for incremental index maintenance */
+    protected boolean incremental;
+    /** Number of change log entries applied per transaction */
+    protected int syncBatchSize = DEFAULT_SYNC_BATCH_SIZE;
+    /** Number of words added by current or last load */
+    volatile int wordCount;
+    /** Number of rows in source table for current or last load */
+    volatile int totalWords;
+    /** Listeners notified of dictionary changes */
+    protected final List<DictionaryListener> dictionaryListeners = new CopyOnWriteArrayList<DictionaryListener>();
+    /** Flag set true to return word matches in rank order */
+    protected boolean ranked;
+    /** Scores matches using weight of each dictionary column in dictionary column order */
+    protected final Bm25Scorer bm25Scorer = new Bm25Scorer(0.0, 1.0, DEFAULT_TEXT_2_WEIGHT);
+    /** Dictionary totals for ranking, calculated on first ranked query after a dictionary change */
+    volatile CorpusStatistics corpusStatistics;
  
     /* Note that FTS3 does not support column constraints and thus, you cannot
      * declare a primary key. However, "rowid" is automatically used as a unique
@@ -101,6 +231,27 @@ public class FtsEngine implements FtsQuery
                 SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID + "," +
                 SearchManager.SUGGEST_COLUMN_TEXT_1 + ", " +
                 SearchManager.SUGGEST_COLUMN_TEXT_2 + ");";
+    /** Dictionary insert SQL statement, compiled once per load */
+    protected static final String FTS_INSERT =
+                "INSERT INTO " + FTS_VIRTUAL_TABLE + " (" +
+                SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID + "," +
+                SearchManager.SUGGEST_COLUMN_TEXT_1 + "," +
+                SearchManager.SUGGEST_COLUMN_TEXT_2 + ") VALUES (?,?,?)";
+    /** Dictionary insert SQL statement for incremental mode. The row id is the source primary key so rows can be replaced */
+    protected static final String FTS_INSERT_DOCID =
+                "INSERT INTO " + FTS_VIRTUAL_TABLE + " (docid," +
+                SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID + "," +
+                SearchManager.SUGGEST_COLUMN_TEXT_1 + "," +
+                SearchManager.SUGGEST_COLUMN_TEXT_2 + ") VALUES (?1,?1,?2,?3)";
+    /** Ranking query, completed with the selection. Document lengths are measured in characters */
+    protected static final String FTS_RANK_SELECT =
+                "SELECT docid, matchinfo(" + FTS_VIRTUAL_TABLE + "), length(" +
+                SearchManager.SUGGEST_COLUMN_TEXT_1 + "), length(" +
+                SearchManager.SUGGEST_COLUMN_TEXT_2 + ") FROM " + FTS_VIRTUAL_TABLE + " WHERE ";
+    /** Dictionary totals query */
+    protected static final String FTS_STATISTICS_QUERY =
+                "SELECT count(*), total(length(" + SearchManager.SUGGEST_COLUMN_TEXT_1 + ")), total(length(" +
+                SearchManager.SUGGEST_COLUMN_TEXT_2 + ")) FROM " + FTS_VIRTUAL_TABLE;
 
     static 
     {
@@ -123,6 +274,8 @@ public class FtsEngine implements FtsQuery
 
     /**
      * Populates FTS dictionary. This is a potentially long-running operation that should run on a background thread.
+     * In incremental mode, the change log is installed on the source table and any changes logged since the
+     * dictionary was last synchronized are applied.
      * @return FtsStatus Final status "Loaded" or "Error"
      */
     public FtsStatus initialize()
@@ -130,30 +283,261 @@ public class FtsEngine implements FtsQuery
         SQLiteDatabase dictionaryDb = ftsOpenHelper.getWritableDictionaryDatabase();
         if (dictionaryDb.getVersion() != DATABASE_VERSION)
             throw new IllegalStateException("Lexical Database version = " + dictionaryDb.getVersion() + "  incorrect");
+        if (incremental)
+        {
+            installChangeLog(ftsOpenHelper.getWritableDatabase());
+            dictionaryDb.execSQL(SYNC_TABLE_CREATE);
+        }
+        boolean isEmpty = false;
         Cursor cursor = null;
         try
         {   // Query to confirm table is empty
             cursor = dictionaryDb.rawQuery("select count(*) from " + FTS_VIRTUAL_TABLE, null);
             if ((cursor != null ) && cursor.moveToFirst())
+                isEmpty = cursor.getInt(cursor.getColumnIndex("count(*)")) == 0;
+            else
+            {
+                status = FtsStatus.Error;
+                return status;
+            }
+        }
+        finally
+        {
+            if (cursor != null)
+                cursor.close();
+        }
+        if (incremental && !isEmpty && (getWatermark(dictionaryDb) < 0))
+        {   // Dictionary was loaded before change tracking started, so row ids do not match source keys
+            dictionaryDb.execSQL("DELETE FROM " + FTS_VIRTUAL_TABLE);
+            isEmpty = true;
+        }
+        if (isEmpty)
+        {
+            SQLiteDatabase database = ftsOpenHelper.getReadableDatabase();
+            // Changes logged while loading are applied by synchronize() afterwards
+            long lastChange = incremental ? getLastChange(database) : 0;
+            status = FtsStatus.Loading;
+            status = loadDictionary(database, dictionaryDb);
+            if (incremental && (status == FtsStatus.Loaded))
+                setWatermark(dictionaryDb, lastChange);
+            notifyDictionaryChange();
+        }
+        else
+            status = FtsStatus.Loaded;
+        if (incremental && (status == FtsStatus.Loaded))
+            synchronize();
+        return status;
+    }
+
+    /**
+     * Apply source table changes recorded in the change log to the dictionary. Each batch of changes is applied 
+     * in one dictionary transaction together with the new watermark, so a failed or interrupted call resumes
+     * where it left off. Searches are only blocked for the duration of one batch.
+     * @return Number of changed source rows applied
+     * @throws IllegalStateException if not in incremental mode
+     * @throws SQLException if a database error occurs
+     */
+    public synchronized int synchronize()
+    {
+        if (!incremental)
+            throw new IllegalStateException("synchronize() called when not in incremental mode");
+        SQLiteDatabase database = ftsOpenHelper.getWritableDatabase();
+        SQLiteDatabase dictionaryDb = ftsOpenHelper.getWritableDictionaryDatabase();
+        final String SOURCE_TEXT1_COLUMN = SOURCE_COLUMN_MAP.get(SearchManager.SUGGEST_COLUMN_TEXT_1);
+        final String SOURCE_TEXT2_COLUMN = SOURCE_COLUMN_MAP.get(SearchManager.SUGGEST_COLUMN_TEXT_2);
+        final String SOURCE_INTENT_DATA_ID_COLUMN = SOURCE_COLUMN_MAP.get(SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID);
+        final String rowQuery = "select " + SOURCE_INTENT_DATA_ID_COLUMN + ", " + SOURCE_TEXT1_COLUMN + ", " + SOURCE_TEXT2_COLUMN + 
+                                " from " + SOURCE_TABLE + " where " + SOURCE_INTENT_DATA_ID_COLUMN + " = ?";
+        String changeLog = getChangeLogTable();
+        long watermark = Math.max(getWatermark(dictionaryDb), 0);
+        int changeCount = 0;
+        while (true)
+        {
+            // Collect distinct keys of changed rows. Each row is re-read from the source so order within a batch does not matter. 
+            Set<Long> changeSet = new LinkedHashSet<Long>();
+            long lastSeq = watermark;
+            int logCount = 0;
+            Cursor logCursor = database.rawQuery("select seq, data_id from " + changeLog + " where seq > ? order by seq limit " + syncBatchSize, 
+                                                 new String[] { Long.toString(watermark) });
+            try
             {
-                if (cursor.getInt(cursor.getColumnIndex("count(*)")) == 0)
+                while ((logCursor != null) && logCursor.moveToNext())
                 {
-                    SQLiteDatabase database = ftsOpenHelper.getReadableDatabase();
-                    status = FtsStatus.Loading;
-                    status = loadDictionary(database, dictionaryDb);
+                    lastSeq = logCursor.getLong(0);
+                    changeSet.add(logCursor.getLong(1));
+                    ++logCount;
                 }
-                else
-                    status = FtsStatus.Loaded;
             }
-            else
-                status = FtsStatus.Error;
+            finally
+            {
+                if (logCursor != null)
+                    logCursor.close();
+            }
+            if (logCount == 0)
+                break;
+            List<DictionaryRow> rowList = new ArrayList<DictionaryRow>();
+            for (Long dataId: changeSet)
+            {
+                Cursor rowCursor = database.rawQuery(rowQuery, new String[] { dataId.toString() });
+                try
+                {
+                    if ((rowCursor != null) && rowCursor.moveToFirst())
+                        rowList.add(new DictionaryRow(rowCursor.getLong(0), rowCursor.getString(1), rowCursor.getString(2)));
+                }
+                finally
+                {
+                    if (rowCursor != null)
+                        rowCursor.close();
+                }
+            }
+            filterWords(rowList, SOURCE_TEXT1_COLUMN, SOURCE_TEXT2_COLUMN);
+            SQLiteStatement deleteStatement = null;
+            SQLiteStatement insertStatement = null;
+            dictionaryDb.beginTransaction();
+            try
+            {
+                deleteStatement = dictionaryDb.compileStatement("DELETE FROM " + FTS_VIRTUAL_TABLE + " WHERE docid = ?");
+                for (Long dataId: changeSet)
+                {
+                    deleteStatement.bindLong(1, dataId);
+                    deleteStatement.execute();
+                }
+                insertStatement = dictionaryDb.compileStatement(FTS_INSERT_DOCID);
+                for (DictionaryRow row: rowList)
+                {
+                    bindWord(insertStatement, row);
+                    if (insertStatement.executeInsert() < 0)
+                        throw new SQLException("Unable to add text: " + row.text1);
+                }
+                setWatermark(dictionaryDb, lastSeq);
+                dictionaryDb.setTransactionSuccessful();
+            }
+            finally
+            {
+                if (deleteStatement != null)
+                    deleteStatement.close();
+                if (insertStatement != null)
+                    insertStatement.close();
+                dictionaryDb.endTransaction();
+            }
+            watermark = lastSeq;
+            changeCount += changeSet.size();
+            notifyDictionaryChange();
+            // Applied entries are no longer needed. If this fails, they are skipped next time by the watermark.
+            database.execSQL("DELETE FROM " + changeLog + " WHERE seq <= " + lastSeq);
+            if (logCount < syncBatchSize)
+                break;
+        }
+        if ((changeCount > 0) && Log.isLoggable(TAG, Log.DEBUG))
+            Log.d(TAG, "Synchronized " + changeCount + " changed rows");
+        return changeCount;
+    }
+
+    /**
+     * Set incremental index maintenance mode. Requires write access to the source database to install triggers.
+     * @param incremental boolean
+     */
+    public void setIncremental(boolean incremental)
+    {
+        this.incremental = incremental;
+    }
+
+    /**
+     * Set number of change log entries applied per transaction
+     * @param syncBatchSize Positive number
+     */
+    public void setSyncBatchSize(int syncBatchSize)
+    {
+        if (syncBatchSize < 1)
+            throw new IllegalArgumentException("Synchronize batch size must be greater than zero");
+        this.syncBatchSize = syncBatchSize;
+    }
+
+    /**
+     * Returns name of change log table in the source database
+     * @return String
+     */
+    public String getChangeLogTable()
+    {
+        return CHANGE_LOG_PREFIX + SOURCE_TABLE;
+    }
+
+    /**
+     * Create change log table and triggers to record the primary key of each inserted, updated and deleted source row
+     * @param database Source database opened for writing
+     */
+    protected void installChangeLog(SQLiteDatabase database)
+    {
+        String changeLog = getChangeLogTable();
+        String keyColumn = SOURCE_COLUMN_MAP.get(SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID);
+        Set<String> columnSet = new LinkedHashSet<String>();
+        columnSet.add(keyColumn);
+        columnSet.add(SOURCE_COLUMN_MAP.get(SearchManager.SUGGEST_COLUMN_TEXT_1));
+        columnSet.add(SOURCE_COLUMN_MAP.get(SearchManager.SUGGEST_COLUMN_TEXT_2));
+        StringBuilder columns = new StringBuilder();
+        for (String column: columnSet)
+        {
+            if (columns.length() > 0)
+                columns.append(", ");
+            columns.append(column);
+        }
+        String insertLog = "INSERT INTO " + changeLog + " (data_id) ";
+        database.execSQL("CREATE TABLE IF NOT EXISTS " + changeLog + " (seq INTEGER PRIMARY KEY AUTOINCREMENT, data_id INTEGER NOT NULL)");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS " + changeLog + "_insert AFTER INSERT ON " + SOURCE_TABLE + 
+                         " BEGIN " + insertLog + "VALUES (new." + keyColumn + "); END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS " + changeLog + "_update AFTER UPDATE OF " + columns + " ON " + SOURCE_TABLE + 
+                         " BEGIN " + insertLog + "VALUES (old." + keyColumn + "); " + 
+                         insertLog + "SELECT new." + keyColumn + " WHERE new." + keyColumn + " <> old." + keyColumn + "; END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS " + changeLog + "_delete AFTER DELETE ON " + SOURCE_TABLE + 
+                         " BEGIN " + insertLog + "VALUES (old." + keyColumn + "); END");
+    }
+
+    /**
+     * Returns sequence number of last change recorded in change log or 0 if the log is empty
+     * @param database Source database
+     * @return long
+     */
+    protected long getLastChange(SQLiteDatabase database)
+    {
+        Cursor cursor = database.rawQuery("select max(seq) from " + getChangeLogTable(), null);
+        try
+        {
+            return (cursor != null) && cursor.moveToFirst() ? cursor.getLong(0) : 0;
         }
         finally
         {
             if (cursor != null)
                 cursor.close();
         }
-        return status;
+    }
+
+    /**
+     * Returns sequence number of last change applied to dictionary or -1 if the dictionary has never been synchronized
+     * @param dictionaryDb Dictionary database
+     * @return long
+     */
+    protected long getWatermark(SQLiteDatabase dictionaryDb)
+    {
+        Cursor cursor = dictionaryDb.rawQuery("select last_seq from " + SYNC_TABLE + " where source_table = ?", new String[] { SOURCE_TABLE });
+        try
+        {
+            return (cursor != null) && cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        }
+        finally
+        {
+            if (cursor != null)
+                cursor.close();
+        }
+    }
+
+    /**
+     * Record sequence number of last change applied to dictionary
+     * @param dictionaryDb Dictionary database
+     * @param lastSeq Change log sequence number
+     */
+    protected void setWatermark(SQLiteDatabase dictionaryDb, long lastSeq)
+    {
+        dictionaryDb.execSQL("INSERT OR REPLACE INTO " + SYNC_TABLE + " (source_table, last_seq) VALUES (?, ?)", new Object[] { SOURCE_TABLE, Long.valueOf(lastSeq) });
     }
 
     /**
@@ -167,6 +551,8 @@ public class FtsEngine implements FtsQuery
     @Override
     public Cursor query(String selection, String[] selectionArgs, String[] columns, int limit) 
     {
+        if (ranked && isMatchSelection(selection))
+            return rankedQuery(selection, selectionArgs, columns, limit);
         /* The SQLiteBuilder provides a map for all possible columns requested to
          * actual columns in the database, creating a simple column alias mechanism
          * by which the ContentProvider does not need to know the real column names
@@ -196,6 +582,23 @@ public class FtsEngine implements FtsQuery
         return cursor;
     }
 
+    /**
+     * Performs a full text query returning matches highest BM25 score first. Matches of equal score are in row id order.
+     * @param selection The selection clause, which must contain a MATCH operator
+     * @param selectionArgs Selection arguments for "?" components in the selection
+     * @param columns The columns to return
+     * @param limit Maximum number of hits to return or unlimited if zero
+     * @return A Cursor over the top ranked rows, positioned at the first row, or null if none found
+     */
+    public Cursor rankedQuery(String selection, String[] selectionArgs, String[] columns, int limit)
+    {
+        SQLiteDatabase dictionaryDb = ftsOpenHelper.getReadableDictionaryDatabase();
+        List<ScoredDocument> rankList = rank(dictionaryDb, selection, selectionArgs, limit);
+        if (rankList.isEmpty())
+            return null;
+        return fetch(dictionaryDb, rankList, columns);
+    }
+
     /**
      * Returns Engine status
      * @return FtsStatus
@@ -205,6 +608,58 @@ public class FtsEngine implements FtsQuery
         return status;
     }
 
+    /**
+     * Returns number of words added by current or last dictionary load
+     * @return int
+     */
+    public int getWordCount()
+    {
+        return wordCount;
+    }
+
+    /**
+     * Returns number of source rows for current or last dictionary load
+     * @return int
+     */
+    public int getTotalWords()
+    {
+        return totalWords;
+    }
+
+    /**
+     * Set number of words added per transaction
+     * @param commitSize Positive number
+     */
+    public void setCommitSize(int commitSize)
+    {
+        if (commitSize < 1)
+            throw new IllegalArgumentException("Commit size must be greater than zero");
+        this.commitSize = commitSize;
+    }
+
+    /**
+     * Set number of threads used to run word filters ahead of the single dictionary writer.
+     * Word filters must be thread safe if more than one thread is used.
+     * @param filterThreads Positive number. Default is 1, which runs filters on the loading thread.
+     */
+    public void setFilterThreads(int filterThreads)
+    {
+        if (filterThreads < 1)
+            throw new IllegalArgumentException("Filter threads must be greater than zero");
+        this.filterThreads = filterThreads;
+    }
+
+    /**
+     * Set load progress listener
+     * @param progressListener ProgressListener or null to remove
+     * @param progressInterval Number of words added between progress reports
+     */
+    public void setProgressListener(ProgressListener progressListener, int progressInterval)
+    {
+        this.progressListener = progressListener;
+        this.progressInterval = progressInterval > 0 ? progressInterval : DEFAULT_PROGRESS_INTERVAL;
+    }
+
     /**
      * Set flag for "order by second column" 
      * @param value boolean
@@ -214,6 +669,36 @@ public class FtsEngine implements FtsQuery
         orderbyText2 = value;
     }
     
+    /**
+     * Set flag for ranked mode, in which word matches are returned in relevance order instead of
+     * row id or "order by second column" order
+     * @param value boolean
+     */
+    public void setRanked(boolean value)
+    {
+        ranked = value;
+    }
+
+    /**
+     * Set relative weights of the text columns used in ranking. A weight of zero excludes the column from the score.
+     * @param text1Weight Column 1 weight
+     * @param text2Weight Column 2 weight
+     */
+    public void setColumnWeights(double text1Weight, double text2Weight)
+    {
+        bm25Scorer.setColumnWeights(0.0, text1Weight, text2Weight);
+    }
+
+    /**
+     * Set BM25 parameters
+     * @param k1 Term frequency saturation, usually between 1.2 and 2.0
+     * @param b Document length normalization between 0 and 1
+     */
+    public void setBm25Parameters(double k1, double b)
+    {
+        bm25Scorer.setParameters(k1, b);
+    }
+
     /**
      * Set word filter for column 1
      * @param text1Filter WordFilter
@@ -232,6 +717,56 @@ public class FtsEngine implements FtsQuery
         this.text2Filter = text2Filter;
     }
 
+    /**
+     * Add listener to be notified when words in the dictionary change
+     * @param dictionaryListener Dictionary listener
+     */
+    public void addDictionaryListener(DictionaryListener dictionaryListener)
+    {
+        dictionaryListeners.add(dictionaryListener);
+    }
+
+    /**
+     * Remove dictionary listener
+     * @param dictionaryListener Dictionary listener
+     */
+    public void removeDictionaryListener(DictionaryListener dictionaryListener)
+    {
+        dictionaryListeners.remove(dictionaryListener);
+    }
+
+    /**
+     * Returns in-memory suggestion index of all words in the dictionary. The words are read in the order of
+     * SQLite query results, so entries of equal weight are suggested in the same order.
+     * This is a potentially long-running operation that should run on a background thread.
+     * @param weigher Assigns rank weights or null if all words have equal weight
+     * @return SuggestionIndex
+     */
+    public SuggestionIndex createSuggestionIndex(SuggestionIndex.Weigher weigher)
+    {
+        SuggestionIndex.Builder builder = new SuggestionIndex.Builder();
+        Cursor cursor = ftsOpenHelper.getReadableDictionaryDatabase().rawQuery("select " +
+                SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID + ", " + SearchManager.SUGGEST_COLUMN_TEXT_1 + ", " +
+                SearchManager.SUGGEST_COLUMN_TEXT_2 + " from " + FTS_VIRTUAL_TABLE + " order by " +
+                (orderbyText2 ? SearchManager.SUGGEST_COLUMN_TEXT_2 + " ASC, " + SearchManager.SUGGEST_COLUMN_TEXT_1 + " ASC" : "docid"), null);
+        try
+        {
+            while ((cursor != null) && cursor.moveToNext())
+            {
+                long dataId = cursor.getLong(0);
+                String text1 = cursor.getString(1);
+                String text2 = cursor.getString(2);
+                builder.add(dataId, text1, text2, weigher == null ? 0 : weigher.weigh(dataId, text1, text2));
+            }
+        }
+        finally
+        {
+            if (cursor != null)
+                cursor.close();
+        }
+        return builder.build();
+    }
+
     /**
      * Add a word to the dictionary.
      * @param dictionaryDb Dictionary database
@@ -252,6 +787,10 @@ public class FtsEngine implements FtsQuery
 
     /**
      * Load the database table with words. Must execute in a background thread.
+     * Words are added using a compiled insert statement in transactions of commit-size words. 
+     * Source rows are read in chunks, which are filtered on a thread pool if more than one filter thread is set.
+     * The single writer consumes filtered chunks in source order. If the load fails, the dictionary is left empty
+     * so the next initialize() starts again.
      * @param database Source database
      * @param dictionaryDb Dictionary database
      * @return Engine status
@@ -265,39 +804,276 @@ public class FtsEngine implements FtsQuery
         final String SOURCE_INTENT_DATA_ID_COLUMN = SOURCE_COLUMN_MAP.get(SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID);
         
         final Cursor cursor = database.rawQuery("select " + SOURCE_INTENT_DATA_ID_COLUMN + ", " + SOURCE_TEXT1_COLUMN + ", " + SOURCE_TEXT2_COLUMN + " from " + SOURCE_TABLE, null);
-        if ((cursor != null ) && cursor.moveToFirst())
+        if (cursor == null)
+            return FtsStatus.Error;
+        if (!cursor.moveToFirst())
         {
-            if(Log.isLoggable(TAG, Log.DEBUG))
-                Log.d(TAG, "Loading words...");
-
-            try 
+            cursor.close();
+            return FtsStatus.Error;
+        }
+        if(Log.isLoggable(TAG, Log.DEBUG))
+            Log.d(TAG, "Loading words...");
+        wordCount = 0;
+        totalWords = cursor.getCount();
+        reportProgress(FtsStatus.Loading);
+        ExecutorService executor = null;
+        if ((filterThreads > 1) && ((text1Filter != null) || (text2Filter != null)))
+            executor = Executors.newFixedThreadPool(filterThreads);
+        SQLiteStatement insertStatement = null;
+        boolean inTransaction = false;
+        int committed = 0;
+        try 
+        {
+            // Column indexes do not change from row to row
+            final int dataIdIndex = cursor.getColumnIndex(SOURCE_INTENT_DATA_ID_COLUMN);
+            final int text1Index = cursor.getColumnIndex(SOURCE_TEXT1_COLUMN);
+            final int text2Index = cursor.getColumnIndex(SOURCE_TEXT2_COLUMN);
+            insertStatement = dictionaryDb.compileStatement(incremental ? FTS_INSERT_DOCID : FTS_INSERT);
+            dictionaryDb.beginTransaction();
+            inTransaction = true;
+            LinkedList<Future<List<DictionaryRow>>> pendingList = new LinkedList<Future<List<DictionaryRow>>>();
+            boolean hasNext = true;
+            while (hasNext)
             {
+                final List<DictionaryRow> chunk = new ArrayList<DictionaryRow>(FILTER_CHUNK_SIZE);
                 do 
                 {
-                    int dataId = cursor.getInt(cursor.getColumnIndex(SOURCE_INTENT_DATA_ID_COLUMN));
-                    String text1 = cursor.getString(cursor.getColumnIndex(SOURCE_TEXT1_COLUMN));
-                    if (text1Filter != null)
-                        text1 = text1Filter.filter(SOURCE_TEXT1_COLUMN, text1);
-                    String text2 = cursor.getString(cursor.getColumnIndex(SOURCE_TEXT2_COLUMN));
-                    if (text2Filter != null)
-                        text2 = text2Filter.filter(SOURCE_TEXT2_COLUMN, text2);
-                    long id = addWord(dictionaryDb, text1.trim(), text2.trim(), dataId);
-                    if (id < 0) 
-                    {
-                        Log.e(TAG, "unable to add text: " + text1);
-                        return FtsStatus.Error;
-                    }
-                } while (cursor.moveToNext());
-                success = true;
-            } 
-            finally 
+                    chunk.add(new DictionaryRow(cursor.getInt(dataIdIndex), cursor.getString(text1Index), cursor.getString(text2Index)));
+                    hasNext = cursor.moveToNext();
+                } while (hasNext && (chunk.size() < FILTER_CHUNK_SIZE));
+                List<DictionaryRow> writeChunk = null;
+                if (executor == null)
+                    writeChunk = filterWords(chunk, SOURCE_TEXT1_COLUMN, SOURCE_TEXT2_COLUMN);
+                else
+                {
+                    pendingList.add(executor.submit(new Callable<List<DictionaryRow>>(){
+
+                        @Override
+                        public List<DictionaryRow> call() throws Exception
+                        {
+                            return filterWords(chunk, SOURCE_TEXT1_COLUMN, SOURCE_TEXT2_COLUMN);
+                        }}));
+                    // Keep filter threads busy while bounding rows held in memory
+                    if (pendingList.size() > filterThreads * 2)
+                        writeChunk = pendingList.removeFirst().get();
+                }
+                if ((writeChunk != null) && !addWords(dictionaryDb, insertStatement, writeChunk))
+                    return FtsStatus.Error;
+                if ((wordCount - committed) >= commitSize)
+                {
+                    dictionaryDb.setTransactionSuccessful();
+                    dictionaryDb.endTransaction();
+                    committed = wordCount;
+                    dictionaryDb.beginTransaction();
+                }
+            }
+            while (!pendingList.isEmpty())
+                if (!addWords(dictionaryDb, insertStatement, pendingList.removeFirst().get()))
+                    return FtsStatus.Error;
+            dictionaryDb.setTransactionSuccessful();
+            success = true;
+        } 
+        catch (SQLException e)
+        {
+            Log.e(TAG, "Error loading words", e);
+        }
+        catch (InterruptedException e)
+        {
+            Log.e(TAG, "Interrupted loading words");
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            Log.e(TAG, "Error filtering words", e.getCause());
+        }
+        finally 
+        {
+            cursor.close();
+            if (executor != null)
+                executor.shutdownNow();
+            if (insertStatement != null)
+                insertStatement.close();
+            if (inTransaction)
+                dictionaryDb.endTransaction();
+            if (!success && (committed > 0))
+                // Remove partial dictionary
+                dictionaryDb.execSQL("DELETE FROM " + FTS_VIRTUAL_TABLE);
+            reportProgress(success ? FtsStatus.Loaded : FtsStatus.Error);
+        }
+        if (success && Log.isLoggable(TAG, Log.DEBUG))
+            Log.d(TAG, "DONE loading " + wordCount + " words.");
+        return success ? FtsStatus.Loaded : FtsStatus.Error;
+    }
+
+    /**
+     * Apply word filters to a chunk of source rows and trim results
+     * @param chunk Source rows
+     * @param text1Column Source column name for column 1
+     * @param text2Column Source column name for column 2
+     * @return The same list of rows
+     */
+    protected List<DictionaryRow> filterWords(List<DictionaryRow> chunk, String text1Column, String text2Column)
+    {
+        for (DictionaryRow row: chunk)
+        {
+            if (text1Filter != null)
+                row.text1 = text1Filter.filter(text1Column, row.text1);
+            if (text2Filter != null)
+                row.text2 = text2Filter.filter(text2Column, row.text2);
+            row.text1 = row.text1 == null ? null : row.text1.trim();
+            row.text2 = row.text2 == null ? null : row.text2.trim();
+        }
+        return chunk;
+    }
+
+    /**
+     * Add filtered words to the dictionary using compiled insert statement
+     * @param dictionaryDb Dictionary database
+     * @param insertStatement Compiled insert statement
+     * @param chunk Filtered rows
+     * @return flag set true if all words added
+     */
+    protected boolean addWords(SQLiteDatabase dictionaryDb, SQLiteStatement insertStatement, List<DictionaryRow> chunk)
+    {
+        for (DictionaryRow row: chunk)
+        {
+            bindWord(insertStatement, row);
+            if (insertStatement.executeInsert() < 0)
             {
+                Log.e(TAG, "unable to add text: " + row.text1);
+                return false;
+            }
+            if ((++wordCount % progressInterval) == 0)
+                reportProgress(FtsStatus.Loading);
+        }
+        return true;
+    }
+
+    /**
+     * Notify progress listener, if set
+     * @param loadStatus Load status
+     */
+    protected void reportProgress(FtsStatus loadStatus)
+    {
+        if (progressListener != null)
+            progressListener.onProgress(loadStatus, wordCount, totalWords);
+    }
+
+    /**
+     * Returns matches of selection, highest score first, keeping at most "limit" documents
+     * @param dictionaryDb Dictionary database
+     * @param selection The selection clause, which must contain a MATCH operator
+     * @param selectionArgs Selection arguments for "?" components in the selection
+     * @param limit Maximum number of hits to return or unlimited if zero
+     * @return List of ScoredDocument objects in rank order
+     */
+    protected List<ScoredDocument> rank(SQLiteDatabase dictionaryDb, String selection, String[] selectionArgs, int limit)
+    {
+        CorpusStatistics statistics = getCorpusStatistics(dictionaryDb);
+        TopDocuments topDocuments = new TopDocuments(limit);
+        double[] lengths = new double[3];
+        Cursor cursor = dictionaryDb.rawQuery(FTS_RANK_SELECT + selection, selectionArgs);
+        try
+        {
+            while ((cursor != null) && cursor.moveToNext())
+            {
+                lengths[1] = cursor.getLong(2);
+                lengths[2] = cursor.getLong(3);
+                // FTS3 matchinfo "pcx" hit values follow the phrase and column counts
+                topDocuments.add(cursor.getLong(0),
+                    bm25Scorer.score(Bm25Scorer.toIntArray(cursor.getBlob(1)), 2, statistics.rowCount, statistics.averageLengths, lengths));
+            }
+        }
+        finally
+        {
+            if (cursor != null)
                 cursor.close();
+        }
+        return topDocuments.getRankList();
+    }
+
+    /**
+     * Returns Cursor over requested columns of ranked documents in rank order, positioned at the first row, or null if none found
+     * @param dictionaryDb Dictionary database
+     * @param rankList Ranked documents
+     * @param columns The columns to return
+     * @return Cursor
+     */
+    protected Cursor fetch(SQLiteDatabase dictionaryDb, List<ScoredDocument> rankList, String[] columns)
+    {
+        List<Cursor> cursorList = new ArrayList<Cursor>();
+        for (int start = 0; start < rankList.size(); start += MAX_FETCH_IDS)
+        {
+            List<ScoredDocument> chunk = rankList.subList(start, Math.min(start + MAX_FETCH_IDS, rankList.size()));
+            // Row ids are numeric so can be written into the query
+            StringBuilder inList = new StringBuilder("docid IN (");
+            StringBuilder orderBy = new StringBuilder("CASE docid");
+            for (int i = 0; i < chunk.size(); ++i)
+            {
+                long docid = chunk.get(i).docid;
+                inList.append(i == 0 ? "" : ",").append(docid);
+                orderBy.append(" WHEN ").append(docid).append(" THEN ").append(i);
             }
-            if (success && Log.isLoggable(TAG, Log.DEBUG))
-                Log.d(TAG, "DONE loading words.");
+            inList.append(')');
+            orderBy.append(" END");
+            Cursor cursor = getSQLiteQueryBuilder().query(dictionaryDb, columns, inList.toString(), null, null, null, orderBy.toString());
+            if (cursor != null)
+                cursorList.add(cursor);
         }
-        return success ? FtsStatus.Loaded : FtsStatus.Error;
+        if (cursorList.isEmpty())
+            return null;
+        Cursor cursor = cursorList.size() == 1 ? cursorList.get(0) : new MergeCursor(cursorList.toArray(new Cursor[cursorList.size()]));
+        if (!cursor.moveToFirst())
+        {
+            cursor.close();
+            return null;
+        }
+        return cursor;
+    }
+
+    /**
+     * Returns dictionary totals, which are calculated once after each dictionary change
+     * @param dictionaryDb Dictionary database
+     * @return CorpusStatistics
+     */
+    protected CorpusStatistics getCorpusStatistics(SQLiteDatabase dictionaryDb)
+    {
+        CorpusStatistics statistics = corpusStatistics;
+        if (statistics != null)
+            return statistics;
+        long rowCount = 0;
+        double[] averageLengths = new double[3];
+        Cursor cursor = dictionaryDb.rawQuery(FTS_STATISTICS_QUERY, null);
+        try
+        {
+            if ((cursor != null) && cursor.moveToFirst())
+            {
+                rowCount = cursor.getLong(0);
+                if (rowCount > 0)
+                {
+                    averageLengths[1] = cursor.getDouble(1) / rowCount;
+                    averageLengths[2] = cursor.getDouble(2) / rowCount;
+                }
+            }
+        }
+        finally
+        {
+            if (cursor != null)
+                cursor.close();
+        }
+        statistics = new CorpusStatistics(rowCount, averageLengths);
+        corpusStatistics = statistics;
+        return statistics;
+    }
+
+    /**
+     * Notify dictionary listeners of change
+     */
+    protected void notifyDictionaryChange()
+    {
+        corpusStatistics = null;
+        for (DictionaryListener dictionaryListener: dictionaryListeners)
+            dictionaryListener.onDictionaryChange();
     }
 
     /**
@@ -312,6 +1088,35 @@ public class FtsEngine implements FtsQuery
         return builder;
     }
     
+    /**
+     * Returns flag set true if selection is a full text query
+     */
+    protected static boolean isMatchSelection(String selection)
+    {
+        return (selection != null) && selection.toUpperCase(Locale.US).contains(" MATCH ");
+    }
+
+    /**
+     * Bind source row values to insert statement
+     */
+    private static void bindWord(SQLiteStatement insertStatement, DictionaryRow row)
+    {
+        insertStatement.bindLong(1, row.dataId);
+        bindText(insertStatement, 2, row.text1);
+        bindText(insertStatement, 3, row.text2);
+    }
+
+    /**
+     * Bind text or null to insert statement
+     */
+    private static void bindText(SQLiteStatement statement, int index, String text)
+    {
+        if (text == null)
+            statement.bindNull(index);
+        else
+            statement.bindString(index, text);
+    }
+
     /**
      * Returns an immutable copy of source Map
      * @param sourceMap Map&lt;String, String&gt;
@@ -84,4 +84,13 @@ public class FtsOpenHelper
         return databaseOpenHelper.getReadableDatabase();
     }
 
+    /**
+     * Get database to be searched for writing - required to install the change log for incremental index maintenance
+     * @return SQLiteDatabase
+     */
+    public SQLiteDatabase getWritableDatabase()
+    {
+        return databaseOpenHelper.getWritableDatabase();
+    }
+
 }
@@ -0,0 +1,400 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyfts;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.app.SearchManager;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+/**
+ * SuggestionCacheQuery
+ * FtsQuery which caches the results of word match queries, keyed by normalized search term, columns and limit.
+ * Type-ahead queries are usually refinements of the previous query, such as "ca" followed by "cat". When the
+ * cached result of a shorter query holds every match, the longer query is answered by filtering those rows in
+ * memory, without going to the wrapped FtsQuery. The cache is bounded, evicting the least recently used entry,
+ * and is cleared when the dictionary changes. Queries other than word matches are passed through uncached.
+ * Narrowing preserves the order of the cached rows, so it must be disabled when the wrapped query orders results
+ * by relevance to the search term, as FtsEngine does in ranked mode.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class SuggestionCacheQuery implements FtsQuery, FtsEngine.DictionaryListener
+{
+    /**
+     * CacheEntry
+     * Result rows of one query
+     */
+    static class CacheEntry
+    {
+        /** Rows in query result order */
+        final Object[][] rows;
+        /** Flag set true if rows include every match, rather than being cut short by the limit */
+        final boolean isComplete;
+
+        CacheEntry(Object[][] rows, boolean isComplete)
+        {
+            this.rows = rows;
+            this.isComplete = isComplete;
+        }
+    }
+
+    public static final String TAG = "SuggestionCacheQuery";
+    /** Default maximum number of cached queries */
+    public static final int DEFAULT_MAX_ENTRIES = 128;
+    /** Default maximum number of rows in a cached query result */
+    public static final int DEFAULT_MAX_ROWS = 500;
+    /** Empty result */
+    static final Object[][] NO_ROWS = new Object[0][];
+
+    /** Wrapped query */
+    protected final FtsQuery ftsQuery;
+    /** Results larger than this are not cached */
+    protected final int maxRows;
+    /** Cached results in least recently used order. Also the lock for generation. */
+    protected final Map<String, CacheEntry> cache;
+    /** Incremented when the cache is invalidated so results of queries in progress are not cached */
+    protected long generation;
+    protected final AtomicLong hitCount;
+    protected final AtomicLong missCount;
+    protected final AtomicLong narrowCount;
+    /** Flag set true if refinements are filtered from cached results */
+    protected volatile boolean narrowingEnabled = true;
+
+    /**
+     * Construct SuggestionCacheQuery object with default bounds
+     * @param ftsQuery Wrapped query
+     */
+    public SuggestionCacheQuery(FtsQuery ftsQuery)
+    {
+        this(ftsQuery, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_ROWS);
+    }
+
+    /**
+     * Construct SuggestionCacheQuery object
+     * @param ftsQuery Wrapped query
+     * @param maxEntries Maximum number of cached queries
+     * @param maxRows Maximum number of rows in a cached query result
+     */
+    public SuggestionCacheQuery(FtsQuery ftsQuery, final int maxEntries, int maxRows)
+    {
+        this.ftsQuery = ftsQuery;
+        this.maxRows = maxRows;
+        cache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true){
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest)
+            {
+                return size() > maxEntries;
+            }};
+        hitCount = new AtomicLong();
+        missCount = new AtomicLong();
+        narrowCount = new AtomicLong();
+    }
+
+    /**
+     * Performs a database query, using cached results where possible.
+     * @param selection The selection clause
+     * @param selectionArgs Selection arguments for "?" components in the selection
+     * @param columns The columns to return
+     * @param limit Maximum number of hits to return or unlimited if zero
+     * @return A Cursor over all rows matching the query, positioned at the first row, or null if none found
+     */
+    @Override
+    public Cursor query(String selection, String[] selectionArgs, String[] columns, int limit)
+    {
+        List<String> terms = null;
+        if (SuggestionIndexQuery.WORD_MATCH_SELECTION.equals(selection) && (selectionArgs != null) && (selectionArgs.length == 1) && (columns != null))
+            terms = SuggestionIndex.parseMatchTerm(selectionArgs[0]);
+        if (terms == null)
+            return ftsQuery.query(selection, selectionArgs, columns, limit);
+        if (limit < 0)
+            limit = 0;
+        String columnKey = getColumnKey(columns);
+        String key = getKey(columnKey, terms, limit);
+        CacheEntry entry;
+        long startGeneration;
+        synchronized (cache)
+        {
+            entry = cache.get(key);
+            startGeneration = generation;
+        }
+        if (entry != null)
+        {
+            hitCount.incrementAndGet();
+            return createCursor(columns, entry.rows);
+        }
+        int text1Index = -1;
+        for (int i = 0; i < columns.length; ++i)
+            if (SearchManager.SUGGEST_COLUMN_TEXT_1.equals(columns[i]))
+                text1Index = i;
+        if (narrowingEnabled && (text1Index != -1))
+        {
+            entry = narrow(columnKey, terms, limit, text1Index);
+            if (entry != null)
+            {
+                narrowCount.incrementAndGet();
+                put(key, entry, startGeneration);
+                return createCursor(columns, entry.rows);
+            }
+        }
+        missCount.incrementAndGet();
+        Object[][] rows = readRows(ftsQuery.query(selection, selectionArgs, columns, limit), columns.length);
+        if (rows.length <= maxRows)
+            put(key, new CacheEntry(rows, (limit == 0) || (rows.length < limit)), startGeneration);
+        return createCursor(columns, rows);
+    }
+
+    /**
+     * Clears the cache when the dictionary changes
+     */
+    @Override
+    public void onDictionaryChange()
+    {
+        invalidate();
+    }
+
+    /**
+     * Discard all cached results
+     */
+    public void invalidate()
+    {
+        synchronized (cache)
+        {
+            cache.clear();
+            ++generation;
+        }
+    }
+
+    /**
+     * Set flag for narrowing, which answers refinements of cached queries by filtering cached rows
+     * @param value boolean
+     */
+    public void setNarrowingEnabled(boolean value)
+    {
+        narrowingEnabled = value;
+    }
+
+    /**
+     * Returns number of cached queries
+     * @return int
+     */
+    public int size()
+    {
+        synchronized (cache)
+        {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Returns number of queries answered from a cached result of the same query
+     * @return long
+     */
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns number of queries passed to the wrapped query
+     * @return long
+     */
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * Returns number of queries answered by filtering a cached result of a shorter query
+     * @return long
+     */
+    public long getNarrowCount()
+    {
+        return narrowCount.get();
+    }
+
+    /**
+     * Returns result of query filtered from the complete result of a query it refines, or null if none is cached
+     */
+    protected CacheEntry narrow(String columnKey, List<String> terms, int limit, int text1Index)
+    {
+        String body = joinTerms(terms);
+        for (int length = body.length() - 1; length > 0; --length)
+        {
+            if (body.charAt(length - 1) == ' ')
+                continue;
+            List<String> shorterTerms = SuggestionIndex.parseMatchTerm(body.substring(0, length) + "*");
+            if (!isRefinement(shorterTerms, terms))
+                continue;
+            CacheEntry entry = getCompleteEntry(getKey(columnKey, shorterTerms, limit));
+            if ((entry == null) && (limit != 0))
+                entry = getCompleteEntry(getKey(columnKey, shorterTerms, 0));
+            if (entry == null)
+                continue;
+            List<Object[]> rowList = new ArrayList<Object[]>();
+            for (Object[] row: entry.rows)
+            {
+                Object text1 = row[text1Index];
+                if (matches(terms, SuggestionIndex.tokenize(text1 == null ? null : text1.toString())))
+                {
+                    if ((limit != 0) && (rowList.size() == limit))
+                        return new CacheEntry(rowList.toArray(new Object[rowList.size()][]), false);
+                    rowList.add(row);
+                }
+            }
+            return new CacheEntry(rowList.toArray(new Object[rowList.size()][]), true);
+        }
+        return null;
+    }
+
+    /**
+     * Returns flag set true if every row matching terms also matches the shorter terms.
+     * Each leading term of the shorter query must appear as a leading term of the query and
+     * the prefix of the shorter query must start some term of the query.
+     */
+    static boolean isRefinement(List<String> shorterTerms, List<String> terms)
+    {
+        if (shorterTerms == null)
+            return false;
+        int lastShorter = shorterTerms.size() - 1;
+        int last = terms.size() - 1;
+        for (int i = 0; i < lastShorter; ++i)
+            if (!terms.subList(0, last).contains(shorterTerms.get(i)))
+                return false;
+        String prefix = shorterTerms.get(lastShorter);
+        for (String term: terms)
+            if (term.startsWith(prefix))
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns flag set true if text tokens satisfy query terms, the last of which is a prefix
+     */
+    static boolean matches(List<String> terms, List<String> tokens)
+    {
+        int last = terms.size() - 1;
+        for (int i = 0; i < last; ++i)
+            if (!tokens.contains(terms.get(i)))
+                return false;
+        String prefix = terms.get(last);
+        for (String token: tokens)
+            if (token.startsWith(prefix))
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns all rows of cursor, which may be null, and closes it
+     */
+    protected Object[][] readRows(Cursor cursor, int columnCount)
+    {
+        if (cursor == null)
+            return NO_ROWS;
+        try
+        {
+            if (!cursor.moveToFirst())
+                return NO_ROWS;
+            List<Object[]> rowList = new ArrayList<Object[]>(cursor.getCount());
+            do
+            {
+                Object[] row = new Object[columnCount];
+                for (int i = 0; i < columnCount; ++i)
+                {
+                    switch (cursor.getType(i))
+                    {
+                    case Cursor.FIELD_TYPE_NULL: break;
+                    case Cursor.FIELD_TYPE_INTEGER: row[i] = Long.valueOf(cursor.getLong(i)); break;
+                    case Cursor.FIELD_TYPE_FLOAT: row[i] = Double.valueOf(cursor.getDouble(i)); break;
+                    case Cursor.FIELD_TYPE_BLOB: row[i] = cursor.getBlob(i); break;
+                    default: row[i] = cursor.getString(i);
+                    }
+                }
+                rowList.add(row);
+            } while (cursor.moveToNext());
+            return rowList.toArray(new Object[rowList.size()][]);
+        }
+        finally
+        {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Returns Cursor over rows, positioned at the first row, or null if there are none
+     */
+    protected Cursor createCursor(String[] columns, Object[][] rows)
+    {
+        if (rows.length == 0)
+            return null;
+        MatrixCursor cursor = new MatrixCursor(columns, rows.length);
+        for (Object[] row: rows)
+            cursor.addRow(row);
+        cursor.moveToFirst();
+        return cursor;
+    }
+
+    private CacheEntry getCompleteEntry(String key)
+    {
+        CacheEntry entry;
+        synchronized (cache)
+        {
+            entry = cache.get(key);
+        }
+        return (entry != null) && entry.isComplete ? entry : null;
+    }
+
+    private void put(String key, CacheEntry entry, long startGeneration)
+    {
+        synchronized (cache)
+        {   // Discard result if the dictionary changed while the query was running
+            if (generation == startGeneration)
+                cache.put(key, entry);
+        }
+    }
+
+    private static String getColumnKey(String[] columns)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (String column: columns)
+            builder.append(column).append(',');
+        return builder.toString();
+    }
+
+    private static String getKey(String columnKey, List<String> terms, int limit)
+    {
+        return columnKey + limit + '|' + joinTerms(terms);
+    }
+
+    private static String joinTerms(List<String> terms)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (String term: terms)
+        {
+            if (builder.length() > 0)
+                builder.append(' ');
+            builder.append(term);
+        }
+        return builder.toString();
+    }
+}
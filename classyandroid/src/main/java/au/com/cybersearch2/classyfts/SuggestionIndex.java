@@ -0,0 +1,515 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyfts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SuggestionIndex
+ * Immutable in-memory prefix index of dictionary words for type-ahead suggestions.
+ * Entries are stored in rank order, highest weight first and then in the order they were added, so an entry
+ * is identified by its rank. The distinct terms of column 1 text are held in sorted order in a single character
+ * array, each with a posting list of ascending entry ranks. A prefix selects a contiguous range of terms and the
+ * top K entries are found by merging the heads of the posting lists in that range, stopping after K distinct entries.
+ * Terms are formed in the same way as the SQLite FTS "simple" tokenizer, so results agree with a MATCH query on
+ * column 1, with entries of equal weight returned in dictionary row order.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class SuggestionIndex
+{
+    /**
+     * Weigher
+     * Assigns the weight which ranks a dictionary word. Higher weights are suggested first.
+     */
+    public interface Weigher
+    {
+        /**
+         * Returns weight of dictionary word
+         * @param dataId Primary key of associated data row
+         * @param text1 Column 1 text
+         * @param text2 Column 2 text
+         * @return weight
+         */
+        int weigh(long dataId, String text1, String text2);
+    }
+
+    /**
+     * Builder
+     * Collects dictionary words and creates the immutable index. Not thread safe.
+     */
+    public static class Builder
+    {
+        private long[] dataIds;
+        private int[] weights;
+        private List<String> text1List;
+        private List<String> text2List;
+        private int count;
+
+        /**
+         * Create Builder object
+         */
+        public Builder()
+        {
+            dataIds = new long[256];
+            weights = new int[256];
+            text1List = new ArrayList<String>();
+            text2List = new ArrayList<String>();
+        }
+
+        /**
+         * Add dictionary word
+         * @param dataId Primary key of associated data row
+         * @param text1 Column 1 text, which is indexed
+         * @param text2 Column 2 text
+         * @param weight Rank weight
+         * @return this Builder
+         */
+        public Builder add(long dataId, String text1, String text2, int weight)
+        {
+            if (count == dataIds.length)
+            {
+                dataIds = Arrays.copyOf(dataIds, count * 2);
+                weights = Arrays.copyOf(weights, count * 2);
+            }
+            dataIds[count] = dataId;
+            weights[count] = weight;
+            text1List.add(text1);
+            text2List.add(text2);
+            ++count;
+            return this;
+        }
+
+        /**
+         * Returns index of words added
+         * @return SuggestionIndex
+         */
+        public SuggestionIndex build()
+        {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; ++i)
+                order[i] = Integer.valueOf(i);
+            // Stable sort keeps insertion order for equal weights
+            Arrays.sort(order, new Comparator<Integer>(){
+
+                @Override
+                public int compare(Integer lhs, Integer rhs)
+                {
+                    int lhsWeight = weights[lhs.intValue()];
+                    int rhsWeight = weights[rhs.intValue()];
+                    return lhsWeight > rhsWeight ? -1 : (lhsWeight == rhsWeight ? 0 : 1);
+                }});
+            long[] rankedDataIds = new long[count];
+            String[] rankedText1 = new String[count];
+            String[] rankedText2 = new String[count];
+            Map<String, PostingList> postingMap = new HashMap<String, PostingList>();
+            for (int rank = 0; rank < count; ++rank)
+            {
+                int index = order[rank].intValue();
+                rankedDataIds[rank] = dataIds[index];
+                rankedText1[rank] = text1List.get(index);
+                rankedText2[rank] = text2List.get(index);
+                for (String term: tokenize(rankedText1[rank]))
+                {
+                    PostingList postingList = postingMap.get(term);
+                    if (postingList == null)
+                    {
+                        postingList = new PostingList();
+                        postingMap.put(term, postingList);
+                    }
+                    postingList.add(rank);
+                }
+            }
+            List<String> terms = new ArrayList<String>(postingMap.keySet());
+            Collections.sort(terms);
+            int termCount = terms.size();
+            int[] termOffsets = new int[termCount + 1];
+            int[] postingOffsets = new int[termCount + 1];
+            int charCount = 0;
+            int postingCount = 0;
+            for (int i = 0; i < termCount; ++i)
+            {
+                charCount += terms.get(i).length();
+                postingCount += postingMap.get(terms.get(i)).size;
+                termOffsets[i + 1] = charCount;
+                postingOffsets[i + 1] = postingCount;
+            }
+            char[] termChars = new char[charCount];
+            int[] postings = new int[postingCount];
+            for (int i = 0; i < termCount; ++i)
+            {
+                String term = terms.get(i);
+                term.getChars(0, term.length(), termChars, termOffsets[i]);
+                PostingList postingList = postingMap.get(term);
+                System.arraycopy(postingList.ranks, 0, postings, postingOffsets[i], postingList.size);
+            }
+            return new SuggestionIndex(rankedDataIds, rankedText1, rankedText2, termChars, termOffsets, postings, postingOffsets);
+        }
+    }
+
+    /** Growable list of ascending ranks, used while building */
+    static class PostingList
+    {
+        int[] ranks = new int[4];
+        int size;
+
+        void add(int rank)
+        {
+            // A term which occurs more than once in the same text is posted once
+            if ((size > 0) && (ranks[size - 1] == rank))
+                return;
+            if (size == ranks.length)
+                ranks = Arrays.copyOf(ranks, size * 2);
+            ranks[size++] = rank;
+        }
+    }
+
+    /** Operators of the FTS standard query syntax which an index lookup cannot evaluate */
+    static final String[] FTS_OPERATORS = new String[] { "AND", "OR", "NOT", "NEAR" };
+    /** Empty result */
+    static final int[] NO_MATCH = new int[0];
+
+    /** Data id by rank */
+    private final long[] dataIds;
+    /** Column 1 text by rank */
+    private final String[] text1;
+    /** Column 2 text by rank */
+    private final String[] text2;
+    /** Sorted terms concatenated */
+    private final char[] termChars;
+    /** Offset of each term in termChars, with the end offset last */
+    private final int[] termOffsets;
+    /** Posting lists concatenated in term order */
+    private final int[] postings;
+    /** Offset of each posting list in postings, with the end offset last */
+    private final int[] postingOffsets;
+
+    SuggestionIndex(long[] dataIds, String[] text1, String[] text2, char[] termChars, int[] termOffsets, int[] postings, int[] postingOffsets)
+    {
+        this.dataIds = dataIds;
+        this.text1 = text1;
+        this.text2 = text2;
+        this.termChars = termChars;
+        this.termOffsets = termOffsets;
+        this.postings = postings;
+        this.postingOffsets = postingOffsets;
+    }
+
+    /**
+     * Returns ranks of entries matching an FTS prefix query, best first. The query is the argument of
+     * "MATCH ?" on column 1, consisting of terms separated by spaces, with the last term followed by "*".
+     * All leading terms must match a term of the entry exactly and the last term must be a prefix of one.
+     * @param matchTerm FTS query eg. "annual rep*"
+     * @param limit Maximum number of entries to return or unlimited if zero
+     * @return Array of entry ranks, or null if the query uses syntax the index cannot evaluate
+     */
+    public int[] lookup(String matchTerm, int limit)
+    {
+        List<String> terms = parseMatchTerm(matchTerm);
+        if (terms == null)
+            return null;
+        String prefix = terms.get(terms.size() - 1);
+        // Posting ranges of exact terms
+        int exactCount = terms.size() - 1;
+        int[] exactFrom = new int[exactCount];
+        int[] exactTo = new int[exactCount];
+        for (int i = 0; i < exactCount; ++i)
+        {
+            String term = terms.get(i);
+            int termIndex = lowerBound(term, false);
+            if ((termIndex == getTermCount()) || (compareTerm(termIndex, term, false) != 0))
+                return NO_MATCH;
+            exactFrom[i] = postingOffsets[termIndex];
+            exactTo[i] = postingOffsets[termIndex + 1];
+        }
+        int first = lowerBound(prefix, true);
+        int last = upperBound(prefix, first);
+        if (first == last)
+            return NO_MATCH;
+        int capacity = limit > 0 ? Math.min(limit, size()) : size();
+        int[] result = new int[Math.min(capacity, 16)];
+        int resultCount = 0;
+        PostingMerge merge = new PostingMerge(first, last);
+        int rank;
+        while (((limit <= 0) || (resultCount < limit)) && ((rank = merge.next()) != -1))
+        {
+            boolean isMatch = true;
+            for (int i = 0; isMatch && (i < exactCount); ++i)
+                isMatch = Arrays.binarySearch(postings, exactFrom[i], exactTo[i], rank) >= 0;
+            if (!isMatch)
+                continue;
+            if (resultCount == result.length)
+                result = Arrays.copyOf(result, Math.min(capacity, resultCount * 2));
+            result[resultCount++] = rank;
+        }
+        return resultCount == result.length ? result : Arrays.copyOf(result, resultCount);
+    }
+
+    /**
+     * Returns number of entries
+     * @return int
+     */
+    public int size()
+    {
+        return dataIds.length;
+    }
+
+    /**
+     * Returns number of distinct terms
+     * @return int
+     */
+    public int getTermCount()
+    {
+        return termOffsets.length - 1;
+    }
+
+    /**
+     * Returns data id of entry
+     * @param rank Entry rank
+     * @return Primary key of associated data row
+     */
+    public long getDataId(int rank)
+    {
+        return dataIds[rank];
+    }
+
+    /**
+     * Returns column 1 text of entry
+     * @param rank Entry rank
+     * @return String
+     */
+    public String getText1(int rank)
+    {
+        return text1[rank];
+    }
+
+    /**
+     * Returns column 2 text of entry
+     * @param rank Entry rank
+     * @return String
+     */
+    public String getText2(int rank)
+    {
+        return text2[rank];
+    }
+
+    /**
+     * Returns terms of text, split and folded to lower case as by the FTS "simple" tokenizer.
+     * Term characters are ASCII letters and digits and all characters outside the ASCII range.
+     * @param text Text to split, may be null
+     * @return List of terms
+     */
+    public static List<String> tokenize(String text)
+    {
+        List<String> terms = new ArrayList<String>();
+        if (text == null)
+            return terms;
+        int start = -1;
+        for (int i = 0; i <= text.length(); ++i)
+        {
+            boolean isTermChar = (i < text.length()) && isTermChar(text.charAt(i));
+            if (isTermChar && (start == -1))
+                start = i;
+            else if (!isTermChar && (start != -1))
+            {
+                terms.add(foldCase(text.substring(start, i)));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Returns terms of FTS prefix query, with the prefix last, or null if the query uses other syntax
+     */
+    static List<String> parseMatchTerm(String matchTerm)
+    {
+        if ((matchTerm == null) || (matchTerm.length() < 2) || (matchTerm.charAt(matchTerm.length() - 1) != '*'))
+            return null;
+        String body = matchTerm.substring(0, matchTerm.length() - 1);
+        if (body.charAt(body.length() - 1) == ' ')
+            return null;
+        for (int i = 0; i < body.length(); ++i)
+        {   // Punctuation forms phrases and operators, which are left to SQLite
+            char ch = body.charAt(i);
+            if ((ch != ' ') && !isTermChar(ch))
+                return null;
+        }
+        List<String> terms = new ArrayList<String>();
+        for (String term: body.split(" +"))
+        {
+            if (term.isEmpty())
+                continue;
+            for (String operator: FTS_OPERATORS)
+                if (term.equals(operator))
+                    return null;
+            terms.add(foldCase(term));
+        }
+        return terms.isEmpty() ? null : terms;
+    }
+
+    private static boolean isTermChar(char ch)
+    {
+        return (ch >= 0x80) || ((ch >= 'a') && (ch <= 'z')) || ((ch >= 'A') && (ch <= 'Z')) || ((ch >= '0') && (ch <= '9'));
+    }
+
+    /** Fold ASCII letters only, as the FTS "simple" tokenizer does */
+    private static String foldCase(String term)
+    {
+        char[] chars = null;
+        for (int i = 0; i < term.length(); ++i)
+        {
+            char ch = term.charAt(i);
+            if ((ch >= 'A') && (ch <= 'Z'))
+            {
+                if (chars == null)
+                    chars = term.toCharArray();
+                chars[i] = (char)(ch + ('a' - 'A'));
+            }
+        }
+        return chars == null ? term : new String(chars);
+    }
+
+    /**
+     * Compare term with key. If isPrefix is true, a term which starts with the key compares equal.
+     */
+    private int compareTerm(int termIndex, String key, boolean isPrefix)
+    {
+        int offset = termOffsets[termIndex];
+        int length = termOffsets[termIndex + 1] - offset;
+        int common = Math.min(length, key.length());
+        for (int i = 0; i < common; ++i)
+        {
+            int diff = termChars[offset + i] - key.charAt(i);
+            if (diff != 0)
+                return diff;
+        }
+        if (isPrefix && (length >= key.length()))
+            return 0;
+        return length - key.length();
+    }
+
+    /** Returns index of first term not less than key */
+    private int lowerBound(String key, boolean isPrefix)
+    {
+        int low = 0;
+        int high = getTermCount();
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (compareTerm(middle, key, isPrefix) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /** Returns index of first term after the terms starting with prefix */
+    private int upperBound(String prefix, int low)
+    {
+        int high = getTermCount();
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (compareTerm(middle, prefix, true) <= 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * PostingMerge
+     * Returns the distinct ranks of a range of posting lists in ascending order, using a min-heap of list heads
+     */
+    private class PostingMerge
+    {
+        /** Current position in each list on the heap */
+        private final int[] positions;
+        /** End position of each list on the heap */
+        private final int[] ends;
+        private int heapSize;
+        private int lastRank = -1;
+
+        PostingMerge(int firstTerm, int lastTerm)
+        {
+            int listCount = lastTerm - firstTerm;
+            positions = new int[listCount];
+            ends = new int[listCount];
+            for (int i = 0; i < listCount; ++i)
+            {
+                positions[i] = postingOffsets[firstTerm + i];
+                ends[i] = postingOffsets[firstTerm + i + 1];
+            }
+            heapSize = listCount;
+            for (int i = (heapSize >>> 1) - 1; i >= 0; --i)
+                siftDown(i);
+        }
+
+        /** Returns next rank or -1 if all lists are exhausted */
+        int next()
+        {
+            while (heapSize > 0)
+            {
+                int rank = postings[positions[0]];
+                if (++positions[0] == ends[0])
+                {
+                    --heapSize;
+                    positions[0] = positions[heapSize];
+                    ends[0] = ends[heapSize];
+                }
+                if (heapSize > 0)
+                    siftDown(0);
+                if (rank != lastRank)
+                {
+                    lastRank = rank;
+                    return rank;
+                }
+            }
+            return -1;
+        }
+
+        private void siftDown(int index)
+        {
+            int position = positions[index];
+            int end = ends[index];
+            int value = postings[position];
+            while (true)
+            {
+                int child = (index << 1) + 1;
+                if (child >= heapSize)
+                    break;
+                if ((child + 1 < heapSize) && (postings[positions[child + 1]] < postings[positions[child]]))
+                    ++child;
+                if (value <= postings[positions[child]])
+                    break;
+                positions[index] = positions[child];
+                ends[index] = ends[child];
+                index = child;
+            }
+            positions[index] = position;
+            ends[index] = end;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyfts;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import android.app.SearchManager;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.provider.BaseColumns;
+import android.util.Log;
+
+/**
+ * SuggestionIndexQuery
+ * FtsQuery which answers word match queries from an in-memory SuggestionIndex, when one is available,
+ * and passes all other queries to the FtsEngine. The index is built from the dictionary on a background
+ * thread and swapped in atomically, so queries are never blocked by a rebuild. Until the first index is
+ * installed, or after it is invalidated, the index is "cold" and all queries go to SQLite.
+ * Register the query as a dictionary listener of the FtsEngine so the index is rebuilt in the background when the
+ * dictionary changes, for example after FtsEngine.synchronize(). Without a rebuild executor, a dictionary change
+ * makes the index cold until the next rebuild.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class SuggestionIndexQuery implements FtsQuery, FtsEngine.DictionaryListener
+{
+    public static final String TAG = "SuggestionIndexQuery";
+    /** Selection of word match query created by FtsSearch */
+    protected static final String WORD_MATCH_SELECTION = SearchManager.SUGGEST_COLUMN_TEXT_1 + " MATCH ?";
+    /** Columns returned when none are specified */
+    protected static final String[] DEFAULT_COLUMNS = new String[]
+    {
+        SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID,
+        SearchManager.SUGGEST_COLUMN_TEXT_1,
+        SearchManager.SUGGEST_COLUMN_TEXT_2
+    };
+
+    /** Engine which owns the dictionary */
+    protected final FtsEngine ftsEngine;
+    /** Current index or null if cold */
+    protected final AtomicReference<SuggestionIndex> suggestionIndex;
+    /** Flag set true while a background rebuild is pending or running */
+    protected final AtomicBoolean isRebuilding;
+    /** Flag set true when a rebuild has been requested which has not yet started */
+    protected final AtomicBoolean isRebuildRequested;
+    /** Executor for rebuilds on dictionary change or null to make the index cold instead */
+    protected final Executor rebuildExecutor;
+    /** Assigns rank weights to words or null if all words have equal weight */
+    protected volatile SuggestionIndex.Weigher weigher;
+
+    /**
+     * Construct SuggestionIndexQuery object
+     * @param ftsEngine Engine which owns the dictionary
+     */
+    public SuggestionIndexQuery(FtsEngine ftsEngine)
+    {
+        this(ftsEngine, null);
+    }
+
+    /**
+     * Construct SuggestionIndexQuery object which rebuilds the index when the dictionary changes
+     * @param ftsEngine Engine which owns the dictionary
+     * @param rebuildExecutor Background executor for rebuilds on dictionary change
+     */
+    public SuggestionIndexQuery(FtsEngine ftsEngine, Executor rebuildExecutor)
+    {
+        this.ftsEngine = ftsEngine;
+        this.rebuildExecutor = rebuildExecutor;
+        suggestionIndex = new AtomicReference<SuggestionIndex>();
+        isRebuilding = new AtomicBoolean();
+        isRebuildRequested = new AtomicBoolean();
+    }
+
+    /**
+     * Rebuild the index in the background after a dictionary load or synchronization transaction has completed.
+     * The current index continues to answer queries until the new one is ready. If there is no rebuild executor,
+     * the index is made cold instead.
+     */
+    @Override
+    public void onDictionaryChange()
+    {
+        if (rebuildExecutor != null)
+            rebuildInBackground(rebuildExecutor);
+        else
+            invalidate();
+    }
+
+    /**
+     * Performs a database query, using the suggestion index if it is warm and can answer the query.
+     * @param selection The selection clause
+     * @param selectionArgs Selection arguments for "?" components in the selection
+     * @param columns The columns to return
+     * @param limit Maximum number of hits to return or unlimited if zero
+     * @return A Cursor over all rows matching the query, positioned at the first row, or null if none found
+     */
+    @Override
+    public Cursor query(String selection, String[] selectionArgs, String[] columns, int limit)
+    {
+        SuggestionIndex index = suggestionIndex.get();
+        if ((index != null) && WORD_MATCH_SELECTION.equals(selection) && (selectionArgs != null) && (selectionArgs.length == 1))
+        {
+            String[] queryColumns = columns == null ? DEFAULT_COLUMNS : columns;
+            int[] ranks = isSupported(queryColumns) ? index.lookup(selectionArgs[0], limit) : null;
+            if (ranks != null)
+                return createCursor(index, ranks, queryColumns);
+        }
+        return ftsEngine.query(selection, selectionArgs, columns, limit);
+    }
+
+    /**
+     * Build a new index from the dictionary and install it. Must execute in a background thread.
+     * @return The new index
+     */
+    public SuggestionIndex rebuild()
+    {
+        long start = System.currentTimeMillis();
+        SuggestionIndex index = ftsEngine.createSuggestionIndex(weigher);
+        suggestionIndex.set(index);
+        if (Log.isLoggable(TAG, Log.DEBUG))
+            Log.d(TAG, "Suggestion index of " + index.size() + " words and " + index.getTermCount() + " terms built in " +
+                       (System.currentTimeMillis() - start) + "ms");
+        return index;
+    }
+
+    /**
+     * Rebuild index on given executor. The current index continues to answer queries until the new one is ready.
+     * If a rebuild is already pending or running, another rebuild follows it, so changes made to the dictionary
+     * while an index is being built are not missed.
+     * @param executor Background executor
+     * @return flag set true if a rebuild was scheduled, false if the request was passed to the rebuild in progress
+     */
+    public boolean rebuildInBackground(Executor executor)
+    {
+        isRebuildRequested.set(true);
+        if (!isRebuilding.compareAndSet(false, true))
+            return false;
+        try
+        {
+            executor.execute(new Runnable(){
+
+                @Override
+                public void run()
+                {
+                    do
+                    {
+                        try
+                        {
+                            while (isRebuildRequested.getAndSet(false))
+                                rebuild();
+                        }
+                        catch (RuntimeException e)
+                        {
+                            Log.e(TAG, "Error building suggestion index", e);
+                        }
+                        finally
+                        {
+                            isRebuilding.set(false);
+                        }
+                    // Pick up a request made after the last rebuild started
+                    } while (isRebuildRequested.get() && isRebuilding.compareAndSet(false, true));
+                }});
+        }
+        catch (RuntimeException e)
+        {
+            isRebuilding.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Discard the current index so queries go to SQLite until the next rebuild
+     */
+    public void invalidate()
+    {
+        suggestionIndex.set(null);
+    }
+
+    /**
+     * Install index built elsewhere
+     * @param index Suggestion index or null to make the index cold
+     */
+    public void setSuggestionIndex(SuggestionIndex index)
+    {
+        suggestionIndex.set(index);
+    }
+
+    /**
+     * Returns current index
+     * @return SuggestionIndex object or null if cold
+     */
+    public SuggestionIndex getSuggestionIndex()
+    {
+        return suggestionIndex.get();
+    }
+
+    /**
+     * Returns flag set true if an index is installed
+     * @return boolean
+     */
+    public boolean isWarm()
+    {
+        return suggestionIndex.get() != null;
+    }
+
+    /**
+     * Set weigher to apply on next rebuild
+     * @param weigher Assigns rank weights to words or null if all words have equal weight
+     */
+    public void setWeigher(SuggestionIndex.Weigher weigher)
+    {
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns Cursor over index entries, positioned at the first row, or null if there are none
+     */
+    protected Cursor createCursor(SuggestionIndex index, int[] ranks, String[] columns)
+    {
+        if (ranks.length == 0)
+            return null;
+        MatrixCursor cursor = new MatrixCursor(columns, ranks.length);
+        for (int rank: ranks)
+        {
+            Object[] row = new Object[columns.length];
+            for (int i = 0; i < columns.length; ++i)
+            {
+                String column = columns[i];
+                if (SearchManager.SUGGEST_COLUMN_TEXT_1.equals(column))
+                    row[i] = index.getText1(rank);
+                else if (SearchManager.SUGGEST_COLUMN_TEXT_2.equals(column))
+                    row[i] = index.getText2(rank);
+                else // All other columns are aliases of the data id
+                    row[i] = Long.valueOf(index.getDataId(rank));
+            }
+            cursor.addRow(row);
+        }
+        cursor.moveToFirst();
+        return cursor;
+    }
+
+    /**
+     * Returns flag set true if all columns can be supplied from the index
+     */
+    protected boolean isSupported(String[] columns)
+    {
+        for (String column: columns)
+            if (!SearchManager.SUGGEST_COLUMN_TEXT_1.equals(column) &&
+                !SearchManager.SUGGEST_COLUMN_TEXT_2.equals(column) &&
+                !SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID.equals(column) &&
+                !SearchManager.SUGGEST_COLUMN_SHORTCUT_ID.equals(column) &&
+                !BaseColumns._ID.equals(column))
+                return false;
+        return true;
+    }
+}
@@ -15,7 +15,13 @@
     along with this program.  If not, see <http://www.gnu.org/licenses/> */
 package au.com.cybersearch2.classyjpa.entity;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import android.content.Context;
+import android.os.Handler;
 import android.support.v4.content.Loader;
 import au.com.cybersearch2.classyjpa.persist.PersistenceContext;
 import au.com.cybersearch2.classytask.AsyncBackgroundTask;
@@ -76,10 +82,7 @@ public class PersistenceLoader
 	    	if (workTracker.getStatus() != WorkStatus.FAILED)
 	    		workTracker.setStatus(success ? WorkStatus.FINISHED : WorkStatus.FAILED);
 	        // Notify waiting threads at very last point of exit
-	        synchronized(workTracker)
-	        {
-	            workTracker.notifyAll();
-	        }
+	        workTracker.notifyCompletion();
 	    }
 	    
 	    /**
@@ -92,7 +95,70 @@ public class PersistenceLoader
 	    }
 
     }
-	
+
+	/**
+	 * BatchLoaderImpl
+	 * Executes all works collected within the batch window in a single background pass
+	 */
+	class BatchLoaderImpl extends AsyncBackgroundTask
+	{
+	    /** Works collected for execution */
+	    protected PersistenceBatch persistenceBatch;
+	    /** Object to track status and notify completion of each work in batch order */
+	    protected List<WorkTracker> workTrackers;
+
+	    public BatchLoaderImpl(PersistenceContext persistenceContext, String persistenceUnit)
+	    {
+	        super(context);
+	        persistenceBatch = new PersistenceBatch(new PersistenceContainer(persistenceContext, persistenceUnit, false));
+	        workTrackers = new ArrayList<WorkTracker>();
+	    }
+
+	    /**
+	     * Add work to batch
+	     * @param persistenceWork Unit of work
+	     * @return Executable to track work
+	     */
+	    public Executable add(PersistenceWork persistenceWork)
+	    {
+	        persistenceBatch.add(persistenceWork);
+	        WorkTracker workTracker = new WorkTracker();
+	        workTrackers.add(workTracker);
+	        return workTracker;
+	    }
+
+	    /**
+	     * Execute batch in background thread
+	     * @return Boolean object - Boolean.TRUE indicates every work succeeded
+	     */
+	    @Override
+	    public Boolean loadInBackground()
+	    {
+	        Boolean success = persistenceBatch.doTask();
+	        for (WorkTracker workTracker: workTrackers)
+	            workTracker.setStatus(WorkStatus.RUNNING);
+	        return success;
+	    }
+
+	    /**
+	     * Deliver per-work results on calling thread
+	     * @param loader the loader that completed the load
+	     * @param success Boolean object - Boolean.TRUE indicates every work succeeded
+	     */
+	    @Override
+	    public void onLoadComplete(Loader<Boolean> loader, Boolean success)
+	    {
+	        persistenceBatch.onPostExecute();
+	        for (int i = 0; i < workTrackers.size(); ++i)
+	        {
+	            WorkTracker workTracker = workTrackers.get(i);
+	            workTracker.setStatus(persistenceBatch.getWorkStatus(i) == WorkStatus.FINISHED ? WorkStatus.FINISHED : WorkStatus.FAILED);
+	            // Notify waiting threads at very last point of exit
+	            workTracker.notifyCompletion();
+	        }
+	    }
+	}
+
     //private static final String TAG = "PersistenceLoader";
     //private Log log = JavaLogger.getLogger(TAG);
 
@@ -101,6 +167,12 @@ public class PersistenceLoader
     /** Android Application Context */
     protected Context context;
     protected PersistenceContext persistenceContext;
+    /** Milliseconds to collect works into a batch. Zero means each work is executed separately. */
+    protected long batchWindowMillis;
+    /** Batches collecting works, mapped by persistence unit name */
+    protected Map<String, BatchLoaderImpl> pendingBatchMap;
+    /** Schedules batch execution on the calling thread */
+    protected Handler handler;
 
     /**
      * Create PersistenceLoader object
@@ -110,6 +182,7 @@ public class PersistenceLoader
     {
     	this.context = context;
     	this.persistenceContext = persistenceContext;
+        pendingBatchMap = new HashMap<String, BatchLoaderImpl>();
     }
 
 	/**
@@ -121,13 +194,51 @@ public class PersistenceLoader
         isUserTransactionMode = value;
     }
     
+    /**
+     * Set batch window. Works submitted for the same persistence unit within the window after the first
+     * are executed together in one background pass and, except for read-only works, in one transaction.
+     * Batching does not apply in user transaction mode.
+     * @param batchWindowMillis Window in milliseconds or 0 to execute each work separately
+     * @see PersistenceBatch
+     */
+    public void setBatchWindow(long batchWindowMillis)
+    {
+        this.batchWindowMillis = batchWindowMillis;
+    }
+
     /**
      * Execute persistence work. To be run on calling thread.
      */
     public Executable execute(String persistenceUnit, PersistenceWork persistenceWork) 
     {
+        if ((batchWindowMillis > 0) && !isUserTransactionMode)
+            return executeBatched(persistenceUnit, persistenceWork);
     	LoaderImpl LoaderImpl = new LoaderImpl(persistenceContext, persistenceUnit, persistenceWork);
         return LoaderImpl.execute();
     }
 
+    /**
+     * Add persistence work to the pending batch for the persistence unit, starting a new batch
+     * if none is pending. To be run on calling thread.
+     */
+    protected Executable executeBatched(final String persistenceUnit, PersistenceWork persistenceWork)
+    {
+        BatchLoaderImpl batchLoader = pendingBatchMap.get(persistenceUnit);
+        if (batchLoader == null)
+        {
+            batchLoader = new BatchLoaderImpl(persistenceContext, persistenceUnit);
+            pendingBatchMap.put(persistenceUnit, batchLoader);
+            if (handler == null)
+                handler = new Handler();
+            handler.postDelayed(new Runnable(){
+
+                @Override
+                public void run()
+                {
+                    pendingBatchMap.remove(persistenceUnit).startLoading();
+                }}, batchWindowMillis);
+        }
+        return batchLoader.add(persistenceWork);
+    }
+
 }
@@ -0,0 +1,188 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classywidget;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ListItemDiff
+ * Difference between two ListItem lists. Items are matched by key, which is the item id if one is
+ * supplied, otherwise the item name. Matched items with a different name or value are changed, and
+ * matched items out of their original relative order are moved. The move count is minimal, as items
+ * on the longest increasing run of original positions are considered to stay in place.
+ * Computation has no side effects, so it can run on any thread.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class ListItemDiff
+{
+    /** Positions in new list of items with changed content */
+    protected List<Integer> changedPositions;
+    /** Number of items only in new list */
+    protected int insertCount;
+    /** Number of items only in old list */
+    protected int removeCount;
+    /** Number of matched items which change relative order */
+    protected int moveCount;
+
+    /**
+     * Construct ListItemDiff object
+     */
+    protected ListItemDiff()
+    {
+        changedPositions = new ArrayList<Integer>();
+    }
+
+    /**
+     * Returns difference between two lists
+     * @param oldList Current items
+     * @param newList Replacement items
+     * @return ListItemDiff object
+     */
+    public static ListItemDiff compute(List<ListItem> oldList, List<ListItem> newList)
+    {
+        ListItemDiff diff = new ListItemDiff();
+        Map<Object, Integer> oldPositionMap = new HashMap<Object, Integer>(oldList.size() * 2);
+        for (int i = 0; i < oldList.size(); ++i)
+            oldPositionMap.put(getKey(oldList.get(i)), Integer.valueOf(i));
+        // Original positions of matched items in new list order
+        int[] oldPositions = new int[newList.size()];
+        boolean[] isMatched = new boolean[oldList.size()];
+        int matchCount = 0;
+        for (int i = 0; i < newList.size(); ++i)
+        {
+            ListItem newItem = newList.get(i);
+            Integer oldPosition = oldPositionMap.get(getKey(newItem));
+            // An item with a duplicate key can only be matched once
+            if ((oldPosition == null) || isMatched[oldPosition.intValue()])
+            {
+                ++diff.insertCount;
+                continue;
+            }
+            isMatched[oldPosition.intValue()] = true;
+            oldPositions[matchCount++] = oldPosition.intValue();
+            if (!isSameContent(oldList.get(oldPosition.intValue()), newItem))
+                diff.changedPositions.add(Integer.valueOf(i));
+        }
+        diff.removeCount = oldList.size() - matchCount;
+        diff.moveCount = matchCount - longestIncreasingLength(oldPositions, matchCount);
+        return diff;
+    }
+
+    /**
+     * Returns key which identifies an item across lists
+     * @param listItem Item
+     * @return Id if supplied, otherwise name
+     */
+    public static Object getKey(ListItem listItem)
+    {
+        long id = listItem.getId();
+        if (id != -1)
+            return Long.valueOf(id);
+        return listItem.getName() == null ? "" : listItem.getName();
+    }
+
+    /**
+     * Returns flag set true if both items display the same text
+     * @param item1 ListItem
+     * @param item2 ListItem
+     * @return boolean
+     */
+    public static boolean isSameContent(ListItem item1, ListItem item2)
+    {
+        return isEqual(item1.getName(), item2.getName()) && isEqual(item1.getValue(), item2.getValue());
+    }
+
+    /**
+     * Returns positions in new list of items with changed content
+     * @return Integer list
+     */
+    public List<Integer> getChangedPositions()
+    {
+        return changedPositions;
+    }
+
+    public int getInsertCount()
+    {
+        return insertCount;
+    }
+
+    public int getRemoveCount()
+    {
+        return removeCount;
+    }
+
+    public int getMoveCount()
+    {
+        return moveCount;
+    }
+
+    /**
+     * Returns flag set true if lists display the same items in the same order
+     * @return boolean
+     */
+    public boolean isEmpty()
+    {
+        return changedPositions.isEmpty() && (insertCount == 0) && (removeCount == 0) && (moveCount == 0);
+    }
+
+    /**
+     * Returns flag set true if only item content changes
+     * @return boolean
+     */
+    public boolean isContentOnly()
+    {
+        return (insertCount == 0) && (removeCount == 0) && (moveCount == 0);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "changed=" + changedPositions.size() + ", inserted=" + insertCount +
+               ", removed=" + removeCount + ", moved=" + moveCount;
+    }
+
+    /**
+     * Returns length of longest strictly increasing subsequence, using patience sorting
+     * @param values Sequence
+     * @param length Number of values to include from start of sequence
+     * @return int
+     */
+    protected static int longestIncreasingLength(int[] values, int length)
+    {
+        int[] tails = new int[length];
+        int size = 0;
+        for (int i = 0; i < length; ++i)
+        {
+            int index = Arrays.binarySearch(tails, 0, size, values[i]);
+            if (index < 0)
+                index = -(index + 1);
+            tails[index] = values[i];
+            if (index == size)
+                ++size;
+        }
+        return size;
+    }
+
+    private static boolean isEqual(String text1, String text2)
+    {
+        return text1 == null ? text2 == null : text1.equals(text2);
+    }
+}
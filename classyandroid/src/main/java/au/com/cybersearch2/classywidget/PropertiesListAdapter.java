@@ -18,9 +18,15 @@ package au.com.cybersearch2.classywidget;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -29,12 +35,30 @@ import android.widget.TextView;
 
 /**
  * PropertiesListAdapter
- * Adapts a ListView to display name, value pairs in a standard Android simple list 
+ * Adapts a ListView to display name, value pairs in a standard Android simple list.
+ * Items have stable ids so a list can be updated incrementally with changeDataAsync(), which compares
+ * old and new items off the main thread and only rebinds rows whose content has changed.
+ * Large property sets can be loaded from the database a page at a time using a PageLoader.
  * @author Andrew Bowley
  * 29/05/2014
  */
 public class PropertiesListAdapter extends BaseAdapter
 {
+    /**
+     * PageLoader
+     * Loads a page of items. Called on a background thread.
+     */
+    public interface PageLoader
+    {
+        /**
+         * Returns items in specified range
+         * @param offset Position of first item
+         * @param limit Maximum number of items
+         * @return ListItem list, which is shorter than limit when no more items are available
+         */
+        List<ListItem> loadPage(int offset, int limit);
+    }
+
     /** Resource IDs used to bind an existing view to a value */
     protected static final int[]  uiBindTo = { android.R.id.text1, android.R.id.text2 };
     /** The underlying list implementation */
@@ -45,6 +69,30 @@ public class PropertiesListAdapter extends BaseAdapter
     protected LayoutInflater inflater;
     /** Flag set if list has only a single line */
     protected boolean singleLine;
+    /** Ids assigned to items of the current list which have none, mapped by item name and occurrence of the name */
+    protected Map<String, Long> stableIdMap;
+    /** Next id to assign. Assigned ids are negative to avoid supplied ids. */
+    protected long nextStableId;
+    /** Id of each item of the list for which ids were last assigned */
+    protected long[] itemIds;
+    /** List for which ids were last assigned. Every data change replaces the properties list. */
+    protected List<ListItem> itemIdsList;
+    /** Executes diff and page loading off the main thread */
+    protected Executor executor;
+    /** Delivers background results to the main thread */
+    protected Handler handler;
+    /** Incremented on each data change to discard stale background results */
+    protected int generation;
+    /** Difference applied by last incremental update */
+    protected ListItemDiff lastDiff;
+    /** Optional source of pages of items */
+    protected PageLoader pageLoader;
+    /** Number of items to request per page */
+    protected int pageSize;
+    /** Flag set while a page is loading */
+    protected boolean isPageLoading;
+    /** Flag set when last page has been loaded */
+    protected boolean isLastPage;
 
     /**
      * Create new, empty PropertiesListAdapter
@@ -66,6 +114,10 @@ public class PropertiesListAdapter extends BaseAdapter
         propertiesList = new ArrayList<ListItem>(data);
         layout = android.R.layout.simple_list_item_2;
         inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+        stableIdMap = new HashMap<String, Long>();
+        nextStableId = -2;
+        executor = AsyncTask.THREAD_POOL_EXECUTOR;
+        handler = new Handler(Looper.getMainLooper());
     }
  
     public boolean isSingleLine()
@@ -82,6 +134,15 @@ public class PropertiesListAdapter extends BaseAdapter
             layout = android.R.layout.simple_list_item_2;
     }
 
+    /**
+     * Set executor used for background work
+     * @param executor Executor
+     */
+    public void setExecutor(Executor executor)
+    {
+        this.executor = executor;
+    }
+
     /**
      * Change the properties list to be viewed
      * 
@@ -89,6 +150,8 @@ public class PropertiesListAdapter extends BaseAdapter
      */
     public void changeData(Collection<ListItem> data) 
     {
+        ++generation;
+        pageLoader = null;
         if ((data == null) || (data.size() == 0))
         {
             propertiesList = getEmptyValueList();
@@ -101,6 +164,128 @@ public class PropertiesListAdapter extends BaseAdapter
         notifyDataSetChanged();
     }
 
+    /**
+     * Change the properties list to be viewed, comparing the new items with those currently viewed
+     * on a background thread. Observers are only notified if there is a difference, and then only
+     * rows with changed content are rebound. Must be called on the main thread.
+     * @param data Collection containing values to be viewed
+     */
+    public void changeDataAsync(Collection<ListItem> data)
+    {
+        if ((data == null) || (data.size() == 0) || propertiesList.isEmpty())
+        {   // Nothing to compare
+            changeData(data);
+            return;
+        }
+        final int changeGeneration = ++generation;
+        pageLoader = null;
+        final List<ListItem> oldList = propertiesList;
+        final List<ListItem> newList = new ArrayList<ListItem>(data);
+        executor.execute(new Runnable(){
+
+            @Override
+            public void run()
+            {
+                final ListItemDiff diff = ListItemDiff.compute(oldList, newList);
+                handler.post(new Runnable(){
+
+                    @Override
+                    public void run()
+                    {
+                        if (changeGeneration == generation)
+                            applyDiff(newList, diff);
+                    }});
+            }});
+    }
+
+    /**
+     * Load items a page at a time. The first page is requested immediately and subsequent pages
+     * as the view approaches the last loaded item. Must be called on the main thread.
+     * @param pageLoader Loads a page of items on a background thread
+     * @param pageSize Number of items per page
+     */
+    public void setPageLoader(PageLoader pageLoader, int pageSize)
+    {
+        changeData(null);
+        this.pageLoader = pageLoader;
+        this.pageSize = pageSize;
+        isPageLoading = false;
+        isLastPage = false;
+        loadNextPage();
+    }
+
+    /**
+     * Returns flag set true if a page loader is set and more items may be available
+     * @return boolean
+     */
+    public boolean hasMorePages()
+    {
+        return (pageLoader != null) && !isLastPage;
+    }
+
+    /**
+     * Request next page if a page loader is set and no page is currently loading
+     */
+    protected void loadNextPage()
+    {
+        if (!hasMorePages() || isPageLoading)
+            return;
+        isPageLoading = true;
+        final int pageGeneration = generation;
+        final PageLoader loader = pageLoader;
+        final int offset = propertiesList.size();
+        final int limit = pageSize;
+        executor.execute(new Runnable(){
+
+            @Override
+            public void run()
+            {
+                final List<ListItem> page = loader.loadPage(offset, limit);
+                handler.post(new Runnable(){
+
+                    @Override
+                    public void run()
+                    {
+                        if (pageGeneration == generation)
+                            appendPage(page, limit);
+                    }});
+            }});
+    }
+
+    /**
+     * Append a loaded page to the properties list
+     * @param page Items loaded
+     * @param limit Number of items requested
+     */
+    protected void appendPage(List<ListItem> page, int limit)
+    {
+        isPageLoading = false;
+        if ((page == null) || (page.size() < limit))
+            isLastPage = true;
+        if ((page == null) || page.isEmpty())
+            return;
+        List<ListItem> newList = new ArrayList<ListItem>(propertiesList.size() + page.size());
+        newList.addAll(propertiesList);
+        newList.addAll(page);
+        propertiesList = newList;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Apply difference computed by changeDataAsync()
+     * @param newList Items to view
+     * @param diff Difference between current and new items
+     */
+    protected void applyDiff(List<ListItem> newList, ListItemDiff diff)
+    {
+        lastDiff = diff;
+        if (diff.isEmpty())
+            return;
+        propertiesList = newList;
+        // Rows with unchanged content skip rebinding in getView()
+        notifyDataSetChanged();
+    }
+
     /**
      * Returns the number of items
      * @return int
@@ -127,7 +312,9 @@ public class PropertiesListAdapter extends BaseAdapter
     }
 
     /**
-     * Returns item identity. Defaults to position +1 if none supplied 
+     * Returns item identity. If none supplied, an id is assigned by item name and the occurrence of
+     * that name in the list, so it remains stable as the list changes and items with the same name
+     * have different ids. Assigned ids are negative.
      * @param position - zero-based list index 
      * @return long
      * @see android.widget.Adapter#getItemId(int)
@@ -136,8 +323,39 @@ public class PropertiesListAdapter extends BaseAdapter
     public long getItemId(int position) 
     {
         validatePosition(position);
-        long id = propertiesList.get(position).getId();
-        return id == -1 ? (long)position + 1 : id; 
+        if (itemIdsList != propertiesList)
+            assignItemIds();
+        return itemIds[position];
+    }
+
+    /**
+     * Assign ids to items of the current list. Ids of items which are no longer in the list are discarded.
+     */
+    protected void assignItemIds()
+    {
+        List<ListItem> itemList = propertiesList;
+        long[] ids = new long[itemList.size()];
+        Map<String, Long> idMap = new HashMap<String, Long>();
+        Map<String, Integer> occurrenceMap = new HashMap<String, Integer>();
+        for (int i = 0; i < ids.length; ++i)
+        {
+            ListItem listItem = itemList.get(i);
+            ids[i] = listItem.getId();
+            if (ids[i] != -1)
+                continue;
+            String name = listItem.getName() == null ? "" : listItem.getName();
+            Integer occurrence = occurrenceMap.get(name);
+            occurrenceMap.put(name, occurrence == null ? Integer.valueOf(1) : Integer.valueOf(occurrence.intValue() + 1));
+            String key = occurrence == null ? name : name + '\u0000' + occurrence;
+            Long stableId = stableIdMap.get(key);
+            if (stableId == null)
+                stableId = Long.valueOf(nextStableId--);
+            idMap.put(key, stableId);
+            ids[i] = stableId.longValue();
+        }
+        stableIdMap = idMap;
+        itemIds = ids;
+        itemIdsList = itemList;
     }
 
     /**
@@ -154,10 +372,17 @@ public class PropertiesListAdapter extends BaseAdapter
     public View getView(int position, View convertView, ViewGroup parent) 
     {
         validatePosition(position);
+        if (position >= propertiesList.size() - Math.max(pageSize / 2, 1))
+            loadNextPage();
+        ListItem listItem = propertiesList.get(position);
         View view = convertView;
         if (view == null) 
             view = newView(parent);
-        bindView(view, propertiesList.get(position));
+        else if ((view.getTag() instanceof ListItem) && ListItemDiff.isSameContent((ListItem)view.getTag(), listItem))
+            // View already displays this content
+            return view;
+        bindView(view, listItem);
+        view.setTag(listItem);
         return view;
     }
 
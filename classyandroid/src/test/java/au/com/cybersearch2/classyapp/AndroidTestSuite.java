@@ -20,11 +20,21 @@ import org.junit.runners.Suite;
 
 import au.com.cybersearch2.classydb.AndroidConnectionSourceFactoryTest;
 import au.com.cybersearch2.classydb.AndroidDatabaseSupportTest;
+import au.com.cybersearch2.classydb.CursorResultListTest;
 import au.com.cybersearch2.classydb.OpenEventHandlerTest;
+import au.com.cybersearch2.classydb.OpenHelperConnectionSourceTest;
+import au.com.cybersearch2.classydb.ReadConnectionBenchmarkTest;
+import au.com.cybersearch2.classyfts.FtsEngineBenchmarkTest;
+import au.com.cybersearch2.classyfts.FtsEngineRankTest;
+import au.com.cybersearch2.classyfts.FtsEngineSyncTest;
 import au.com.cybersearch2.classyfts.FtsEngineTest;
 import au.com.cybersearch2.classyfts.FtsQueryBuilderTest;
 import au.com.cybersearch2.classyfts.SearchEngineBaseTest;
+import au.com.cybersearch2.classyfts.SuggestionCacheQueryTest;
+import au.com.cybersearch2.classyfts.SuggestionIndexQueryTest;
+import au.com.cybersearch2.classyfts.SuggestionIndexTest;
 import au.com.cybersearch2.classyjpa.AndroidJpaIntegrationTest;
+import au.com.cybersearch2.classywidget.PropertiesListAdapterTest;
 import au.com.cybersearch2.example.AndroidHelloTwoDbsTest;
 import au.com.cybersearch2.example.v2.HelloTwoDbsUpgradeTest;
 
@@ -38,11 +48,21 @@ import au.com.cybersearch2.example.v2.HelloTwoDbsUpgradeTest;
     RoboTest.class,
     FtsQueryBuilderTest.class,
     FtsEngineTest.class,
+    FtsEngineBenchmarkTest.class,
+    FtsEngineSyncTest.class,
+    FtsEngineRankTest.class,
+    SuggestionIndexTest.class,
+    SuggestionIndexQueryTest.class,
+    SuggestionCacheQueryTest.class,
     SearchEngineBaseTest.class,
     AndroidJpaIntegrationTest.class,
     AndroidConnectionSourceFactoryTest.class,
     AndroidDatabaseSupportTest.class,
+    CursorResultListTest.class,
     OpenEventHandlerTest.class,
+    OpenHelperConnectionSourceTest.class,
+    ReadConnectionBenchmarkTest.class,
+    PropertiesListAdapterTest.class,
     AndroidHelloTwoDbsTest.class,
     HelloTwoDbsUpgradeTest.class
 })
@@ -434,6 +434,9 @@ public class AndroidDatabaseSupportTest
         assertThat(resultList.get(1)).isEqualTo(RESULT2);
         assertThat(resultRowArg.getAllValues().get(0).getPosition()).isEqualTo(0);
         assertThat(resultRowArg.getAllValues().get(1).getPosition()).isEqualTo(1);
+        // Single result row re-used for all rows
+        assertThat(resultRowArg.getAllValues().get(1)).isSameAs(resultRowArg.getAllValues().get(0));
+        verify(queryParams.cursor).close();
         assertThat(queryParams.columns).isEqualTo(SQL_COLUMNS);
         assertThat(queryParams.groupBy).isEqualTo(SQL_GROUP_BY);
         assertThat(queryParams.having).isEqualTo(SQL_HAVING);
@@ -472,6 +475,7 @@ public class AndroidDatabaseSupportTest
         Object resultObject = sqLiteDatabaseSupport.getSingleResult(connectionSource, queryInfo);
         assertThat(resultObject).isEqualTo(RESULT1);
         assertThat(resultRowArg.getValue().getPosition()).isEqualTo(0);
+        verify(queryParams.cursor).close();
         assertThat(queryParams.columns).isEqualTo(SQL_COLUMNS);
         assertThat(queryParams.groupBy).isEqualTo(SQL_GROUP_BY);
         assertThat(queryParams.having).isEqualTo(SQL_HAVING);
@@ -0,0 +1,196 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.failBecauseExceptionWasNotThrown;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import au.com.cybersearch2.classyjpa.query.QueryInfo;
+import au.com.cybersearch2.classyjpa.query.QueryInfo.RowMapper;
+import au.com.cybersearch2.classyjpa.query.ResultRow;
+
+/**
+ * CursorResultListTest
+ * Lazy result lists using an in-memory database
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CursorResultListTest
+{
+    static class CountingRowMapper implements RowMapper
+    {
+        List<ResultRow> resultRows = new ArrayList<ResultRow>();
+
+        @Override
+        public Object mapRow(ResultRow resultRow)
+        {
+            resultRows.add(resultRow);
+            return resultRow.getString(0);
+        }
+    }
+
+    static final int ROW_COUNT = 1000;
+    static final int CACHE_SIZE = 10;
+    static final String ITEMS_QUERY = "SELECT name FROM items ORDER BY _id";
+
+    SQLiteDatabase sqLiteDatabase;
+    CountingRowMapper rowMapper;
+
+    @Before
+    public void setUp()
+    {
+        sqLiteDatabase = SQLiteDatabase.create(null);
+        sqLiteDatabase.execSQL("CREATE TABLE items (_id INTEGER PRIMARY KEY, name TEXT)");
+        sqLiteDatabase.beginTransaction();
+        try
+        {
+            for (int i = 0; i < ROW_COUNT; ++i)
+                sqLiteDatabase.execSQL("INSERT INTO items (_id, name) VALUES (" + i + ", 'item" + i + "')");
+            sqLiteDatabase.setTransactionSuccessful();
+        }
+        finally
+        {
+            sqLiteDatabase.endTransaction();
+        }
+        rowMapper = new CountingRowMapper();
+    }
+
+    @After
+    public void tearDown()
+    {
+        sqLiteDatabase.close();
+    }
+
+    @Test
+    public void test_rows_mapped_on_access()
+    {
+        CursorResultList underTest = new CursorResultList(sqLiteDatabase.rawQuery(ITEMS_QUERY, null), rowMapper, CACHE_SIZE);
+        try
+        {
+            assertThat(underTest.size()).isEqualTo(ROW_COUNT);
+            assertThat(rowMapper.resultRows).isEmpty();
+            assertThat(underTest.get(500)).isEqualTo("item500");
+            assertThat(underTest.get(500)).isEqualTo("item500");
+            assertThat(rowMapper.resultRows.size()).isEqualTo(1);
+            int index = 0;
+            for (Object item: underTest)
+                assertThat(item).isEqualTo("item" + index++);
+            assertThat(index).isEqualTo(ROW_COUNT);
+            // Cache is bounded and the flyweight result row is re-used
+            assertThat(underTest.rowCache.size()).isEqualTo(CACHE_SIZE);
+            assertThat(rowMapper.resultRows.get(ROW_COUNT - 1)).isSameAs(rowMapper.resultRows.get(0));
+            // Most recently used rows are cached
+            int mappedCount = rowMapper.resultRows.size();
+            assertThat(underTest.get(ROW_COUNT - 1)).isEqualTo("item" + (ROW_COUNT - 1));
+            assertThat(underTest.get(0)).isEqualTo("item0");
+            assertThat(rowMapper.resultRows.size()).isEqualTo(mappedCount + 1);
+        }
+        finally
+        {
+            underTest.close();
+        }
+    }
+
+    @Test
+    public void test_close()
+    {
+        Cursor cursor = sqLiteDatabase.rawQuery(ITEMS_QUERY, null);
+        CursorResultList underTest = new CursorResultList(cursor, rowMapper, CACHE_SIZE);
+        assertThat(underTest.get(1)).isEqualTo("item1");
+        underTest.close();
+        underTest.close();
+        assertThat(underTest.isClosed()).isTrue();
+        assertThat(cursor.isClosed()).isTrue();
+        assertThat(underTest.get(1)).isEqualTo("item1");
+        try
+        {
+            underTest.get(2);
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        }
+        catch (IllegalStateException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("Row 2 requested after result list closed");
+        }
+    }
+
+    @Test
+    public void test_index_out_of_bounds()
+    {
+        CursorResultList underTest = new CursorResultList(sqLiteDatabase.rawQuery(ITEMS_QUERY, null), rowMapper, CACHE_SIZE);
+        try
+        {
+            underTest.get(ROW_COUNT);
+            failBecauseExceptionWasNotThrown(IndexOutOfBoundsException.class);
+        }
+        catch (IndexOutOfBoundsException e)
+        {
+            assertThat(rowMapper.resultRows).isEmpty();
+        }
+        finally
+        {
+            underTest.close();
+        }
+    }
+
+    @Test
+    public void test_database_support_result_list()
+    {
+        SQLiteOpenHelper sqLiteOpenHelper = mock(SQLiteOpenHelper.class);
+        when(sqLiteOpenHelper.getWritableDatabase()).thenReturn(sqLiteDatabase);
+        OpenHelperConnectionSource connectionSource = new OpenHelperConnectionSource(sqLiteDatabase, sqLiteOpenHelper);
+        QueryInfo queryInfo = new QueryInfo(rowMapper, "items", "name");
+        queryInfo.setOrderBy("_id");
+        AndroidDatabaseSupport androidDatabaseSupport = new AndroidDatabaseSupport();
+        // Lazy lists are opt-in
+        assertThat(androidDatabaseSupport.getResultCacheSize()).isEqualTo(0);
+        assertThat(androidDatabaseSupport.getResultList(connectionSource, queryInfo, 0, 0)).isInstanceOf(ArrayList.class);
+        rowMapper.resultRows.clear();
+        androidDatabaseSupport.setResultCacheSize(CACHE_SIZE);
+        // Small result is mapped in full
+        List<Object> resultList = androidDatabaseSupport.getResultList(connectionSource, queryInfo, 5, CACHE_SIZE);
+        assertThat(resultList).isInstanceOf(ArrayList.class);
+        assertThat(resultList.size()).isEqualTo(CACHE_SIZE);
+        assertThat(resultList.get(0)).isEqualTo("item5");
+        // Large result is mapped on demand
+        rowMapper.resultRows.clear();
+        resultList = androidDatabaseSupport.getResultList(connectionSource, queryInfo, 0, 0);
+        assertThat(resultList).isInstanceOf(CursorResultList.class);
+        assertThat(resultList.size()).isEqualTo(ROW_COUNT);
+        assertThat(rowMapper.resultRows).isEmpty();
+        assertThat(resultList.get(ROW_COUNT - 1)).isEqualTo("item" + (ROW_COUNT - 1));
+        ((CursorResultList)resultList).close();
+        // Lazy lists disabled
+        androidDatabaseSupport.setResultCacheSize(0);
+        resultList = androidDatabaseSupport.getResultList(connectionSource, queryInfo, 0, 0);
+        assertThat(resultList).isInstanceOf(ArrayList.class);
+        assertThat(resultList.size()).isEqualTo(ROW_COUNT);
+    }
+}
@@ -0,0 +1,249 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import com.j256.ormlite.support.DatabaseConnection;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import au.com.cybersearch2.classyjpa.query.QueryInfo;
+import au.com.cybersearch2.classyjpa.query.QueryInfo.RowMapper;
+import au.com.cybersearch2.classyjpa.query.ResultRow;
+import au.com.cybersearch2.classyjpa.transaction.EntityTransactionImpl;
+
+/**
+ * OpenHelperConnectionSourceTest
+ * Read connections using a database file in write-ahead logging mode, and nested transactions on Android SQLite
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+@RunWith(RobolectricTestRunner.class)
+public class OpenHelperConnectionSourceTest
+{
+    static final String DATABASE_NAME = "read-connections.db";
+    static final String COUNT_QUERY = "SELECT count(*) FROM items";
+
+    File databaseFile;
+    SQLiteDatabase sqLiteDatabase;
+    SQLiteOpenHelper sqLiteOpenHelper;
+    OpenHelperConnectionSource underTest;
+
+    @Before
+    public void setUp()
+    {
+        databaseFile = RuntimeEnvironment.application.getDatabasePath(DATABASE_NAME);
+        databaseFile.getParentFile().mkdirs();
+        SQLiteDatabase.deleteDatabase(databaseFile);
+        sqLiteDatabase = SQLiteDatabase.openOrCreateDatabase(databaseFile, null);
+        sqLiteDatabase.execSQL("CREATE TABLE items (_id INTEGER PRIMARY KEY, name TEXT)");
+        for (int i = 1; i <= 3; ++i)
+            sqLiteDatabase.execSQL("INSERT INTO items (_id, name) VALUES (" + i + ", 'item" + i + "')");
+        sqLiteOpenHelper = mock(SQLiteOpenHelper.class);
+        when(sqLiteOpenHelper.getWritableDatabase()).thenReturn(sqLiteDatabase);
+        underTest = new OpenHelperConnectionSource(sqLiteDatabase, sqLiteOpenHelper);
+    }
+
+    @After
+    public void tearDown()
+    {
+        underTest.close();
+        sqLiteDatabase.close();
+        SQLiteDatabase.deleteDatabase(databaseFile);
+    }
+
+    @Test
+    public void test_read_connections_disabled() throws SQLException
+    {
+        assertThat(underTest.isReadConnectionsEnabled()).isFalse();
+        assertThat(underTest.getReadOnlyConnection("items")).isSameAs(underTest.getReadWriteConnection("items"));
+        assertThat(underTest.getQueryDatabase()).isSameAs(sqLiteDatabase);
+    }
+
+    @Test
+    public void test_enable_read_connections() throws SQLException
+    {
+        assertThat(underTest.enableReadConnections()).isTrue();
+        assertThat(underTest.enableReadConnections()).isTrue();
+        assertThat(underTest.isReadConnectionsEnabled()).isTrue();
+        assertThat(sqLiteDatabase.isWriteAheadLoggingEnabled()).isTrue();
+        DatabaseConnection readConnection = underTest.getReadOnlyConnection("items");
+        assertThat(readConnection).isNotSameAs(underTest.getReadWriteConnection("items"));
+        assertThat(readConnection.queryForLong(COUNT_QUERY)).isEqualTo(3L);
+        SQLiteDatabase queryDatabase = underTest.getQueryDatabase();
+        assertThat(queryDatabase).isNotSameAs(sqLiteDatabase);
+        assertThat(queryDatabase.isReadOnly()).isTrue();
+        underTest.close();
+        assertThat(underTest.isReadConnectionsEnabled()).isFalse();
+        assertThat(queryDatabase.isOpen()).isFalse();
+    }
+
+    @Test
+    public void test_transaction_uses_read_write_connection() throws SQLException
+    {
+        underTest.enableReadConnections();
+        DatabaseConnection readWriteConnection = underTest.getReadWriteConnection("items");
+        underTest.saveSpecialConnection(readWriteConnection);
+        try
+        {
+            assertThat(underTest.getReadOnlyConnection("items")).isSameAs(readWriteConnection);
+            assertThat(underTest.getQueryDatabase()).isSameAs(sqLiteDatabase);
+        }
+        finally
+        {
+            underTest.clearSpecialConnection(readWriteConnection);
+        }
+        assertThat(underTest.getReadOnlyConnection("items")).isNotSameAs(readWriteConnection);
+    }
+
+    @Test
+    public void test_read_while_writer_active() throws SQLException
+    {
+        underTest.enableReadConnections();
+        DatabaseConnection readConnection = underTest.getReadOnlyConnection("items");
+        sqLiteDatabase.beginTransaction();
+        try
+        {
+            sqLiteDatabase.execSQL("INSERT INTO items (_id, name) VALUES (4, 'item4')");
+            // Reader is not blocked by the writer and does not see uncommitted changes
+            assertThat(readConnection.queryForLong(COUNT_QUERY)).isEqualTo(3L);
+            sqLiteDatabase.setTransactionSuccessful();
+        }
+        finally
+        {
+            sqLiteDatabase.endTransaction();
+        }
+        assertThat(readConnection.queryForLong(COUNT_QUERY)).isEqualTo(4L);
+    }
+
+    @Test
+    public void test_native_query_uses_read_database()
+    {
+        underTest.enableReadConnections();
+        QueryInfo queryInfo = new QueryInfo(new RowMapper(){
+
+            @Override
+            public Object mapRow(ResultRow resultRow)
+            {
+                return resultRow.getString(0);
+            }}, "items", "name");
+        queryInfo.setOrderBy("_id");
+        AndroidDatabaseSupport androidDatabaseSupport = new AndroidDatabaseSupport();
+        sqLiteDatabase.beginTransaction();
+        try
+        {
+            sqLiteDatabase.execSQL("DELETE FROM items");
+            List<Object> resultList = androidDatabaseSupport.getResultList(underTest, queryInfo, 0, 0);
+            assertThat(resultList).containsExactly("item1", "item2", "item3");
+        }
+        finally
+        {
+            sqLiteDatabase.endTransaction();
+        }
+    }
+
+    @Test
+    public void test_in_memory_database()
+    {
+        SQLiteDatabase memoryDatabase = SQLiteDatabase.create(null);
+        try
+        {
+            OpenHelperConnectionSource connectionSource = new OpenHelperConnectionSource(memoryDatabase, sqLiteOpenHelper);
+            assertThat(connectionSource.enableReadConnections()).isFalse();
+            assertThat(connectionSource.isReadConnectionsEnabled()).isFalse();
+        }
+        finally
+        {
+            memoryDatabase.close();
+        }
+    }
+
+    @Test
+    public void test_connection_source_factory_property()
+    {
+        OpenEventHandler openEventHandler = mock(OpenEventHandler.class);
+        when(openEventHandler.getDatabaseName()).thenReturn(DATABASE_NAME);
+        when(openEventHandler.getWritableDatabase()).thenReturn(sqLiteDatabase);
+        AndroidConnectionSourceFactory connectionSourceFactory = new AndroidConnectionSourceFactory(openEventHandler);
+        Properties properties = new Properties();
+        OpenHelperConnectionSource connectionSource = connectionSourceFactory.getConnectionSource(DATABASE_NAME, properties);
+        assertThat(connectionSource.isReadConnectionsEnabled()).isFalse();
+        properties.setProperty(AndroidConnectionSourceFactory.READ_CONNECTIONS, "true");
+        connectionSource = connectionSourceFactory.getConnectionSource(DATABASE_NAME, properties);
+        try
+        {
+            assertThat(connectionSource.isReadConnectionsEnabled()).isTrue();
+        }
+        finally
+        {
+            connectionSource.close();
+        }
+    }
+
+    @Test
+    public void test_nested_rollback() throws SQLException
+    {
+        EntityTransactionImpl outer = new EntityTransactionImpl(underTest);
+        outer.begin();
+        insert(4);
+        // Nested unit of work which fails
+        EntityTransactionImpl inner = new EntityTransactionImpl(underTest);
+        inner.begin();
+        insert(5);
+        inner.rollback();
+        // Only the nested changes are undone and the enclosing transaction remains open
+        assertThat(sqLiteDatabase.inTransaction()).isTrue();
+        assertThat(outer.isActive()).isTrue();
+        // Nested unit of work which succeeds
+        inner = new EntityTransactionImpl(underTest);
+        inner.begin();
+        insert(6);
+        inner.commit();
+        outer.commit();
+        assertThat(sqLiteDatabase.inTransaction()).isFalse();
+        DatabaseConnection connection = underTest.getReadOnlyConnection("items");
+        assertThat(connection.queryForLong(COUNT_QUERY)).isEqualTo(5L);
+        assertThat(connection.queryForLong("SELECT sum(_id) FROM items")).isEqualTo(16L);
+    }
+
+    private void insert(int id) throws SQLException
+    {
+        DatabaseConnection connection = underTest.getReadWriteConnection("items");
+        try
+        {
+            connection.executeStatement("INSERT INTO items (_id, name) VALUES (" + id + ", 'item" + id + "')", DatabaseConnection.DEFAULT_RESULT_FLAGS);
+        }
+        finally
+        {
+            underTest.releaseConnection(connection);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import com.j256.ormlite.support.DatabaseConnection;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+/**
+ * ReadConnectionBenchmarkTest
+ * Counts reads completed by concurrent readers while a writer holds a transaction open,
+ * with and without read connections. Throughput is logged for comparison, not asserted, as it depends
+ * on the host. Only the routing of reads is verified.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ReadConnectionBenchmarkTest
+{
+    private static final String TAG = "ReadConnectionBenchmark";
+    private static final String DATABASE_NAME = "read-benchmark.db";
+    private static final int READER_COUNT = 4;
+    private static final long WRITE_MILLIS = 500;
+
+    File databaseFile;
+    SQLiteDatabase sqLiteDatabase;
+
+    @Before
+    public void setUp()
+    {
+        databaseFile = RuntimeEnvironment.application.getDatabasePath(DATABASE_NAME);
+        databaseFile.getParentFile().mkdirs();
+    }
+
+    @After
+    public void tearDown()
+    {
+        if (sqLiteDatabase != null)
+            sqLiteDatabase.close();
+        SQLiteDatabase.deleteDatabase(databaseFile);
+    }
+
+    @Test
+    public void test_read_throughput_while_writing() throws Exception
+    {
+        runContention(false);
+        runContention(true);
+    }
+
+    private void runContention(final boolean enableReadConnections) throws Exception
+    {
+        if (sqLiteDatabase != null)
+            sqLiteDatabase.close();
+        SQLiteDatabase.deleteDatabase(databaseFile);
+        sqLiteDatabase = SQLiteDatabase.openOrCreateDatabase(databaseFile, null);
+        sqLiteDatabase.execSQL("CREATE TABLE items (_id INTEGER PRIMARY KEY, name TEXT)");
+        for (int i = 1; i <= 1000; ++i)
+            sqLiteDatabase.execSQL("INSERT INTO items (_id, name) VALUES (" + i + ", 'item" + i + "')");
+        SQLiteOpenHelper sqLiteOpenHelper = mock(SQLiteOpenHelper.class);
+        when(sqLiteOpenHelper.getWritableDatabase()).thenReturn(sqLiteDatabase);
+        final OpenHelperConnectionSource connectionSource = new OpenHelperConnectionSource(sqLiteDatabase, sqLiteOpenHelper);
+        if (enableReadConnections)
+            assertThat(connectionSource.enableReadConnections()).isTrue();
+        assertThat(connectionSource.getReadOnlyConnection("items") == connectionSource.readConnection).isEqualTo(enableReadConnections);
+        final CountDownLatch writerActive = new CountDownLatch(1);
+        final AtomicInteger readCount = new AtomicInteger();
+        final AtomicInteger misroutedCount = new AtomicInteger();
+        final AtomicInteger writeCount = new AtomicInteger();
+        final Thread writer = new Thread(new Runnable(){
+
+            @Override
+            public void run()
+            {
+                sqLiteDatabase.beginTransaction();
+                try
+                {
+                    writerActive.countDown();
+                    long end = System.currentTimeMillis() + WRITE_MILLIS;
+                    int id = 1001;
+                    while (System.currentTimeMillis() < end)
+                    {
+                        sqLiteDatabase.execSQL("INSERT INTO items (_id, name) VALUES (" + id + ", 'item" + id + "')");
+                        ++id;
+                        writeCount.incrementAndGet();
+                    }
+                    sqLiteDatabase.setTransactionSuccessful();
+                }
+                finally
+                {
+                    sqLiteDatabase.endTransaction();
+                }
+            }});
+        Thread[] readers = new Thread[READER_COUNT];
+        for (int i = 0; i < READER_COUNT; ++i)
+        {
+            readers[i] = new Thread(new Runnable(){
+
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        writerActive.await();
+                        while (writer.isAlive())
+                        {
+                            DatabaseConnection connection = connectionSource.getReadOnlyConnection("items");
+                            // No transaction is active on this thread, so reads go to the read database when enabled
+                            if ((connection == connectionSource.readConnection) != enableReadConnections)
+                                misroutedCount.incrementAndGet();
+                            connection.queryForLong("SELECT count(*) FROM items");
+                            // Only reads completed while the writer transaction is open are counted
+                            if (writer.isAlive())
+                                readCount.incrementAndGet();
+                        }
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                    catch (SQLException e)
+                    {
+                        Log.e(TAG, "Read failed", e);
+                    }
+                }});
+            readers[i].start();
+        }
+        writer.start();
+        writer.join();
+        for (Thread reader: readers)
+            reader.join();
+        connectionSource.close();
+        assertThat(misroutedCount.get()).isEqualTo(0);
+        Log.i(TAG, (enableReadConnections ? "read connections" : "shared connection") + ": " + READER_COUNT + " readers completed " +
+                   readCount.get() + " reads (" + (readCount.get() * 1000L / WRITE_MILLIS) + " reads/sec) during " +
+                   writeCount.get() + " writes");
+    }
+}
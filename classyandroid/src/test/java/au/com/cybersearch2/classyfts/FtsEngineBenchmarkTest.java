@@ -0,0 +1,254 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyfts;
+
+import static org.fest.assertions.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import android.app.SearchManager;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+import au.com.cybersearch2.classyfts.FtsEngine.FtsStatus;
+
+/**
+ * FtsEngineBenchmarkTest
+ * Loads a dictionary from an in-memory source table to measure bulk build throughput, and
+ * compares ranked queries with the default ordering for recall and latency
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FtsEngineBenchmarkTest
+{
+    private static final String TAG = "FtsEngineBenchmark";
+    private static final int ROW_COUNT = 20000;
+    private static final int TOP_K = 10;
+    private static final String[] VOCABULARY = new String[]
+    {
+        "annual", "report", "reports", "reporting", "meeting", "minutes", "policy", "staff", "roster",
+        "asset", "register", "budget", "travel", "claims", "leave", "forms", "vehicle", "log", "archive",
+        "index", "project", "plan", "review", "contract", "tender", "audit", "risk", "safety"
+    };
+    private static final String[] QUERIES = new String[] { "rep", "report", "m", "annual rep", "a", "re", "pol", "staff r" };
+
+    SQLiteDatabase sourceDb;
+    SQLiteDatabase dictionaryDb;
+    FtsOpenHelper ftsOpenHelper;
+    FtsEngine ftsEngine;
+
+    @Before
+    public void setUp()
+    {
+        sourceDb = SQLiteDatabase.create(null);
+        sourceDb.execSQL("CREATE TABLE all_nodes (_id INTEGER PRIMARY KEY, title TEXT, model TEXT)");
+        SQLiteStatement insert = sourceDb.compileStatement("INSERT INTO all_nodes (_id, title, model) VALUES (?,?,?)");
+        sourceDb.beginTransaction();
+        try
+        {
+            for (int i = 1; i <= ROW_COUNT; ++i)
+            {
+                insert.bindLong(1, i);
+                insert.bindString(2, "Title " + i);
+                insert.bindString(3, (i % 2) == 0 ? "recordCategory" : "recordFolder");
+                insert.executeInsert();
+            }
+            sourceDb.setTransactionSuccessful();
+        }
+        finally
+        {
+            sourceDb.endTransaction();
+            insert.close();
+        }
+        dictionaryDb = SQLiteDatabase.create(null);
+        dictionaryDb.execSQL(FtsEngine.FTS_TABLE_CREATE);
+        dictionaryDb.setVersion(FtsEngine.DATABASE_VERSION);
+        ftsOpenHelper = mock(FtsOpenHelper.class);
+        when(ftsOpenHelper.getReadableDatabase()).thenReturn(sourceDb);
+        when(ftsOpenHelper.getWritableDictionaryDatabase()).thenReturn(dictionaryDb);
+        when(ftsOpenHelper.getReadableDictionaryDatabase()).thenReturn(dictionaryDb);
+        Map<String,String> columnMap = new HashMap<String,String>();
+        columnMap.put(SearchManager.SUGGEST_COLUMN_TEXT_1, "title");
+        columnMap.put(SearchManager.SUGGEST_COLUMN_TEXT_2, "model");
+        columnMap.put(SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID, "_id");
+        ftsEngine = new FtsEngine(ftsOpenHelper, "all_nodes", columnMap);
+    }
+
+    @After
+    public void tearDown()
+    {
+        sourceDb.close();
+        dictionaryDb.close();
+    }
+
+    @Test
+    public void test_initialize_throughput()
+    {
+        ftsEngine.setCommitSize(5000);
+        assertThat(runInitialize("sequential")).isEqualTo(FtsStatus.Loaded);
+    }
+
+    @Test
+    public void test_initialize_throughput_parallel_filter()
+    {
+        WordFilter wordFilter = new WordFilter(){
+
+            @Override
+            public String filter(String key, String word)
+            {
+                return key.equals("model") ? word.replace("record", "Record ") : word;
+            }};
+        ftsEngine.setText2Filter(wordFilter);
+        ftsEngine.setFilterThreads(4);
+        assertThat(runInitialize("parallel filter")).isEqualTo(FtsStatus.Loaded);
+        Cursor cursor = dictionaryDb.rawQuery("select " + SearchManager.SUGGEST_COLUMN_TEXT_2 + " from " + FtsEngine.FTS_VIRTUAL_TABLE +
+                " where " + SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID + " = 2", null);
+        try
+        {
+            assertThat(cursor.moveToFirst()).isTrue();
+            assertThat(cursor.getString(0)).isEqualTo("Record Category");
+        }
+        finally
+        {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void test_ranked_query_recall_latency()
+    {
+        // Titles of 1 to 8 words from a small vocabulary, so prefixes match many rows of varying relevance
+        sourceDb.execSQL("CREATE TABLE documents (_id INTEGER PRIMARY KEY, title TEXT, model TEXT)");
+        SQLiteStatement insert = sourceDb.compileStatement("INSERT INTO documents (_id, title, model) VALUES (?,?,?)");
+        Random random = new Random(4711);
+        sourceDb.beginTransaction();
+        try
+        {
+            for (int i = 1; i <= ROW_COUNT; ++i)
+            {
+                StringBuilder builder = new StringBuilder();
+                int wordCount = 1 + random.nextInt(8);
+                for (int j = 0; j < wordCount; ++j)
+                    builder.append(j == 0 ? "" : " ").append(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+                insert.bindLong(1, i);
+                insert.bindString(2, builder.toString());
+                insert.bindString(3, VOCABULARY[random.nextInt(VOCABULARY.length)]);
+                insert.executeInsert();
+            }
+            sourceDb.setTransactionSuccessful();
+        }
+        finally
+        {
+            sourceDb.endTransaction();
+            insert.close();
+        }
+        Map<String,String> columnMap = new HashMap<String,String>();
+        columnMap.put(SearchManager.SUGGEST_COLUMN_TEXT_1, "title");
+        columnMap.put(SearchManager.SUGGEST_COLUMN_TEXT_2, "model");
+        columnMap.put(SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID, "_id");
+        FtsEngine documentEngine = new FtsEngine(ftsOpenHelper, "documents", columnMap);
+        assertThat(documentEngine.initialize()).isEqualTo(FtsStatus.Loaded);
+        FtsSearch ftsSearch = new FtsSearch(documentEngine);
+        String[] columns = new String[] { SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID };
+        // The relevant set of each query is the top K of all matches in rank order
+        documentEngine.setRanked(true);
+        List<Set<Long>> relevantList = new ArrayList<Set<Long>>();
+        for (String query: QUERIES)
+        {
+            List<Long> allMatches = getDataIds(ftsSearch.getWordMatches(query, columns, 0));
+            assertThat(allMatches.size()).isGreaterThan(TOP_K);
+            relevantList.add(new HashSet<Long>(allMatches.subList(0, TOP_K)));
+        }
+        documentEngine.setRanked(false);
+        long start = System.nanoTime();
+        double defaultRecall = measureRecall(ftsSearch, columns, relevantList);
+        long defaultElapsed = System.nanoTime() - start;
+        documentEngine.setRanked(true);
+        start = System.nanoTime();
+        double rankedRecall = measureRecall(ftsSearch, columns, relevantList);
+        long rankedElapsed = System.nanoTime() - start;
+        Log.i(TAG, "default order: recall@" + TOP_K + " " + String.format("%.2f", defaultRecall) + ", " +
+                   (defaultElapsed / QUERIES.length / 1000L) + "us per query");
+        Log.i(TAG, "ranked order: recall@" + TOP_K + " " + String.format("%.2f", rankedRecall) + ", " +
+                   (rankedElapsed / QUERIES.length / 1000L) + "us per query");
+        assertThat(rankedRecall).isEqualTo(1.0);
+        assertThat(defaultRecall).isLessThan(rankedRecall);
+    }
+
+    private double measureRecall(FtsSearch ftsSearch, String[] columns, List<Set<Long>> relevantList)
+    {
+        int found = 0;
+        for (int i = 0; i < QUERIES.length; ++i)
+            for (Long dataId: getDataIds(ftsSearch.getWordMatches(QUERIES[i], columns, TOP_K)))
+                if (relevantList.get(i).contains(dataId))
+                    ++found;
+        return (double)found / (QUERIES.length * TOP_K);
+    }
+
+    private List<Long> getDataIds(Cursor cursor)
+    {
+        List<Long> dataIds = new ArrayList<Long>();
+        if (cursor == null)
+            return dataIds;
+        try
+        {
+            do
+            {
+                dataIds.add(Long.valueOf(cursor.getLong(0)));
+            } while (cursor.moveToNext());
+        }
+        finally
+        {
+            cursor.close();
+        }
+        return dataIds;
+    }
+
+    private FtsStatus runInitialize(String label)
+    {
+        long start = System.currentTimeMillis();
+        FtsStatus status = ftsEngine.initialize();
+        long elapsed = Math.max(1L, System.currentTimeMillis() - start);
+        Log.i(TAG, label + ": " + ROW_COUNT + " words loaded in " + elapsed + "ms (" + (ROW_COUNT * 1000L / elapsed) + " words/sec)");
+        assertThat(ftsEngine.getWordCount()).isEqualTo(ROW_COUNT);
+        Cursor cursor = dictionaryDb.rawQuery("select count(*) from " + FtsEngine.FTS_VIRTUAL_TABLE, null);
+        try
+        {
+            assertThat(cursor.moveToFirst()).isTrue();
+            assertThat(cursor.getInt(0)).isEqualTo(ROW_COUNT);
+        }
+        finally
+        {
+            cursor.close();
+        }
+        return status;
+    }
+}
@@ -0,0 +1,193 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyfts;
+
+import static org.fest.assertions.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import android.app.SearchManager;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.provider.BaseColumns;
+import au.com.cybersearch2.classyfts.FtsEngine.FtsStatus;
+
+/**
+ * FtsEngineRankTest
+ * Ranked queries using in-memory databases
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FtsEngineRankTest
+{
+    static final String[] COLUMNS = new String[]
+    {
+        BaseColumns._ID,
+        SearchManager.SUGGEST_COLUMN_TEXT_1,
+        SearchManager.SUGGEST_COLUMN_TEXT_2,
+        SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID
+    };
+    static final String[][] WORDS = new String[][]
+    {
+        { "Reporting guidelines for annual reports", "Policy" },
+        { "Annual Report", "Finance" },
+        { "Meeting minutes", "Governance" },
+        { "Report", "Records" },
+        { "Staff roster", "Staff" },
+        { "Report archive report index", "Records" },
+        { "Asset register", "Report" },
+        { "Budget", "Finance" },
+        { "Policy manual", "Policy" },
+        { "Travel claims", "Finance" },
+        { "Leave forms", "Staff" },
+        { "Vehicle log", "Assets" }
+    };
+    static final String ALL_COLUMNS_MATCH = FtsEngine.FTS_VIRTUAL_TABLE + " MATCH ?";
+
+    SQLiteDatabase sourceDb;
+    SQLiteDatabase dictionaryDb;
+    FtsEngine ftsEngine;
+
+    @Before
+    public void setUp()
+    {
+        sourceDb = SQLiteDatabase.create(null);
+        sourceDb.execSQL("CREATE TABLE all_nodes (_id INTEGER PRIMARY KEY, title TEXT, model TEXT)");
+        for (int i = 0; i < WORDS.length; ++i)
+            sourceDb.execSQL("INSERT INTO all_nodes (_id, title, model) VALUES (?,?,?)", new Object[] { Integer.valueOf(i + 1), WORDS[i][0], WORDS[i][1] });
+        dictionaryDb = SQLiteDatabase.create(null);
+        dictionaryDb.execSQL(FtsEngine.FTS_TABLE_CREATE);
+        dictionaryDb.setVersion(FtsEngine.DATABASE_VERSION);
+        FtsOpenHelper ftsOpenHelper = mock(FtsOpenHelper.class);
+        when(ftsOpenHelper.getReadableDatabase()).thenReturn(sourceDb);
+        when(ftsOpenHelper.getWritableDictionaryDatabase()).thenReturn(dictionaryDb);
+        when(ftsOpenHelper.getReadableDictionaryDatabase()).thenReturn(dictionaryDb);
+        Map<String,String> columnMap = new HashMap<String,String>();
+        columnMap.put(SearchManager.SUGGEST_COLUMN_TEXT_1, "title");
+        columnMap.put(SearchManager.SUGGEST_COLUMN_TEXT_2, "model");
+        columnMap.put(SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID, "_id");
+        ftsEngine = new FtsEngine(ftsOpenHelper, "all_nodes", columnMap);
+        assertThat(ftsEngine.initialize()).isEqualTo(FtsStatus.Loaded);
+    }
+
+    @After
+    public void tearDown()
+    {
+        sourceDb.close();
+        dictionaryDb.close();
+    }
+
+    @Test
+    public void test_ranked_order()
+    {
+        FtsSearch ftsSearch = new FtsSearch(ftsEngine);
+        assertThat(getDataIds(ftsSearch.getWordMatches("rep", COLUMNS, 0))).containsExactly(1L, 2L, 4L, 6L);
+        ftsEngine.setRanked(true);
+        // Short text and repeated terms rank higher
+        assertThat(getDataIds(ftsSearch.getWordMatches("rep", COLUMNS, 0))).containsExactly(4L, 6L, 2L, 1L);
+        assertThat(getDataIds(ftsSearch.getWordMatches("rep", COLUMNS, 2))).containsExactly(4L, 6L);
+        assertThat(getDataIds(ftsSearch.getWordMatches("annual rep", COLUMNS, 0))).containsExactly(2L, 1L);
+        assertThat(getDataIds(ftsSearch.getWordMatches("m", COLUMNS, 0))).containsExactly(3L, 9L);
+        assertThat(ftsSearch.getWordMatches("x", COLUMNS, 0)).isNull();
+    }
+
+    @Test
+    public void test_ranked_cursor()
+    {
+        ftsEngine.setRanked(true);
+        Cursor cursor = new FtsSearch(ftsEngine).getWordMatches("annual", COLUMNS, 1);
+        try
+        {
+            // Positioned at first row
+            assertThat(cursor.getCount()).isEqualTo(1);
+            assertThat(cursor.getLong(cursor.getColumnIndex(BaseColumns._ID))).isEqualTo(2L);
+            assertThat(cursor.getString(cursor.getColumnIndex(SearchManager.SUGGEST_COLUMN_TEXT_1))).isEqualTo("Annual Report");
+            assertThat(cursor.getString(cursor.getColumnIndex(SearchManager.SUGGEST_COLUMN_TEXT_2))).isEqualTo("Finance");
+            assertThat(cursor.getLong(cursor.getColumnIndex(SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID))).isEqualTo(2L);
+        }
+        finally
+        {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void test_column_weights()
+    {
+        ftsEngine.setRanked(true);
+        String[] selectionArgs = new String[] { "rep*" };
+        // Rare term in second column outweighs common term in first column
+        assertThat(getDataIds(ftsEngine.query(ALL_COLUMNS_MATCH, selectionArgs, COLUMNS, 0))).containsExactly(7L, 4L, 6L, 2L, 1L);
+        ftsEngine.setColumnWeights(1.0, 0.0);
+        assertThat(getDataIds(ftsEngine.query(ALL_COLUMNS_MATCH, selectionArgs, COLUMNS, 0))).containsExactly(4L, 6L, 2L, 1L, 7L);
+        ftsEngine.setColumnWeights(0.0, 1.0);
+        assertThat(getDataIds(ftsEngine.query(ALL_COLUMNS_MATCH, selectionArgs, COLUMNS, 0))).containsExactly(7L, 1L, 2L, 4L, 6L);
+    }
+
+    @Test
+    public void test_ranked_query_not_match()
+    {
+        ftsEngine.setRanked(true);
+        assertThat(getDataIds(new FtsSearch(ftsEngine).getWord("3", COLUMNS, 0))).containsExactly(3L);
+        assertThat(ftsEngine.corpusStatistics).isNull();
+    }
+
+    @Test
+    public void test_corpus_statistics()
+    {
+        ftsEngine.setRanked(true);
+        new FtsSearch(ftsEngine).getWordMatches("staff", COLUMNS, 0).close();
+        FtsEngine.CorpusStatistics statistics = ftsEngine.corpusStatistics;
+        assertThat(statistics.rowCount).isEqualTo(WORDS.length);
+        int totalLength = 0;
+        for (String[] word: WORDS)
+            totalLength += word[0].length();
+        assertThat(statistics.averageLengths[1]).isEqualTo((double)totalLength / WORDS.length);
+        ftsEngine.notifyDictionaryChange();
+        assertThat(ftsEngine.corpusStatistics).isNull();
+    }
+
+    private List<Long> getDataIds(Cursor cursor)
+    {
+        List<Long> dataIds = new ArrayList<Long>();
+        if (cursor == null)
+            return dataIds;
+        try
+        {
+            int index = cursor.getColumnIndex(SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID);
+            do
+            {
+                dataIds.add(Long.valueOf(cursor.getLong(index)));
+            } while (cursor.moveToNext());
+        }
+        finally
+        {
+            cursor.close();
+        }
+        return dataIds;
+    }
+}
@@ -0,0 +1,171 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyfts;
+
+import static org.fest.assertions.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import android.app.SearchManager;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import au.com.cybersearch2.classyfts.FtsEngine.FtsStatus;
+
+/**
+ * FtsEngineSyncTest
+ * Incremental index maintenance using in-memory source and dictionary databases
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FtsEngineSyncTest
+{
+    SQLiteDatabase sourceDb;
+    SQLiteDatabase dictionaryDb;
+    FtsOpenHelper ftsOpenHelper;
+    Map<String,String> columnMap;
+
+    @Before
+    public void setUp()
+    {
+        sourceDb = SQLiteDatabase.create(null);
+        sourceDb.execSQL("CREATE TABLE all_nodes (_id INTEGER PRIMARY KEY, title TEXT, model TEXT)");
+        for (int i = 1; i <= 5; ++i)
+            sourceDb.execSQL("INSERT INTO all_nodes (_id, title, model) VALUES (" + i + ", 'Title " + i + "', 'recordCategory')");
+        dictionaryDb = SQLiteDatabase.create(null);
+        dictionaryDb.execSQL(FtsEngine.FTS_TABLE_CREATE);
+        dictionaryDb.setVersion(FtsEngine.DATABASE_VERSION);
+        ftsOpenHelper = mock(FtsOpenHelper.class);
+        when(ftsOpenHelper.getReadableDatabase()).thenReturn(sourceDb);
+        when(ftsOpenHelper.getWritableDatabase()).thenReturn(sourceDb);
+        when(ftsOpenHelper.getWritableDictionaryDatabase()).thenReturn(dictionaryDb);
+        when(ftsOpenHelper.getReadableDictionaryDatabase()).thenReturn(dictionaryDb);
+        columnMap = new HashMap<String,String>();
+        columnMap.put(SearchManager.SUGGEST_COLUMN_TEXT_1, "title");
+        columnMap.put(SearchManager.SUGGEST_COLUMN_TEXT_2, "model");
+        columnMap.put(SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID, "_id");
+    }
+
+    @After
+    public void tearDown()
+    {
+        sourceDb.close();
+        dictionaryDb.close();
+    }
+
+    @Test
+    public void test_synchronize_changes()
+    {
+        FtsEngine ftsEngine = createFtsEngine();
+        assertThat(ftsEngine.initialize()).isEqualTo(FtsStatus.Loaded);
+        assertThat(countWords()).isEqualTo(5);
+        assertThat(ftsEngine.synchronize()).isEqualTo(0);
+        sourceDb.execSQL("INSERT INTO all_nodes (_id, title, model) VALUES (6, 'Title 6', 'recordFolder')");
+        sourceDb.execSQL("UPDATE all_nodes SET title = 'Renamed' WHERE _id = 2");
+        sourceDb.execSQL("DELETE FROM all_nodes WHERE _id = 3");
+        sourceDb.execSQL("UPDATE all_nodes SET _id = 10 WHERE _id = 4");
+        // Search sees old index until synchronized
+        assertThat(getTitle(2)).isEqualTo("Title 2");
+        assertThat(ftsEngine.synchronize()).isEqualTo(5);
+        assertThat(countWords()).isEqualTo(5);
+        assertThat(getTitle(2)).isEqualTo("Renamed");
+        assertThat(getTitle(3)).isNull();
+        assertThat(getTitle(4)).isNull();
+        assertThat(getTitle(10)).isEqualTo("Title 4");
+        assertThat(getTitle(6)).isEqualTo("Title 6");
+        // Applied entries are removed from the change log
+        assertThat(ftsEngine.getLastChange(sourceDb)).isEqualTo(0);
+        assertThat(ftsEngine.getWatermark(dictionaryDb)).isEqualTo(5);
+    }
+
+    @Test
+    public void test_synchronize_in_batches_resumes_after_restart()
+    {
+        FtsEngine ftsEngine = createFtsEngine();
+        ftsEngine.setSyncBatchSize(2);
+        assertThat(ftsEngine.initialize()).isEqualTo(FtsStatus.Loaded);
+        for (int i = 1; i <= 5; ++i)
+            sourceDb.execSQL("UPDATE all_nodes SET title = 'Updated " + i + "' WHERE _id = " + i);
+        sourceDb.execSQL("DELETE FROM all_nodes WHERE _id = 5");
+        // Restarted engine picks up the pending changes on initialize
+        FtsEngine restartedEngine = createFtsEngine();
+        restartedEngine.setSyncBatchSize(2);
+        assertThat(restartedEngine.initialize()).isEqualTo(FtsStatus.Loaded);
+        assertThat(countWords()).isEqualTo(4);
+        for (int i = 1; i <= 4; ++i)
+            assertThat(getTitle(i)).isEqualTo("Updated " + i);
+        assertThat(getTitle(5)).isNull();
+        assertThat(restartedEngine.getWatermark(dictionaryDb)).isEqualTo(6);
+    }
+
+    @Test
+    public void test_initialize_rebuilds_untracked_dictionary()
+    {
+        FtsEngine ftsEngine = new FtsEngine(ftsOpenHelper, "all_nodes", columnMap);
+        assertThat(ftsEngine.initialize()).isEqualTo(FtsStatus.Loaded);
+        assertThat(countWords()).isEqualTo(5);
+        ftsEngine = createFtsEngine();
+        assertThat(ftsEngine.initialize()).isEqualTo(FtsStatus.Loaded);
+        assertThat(countWords()).isEqualTo(5);
+        assertThat(ftsEngine.getWatermark(dictionaryDb)).isEqualTo(0);
+        sourceDb.execSQL("DELETE FROM all_nodes WHERE _id = 1");
+        assertThat(ftsEngine.synchronize()).isEqualTo(1);
+        assertThat(countWords()).isEqualTo(4);
+    }
+
+    private FtsEngine createFtsEngine()
+    {
+        FtsEngine ftsEngine = new FtsEngine(ftsOpenHelper, "all_nodes", columnMap);
+        ftsEngine.setIncremental(true);
+        return ftsEngine;
+    }
+
+    private int countWords()
+    {
+        Cursor cursor = dictionaryDb.rawQuery("select count(*) from " + FtsEngine.FTS_VIRTUAL_TABLE, null);
+        try
+        {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        }
+        finally
+        {
+            cursor.close();
+        }
+    }
+
+    private String getTitle(int dataId)
+    {
+        Cursor cursor = dictionaryDb.rawQuery("select " + SearchManager.SUGGEST_COLUMN_TEXT_1 + " from " + FtsEngine.FTS_VIRTUAL_TABLE +
+                " where docid = " + dataId, null);
+        try
+        {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+        finally
+        {
+            cursor.close();
+        }
+    }
+}
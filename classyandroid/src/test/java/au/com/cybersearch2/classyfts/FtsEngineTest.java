@@ -25,6 +25,9 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.robolectric.RobolectricTestRunner;
 
 import android.app.SearchManager;
@@ -32,6 +35,7 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import au.com.cybersearch2.classyfts.FtsEngine.FtsStatus;
 import au.com.cybersearch2.classyutil.Transcript;
 
@@ -190,6 +194,20 @@ public class FtsEngineTest
         assertThat(ftsEngine.initialize()).isEqualTo(FtsStatus.Loaded);
     }
     
+    @Test
+    public void test_FtsEngine_synchronize_not_incremental()
+    {
+        try
+        {
+            ftsEngine.synchronize();
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        }
+        catch (IllegalStateException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("synchronize() called when not in incremental mode");
+        }
+    }
+
     @Test
     public void test_FtsEngine_loadDictionary()
     {
@@ -197,31 +215,43 @@ public class FtsEngineTest
         int ID2 = 15;
         SQLiteDatabase ftsDb = mock(SQLiteDatabase.class);
         SQLiteDatabase targetDb = mock(SQLiteDatabase.class);
+        SQLiteStatement insertStatement = mock(SQLiteStatement.class);
         Cursor cursor = mock(Cursor.class);
         when(targetDb.rawQuery(eq("select _id, title, model from all_nodes"), isNull(String[].class))).thenReturn(cursor);
         when(cursor.moveToFirst()).thenReturn(true);
+        when(cursor.getCount()).thenReturn(2);
         when(cursor.getColumnIndex("_id")).thenReturn(0);
         when(cursor.getInt(0)).thenReturn(ID1, ID2);
         when(cursor.getColumnIndex("title")).thenReturn(1);
         when(cursor.getString(1)).thenReturn("text1", "text3");
         when(cursor.getColumnIndex("model")).thenReturn(2);
         when(cursor.getString(2)).thenReturn("text2", "text4");
-        ArgumentCaptor<ContentValues> contentValuesArg = ArgumentCaptor.forClass(ContentValues.class);
-        when(ftsDb.insert(eq("FTSlexicon"), isNull(String.class), contentValuesArg.capture())).thenReturn(1l);
+        when(ftsDb.compileStatement(FtsEngine.FTS_INSERT)).thenReturn(insertStatement);
+        when(insertStatement.executeInsert()).thenReturn(1l, 2l);
         when(cursor.moveToNext()).thenReturn(true, false);
         ((TestFtsEngine)ftsEngine).callRealLoad = true;
         assertThat(ftsEngine.loadDictionary(targetDb, ftsDb)).isEqualTo(FtsStatus.Loaded);
         text1Filter.transcript.assertEventsSoFar("title=text1", "title=text3");
         text2Filter.transcript.assertEventsSoFar("model=text2", "model=text4");
-        ContentValues contentValues = contentValuesArg.getAllValues().get(0);
-        assertThat(contentValues.getAsInteger(SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID)).isEqualTo(ID1);
-        assertThat(contentValues.getAsString(SearchManager.SUGGEST_COLUMN_TEXT_1)).isEqualTo( "text1 FILTERED");
-        assertThat(contentValues.getAsString(SearchManager.SUGGEST_COLUMN_TEXT_2)).isEqualTo( "text2 FILTERED");
-        contentValues = contentValuesArg.getAllValues().get(1);
-        assertThat(contentValues.getAsInteger(SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID)).isEqualTo(ID2);
-        assertThat(contentValues.getAsString(SearchManager.SUGGEST_COLUMN_TEXT_1)).isEqualTo( "text3 FILTERED");
-        assertThat(contentValues.getAsString(SearchManager.SUGGEST_COLUMN_TEXT_2)).isEqualTo( "text4 FILTERED");
+        InOrder inOrder = inOrder(ftsDb, insertStatement);
+        inOrder.verify(ftsDb).beginTransaction();
+        inOrder.verify(insertStatement).bindLong(1, ID1);
+        inOrder.verify(insertStatement).bindString(2, "text1 FILTERED");
+        inOrder.verify(insertStatement).bindString(3, "text2 FILTERED");
+        inOrder.verify(insertStatement).executeInsert();
+        inOrder.verify(insertStatement).bindLong(1, ID2);
+        inOrder.verify(insertStatement).bindString(2, "text3 FILTERED");
+        inOrder.verify(insertStatement).bindString(3, "text4 FILTERED");
+        inOrder.verify(insertStatement).executeInsert();
+        inOrder.verify(ftsDb).setTransactionSuccessful();
+        inOrder.verify(ftsDb).endTransaction();
+        // Column indexes are looked up once only
+        verify(cursor).getColumnIndex("title");
+        verify(ftsDb, times(0)).insert(anyString(), anyString(), any(ContentValues.class));
+        verify(insertStatement).close();
         verify(cursor).close();
+        assertThat(ftsEngine.getWordCount()).isEqualTo(2);
+        assertThat(ftsEngine.getTotalWords()).isEqualTo(2);
     }
 
     @Test
@@ -231,6 +261,7 @@ public class FtsEngineTest
         int ID2 = 15;
         SQLiteDatabase ftsDb = mock(SQLiteDatabase.class);
         SQLiteDatabase targetDb = mock(SQLiteDatabase.class);
+        SQLiteStatement insertStatement = mock(SQLiteStatement.class);
         Cursor cursor = mock(Cursor.class);
         when(targetDb.rawQuery(eq("select _id, title, model from all_nodes"), isNull(String[].class))).thenReturn(cursor);
         when(cursor.moveToFirst()).thenReturn(true);
@@ -240,16 +271,112 @@ public class FtsEngineTest
         when(cursor.getString(1)).thenReturn("text1", "text3");
         when(cursor.getColumnIndex("model")).thenReturn(2);
         when(cursor.getString(2)).thenReturn("text2", "text4");
-        ArgumentCaptor<ContentValues> contentValuesArg = ArgumentCaptor.forClass(ContentValues.class);
-        when(ftsDb.insert(eq("FTSlexicon"), isNull(String.class), contentValuesArg.capture())).thenReturn(-1l);
+        when(ftsDb.compileStatement(FtsEngine.FTS_INSERT)).thenReturn(insertStatement);
+        when(insertStatement.executeInsert()).thenReturn(-1l);
         ((TestFtsEngine)ftsEngine).callRealLoad = true;
         assertThat(ftsEngine.loadDictionary(targetDb, ftsDb)).isEqualTo(FtsStatus.Error);
         text1Filter.transcript.assertEventsSoFar("title=text1");
         text2Filter.transcript.assertEventsSoFar("model=text2");
-        ContentValues contentValues = contentValuesArg.getValue();
-        assertThat(contentValues.getAsInteger(SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID)).isEqualTo(ID1);
-        assertThat(contentValues.getAsString(SearchManager.SUGGEST_COLUMN_TEXT_1)).isEqualTo( "text1 FILTERED");
-        assertThat(contentValues.getAsString(SearchManager.SUGGEST_COLUMN_TEXT_2)).isEqualTo( "text2 FILTERED");
+        verify(insertStatement).bindLong(1, ID1);
+        verify(insertStatement).bindString(2, "text1 FILTERED");
+        verify(insertStatement).bindString(3, "text2 FILTERED");
+        verify(ftsDb, times(0)).setTransactionSuccessful();
+        verify(ftsDb).endTransaction();
+        verify(ftsDb, times(0)).execSQL(anyString());
+        verify(insertStatement).close();
         verify(cursor).close();
     }
+
+    @Test
+    public void test_FtsEngine_loadDictionary_commit_size_progress()
+    {
+        SQLiteDatabase ftsDb = mock(SQLiteDatabase.class);
+        SQLiteDatabase targetDb = mock(SQLiteDatabase.class);
+        SQLiteStatement insertStatement = mock(SQLiteStatement.class);
+        Cursor cursor = mock(Cursor.class);
+        when(targetDb.rawQuery(eq("select _id, title, model from all_nodes"), isNull(String[].class))).thenReturn(cursor);
+        when(cursor.moveToFirst()).thenReturn(true);
+        when(cursor.getCount()).thenReturn(3);
+        when(cursor.getColumnIndex("_id")).thenReturn(0);
+        when(cursor.getInt(0)).thenReturn(1, 2, 3);
+        when(cursor.getColumnIndex("title")).thenReturn(1);
+        when(cursor.getString(1)).thenReturn("text1", "text3", "text5");
+        when(cursor.getColumnIndex("model")).thenReturn(2);
+        when(cursor.getString(2)).thenReturn("text2", "text4", null);
+        when(cursor.moveToNext()).thenReturn(true, true, false);
+        when(ftsDb.compileStatement(FtsEngine.FTS_INSERT)).thenReturn(insertStatement);
+        when(insertStatement.executeInsert()).thenReturn(1l, 2l, 3l);
+        final Transcript transcript = new Transcript();
+        ftsEngine.setText2Filter(null);
+        ftsEngine.setCommitSize(1);
+        ftsEngine.setProgressListener(new FtsEngine.ProgressListener(){
+
+            @Override
+            public void onProgress(FtsStatus status, int wordCount, int totalWords)
+            {
+                transcript.add(status.toString() + " " + wordCount + "/" + totalWords);
+            }}, 2);
+        ((TestFtsEngine)ftsEngine).callRealLoad = true;
+        assertThat(ftsEngine.loadDictionary(targetDb, ftsDb)).isEqualTo(FtsStatus.Loaded);
+        // All rows are read in one chunk, so the commit size is applied per chunk
+        verify(ftsDb, times(2)).beginTransaction();
+        verify(ftsDb, times(2)).setTransactionSuccessful();
+        verify(ftsDb, times(2)).endTransaction();
+        verify(insertStatement).bindNull(3);
+        transcript.assertEventsSoFar("Loading 0/3", "Loading 2/3", "Loaded 3/3");
+    }
+
+    @Test
+    public void test_FtsEngine_loadDictionary_parallel_filter()
+    {
+        SQLiteDatabase ftsDb = mock(SQLiteDatabase.class);
+        SQLiteDatabase targetDb = mock(SQLiteDatabase.class);
+        SQLiteStatement insertStatement = mock(SQLiteStatement.class);
+        Cursor cursor = mock(Cursor.class);
+        int rowCount = FtsEngine.FILTER_CHUNK_SIZE * 5 + 1;
+        when(targetDb.rawQuery(eq("select _id, title, model from all_nodes"), isNull(String[].class))).thenReturn(cursor);
+        when(cursor.moveToFirst()).thenReturn(true);
+        when(cursor.getCount()).thenReturn(rowCount);
+        when(cursor.getColumnIndex("_id")).thenReturn(0);
+        when(cursor.getColumnIndex("title")).thenReturn(1);
+        when(cursor.getColumnIndex("model")).thenReturn(2);
+        final int[] position = new int[] { 0 };
+        when(cursor.getInt(0)).thenAnswer(new Answer<Integer>(){
+
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable
+            {
+                return position[0];
+            }});
+        when(cursor.getString(1)).thenReturn("title");
+        when(cursor.getString(2)).thenReturn("model");
+        when(cursor.moveToNext()).thenAnswer(new Answer<Boolean>(){
+
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable
+            {
+                return ++position[0] < FtsEngine.FILTER_CHUNK_SIZE * 5 + 1;
+            }});
+        when(ftsDb.compileStatement(FtsEngine.FTS_INSERT)).thenReturn(insertStatement);
+        when(insertStatement.executeInsert()).thenReturn(1l);
+        WordFilter upperCaseFilter = new WordFilter(){
+
+            @Override
+            public String filter(String key, String word)
+            {
+                return word.toUpperCase();
+            }};
+        ftsEngine.setText1Filter(upperCaseFilter);
+        ftsEngine.setText2Filter(upperCaseFilter);
+        ftsEngine.setFilterThreads(3);
+        ((TestFtsEngine)ftsEngine).callRealLoad = true;
+        assertThat(ftsEngine.loadDictionary(targetDb, ftsDb)).isEqualTo(FtsStatus.Loaded);
+        assertThat(ftsEngine.getWordCount()).isEqualTo(rowCount);
+        // Single writer adds words in source order
+        InOrder inOrder = inOrder(insertStatement);
+        for (int i = 0; i < rowCount; ++i)
+            inOrder.verify(insertStatement).bindLong(1, i);
+        verify(insertStatement, times(rowCount)).bindString(2, "TITLE");
+        verify(insertStatement, times(rowCount)).bindString(3, "MODEL");
+    }
 }
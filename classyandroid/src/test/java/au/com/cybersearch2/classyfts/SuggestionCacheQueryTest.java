@@ -0,0 +1,222 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyfts;
+
+import static org.fest.assertions.api.Assertions.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import android.app.SearchManager;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.provider.BaseColumns;
+import au.com.cybersearch2.classyfts.FtsEngine.FtsStatus;
+
+/**
+ * SuggestionCacheQueryTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SuggestionCacheQueryTest
+{
+    static final String[] COLUMNS = new String[]
+    {
+        BaseColumns._ID,
+        SearchManager.SUGGEST_COLUMN_TEXT_1,
+        SearchManager.SUGGEST_COLUMN_TEXT_2,
+        SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID
+    };
+    static final String[] TITLES = new String[]
+    {
+        "Annual Report", "Report Archive 2014", "Meeting minutes", "Reports", "Minutes archive",
+        "Staff roster", "Asset register", "Policy manual", "Annual budget", "Reporting guidelines"
+    };
+
+    SQLiteDatabase sourceDb;
+    SQLiteDatabase dictionaryDb;
+    FtsEngine ftsEngine;
+
+    @Before
+    public void setUp()
+    {
+        sourceDb = SQLiteDatabase.create(null);
+        sourceDb.execSQL("CREATE TABLE all_nodes (_id INTEGER PRIMARY KEY, title TEXT, model TEXT)");
+        for (int i = 0; i < TITLES.length; ++i)
+            sourceDb.execSQL("INSERT INTO all_nodes (_id, title, model) VALUES (" + (i + 1) + ", '" + TITLES[i] + "', 'recordCategory')");
+        dictionaryDb = SQLiteDatabase.create(null);
+        dictionaryDb.execSQL(FtsEngine.FTS_TABLE_CREATE);
+        dictionaryDb.setVersion(FtsEngine.DATABASE_VERSION);
+        FtsOpenHelper ftsOpenHelper = mock(FtsOpenHelper.class);
+        when(ftsOpenHelper.getReadableDatabase()).thenReturn(sourceDb);
+        when(ftsOpenHelper.getWritableDictionaryDatabase()).thenReturn(dictionaryDb);
+        when(ftsOpenHelper.getReadableDictionaryDatabase()).thenReturn(dictionaryDb);
+        Map<String,String> columnMap = new HashMap<String,String>();
+        columnMap.put(SearchManager.SUGGEST_COLUMN_TEXT_1, "title");
+        columnMap.put(SearchManager.SUGGEST_COLUMN_TEXT_2, "model");
+        columnMap.put(SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID, "_id");
+        ftsEngine = spy(new FtsEngine(ftsOpenHelper, "all_nodes", columnMap));
+        assertThat(ftsEngine.initialize()).isEqualTo(FtsStatus.Loaded);
+    }
+
+    @After
+    public void tearDown()
+    {
+        sourceDb.close();
+        dictionaryDb.close();
+    }
+
+    @Test
+    public void test_cache_hit()
+    {
+        SuggestionCacheQuery underTest = new SuggestionCacheQuery(ftsEngine);
+        FtsSearch ftsSearch = new FtsSearch(underTest);
+        assertThat(getDataIds(ftsSearch.getWordMatches("rep", COLUMNS, 0))).containsExactly(1L, 2L, 4L, 10L);
+        assertThat(getDataIds(ftsSearch.getWordMatches("REP", COLUMNS, 0))).containsExactly(1L, 2L, 4L, 10L);
+        assertThat(underTest.getHitCount()).isEqualTo(1);
+        assertThat(underTest.getMissCount()).isEqualTo(1);
+        verify(ftsEngine, times(1)).query(anyString(), any(String[].class), any(String[].class), anyInt());
+        // Different limit is a different query
+        assertThat(getDataIds(ftsSearch.getWordMatches("rep", COLUMNS, 2))).containsExactly(1L, 2L);
+        assertThat(underTest.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_narrowing()
+    {
+        SuggestionCacheQuery underTest = new SuggestionCacheQuery(ftsEngine);
+        FtsSearch cacheSearch = new FtsSearch(underTest);
+        FtsSearch sqliteSearch = new FtsSearch(ftsEngine);
+        cacheSearch.getWordMatches("r", COLUMNS, 10).close();
+        String[] searchTerms = new String[] { "re", "rep", "repo", "report", "reporti", "reportx" };
+        for (String searchTerm: searchTerms)
+            assertThat(getDataIds(cacheSearch.getWordMatches(searchTerm, COLUMNS, 10)))
+                .as(searchTerm)
+                .isEqualTo(getDataIds(sqliteSearch.getWordMatches(searchTerm, COLUMNS, 10)));
+        assertThat(underTest.getMissCount()).isEqualTo(1);
+        assertThat(underTest.getNarrowCount()).isEqualTo(searchTerms.length);
+        // Leading terms must match whole words
+        cacheSearch.getWordMatches("minutes", COLUMNS, 0).close();
+        assertThat(getDataIds(cacheSearch.getWordMatches("minutes a", COLUMNS, 0))).containsExactly(5L);
+        assertThat(underTest.getNarrowCount()).isEqualTo(searchTerms.length + 1);
+        // Only the original queries and the direct comparison queries reached SQLite
+        verify(ftsEngine, times(2 + searchTerms.length)).query(anyString(), any(String[].class), any(String[].class), anyInt());
+    }
+
+    @Test
+    public void test_incomplete_result_not_narrowed()
+    {
+        SuggestionCacheQuery underTest = new SuggestionCacheQuery(ftsEngine);
+        FtsSearch ftsSearch = new FtsSearch(underTest);
+        // Limit reached, so there may be more matches
+        assertThat(getDataIds(ftsSearch.getWordMatches("a", COLUMNS, 2))).containsExactly(1L, 2L);
+        assertThat(getDataIds(ftsSearch.getWordMatches("as", COLUMNS, 2))).containsExactly(7L);
+        assertThat(underTest.getNarrowCount()).isEqualTo(0);
+        assertThat(underTest.getMissCount()).isEqualTo(2);
+        // Complete result of limit 0 narrows a query with a limit
+        ftsSearch.getWordMatches("an", COLUMNS, 0).close();
+        assertThat(getDataIds(ftsSearch.getWordMatches("ann", COLUMNS, 1))).containsExactly(1L);
+        assertThat(underTest.getNarrowCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_invalidate_on_dictionary_change()
+    {
+        SuggestionCacheQuery underTest = new SuggestionCacheQuery(ftsEngine);
+        ftsEngine.addDictionaryListener(underTest);
+        FtsSearch ftsSearch = new FtsSearch(underTest);
+        ftsSearch.getWordMatches("staff", COLUMNS, 0).close();
+        assertThat(underTest.size()).isEqualTo(1);
+        ftsEngine.notifyDictionaryChange();
+        assertThat(underTest.size()).isEqualTo(0);
+        assertThat(getDataIds(ftsSearch.getWordMatches("staff", COLUMNS, 0))).containsExactly(6L);
+        assertThat(underTest.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_uncached_queries_pass_through()
+    {
+        SuggestionCacheQuery underTest = new SuggestionCacheQuery(ftsEngine);
+        FtsSearch ftsSearch = new FtsSearch(underTest);
+        assertThat(getDataIds(ftsSearch.getWord("3", COLUMNS, 0))).containsExactly(3L);
+        assertThat(getDataIds(ftsSearch.getWordMatches("rep OR min", COLUMNS, 0))).containsExactly(3L, 5L);
+        assertThat(ftsSearch.getWordMatches("xyz", null, 0)).isNull();
+        assertThat(underTest.size()).isEqualTo(0);
+        assertThat(underTest.getMissCount()).isEqualTo(0);
+        verify(ftsEngine, times(3)).query(anyString(), any(String[].class), any(String[].class), anyInt());
+    }
+
+    @Test
+    public void test_bounded()
+    {
+        SuggestionCacheQuery underTest = new SuggestionCacheQuery(ftsEngine, 2, 3);
+        FtsSearch ftsSearch = new FtsSearch(underTest);
+        ftsSearch.getWordMatches("staff", COLUMNS, 0).close();
+        ftsSearch.getWordMatches("policy", COLUMNS, 0).close();
+        ftsSearch.getWordMatches("asset", COLUMNS, 0).close();
+        assertThat(underTest.size()).isEqualTo(2);
+        // Result too large to cache
+        ftsSearch.getWordMatches("rep", COLUMNS, 0).close();
+        assertThat(underTest.size()).isEqualTo(2);
+        // No matches is cached as an empty result
+        assertThat(ftsSearch.getWordMatches("xyz", COLUMNS, 0)).isNull();
+        assertThat(ftsSearch.getWordMatches("xyz", COLUMNS, 0)).isNull();
+        assertThat(underTest.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_is_refinement()
+    {
+        assertThat(SuggestionCacheQuery.isRefinement(Arrays.asList("ca"), Arrays.asList("cat"))).isTrue();
+        assertThat(SuggestionCacheQuery.isRefinement(Arrays.asList("ca"), Arrays.asList("cat", "m"))).isTrue();
+        assertThat(SuggestionCacheQuery.isRefinement(Arrays.asList("cat", "m"), Arrays.asList("cat", "mo"))).isTrue();
+        assertThat(SuggestionCacheQuery.isRefinement(Arrays.asList("cat", "m"), Arrays.asList("cats", "mo"))).isFalse();
+        assertThat(SuggestionCacheQuery.isRefinement(Arrays.asList("cat"), Arrays.asList("ca"))).isFalse();
+        assertThat(SuggestionCacheQuery.isRefinement(null, Arrays.asList("ca"))).isFalse();
+    }
+
+    private List<Long> getDataIds(Cursor cursor)
+    {
+        List<Long> dataIds = new ArrayList<Long>();
+        if (cursor == null)
+            return dataIds;
+        try
+        {
+            int index = cursor.getColumnIndex(SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID);
+            do
+            {
+                dataIds.add(Long.valueOf(cursor.getLong(index)));
+            } while (cursor.moveToNext());
+        }
+        finally
+        {
+            cursor.close();
+        }
+        return dataIds;
+    }
+}
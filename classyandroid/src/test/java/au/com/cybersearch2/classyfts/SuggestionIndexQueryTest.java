@@ -0,0 +1,257 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyfts;
+
+import static org.fest.assertions.api.Assertions.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import android.app.SearchManager;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.provider.BaseColumns;
+import au.com.cybersearch2.classyfts.FtsEngine.FtsStatus;
+
+/**
+ * SuggestionIndexQueryTest
+ * Compares suggestions from the in-memory index with those from SQLite using in-memory databases
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SuggestionIndexQueryTest
+{
+    static final String[] COLUMNS = new String[]
+    {
+        BaseColumns._ID,
+        SearchManager.SUGGEST_COLUMN_TEXT_1,
+        SearchManager.SUGGEST_COLUMN_TEXT_2,
+        SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID
+    };
+    static final String[] TITLES = new String[]
+    {
+        "Annual Report", "Report Archive 2014", "Meeting minutes", "Reports", "Minutes archive",
+        "Staff roster", "Asset register", "Policy manual", "Annual budget", "Reporting guidelines"
+    };
+
+    SQLiteDatabase sourceDb;
+    SQLiteDatabase dictionaryDb;
+    FtsOpenHelper ftsOpenHelper;
+    FtsEngine ftsEngine;
+    Executor directExecutor;
+
+    @Before
+    public void setUp()
+    {
+        sourceDb = SQLiteDatabase.create(null);
+        sourceDb.execSQL("CREATE TABLE all_nodes (_id INTEGER PRIMARY KEY, title TEXT, model TEXT)");
+        for (int i = 0; i < TITLES.length; ++i)
+            sourceDb.execSQL("INSERT INTO all_nodes (_id, title, model) VALUES (" + (i + 1) + ", '" + TITLES[i] + "', '" +
+                             ((i % 2) == 0 ? "recordCategory" : "recordFolder") + "')");
+        dictionaryDb = SQLiteDatabase.create(null);
+        dictionaryDb.execSQL(FtsEngine.FTS_TABLE_CREATE);
+        dictionaryDb.setVersion(FtsEngine.DATABASE_VERSION);
+        ftsOpenHelper = mock(FtsOpenHelper.class);
+        when(ftsOpenHelper.getReadableDatabase()).thenReturn(sourceDb);
+        when(ftsOpenHelper.getWritableDictionaryDatabase()).thenReturn(dictionaryDb);
+        when(ftsOpenHelper.getReadableDictionaryDatabase()).thenReturn(dictionaryDb);
+        Map<String,String> columnMap = new HashMap<String,String>();
+        columnMap.put(SearchManager.SUGGEST_COLUMN_TEXT_1, "title");
+        columnMap.put(SearchManager.SUGGEST_COLUMN_TEXT_2, "model");
+        columnMap.put(SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID, "_id");
+        ftsEngine = spy(new FtsEngine(ftsOpenHelper, "all_nodes", columnMap));
+        assertThat(ftsEngine.initialize()).isEqualTo(FtsStatus.Loaded);
+        directExecutor = new Executor(){
+
+            @Override
+            public void execute(Runnable command)
+            {
+                command.run();
+            }};
+    }
+
+    @After
+    public void tearDown()
+    {
+        sourceDb.close();
+        dictionaryDb.close();
+    }
+
+    @Test
+    public void test_cold_index_falls_back()
+    {
+        SuggestionIndexQuery underTest = new SuggestionIndexQuery(ftsEngine);
+        assertThat(underTest.isWarm()).isFalse();
+        FtsSearch ftsSearch = new FtsSearch(underTest);
+        assertThat(getDataIds(ftsSearch.getWordMatches("rep", COLUMNS, 0))).containsExactly(1L, 2L, 4L, 10L);
+        verify(ftsEngine).query(SearchManager.SUGGEST_COLUMN_TEXT_1 + " MATCH ?", new String[] { "rep*" }, COLUMNS, 0);
+    }
+
+    @Test
+    public void test_index_matches_sqlite()
+    {
+        SuggestionIndexQuery underTest = new SuggestionIndexQuery(ftsEngine);
+        assertThat(underTest.rebuildInBackground(directExecutor)).isTrue();
+        assertThat(underTest.isWarm()).isTrue();
+        assertThat(underTest.getSuggestionIndex().size()).isEqualTo(TITLES.length);
+        FtsSearch indexSearch = new FtsSearch(underTest);
+        FtsSearch sqliteSearch = new FtsSearch(ftsEngine);
+        String[] searchTerms = new String[] { "a", "an", "annual", "rep", "report", "m", "minutes a", "annual b", "x", "20" };
+        for (String searchTerm: searchTerms)
+            for (int limit: new int[] { 0, 2 })
+                assertThat(getDataIds(indexSearch.getWordMatches(searchTerm, COLUMNS, limit)))
+                    .as(searchTerm + " limit " + limit)
+                    .isEqualTo(getDataIds(sqliteSearch.getWordMatches(searchTerm, COLUMNS, limit)));
+        // Only direct calls reached SQLite
+        verify(ftsEngine, times(searchTerms.length * 2)).query(anyString(), any(String[].class), any(String[].class), anyInt());
+    }
+
+    @Test
+    public void test_index_cursor()
+    {
+        SuggestionIndexQuery underTest = new SuggestionIndexQuery(ftsEngine);
+        underTest.rebuild();
+        Cursor cursor = new FtsSearch(underTest).getWordMatches("pol", COLUMNS, 0);
+        try
+        {
+            // Positioned at first row
+            assertThat(cursor.getCount()).isEqualTo(1);
+            assertThat(cursor.getLong(cursor.getColumnIndex(BaseColumns._ID))).isEqualTo(8L);
+            assertThat(cursor.getString(cursor.getColumnIndex(SearchManager.SUGGEST_COLUMN_TEXT_1))).isEqualTo("Policy manual");
+            assertThat(cursor.getString(cursor.getColumnIndex(SearchManager.SUGGEST_COLUMN_TEXT_2))).isEqualTo("recordFolder");
+            assertThat(cursor.getLong(cursor.getColumnIndex(SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID))).isEqualTo(8L);
+        }
+        finally
+        {
+            cursor.close();
+        }
+        verify(ftsEngine, never()).query(anyString(), any(String[].class), any(String[].class), anyInt());
+    }
+
+    @Test
+    public void test_weigher()
+    {
+        SuggestionIndexQuery underTest = new SuggestionIndexQuery(ftsEngine);
+        underTest.setWeigher(new SuggestionIndex.Weigher(){
+
+            @Override
+            public int weigh(long dataId, String text1, String text2)
+            {
+                return (int)dataId;
+            }});
+        underTest.rebuild();
+        assertThat(getDataIds(new FtsSearch(underTest).getWordMatches("rep", COLUMNS, 3))).containsExactly(10L, 4L, 2L);
+    }
+
+    @Test
+    public void test_unsupported_query_falls_back()
+    {
+        SuggestionIndexQuery underTest = new SuggestionIndexQuery(ftsEngine);
+        underTest.rebuild();
+        FtsSearch ftsSearch = new FtsSearch(underTest);
+        assertThat(getDataIds(ftsSearch.getWord("3", COLUMNS, 0))).containsExactly(3L);
+        assertThat(getDataIds(ftsSearch.getWordMatches("rep OR min", COLUMNS, 0))).containsExactly(3L, 5L);
+        verify(ftsEngine, times(2)).query(anyString(), any(String[].class), any(String[].class), anyInt());
+    }
+
+    @Test
+    public void test_invalidate()
+    {
+        SuggestionIndexQuery underTest = new SuggestionIndexQuery(ftsEngine);
+        underTest.rebuild();
+        underTest.invalidate();
+        assertThat(underTest.isWarm()).isFalse();
+        assertThat(getDataIds(new FtsSearch(underTest).getWordMatches("staff", COLUMNS, 0))).containsExactly(6L);
+        verify(ftsEngine).query(anyString(), any(String[].class), any(String[].class), anyInt());
+    }
+
+    @Test
+    public void test_rebuild_on_dictionary_change()
+    {
+        SuggestionIndexQuery underTest = new SuggestionIndexQuery(ftsEngine, directExecutor);
+        ftsEngine.addDictionaryListener(underTest);
+        assertThat(underTest.isWarm()).isFalse();
+        ftsEngine.notifyDictionaryChange();
+        assertThat(underTest.isWarm()).isTrue();
+        SuggestionIndex index = underTest.getSuggestionIndex();
+        ftsEngine.notifyDictionaryChange();
+        assertThat(underTest.getSuggestionIndex()).isNotSameAs(index);
+        verify(ftsEngine, times(2)).createSuggestionIndex(null);
+    }
+
+    @Test
+    public void test_rebuild_requested_while_rebuilding()
+    {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        Executor queueExecutor = new Executor(){
+
+            @Override
+            public void execute(Runnable command)
+            {
+                tasks.add(command);
+            }};
+        SuggestionIndexQuery underTest = new SuggestionIndexQuery(ftsEngine, queueExecutor);
+        assertThat(underTest.rebuildInBackground(queueExecutor)).isTrue();
+        // Second request is passed to the pending rebuild
+        assertThat(underTest.rebuildInBackground(queueExecutor)).isFalse();
+        assertThat(tasks).hasSize(1);
+        tasks.get(0).run();
+        verify(ftsEngine, times(1)).createSuggestionIndex(null);
+        assertThat(underTest.isWarm()).isTrue();
+    }
+
+    @Test
+    public void test_invalidate_on_dictionary_change()
+    {
+        SuggestionIndexQuery underTest = new SuggestionIndexQuery(ftsEngine);
+        ftsEngine.addDictionaryListener(underTest);
+        underTest.rebuild();
+        ftsEngine.notifyDictionaryChange();
+        assertThat(underTest.isWarm()).isFalse();
+    }
+
+    private List<Long> getDataIds(Cursor cursor)
+    {
+        List<Long> dataIds = new ArrayList<Long>();
+        if (cursor == null)
+            return dataIds;
+        try
+        {
+            int index = cursor.getColumnIndex(SearchManager.SUGGEST_COLUMN_INTENT_DATA_ID);
+            do
+            {
+                dataIds.add(Long.valueOf(cursor.getLong(index)));
+            } while (cursor.moveToNext());
+        }
+        finally
+        {
+            cursor.close();
+        }
+        return dataIds;
+    }
+}
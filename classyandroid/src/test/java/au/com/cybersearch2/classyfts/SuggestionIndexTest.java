@@ -0,0 +1,98 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyfts;
+
+import static org.fest.assertions.api.Assertions.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * SuggestionIndexTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class SuggestionIndexTest
+{
+    SuggestionIndex underTest;
+
+    @Before
+    public void setUp()
+    {
+        underTest = new SuggestionIndex.Builder()
+            .add(1, "Annual Report", "Finance", 0)
+            .add(2, "Report Archive 2014", "Records", 0)
+            .add(3, "Meeting minutes", "Governance", 0)
+            .add(4, "Reports report", "Reports", 5)
+            .add(5, "Minutes archive", "Governance", 0)
+            .add(6, "\u00c5ngstr\u00f6m unit", "Physics", 0)
+            .build();
+    }
+
+    @Test
+    public void test_lookup_prefix()
+    {
+        // Higher weight first, then in order added
+        assertThat(getDataIds(underTest.lookup("rep*", 0))).isEqualTo(new long[] { 4, 1, 2 });
+        assertThat(getDataIds(underTest.lookup("REP*", 0))).isEqualTo(new long[] { 4, 1, 2 });
+        assertThat(getDataIds(underTest.lookup("rep*", 2))).isEqualTo(new long[] { 4, 1 });
+        assertThat(getDataIds(underTest.lookup("a*", 0))).isEqualTo(new long[] { 1, 2, 5 });
+        assertThat(getDataIds(underTest.lookup("20*", 0))).isEqualTo(new long[] { 2 });
+        assertThat(getDataIds(underTest.lookup("\u00c5ng*", 0))).isEqualTo(new long[] { 6 });
+        assertThat(underTest.lookup("x*", 0)).isEmpty();
+    }
+
+    @Test
+    public void test_lookup_exact_terms()
+    {
+        assertThat(getDataIds(underTest.lookup("minutes a*", 0))).isEqualTo(new long[] { 5 });
+        assertThat(getDataIds(underTest.lookup("archive  m*", 0))).isEqualTo(new long[] { 5 });
+        assertThat(getDataIds(underTest.lookup("report rep*", 0))).isEqualTo(new long[] { 4, 1, 2 });
+        // Leading terms are not prefixes
+        assertThat(underTest.lookup("minute a*", 0)).isEmpty();
+    }
+
+    @Test
+    public void test_lookup_unsupported_syntax()
+    {
+        assertThat(underTest.lookup("rep", 0)).isNull();
+        assertThat(underTest.lookup("*", 0)).isNull();
+        assertThat(underTest.lookup("rep *", 0)).isNull();
+        assertThat(underTest.lookup("annual-rep*", 0)).isNull();
+        assertThat(underTest.lookup("\"annual rep*\"", 0)).isNull();
+        assertThat(underTest.lookup("annual OR rep*", 0)).isNull();
+        assertThat(underTest.lookup(null, 0)).isNull();
+    }
+
+    @Test
+    public void test_tokenize()
+    {
+        assertThat(SuggestionIndex.tokenize("\u00c5ngstr\u00f6m-UNIT x2_y")).containsExactly("\u00c5ngstr\u00f6m", "unit", "x2", "y");
+        assertThat(SuggestionIndex.tokenize(null)).isEmpty();
+        assertThat(underTest.size()).isEqualTo(6);
+        assertThat(underTest.getTermCount()).isEqualTo(9);
+        assertThat(underTest.getText1(0)).isEqualTo("Reports report");
+        assertThat(underTest.getText2(0)).isEqualTo("Reports");
+    }
+
+    private long[] getDataIds(int[] ranks)
+    {
+        long[] dataIds = new long[ranks.length];
+        for (int i = 0; i < ranks.length; ++i)
+            dataIds[i] = underTest.getDataId(ranks[i]);
+        return dataIds;
+    }
+}
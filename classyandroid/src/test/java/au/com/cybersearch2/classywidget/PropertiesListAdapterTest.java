@@ -0,0 +1,220 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classywidget;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import android.database.DataSetObserver;
+import android.view.View;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+/**
+ * PropertiesListAdapterTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PropertiesListAdapterTest
+{
+    static class ChangeCounter extends DataSetObserver
+    {
+        int changedCount;
+        int invalidatedCount;
+
+        @Override
+        public void onChanged()
+        {
+            ++changedCount;
+        }
+
+        @Override
+        public void onInvalidated()
+        {
+            ++invalidatedCount;
+        }
+    }
+
+    PropertiesListAdapter underTest;
+    ChangeCounter changeCounter;
+
+    @Before
+    public void setUp()
+    {
+        underTest = new PropertiesListAdapter(RuntimeEnvironment.application);
+        // Run background work in process
+        underTest.setExecutor(new Executor(){
+
+            @Override
+            public void execute(Runnable command)
+            {
+                command.run();
+            }});
+        changeCounter = new ChangeCounter();
+        underTest.registerDataSetObserver(changeCounter);
+    }
+
+    @Test
+    public void test_diff()
+    {
+        List<ListItem> oldList = items("a=1", "b=2", "c=3");
+        assertThat(ListItemDiff.compute(oldList, items("a=1", "b=2", "c=3")).isEmpty()).isTrue();
+        ListItemDiff diff = ListItemDiff.compute(oldList, items("a=1", "b=4", "c=3"));
+        assertThat(diff.getChangedPositions()).containsExactly(1);
+        assertThat(diff.isContentOnly()).isTrue();
+        diff = ListItemDiff.compute(oldList, items("c=3", "a=1", "b=2"));
+        assertThat(diff.getMoveCount()).isEqualTo(1);
+        assertThat(diff.getChangedPositions()).isEmpty();
+        diff = ListItemDiff.compute(oldList, items("a=1", "d=5", "c=6"));
+        assertThat(diff.getInsertCount()).isEqualTo(1);
+        assertThat(diff.getRemoveCount()).isEqualTo(1);
+        assertThat(diff.getChangedPositions()).containsExactly(2);
+        assertThat(diff.isContentOnly()).isFalse();
+        // Supplied ids take precedence over names
+        diff = ListItemDiff.compute(Arrays.asList(new ListItem("a", "1", 7)), Arrays.asList(new ListItem("z", "1", 7)));
+        assertThat(diff.getChangedPositions()).containsExactly(0);
+        assertThat(diff.getInsertCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_change_data_async()
+    {
+        underTest.changeDataAsync(items("a=1", "b=2", "c=3"));
+        assertThat(underTest.getCount()).isEqualTo(3);
+        assertThat(changeCounter.changedCount).isEqualTo(1);
+        // No difference, so no notification
+        underTest.changeDataAsync(items("a=1", "b=2", "c=3"));
+        ShadowLooper.idleMainLooper();
+        assertThat(underTest.lastDiff.isEmpty()).isTrue();
+        assertThat(changeCounter.changedCount).isEqualTo(1);
+        underTest.changeDataAsync(items("a=1", "b=4", "c=3"));
+        ShadowLooper.idleMainLooper();
+        assertThat(changeCounter.changedCount).isEqualTo(2);
+        assertThat(((ListItem)underTest.getItem(1)).getValue()).isEqualTo("4");
+        underTest.changeDataAsync(null);
+        assertThat(underTest.getCount()).isEqualTo(0);
+        assertThat(changeCounter.invalidatedCount).isEqualTo(1);
+    }
+
+    @Test
+    public void test_stable_ids()
+    {
+        assertThat(underTest.hasStableIds()).isTrue();
+        underTest.changeData(items("a=1", "b=2", "c=3"));
+        long idOfB = underTest.getItemId(1);
+        underTest.changeDataAsync(items("b=5", "c=3", "a=1"));
+        ShadowLooper.idleMainLooper();
+        assertThat(underTest.getItemId(0)).isEqualTo(idOfB);
+        assertThat(underTest.getItemId(1)).isNotEqualTo(idOfB);
+        // Supplied id is used as is
+        underTest.changeData(Arrays.asList(new ListItem("x", "y", 42)));
+        assertThat(underTest.getItemId(0)).isEqualTo(42L);
+    }
+
+    @Test
+    public void test_stable_ids_of_duplicate_names()
+    {
+        underTest.changeData(items("a=1", "a=2", "b=3"));
+        long firstA = underTest.getItemId(0);
+        long secondA = underTest.getItemId(1);
+        assertThat(secondA).isNotEqualTo(firstA);
+        assertThat(underTest.getItemId(2)).isNotEqualTo(firstA).isNotEqualTo(secondA);
+        // Appended item keeps ids of the items before it
+        underTest.changeData(items("a=1", "a=2", "b=3", "a=4"));
+        assertThat(underTest.getItemId(0)).isEqualTo(firstA);
+        assertThat(underTest.getItemId(1)).isEqualTo(secondA);
+        assertThat(underTest.stableIdMap).hasSize(4);
+        // Ids of items no longer in the list are discarded
+        underTest.changeData(items("c=5"));
+        underTest.getItemId(0);
+        assertThat(underTest.stableIdMap).hasSize(1);
+    }
+
+    @Test
+    public void test_unchanged_row_not_rebound()
+    {
+        underTest.changeData(items("a=1", "b=2"));
+        FrameLayout parent = new FrameLayout(RuntimeEnvironment.application);
+        View view = underTest.getView(0, null, parent);
+        TextView valueView = (TextView)view.findViewById(android.R.id.text2);
+        assertThat(valueView.getText().toString()).isEqualTo("1");
+        valueView.setText("marker");
+        assertThat(underTest.getView(0, view, parent)).isSameAs(view);
+        assertThat(valueView.getText().toString()).isEqualTo("marker");
+        underTest.getView(1, view, parent);
+        assertThat(valueView.getText().toString()).isEqualTo("2");
+    }
+
+    @Test
+    public void test_paged_loading()
+    {
+        final List<int[]> requests = new ArrayList<int[]>();
+        underTest.setPageLoader(new PropertiesListAdapter.PageLoader(){
+
+            @Override
+            public List<ListItem> loadPage(int offset, int limit)
+            {
+                requests.add(new int[] { offset, limit });
+                List<ListItem> page = new ArrayList<ListItem>();
+                for (int i = offset; (i < offset + limit) && (i < 25); ++i)
+                    page.add(new ListItem("name" + i, "value" + i));
+                return page;
+            }}, 10);
+        ShadowLooper.idleMainLooper();
+        assertThat(underTest.getCount()).isEqualTo(10);
+        FrameLayout parent = new FrameLayout(RuntimeEnvironment.application);
+        underTest.getView(2, null, parent);
+        assertThat(requests.size()).isEqualTo(1);
+        // Approaching end of loaded items requests next page
+        underTest.getView(6, null, parent);
+        ShadowLooper.idleMainLooper();
+        assertThat(underTest.getCount()).isEqualTo(20);
+        underTest.getView(19, null, parent);
+        ShadowLooper.idleMainLooper();
+        assertThat(underTest.getCount()).isEqualTo(25);
+        assertThat(underTest.hasMorePages()).isFalse();
+        underTest.getView(24, null, parent);
+        assertThat(requests.size()).isEqualTo(3);
+        assertThat(requests.get(2)).isEqualTo(new int[] { 20, 10 });
+        assertThat(((ListItem)underTest.getItem(24)).getName()).isEqualTo("name24");
+        // Changing data stops paging
+        underTest.changeData(items("a=1"));
+        assertThat(underTest.hasMorePages()).isFalse();
+    }
+
+    private static List<ListItem> items(String... pairs)
+    {
+        List<ListItem> list = new ArrayList<ListItem>();
+        for (String pair: pairs)
+        {
+            String[] parts = pair.split("=");
+            list.add(new ListItem(parts[0], parts[1]));
+        }
+        return list;
+    }
+}
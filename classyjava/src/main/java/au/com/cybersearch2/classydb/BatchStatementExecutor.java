@@ -0,0 +1,420 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import au.com.cybersearch2.classydb.SqlParser.StatementCallback;
+import au.com.cybersearch2.classylog.JavaLogger;
+import au.com.cybersearch2.classylog.Log;
+
+import com.j256.ormlite.support.DatabaseConnection;
+
+/**
+ * BatchStatementExecutor
+ * StatementCallback which groups runs of data manipulation statements into JDBC batches.
+ * Consecutive INSERT statements of the same shape with only string, integer and NULL literal values
+ * are rewritten to a single reused prepared statement. Other INSERT, UPDATE and DELETE statements
+ * are added to a plain statement batch. Any other statement flushes pending batches and is executed
+ * directly, so statement order is preserved. When the database connection is not backed by JDBC,
+ * eg. on Android, every statement is executed directly.
+ * Call flush() after the last statement and close() in a finally clause.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class BatchStatementExecutor implements StatementCallback
+{
+    /**
+     * InsertTemplate
+     * INSERT statement split into prepared statement SQL and literal values
+     */
+    static class InsertTemplate
+    {
+        /** SQL with values replaced by parameter markers */
+        final String sql;
+        /** Values in column order - String, Long or null */
+        final Object[] values;
+
+        InsertTemplate(String sql, Object[] values)
+        {
+            this.sql = sql;
+            this.values = values;
+        }
+    }
+
+    private static final String TAG = "BatchStatementExecutor";
+    private static Log log = JavaLogger.getLogger(TAG);
+    /** Default maximum number of statements per batch */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /** OrmLite connection used to execute statements which are not batched */
+    protected DatabaseConnection databaseConnection;
+    /** Underlying JDBC connection or null if not available */
+    protected Connection connection;
+    /** Maximum number of statements per batch */
+    protected int batchSize;
+    /** Plain statement batch */
+    protected Statement statement;
+    /** Prepared statement batch */
+    protected PreparedStatement preparedStatement;
+    /** SQL of prepared statement */
+    protected String preparedSql;
+    /** Statement holding current batch */
+    protected Statement pendingBatch;
+    /** Number of statements pending in current batch */
+    protected int pendingCount;
+    /** Total number of statements executed */
+    protected int statementCount;
+    /** Total number of batches executed */
+    protected int batchCount;
+
+    /**
+     * Construct BatchStatementExecutor object
+     * @param databaseConnection Open database connection
+     */
+    public BatchStatementExecutor(DatabaseConnection databaseConnection)
+    {
+        this(databaseConnection, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Construct BatchStatementExecutor object
+     * @param databaseConnection Open database connection
+     * @param batchSize Maximum number of statements per batch
+     */
+    public BatchStatementExecutor(DatabaseConnection databaseConnection, int batchSize)
+    {
+        this.databaseConnection = databaseConnection;
+        this.batchSize = batchSize < 1 ? 1 : batchSize;
+        connection = getJdbcConnection(databaseConnection);
+    }
+
+    /**
+     * Execute or batch one SQL statement
+     * @see au.com.cybersearch2.classydb.SqlParser.StatementCallback#onStatement(java.lang.String)
+     */
+    @Override
+    public void onStatement(String sql) throws SQLException
+    {
+        if ((connection == null) || !isDataManipulation(sql))
+        {
+            flush();
+            databaseConnection.executeStatement(sql, DatabaseConnection.DEFAULT_RESULT_FLAGS);
+            ++statementCount;
+            return;
+        }
+        InsertTemplate insertTemplate = getInsertTemplate(sql);
+        if (insertTemplate != null)
+        {
+            boolean sameShape = insertTemplate.sql.equals(preparedSql);
+            if ((pendingCount > 0) && (!sameShape || (pendingBatch != preparedStatement)))
+                flush();
+            if (!sameShape)
+            {
+                closeQuietly(preparedStatement);
+                preparedStatement = null;
+                preparedSql = null;
+                preparedStatement = connection.prepareStatement(insertTemplate.sql);
+                preparedSql = insertTemplate.sql;
+            }
+            bind(preparedStatement, insertTemplate.values);
+            preparedStatement.addBatch();
+            pendingBatch = preparedStatement;
+        }
+        else
+        {
+            if ((pendingCount > 0) && (pendingBatch != statement))
+                flush();
+            if (statement == null)
+                statement = connection.createStatement();
+            statement.addBatch(sql);
+            pendingBatch = statement;
+        }
+        if (++pendingCount >= batchSize)
+            flush();
+    }
+
+    /**
+     * Execute pending batch
+     * @throws SQLException if a statement in the batch fails
+     */
+    public void flush() throws SQLException
+    {
+        if (pendingCount == 0)
+            return;
+        int count = pendingCount;
+        Statement batch = pendingBatch;
+        pendingCount = 0;
+        pendingBatch = null;
+        try
+        {
+            batch.executeBatch();
+        }
+        catch (SQLException e)
+        {
+            throw new SQLException("Batch of " + count + " statements following statement " + statementCount + " failed", e);
+        }
+        statementCount += count;
+        ++batchCount;
+    }
+
+    /**
+     * Release JDBC statements. Any pending batch is discarded.
+     */
+    public void close()
+    {
+        closeQuietly(preparedStatement);
+        closeQuietly(statement);
+        preparedStatement = null;
+        preparedSql = null;
+        statement = null;
+        pendingBatch = null;
+        pendingCount = 0;
+    }
+
+    /**
+     * Returns flag set true if statements are batched
+     * @return boolean
+     */
+    public boolean isBatching()
+    {
+        return connection != null;
+    }
+
+    /**
+     * Returns total number of statements executed
+     * @return int
+     */
+    public int getStatementCount()
+    {
+        return statementCount;
+    }
+
+    /**
+     * Returns total number of batches executed
+     * @return int
+     */
+    public int getBatchCount()
+    {
+        return batchCount;
+    }
+
+    /**
+     * Returns flag set true if statement is INSERT, REPLACE, UPDATE or DELETE
+     * @param sql Statement
+     * @return boolean
+     */
+    protected boolean isDataManipulation(String sql)
+    {
+        return startsWithKeyword(sql, "INSERT") ||
+               startsWithKeyword(sql, "REPLACE") ||
+               startsWithKeyword(sql, "UPDATE") ||
+               startsWithKeyword(sql, "DELETE");
+    }
+
+    /**
+     * Returns INSERT statement split into prepared statement SQL and values, or null if
+     * statement is not a single row INSERT ... VALUES with only string, integer and NULL literals.
+     * @param sql Statement
+     * @return InsertTemplate object or null
+     */
+    static InsertTemplate getInsertTemplate(String sql)
+    {
+        if (!startsWithKeyword(sql, "INSERT"))
+            return null;
+        int valuesEnd = findValuesKeyword(sql);
+        if (valuesEnd == -1)
+            return null;
+        int length = sql.length();
+        int index = skipSpace(sql, valuesEnd);
+        if ((index == length) || (sql.charAt(index) != '('))
+            return null;
+        List<Object> values = new ArrayList<Object>();
+        while (true)
+        {
+            index = skipSpace(sql, index + 1);
+            if (index == length)
+                return null;
+            char ch = sql.charAt(index);
+            int start = index;
+            if (ch == '\'')
+            {
+                StringBuilder builder = new StringBuilder();
+                while (true)
+                {
+                    if (++index == length)
+                        return null;
+                    ch = sql.charAt(index);
+                    if (ch == '\'')
+                    {
+                        if ((index + 1 < length) && (sql.charAt(index + 1) == '\''))
+                            ++index;
+                        else
+                            break;
+                    }
+                    builder.append(ch);
+                }
+                values.add(builder.toString());
+                ++index;
+            }
+            else if ((ch == '-') || Character.isDigit(ch))
+            {
+                ++index;
+                while ((index < length) && Character.isDigit(sql.charAt(index)))
+                    ++index;
+                try
+                {
+                    values.add(Long.valueOf(sql.substring(start, index)));
+                }
+                catch (NumberFormatException e)
+                {
+                    return null;
+                }
+            }
+            else if (sql.regionMatches(true, index, "NULL", 0, 4))
+            {
+                index += 4;
+                values.add(null);
+            }
+            else
+                return null;
+            index = skipSpace(sql, index);
+            if (index == length)
+                return null;
+            ch = sql.charAt(index);
+            if (ch == ')')
+                break;
+            if (ch != ',')
+                return null;
+        }
+        // Only a terminating semi colon may follow the value list
+        index = skipSpace(sql, index + 1);
+        if ((index < length) && (sql.charAt(index) == ';'))
+            index = skipSpace(sql, index + 1);
+        if (index != length)
+            return null;
+        StringBuilder builder = new StringBuilder(sql.substring(0, valuesEnd)).append(" (");
+        for (int i = 0; i < values.size(); ++i)
+            builder.append(i == 0 ? "?" : ",?");
+        builder.append(')');
+        return new InsertTemplate(builder.toString(), values.toArray());
+    }
+
+    /**
+     * Returns index following VALUES keyword outside of quotes or -1 if not found
+     * @param sql Statement
+     * @return int
+     */
+    private static int findValuesKeyword(String sql)
+    {
+        char quote = 0;
+        for (int i = 0; i < sql.length(); ++i)
+        {
+            char ch = sql.charAt(i);
+            if (quote != 0)
+            {
+                if (ch == quote)
+                    quote = 0;
+            }
+            else if ((ch == '\'') || (ch == '"'))
+                quote = ch;
+            else if (sql.regionMatches(true, i, "VALUES", 0, 6) &&
+                     ((i == 0) || !isWordChar(sql.charAt(i - 1))) &&
+                     ((i + 6 == sql.length()) || !isWordChar(sql.charAt(i + 6))))
+                return i + 6;
+        }
+        return -1;
+    }
+
+    private static boolean startsWithKeyword(String sql, String keyword)
+    {
+        int index = skipSpace(sql, 0);
+        int end = index + keyword.length();
+        return sql.regionMatches(true, index, keyword, 0, keyword.length()) &&
+               ((end == sql.length()) || !isWordChar(sql.charAt(end)));
+    }
+
+    private static boolean isWordChar(char ch)
+    {
+        return Character.isLetterOrDigit(ch) || (ch == '_');
+    }
+
+    private static int skipSpace(String sql, int index)
+    {
+        while ((index < sql.length()) && Character.isWhitespace(sql.charAt(index)))
+            ++index;
+        return index;
+    }
+
+    /**
+     * Set prepared statement parameters
+     * @param preparedStatement PreparedStatement object
+     * @param values String, Long or null values
+     * @throws SQLException
+     */
+    private static void bind(PreparedStatement preparedStatement, Object[] values) throws SQLException
+    {
+        for (int i = 0; i < values.length; ++i)
+        {
+            Object value = values[i];
+            if (value == null)
+                preparedStatement.setNull(i + 1, Types.NULL);
+            else if (value instanceof Long)
+                preparedStatement.setLong(i + 1, (Long)value);
+            else
+                preparedStatement.setString(i + 1, value.toString());
+        }
+    }
+
+    /**
+     * Returns JDBC connection underlying OrmLite connection or null if not JDBC
+     * @param databaseConnection Database connection
+     * @return Connection object or null
+     */
+    private static Connection getJdbcConnection(DatabaseConnection databaseConnection)
+    {
+        try
+        {
+            Object underlyingConnection = databaseConnection.getUnderlyingConnection();
+            if (underlyingConnection instanceof Connection)
+                return (Connection)underlyingConnection;
+        }
+        catch (Exception e)
+        {
+            log.warn(TAG, "Underlying connection not available. Statements will not be batched", e);
+        }
+        return null;
+    }
+
+    private static void closeQuietly(Statement statement)
+    {
+        if (statement != null)
+            try
+            {
+                statement.close();
+            }
+            catch (SQLException e)
+            {
+                log.warn(TAG, "Error closing statement", e);
+            }
+    }
+}
@@ -0,0 +1,675 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+
+import javax.persistence.PersistenceException;
+
+import au.com.cybersearch2.classylog.JavaLogger;
+import au.com.cybersearch2.classylog.Log;
+
+import com.j256.ormlite.dao.BaseDaoImpl;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.stmt.StatementBuilder.StatementType;
+import com.j256.ormlite.support.CompiledStatement;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.table.TableInfo;
+
+/**
+ * BulkImporter
+ * Loads delimited text into the table of an entity class, bypassing the entity manager.
+ * Columns are mapped using the table configuration of the entity DAO, which is the configuration
+ * cached by ClassAnalyser for persistence unit classes. The first row names the columns, either by
+ * column name or field name, unless columns are set explicitly. Values are converted in the same way
+ * as default values declared on entity fields. An empty value is taken as null, except for String fields.
+ * Rows are parsed on a reader thread and handed over in chunks to the calling thread, which binds them
+ * into batched prepared INSERT statements and commits every commit-size rows. On failure, the uncommitted
+ * chunk is rolled back and the PersistenceException thrown reports the checkpoint to resume from.
+ * Non-unique indexes can optionally be dropped for the duration of the import and recreated afterwards.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ * @param <T> Entity type
+ */
+public class BulkImporter<T>
+{
+    /**
+     * RowWriter
+     * Inserts rows of converted values
+     */
+    interface RowWriter
+    {
+        void add(Object[] args) throws SQLException;
+        void flush() throws SQLException;
+        void close();
+    }
+
+    private static final String TAG = "BulkImporter";
+    private static Log log = JavaLogger.getLogger(TAG);
+    /** Default number of rows per JDBC batch */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    /** Default number of rows per commit */
+    public static final int DEFAULT_COMMIT_SIZE = 50000;
+    /** Maximum number of parsed chunks waiting to be written */
+    protected static final int QUEUE_CAPACITY = 8;
+    /** Empty chunk which marks end of input */
+    private static final List<String[]> END_OF_INPUT = Collections.emptyList();
+
+    protected ConnectionSource connectionSource;
+    protected Class<T> entityClass;
+    protected char delimiter;
+    protected int batchSize;
+    protected int commitSize;
+    protected boolean deferIndexes;
+    protected long resumeRow;
+    protected String[] columns;
+    /** Statistics of current or last import */
+    protected volatile ImportStats importStats;
+
+    /**
+     * Construct BulkImporter object for CSV input
+     * @param connectionSource Connection source of entity persistence unit
+     * @param entityClass Entity class
+     */
+    public BulkImporter(ConnectionSource connectionSource, Class<T> entityClass)
+    {
+        this.connectionSource = connectionSource;
+        this.entityClass = entityClass;
+        delimiter = DelimitedReader.CSV;
+        batchSize = DEFAULT_BATCH_SIZE;
+        commitSize = DEFAULT_COMMIT_SIZE;
+    }
+
+    /**
+     * Set field delimiter
+     * @param delimiter Delimiter eg. DelimitedReader.TSV
+     */
+    public void setDelimiter(char delimiter)
+    {
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Set number of rows per JDBC batch
+     * @param batchSize Batch size
+     */
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize < 1 ? 1 : batchSize;
+    }
+
+    /**
+     * Set number of rows per commit
+     * @param commitSize Commit size
+     */
+    public void setCommitSize(int commitSize)
+    {
+        this.commitSize = commitSize < 1 ? 1 : commitSize;
+    }
+
+    /**
+     * Set flag to drop non-unique indexes before import and recreate them afterwards
+     * @param deferIndexes boolean
+     */
+    public void setDeferIndexes(boolean deferIndexes)
+    {
+        this.deferIndexes = deferIndexes;
+    }
+
+    /**
+     * Set number of data rows to skip, usually the checkpoint of a failed import
+     * @param resumeRow Number of data rows already committed
+     */
+    public void setResumeRow(long resumeRow)
+    {
+        this.resumeRow = resumeRow < 0 ? 0 : resumeRow;
+    }
+
+    /**
+     * Set column names for input which has no header row
+     * @param columns Column or field names in input order
+     */
+    public void setColumns(String... columns)
+    {
+        this.columns = columns;
+    }
+
+    /**
+     * Returns statistics of current or last import
+     * @return ImportStats object or null if no import started
+     */
+    public ImportStats getImportStats()
+    {
+        return importStats;
+    }
+
+    /**
+     * Import all rows from given source. The source is closed on completion.
+     * @param source Delimited text
+     * @return ImportStats object
+     * @throws PersistenceException if import fails or a transaction is active on the connection source
+     */
+    public ImportStats importRows(Reader source)
+    {
+        final ImportStats stats = new ImportStats(resumeRow);
+        importStats = stats;
+        TableInfo<T, ?> tableInfo = getTableInfo();
+        String tableName = tableInfo.getTableName();
+        final DelimitedReader reader = new DelimitedReader(source, delimiter);
+        FieldType[] columnFieldTypes;
+        try
+        {
+            columnFieldTypes = mapColumns(tableInfo, columns != null ? columns : reader.readRow());
+            long skipped = reader.skipRows(resumeRow);
+            if (skipped < resumeRow)
+                log.warn(TAG, "Input ended before resume row " + resumeRow);
+        }
+        catch (IOException e)
+        {
+            closeQuietly(reader);
+            throw new PersistenceException("Error reading input for table " + tableName, e);
+        }
+        catch (RuntimeException e)
+        {
+            closeQuietly(reader);
+            throw e;
+        }
+        final BlockingQueue<List<String[]>> queue = new ArrayBlockingQueue<List<String[]>>(QUEUE_CAPACITY);
+        final IOException[] readFailure = new IOException[1];
+        Thread readerThread = new Thread(new Runnable(){
+
+            @Override
+            public void run()
+            {
+                try
+                {
+                    List<String[]> chunk = new ArrayList<String[]>(batchSize);
+                    String[] row;
+                    while ((row = reader.readRow()) != null)
+                    {
+                        chunk.add(row);
+                        if (chunk.size() == batchSize)
+                        {
+                            queue.put(chunk);
+                            chunk = new ArrayList<String[]>(batchSize);
+                        }
+                    }
+                    if (!chunk.isEmpty())
+                        queue.put(chunk);
+                }
+                catch (IOException e)
+                {
+                    readFailure[0] = e;
+                }
+                catch (InterruptedException e)
+                {   // Writer has stopped
+                    return;
+                }
+                finally
+                {
+                    closeQuietly(reader);
+                }
+                try
+                {
+                    queue.put(END_OF_INPUT);
+                }
+                catch (InterruptedException e)
+                {
+                }
+            }}, "BulkImport " + tableName);
+        stats.start();
+        readerThread.start();
+        try
+        {
+            write(tableInfo, columnFieldTypes, queue, stats);
+            // Read failure is visible here as it happens before end of input is queued
+            if (readFailure[0] != null)
+                throw new PersistenceException("Error reading input for table " + tableName + " after checkpoint " + stats.getCheckpoint(), readFailure[0]);
+        }
+        finally
+        {
+            readerThread.interrupt();
+            stats.finish();
+        }
+        if (log.isLoggable(TAG, Level.FINE))
+            log.debug(TAG, "Import into " + tableName + ": " + stats.toString());
+        return stats;
+    }
+
+    /**
+     * Take chunks from queue and insert rows, committing every commit-size rows
+     */
+    protected void write(TableInfo<T, ?> tableInfo, FieldType[] columnFieldTypes, BlockingQueue<List<String[]>> queue, ImportStats stats)
+    {
+        String tableName = tableInfo.getTableName();
+        DatabaseType databaseType = connectionSource.getDatabaseType();
+        Map<String, List<String>> indexMap = deferIndexes ? getIndexMap(tableInfo) : Collections.<String, List<String>>emptyMap();
+        // Chunked commits would commit the work of an enclosing transaction
+        if (connectionSource.getSpecialConnection(tableName) != null)
+            throw new PersistenceException("Bulk import into " + tableName + " cannot run inside an active transaction");
+        DatabaseConnection connection = null;
+        RowWriter rowWriter = null;
+        // Flag set true if this importer turned auto commit off, so owns commit and rollback
+        boolean autoCommit = false;
+        boolean isCompleted = false;
+        long uncommitted = 0;
+        try
+        {
+            connection = connectionSource.getReadWriteConnection(tableName);
+            if (connection.isAutoCommitSupported() && !connection.isAutoCommit())
+            {
+                DatabaseConnection refused = connection;
+                connection = null;
+                releaseConnection(refused);
+                throw new PersistenceException("Bulk import into " + tableName + " cannot run inside an active transaction");
+            }
+            connectionSource.saveSpecialConnection(connection);
+            for (String indexName: indexMap.keySet())
+            {
+                StringBuilder builder = new StringBuilder("DROP INDEX IF EXISTS ");
+                databaseType.appendEscapedEntityName(builder, indexName);
+                connection.executeStatement(builder.toString(), DatabaseConnection.DEFAULT_RESULT_FLAGS);
+            }
+            if (connection.isAutoCommitSupported())
+            {
+                connection.setAutoCommit(false);
+                autoCommit = true;
+            }
+            rowWriter = createRowWriter(connection, getInsertSql(databaseType, tableName, columnFieldTypes), columnFieldTypes);
+            Object[] args = new Object[columnFieldTypes.length];
+            int batchCount = 0;
+            while (true)
+            {
+                List<String[]> chunk = queue.take();
+                if (chunk == END_OF_INPUT)
+                    break;
+                for (String[] row: chunk)
+                {
+                    convertRow(row, columnFieldTypes, args, stats.getCheckpoint() + uncommitted + 1);
+                    rowWriter.add(args);
+                    ++uncommitted;
+                    if (++batchCount == batchSize)
+                    {
+                        rowWriter.flush();
+                        batchCount = 0;
+                    }
+                    if (uncommitted == commitSize)
+                    {
+                        rowWriter.flush();
+                        batchCount = 0;
+                        commit(connection, autoCommit);
+                        stats.commit(uncommitted);
+                        uncommitted = 0;
+                    }
+                }
+            }
+            rowWriter.flush();
+            if (uncommitted > 0)
+            {
+                commit(connection, autoCommit);
+                stats.commit(uncommitted);
+            }
+            isCompleted = true;
+        }
+        catch (SQLException e)
+        {
+            rollback(connection, autoCommit);
+            throw new PersistenceException("Bulk import into " + tableName + " failed after checkpoint " + stats.getCheckpoint(), e);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            rollback(connection, autoCommit);
+            throw new PersistenceException("Bulk import into " + tableName + " interrupted after checkpoint " + stats.getCheckpoint(), e);
+        }
+        catch (RuntimeException e)
+        {
+            rollback(connection, autoCommit);
+            throw e;
+        }
+        finally
+        {
+            if (rowWriter != null)
+                rowWriter.close();
+            if (connection != null)
+            {
+                SQLException releaseFailure = release(connection, databaseType, tableName, indexMap, autoCommit);
+                // A failure already propagating takes precedence
+                if (isCompleted && (releaseFailure != null))
+                    throw new PersistenceException("Bulk import into " + tableName + " committed but restoring connection or indexes failed", releaseFailure);
+            }
+        }
+    }
+
+    /**
+     * Returns table information of entity DAO
+     * @return TableInfo object
+     */
+    protected TableInfo<T, ?> getTableInfo()
+    {
+        try
+        {
+            Dao<T, ?> dao = DaoManager.createDao(connectionSource, entityClass);
+            if (!(dao instanceof BaseDaoImpl))
+                throw new PersistenceException("DAO for class " + entityClass.getName() + " does not provide table information");
+            return ((BaseDaoImpl<T, ?>)dao).getTableInfo();
+        }
+        catch (SQLException e)
+        {
+            throw new PersistenceException("Error creating DAO for class " + entityClass.getName(), e);
+        }
+    }
+
+    /**
+     * Returns field types in input column order
+     * @param tableInfo Table information
+     * @param names Column or field names
+     * @return FieldType array
+     */
+    protected FieldType[] mapColumns(TableInfo<T, ?> tableInfo, String[] names)
+    {
+        if ((names == null) || (names.length == 0))
+            throw new PersistenceException("No columns specified for table " + tableInfo.getTableName());
+        FieldType[] columnFieldTypes = new FieldType[names.length];
+        for (int i = 0; i < names.length; ++i)
+        {
+            String name = names[i].trim();
+            for (FieldType fieldType: tableInfo.getFieldTypes())
+            {
+                if (fieldType.isForeignCollection())
+                    continue;
+                if (name.equalsIgnoreCase(fieldType.getColumnName()) || name.equals(fieldType.getFieldName()))
+                {
+                    columnFieldTypes[i] = fieldType;
+                    break;
+                }
+            }
+            if (columnFieldTypes[i] == null)
+                throw new PersistenceException("Column \"" + name + "\" not found in table " + tableInfo.getTableName());
+        }
+        return columnFieldTypes;
+    }
+
+    /**
+     * Convert one row of text values to SQL arguments
+     * @param row Text values
+     * @param columnFieldTypes Field types in column order
+     * @param args Array to receive SQL arguments
+     * @param rowNumber Data row number for error reporting
+     * @throws SQLException if a value cannot be converted
+     */
+    protected void convertRow(String[] row, FieldType[] columnFieldTypes, Object[] args, long rowNumber) throws SQLException
+    {
+        if (row.length != columnFieldTypes.length)
+            throw new SQLException("Row " + rowNumber + " has " + row.length + " values but " + columnFieldTypes.length + " columns expected");
+        for (int i = 0; i < row.length; ++i)
+        {
+            FieldType fieldType = columnFieldTypes[i];
+            String value = row[i];
+            if ((value.length() == 0) && (fieldType.getType() != String.class))
+                args[i] = null;
+            else
+                try
+                {
+                    args[i] = fieldType.getDataPersister().parseDefaultString(fieldType, value);
+                }
+                catch (SQLException e)
+                {
+                    throw new SQLException("Row " + rowNumber + " column " + fieldType.getColumnName() + " has invalid value \"" + value + "\"", e);
+                }
+                catch (RuntimeException e)
+                {
+                    throw new SQLException("Row " + rowNumber + " column " + fieldType.getColumnName() + " has invalid value \"" + value + "\"", e);
+                }
+        }
+    }
+
+    /**
+     * Returns names of columns of non-unique indexes mapped by index name
+     * @param tableInfo Table information
+     * @return Map of column name lists
+     */
+    protected Map<String, List<String>> getIndexMap(TableInfo<T, ?> tableInfo)
+    {
+        Map<String, List<String>> indexMap = new LinkedHashMap<String, List<String>>();
+        for (FieldType fieldType: tableInfo.getFieldTypes())
+        {
+            String indexName = fieldType.getIndexName();
+            if (indexName == null)
+                continue;
+            List<String> columnList = indexMap.get(indexName);
+            if (columnList == null)
+            {
+                columnList = new ArrayList<String>();
+                indexMap.put(indexName, columnList);
+            }
+            columnList.add(fieldType.getColumnName());
+        }
+        return indexMap;
+    }
+
+    /**
+     * Returns prepared INSERT statement SQL
+     */
+    protected String getInsertSql(DatabaseType databaseType, String tableName, FieldType[] columnFieldTypes)
+    {
+        StringBuilder builder = new StringBuilder("INSERT INTO ");
+        databaseType.appendEscapedEntityName(builder, tableName);
+        builder.append(" (");
+        for (int i = 0; i < columnFieldTypes.length; ++i)
+        {
+            if (i > 0)
+                builder.append(',');
+            databaseType.appendEscapedEntityName(builder, columnFieldTypes[i].getColumnName());
+        }
+        builder.append(") VALUES (");
+        for (int i = 0; i < columnFieldTypes.length; ++i)
+            builder.append(i == 0 ? "?" : ",?");
+        return builder.append(')').toString();
+    }
+
+    /**
+     * Returns RowWriter which batches a JDBC prepared statement if available, otherwise
+     * executes an OrmLite compiled statement for each row
+     */
+    protected RowWriter createRowWriter(final DatabaseConnection connection, final String sql, final FieldType[] columnFieldTypes) throws SQLException
+    {
+        Object underlyingConnection = null;
+        try
+        {
+            underlyingConnection = connection.getUnderlyingConnection();
+        }
+        catch (Exception e)
+        {
+            log.warn(TAG, "Underlying connection not available. Rows will not be batched", e);
+        }
+        if (underlyingConnection instanceof Connection)
+        {
+            final PreparedStatement preparedStatement = ((Connection)underlyingConnection).prepareStatement(sql);
+            return new RowWriter(){
+                int pending;
+
+                @Override
+                public void add(Object[] args) throws SQLException
+                {
+                    for (int i = 0; i < args.length; ++i)
+                    {
+                        if (args[i] == null)
+                            preparedStatement.setNull(i + 1, Types.NULL);
+                        else
+                            preparedStatement.setObject(i + 1, args[i]);
+                    }
+                    preparedStatement.addBatch();
+                    ++pending;
+                }
+
+                @Override
+                public void flush() throws SQLException
+                {
+                    if (pending > 0)
+                    {
+                        pending = 0;
+                        preparedStatement.executeBatch();
+                    }
+                }
+
+                @Override
+                public void close()
+                {
+                    try
+                    {
+                        preparedStatement.close();
+                    }
+                    catch (SQLException e)
+                    {
+                        log.warn(TAG, "Error closing statement", e);
+                    }
+                }};
+        }
+        return new RowWriter(){
+
+            @Override
+            public void add(Object[] args) throws SQLException
+            {
+                CompiledStatement compiledStatement =
+                    connection.compileStatement(sql, StatementType.UPDATE, columnFieldTypes, DatabaseConnection.DEFAULT_RESULT_FLAGS, false);
+                try
+                {
+                    for (int i = 0; i < args.length; ++i)
+                        compiledStatement.setObject(i, args[i], columnFieldTypes[i].getSqlType());
+                    compiledStatement.runExecute();
+                }
+                finally
+                {
+                    closeQuietly(compiledStatement);
+                }
+            }
+
+            @Override
+            public void flush()
+            {
+            }
+
+            @Override
+            public void close()
+            {
+            }};
+    }
+
+    private void commit(DatabaseConnection connection, boolean autoCommit) throws SQLException
+    {
+        if (autoCommit)
+            connection.commit(null);
+    }
+
+    private void rollback(DatabaseConnection connection, boolean autoCommit)
+    {
+        if ((connection == null) || !autoCommit)
+            return;
+        try
+        {
+            connection.rollback(null);
+        }
+        catch (SQLException e)
+        {
+            log.warn(TAG, "Rollback failed", e);
+        }
+    }
+
+    /**
+     * Restore auto commit, recreate deferred indexes and release connection
+     * @return SQLException if restoring auto commit or recreating an index failed, otherwise null
+     */
+    private SQLException release(DatabaseConnection connection, DatabaseType databaseType, String tableName, Map<String, List<String>> indexMap, boolean autoCommit)
+    {
+        try
+        {
+            if (autoCommit)
+                connection.setAutoCommit(true);
+            for (Map.Entry<String, List<String>> entry: indexMap.entrySet())
+            {
+                StringBuilder builder = new StringBuilder("CREATE INDEX IF NOT EXISTS ");
+                databaseType.appendEscapedEntityName(builder, entry.getKey());
+                builder.append(" ON ");
+                databaseType.appendEscapedEntityName(builder, tableName);
+                builder.append(" (");
+                boolean first = true;
+                for (String columnName: entry.getValue())
+                {
+                    if (!first)
+                        builder.append(',');
+                    databaseType.appendEscapedEntityName(builder, columnName);
+                    first = false;
+                }
+                builder.append(')');
+                connection.executeStatement(builder.toString(), DatabaseConnection.DEFAULT_RESULT_FLAGS);
+            }
+        }
+        catch (SQLException e)
+        {
+            log.error(TAG, "Error restoring connection or indexes for table " + tableName, e);
+            return e;
+        }
+        finally
+        {
+            connectionSource.clearSpecialConnection(connection);
+            releaseConnection(connection);
+        }
+        return null;
+    }
+
+    private void releaseConnection(DatabaseConnection connection)
+    {
+        try
+        {
+            connectionSource.releaseConnection(connection);
+        }
+        catch (SQLException e)
+        {
+            log.warn(TAG, "Error releasing connection", e);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable)
+    {
+        try
+        {
+            closeable.close();
+        }
+        catch (IOException e)
+        {
+            log.warn(TAG, "Error closing input", e);
+        }
+    }
+}
@@ -0,0 +1,590 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+import java.io.Closeable;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import javax.sql.ConnectionPoolDataSource;
+import javax.sql.DataSource;
+import javax.sql.PooledConnection;
+
+import au.com.cybersearch2.classylog.JavaLogger;
+import au.com.cybersearch2.classylog.Log;
+
+/**
+ * ConnectionPool
+ * Bounded pool of physical connections obtained from a ConnectionPoolDataSource. Connections handed out
+ * are logical handles which return the physical connection to the pool when closed. A recycled connection
+ * is validated before it is handed out. Callers wait up to the acquire timeout when all connections are
+ * in use. Idle connections above the minimum size are closed once they exceed the idle timeout, and the
+ * pool is topped up to the minimum size, by a background eviction task.
+ * Pool settings are read from persistence unit properties with the "pool-" prefix.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class ConnectionPool implements DataSource, ConnectionEventListener, Closeable
+{
+    /**
+     * IdleConnection
+     * Physical connection waiting in the pool
+     */
+    static class IdleConnection
+    {
+        final PooledConnection pooledConnection;
+        final long idleSince;
+
+        IdleConnection(PooledConnection pooledConnection)
+        {
+            this.pooledConnection = pooledConnection;
+            idleSince = System.nanoTime();
+        }
+    }
+
+    private static final String TAG = "ConnectionPool";
+    private static Log log = JavaLogger.getLogger(TAG);
+
+    /** Prefix of all pool property keys */
+    public static final String PROPERTY_PREFIX = "pool-";
+    /** Property key for minimum number of connections */
+    public static final String MIN_SIZE = "pool-min-size";
+    /** Property key for maximum number of connections */
+    public static final String MAX_SIZE = "pool-max-size";
+    /** Property key for maximum seconds to wait for a connection */
+    public static final String ACQUIRE_TIMEOUT = "pool-acquire-timeout";
+    /** Property key for seconds a connection may stay idle before eviction. 0 = never evict */
+    public static final String IDLE_TIMEOUT = "pool-idle-timeout";
+    /** Property key for seconds between eviction runs */
+    public static final String EVICTION_INTERVAL = "pool-eviction-interval";
+    /** Property key for validation query. If not set, Connection.isValid() is used */
+    public static final String VALIDATION_QUERY = "pool-validation-query";
+
+    public static final int DEFAULT_MIN_SIZE = 1;
+    public static final int DEFAULT_MAX_SIZE = 10;
+    public static final int DEFAULT_ACQUIRE_TIMEOUT = 30;
+    public static final int DEFAULT_IDLE_TIMEOUT = 600;
+    public static final int DEFAULT_EVICTION_INTERVAL = 60;
+    /** Seconds allowed for Connection.isValid() */
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    protected ConnectionPoolDataSource dataSource;
+    protected int minSize;
+    protected int maxSize;
+    protected long acquireTimeoutNanos;
+    protected long idleTimeoutNanos;
+    protected String validationQuery;
+    /** Idle connections, most recently used first */
+    protected Deque<IdleConnection> idleQueue;
+    /** Number of open physical connections, including those being created */
+    protected int totalCount;
+    protected boolean closed;
+    protected ScheduledExecutorService evictor;
+    // Metrics
+    protected long createdCount;
+    protected long closedCount;
+    protected long acquiredCount;
+    protected long waitCount;
+    protected long timeoutCount;
+    protected long validationFailureCount;
+    protected long maxWaitNanos;
+
+    /**
+     * Construct ConnectionPool object
+     * @param dataSource Source of physical connections
+     * @param properties Persistence unit properties containing pool settings (optional)
+     */
+    public ConnectionPool(ConnectionPoolDataSource dataSource, Properties properties)
+    {
+        this.dataSource = dataSource;
+        minSize = getIntProperty(properties, MIN_SIZE, DEFAULT_MIN_SIZE);
+        maxSize = Math.max(1, getIntProperty(properties, MAX_SIZE, DEFAULT_MAX_SIZE));
+        if (minSize > maxSize)
+            minSize = maxSize;
+        acquireTimeoutNanos = TimeUnit.SECONDS.toNanos(getIntProperty(properties, ACQUIRE_TIMEOUT, DEFAULT_ACQUIRE_TIMEOUT));
+        idleTimeoutNanos = TimeUnit.SECONDS.toNanos(getIntProperty(properties, IDLE_TIMEOUT, DEFAULT_IDLE_TIMEOUT));
+        validationQuery = properties == null ? null : properties.getProperty(VALIDATION_QUERY);
+        idleQueue = new ArrayDeque<IdleConnection>();
+        int evictionInterval = getIntProperty(properties, EVICTION_INTERVAL, DEFAULT_EVICTION_INTERVAL);
+        if ((evictionInterval > 0) && ((idleTimeoutNanos > 0) || (minSize > 0)))
+        {
+            evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, TAG + " evictor");
+                    thread.setDaemon(true);
+                    return thread;
+                }});
+            evictor.scheduleWithFixedDelay(new Runnable(){
+
+                @Override
+                public void run()
+                {
+                    evict();
+                }}, 0, evictionInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Returns a connection from the pool, waiting up to the acquire timeout if none available
+     * @see javax.sql.DataSource#getConnection()
+     */
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        long start = System.nanoTime();
+        while (true)
+        {
+            PooledConnection pooledConnection = null;
+            boolean create = false;
+            synchronized(this)
+            {
+                boolean waited = false;
+                while (pooledConnection == null)
+                {
+                    if (closed)
+                        throw new SQLException("Connection pool is closed");
+                    IdleConnection idleConnection = idleQueue.pollFirst();
+                    if (idleConnection != null)
+                        pooledConnection = idleConnection.pooledConnection;
+                    else if (totalCount < maxSize)
+                    {
+                        ++totalCount;
+                        create = true;
+                        break;
+                    }
+                    else
+                    {
+                        long remaining = acquireTimeoutNanos - (System.nanoTime() - start);
+                        if (remaining <= 0)
+                        {
+                            ++timeoutCount;
+                            throw new SQLException("Timed out waiting " + TimeUnit.NANOSECONDS.toSeconds(acquireTimeoutNanos) +
+                                                   " seconds for a connection. " + toString());
+                        }
+                        if (!waited)
+                        {
+                            ++waitCount;
+                            waited = true;
+                        }
+                        try
+                        {
+                            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                        }
+                        catch (InterruptedException e)
+                        {
+                            Thread.currentThread().interrupt();
+                            throw new SQLException("Interrupted waiting for a connection", e);
+                        }
+                    }
+                }
+            }
+            Connection connection;
+            if (create)
+                pooledConnection = createPooledConnection();
+            else if (!isValid(pooledConnection))
+            {
+                destroy(pooledConnection);
+                synchronized(this)
+                {
+                    ++validationFailureCount;
+                }
+                continue;
+            }
+            try
+            {
+                connection = pooledConnection.getConnection();
+            }
+            catch (SQLException e)
+            {
+                destroy(pooledConnection);
+                throw e;
+            }
+            synchronized(this)
+            {
+                ++acquiredCount;
+                maxWaitNanos = Math.max(maxWaitNanos, System.nanoTime() - start);
+            }
+            return connection;
+        }
+    }
+
+    /**
+     * Not supported. User and password are set on the underlying data source.
+     * @see javax.sql.DataSource#getConnection(java.lang.String, java.lang.String)
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException
+    {
+        throw new SQLFeatureNotSupportedException("Credentials are configured on the pooled data source");
+    }
+
+    /**
+     * Return physical connection to pool when logical connection is closed
+     * @see javax.sql.ConnectionEventListener#connectionClosed(javax.sql.ConnectionEvent)
+     */
+    @Override
+    public void connectionClosed(ConnectionEvent event)
+    {
+        PooledConnection pooledConnection = (PooledConnection)event.getSource();
+        synchronized(this)
+        {
+            if (!closed)
+            {
+                idleQueue.addFirst(new IdleConnection(pooledConnection));
+                notifyAll();
+                return;
+            }
+        }
+        destroy(pooledConnection);
+    }
+
+    /**
+     * Discard physical connection on fatal error
+     * @see javax.sql.ConnectionEventListener#connectionErrorOccurred(javax.sql.ConnectionEvent)
+     */
+    @Override
+    public void connectionErrorOccurred(ConnectionEvent event)
+    {
+        log.warn(TAG, "Connection error. Connection discarded", event.getSQLException());
+        destroy((PooledConnection)event.getSource());
+    }
+
+    /**
+     * Close idle connections and prevent further use. Connections in use are closed when returned.
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close()
+    {
+        List<IdleConnection> idleList;
+        synchronized(this)
+        {
+            if (closed)
+                return;
+            closed = true;
+            idleList = new ArrayList<IdleConnection>(idleQueue);
+            idleQueue.clear();
+            notifyAll();
+        }
+        if (evictor != null)
+            evictor.shutdownNow();
+        for (IdleConnection idleConnection: idleList)
+            destroy(idleConnection.pooledConnection);
+    }
+
+    /**
+     * Close connections idle longer than idle timeout, keeping minimum size, then top up to minimum size
+     */
+    public void evict()
+    {
+        List<IdleConnection> evictList = new ArrayList<IdleConnection>();
+        int shortfall = 0;
+        synchronized(this)
+        {
+            if (closed)
+                return;
+            if (idleTimeoutNanos > 0)
+            {
+                long now = System.nanoTime();
+                // Oldest connections are at the end of the queue
+                Iterator<IdleConnection> iterator = idleQueue.descendingIterator();
+                while (iterator.hasNext() && (totalCount - evictList.size() > minSize))
+                {
+                    IdleConnection idleConnection = iterator.next();
+                    if (now - idleConnection.idleSince < idleTimeoutNanos)
+                        break;
+                    iterator.remove();
+                    evictList.add(idleConnection);
+                }
+            }
+            shortfall = minSize - (totalCount - evictList.size());
+            if (shortfall > 0)
+                totalCount += shortfall;
+        }
+        for (IdleConnection idleConnection: evictList)
+            destroy(idleConnection.pooledConnection);
+        for (int i = 0; i < shortfall; ++i)
+        {
+            try
+            {
+                PooledConnection pooledConnection = createPooledConnection();
+                synchronized(this)
+                {
+                    idleQueue.addLast(new IdleConnection(pooledConnection));
+                    notifyAll();
+                }
+            }
+            catch (SQLException e)
+            {
+                log.warn(TAG, "Error creating connection to maintain minimum pool size", e);
+                synchronized(this)
+                {   // Release reservations not used
+                    totalCount -= shortfall - i - 1;
+                }
+                break;
+            }
+        }
+    }
+
+    public synchronized int getActiveCount()
+    {
+        return totalCount - idleQueue.size();
+    }
+
+    public synchronized int getIdleCount()
+    {
+        return idleQueue.size();
+    }
+
+    public synchronized int getTotalCount()
+    {
+        return totalCount;
+    }
+
+    public synchronized int getMinSize()
+    {
+        return minSize;
+    }
+
+    public synchronized int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    public synchronized long getCreatedCount()
+    {
+        return createdCount;
+    }
+
+    public synchronized long getClosedCount()
+    {
+        return closedCount;
+    }
+
+    public synchronized long getAcquiredCount()
+    {
+        return acquiredCount;
+    }
+
+    /**
+     * Returns number of requests which had to wait for a connection to be returned
+     * @return long
+     */
+    public synchronized long getWaitCount()
+    {
+        return waitCount;
+    }
+
+    public synchronized long getTimeoutCount()
+    {
+        return timeoutCount;
+    }
+
+    public synchronized long getValidationFailureCount()
+    {
+        return validationFailureCount;
+    }
+
+    /**
+     * Returns longest time taken to obtain a connection
+     * @return Time in milliseconds
+     */
+    public synchronized long getMaxWaitMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "Pool active=" + getActiveCount() + " idle=" + idleQueue.size() + " max=" + maxSize +
+               " acquired=" + acquiredCount + " waits=" + waitCount + " timeouts=" + timeoutCount +
+               " created=" + createdCount + " closed=" + closedCount + " invalid=" + validationFailureCount;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException
+    {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException
+    {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException
+    {
+        acquireTimeoutNanos = TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException
+    {
+        return (int)TimeUnit.NANOSECONDS.toSeconds(acquireTimeoutNanos);
+    }
+
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException
+    {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException
+    {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException
+    {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * Create physical connection. The caller must have already counted it in totalCount.
+     * @return PooledConnection object
+     * @throws SQLException if connection cannot be created
+     */
+    protected PooledConnection createPooledConnection() throws SQLException
+    {
+        try
+        {
+            PooledConnection pooledConnection = dataSource.getPooledConnection();
+            pooledConnection.addConnectionEventListener(this);
+            synchronized(this)
+            {
+                ++createdCount;
+            }
+            return pooledConnection;
+        }
+        catch (SQLException e)
+        {
+            synchronized(this)
+            {
+                --totalCount;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Validate a recycled connection
+     * @param pooledConnection Physical connection
+     * @return boolean
+     */
+    protected boolean isValid(PooledConnection pooledConnection)
+    {
+        Connection connection = null;
+        try
+        {
+            // Use a logical handle. Closing it below does not raise a close event as listener is removed first.
+            pooledConnection.removeConnectionEventListener(this);
+            connection = pooledConnection.getConnection();
+            if (validationQuery == null)
+                return connection.isValid(VALIDATION_TIMEOUT);
+            Statement statement = connection.createStatement();
+            try
+            {
+                statement.execute(validationQuery);
+            }
+            finally
+            {
+                statement.close();
+            }
+            return true;
+        }
+        catch (SQLException e)
+        {
+            log.warn(TAG, "Connection failed validation", e);
+            return false;
+        }
+        finally
+        {
+            if (connection != null)
+                try
+                {
+                    connection.close();
+                }
+                catch (SQLException e)
+                {
+                }
+            pooledConnection.addConnectionEventListener(this);
+        }
+    }
+
+    /**
+     * Close physical connection and remove it from the count
+     * @param pooledConnection Physical connection
+     */
+    protected void destroy(PooledConnection pooledConnection)
+    {
+        pooledConnection.removeConnectionEventListener(this);
+        try
+        {
+            pooledConnection.close();
+        }
+        catch (SQLException e)
+        {
+            log.warn(TAG, "Error closing connection", e);
+        }
+        synchronized(this)
+        {
+            --totalCount;
+            ++closedCount;
+            notifyAll();
+        }
+    }
+
+    private static int getIntProperty(Properties properties, String key, int defaultValue)
+    {
+        String value = properties == null ? null : properties.getProperty(key);
+        if (value == null)
+            return defaultValue;
+        try
+        {
+            return Integer.parseInt(value.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            log.warn(TAG, "Invalid value \"" + value + "\" for property " + key + ". Default " + defaultValue + " used");
+            return defaultValue;
+        }
+    }
+}
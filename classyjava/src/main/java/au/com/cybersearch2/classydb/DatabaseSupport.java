@@ -15,6 +15,7 @@
     along with this program.  If not, see <http://www.gnu.org/licenses/> */
 package au.com.cybersearch2.classydb;
 
+import java.io.File;
 import java.util.List;
 
 import au.com.cybersearch2.classyjpa.query.QueryInfo;
@@ -89,4 +90,23 @@ public interface DatabaseSupport
     void registerOpenHelperCallbacks(OpenHelperCallbacks openHelperCallbacks);
     List<OpenHelperCallbacks> getOpenHelperCallbacksList();
 
+    /**
+     * Copies an open database to a snapshot file without blocking writers for the duration of the copy
+     * @param connectionSource Open ConnectionSource object of database
+     * @param snapshotFile Destination file, which is replaced if it exists
+     * @param snapshotOptions Step size, throttling and progress listener. Can be null for defaults.
+     * @throws UnsupportedOperationException if the platform does not support online snapshots, as on Android
+     */
+    void snapshot(ConnectionSource connectionSource, File snapshotFile, SnapshotOptions snapshotOptions);
+
+    /**
+     * Opens a snapshot as a new ConnectionSource, which is registered under given database name so
+     * it can serve a persistence unit, typically one in read-only mode
+     * @param snapshotFile File created by snapshot()
+     * @param databaseName Database name, which must not already be open
+     * @return ConnectionSource
+     * @throws UnsupportedOperationException if the platform does not support online snapshots, as on Android
+     */
+    ConnectionSource restoreSnapshot(File snapshotFile, String databaseName);
+
 }
\ No newline at end of file
@@ -20,11 +20,11 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import javax.persistence.PersistenceException;
@@ -75,7 +75,8 @@ public abstract class DatabaseSupportBase implements DatabaseSupport, Connection
         this.databaseType = databaseType;
         this.log = log;
         this.tag = tag;
-        connectionSourceMap = new HashMap<String, ConnectionSource>();
+        // Connection sources may be requested concurrently during parallel startup
+        connectionSourceMap = new ConcurrentHashMap<String, ConnectionSource>();
         openHelperCallbacksList = Collections.emptyList();
 	}
 
@@ -84,6 +85,7 @@ public abstract class DatabaseSupportBase implements DatabaseSupport, Connection
 	abstract protected String getVersionCreateStatement();
 	abstract protected String getVersionInsertStatement(int version);
 	abstract protected ConnectionSource getConnectionSourceForType(String databaseName, Properties properties) throws SQLException;
+	abstract protected ConnectionSource getSnapshotConnectionSource(File snapshotFile, String databaseName) throws SQLException;
 
     /**
      * Perform any inititialization required prior to creating first database connection
@@ -114,7 +116,10 @@ public abstract class DatabaseSupportBase implements DatabaseSupport, Connection
             {
                 connectionSource = getConnectionSourceForType(databaseName, properties);
                 connectionSourceMap.put(databaseName, connectionSource);
-                connectionSource.getReadWriteConnection(DATABASE_INFO_NAME);
+                DatabaseConnection connection = connectionSource.getReadWriteConnection(DATABASE_INFO_NAME);
+                // A pool keeps the database open, so return the connection rather than hold it for the life of the database
+                if (connectionType == ConnectionType.pooled)
+                    connectionSource.releaseConnection(connection);
             }
             catch (SQLException e)
             {
@@ -294,6 +299,65 @@ public abstract class DatabaseSupportBase implements DatabaseSupport, Connection
         return resultList.size() > 0 ? resultList.get(0) : null;
     }
 
+    /**
+     * Opens a snapshot as a new ConnectionSource registered under given database name
+     * @see au.com.cybersearch2.classydb.DatabaseSupport#restoreSnapshot(java.io.File, java.lang.String)
+     */
+    @Override
+    public synchronized ConnectionSource restoreSnapshot(File snapshotFile, String databaseName)
+    {
+        if (!snapshotFile.isFile())
+            throw new PersistenceException("Snapshot file not found: " + snapshotFile);
+        if (connectionSourceMap.containsKey(databaseName))
+            throw new PersistenceException("Cannot restore snapshot to database \"" + databaseName + "\" as it is already open");
+        try
+        {
+            ConnectionSource connectionSource = getSnapshotConnectionSource(snapshotFile, databaseName);
+            connectionSourceMap.put(databaseName, connectionSource);
+            log.info(tag, "Restored snapshot " + snapshotFile + " to database \"" + databaseName + "\"");
+            return connectionSource;
+        }
+        catch (SQLException e)
+        {
+            throw new PersistenceException("Cannot restore snapshot " + snapshotFile + " to database \"" + databaseName + "\"", e);
+        }
+    }
+
+    /**
+     * Report snapshot progress to listener, if any, and pause between steps if throttling is set
+     * @param snapshotOptions Snapshot options
+     * @param remaining Units still to copy
+     * @param total Total units to copy
+     */
+    protected void notifySnapshotProgress(SnapshotOptions snapshotOptions, int remaining, int total)
+    {
+        SnapshotListener snapshotListener = snapshotOptions.getSnapshotListener();
+        if (snapshotListener != null)
+            snapshotListener.onProgress(remaining, total);
+        long throttleMillis = snapshotOptions.getThrottleMillis();
+        if ((remaining > 0) && (throttleMillis > 0))
+        {   // Give writers access to the database before the next step
+            try
+            {
+                Thread.sleep(throttleMillis);
+            }
+            catch (InterruptedException e)
+            {   // Complete the snapshot, as subsequent pauses end immediately, and leave the interrupt to the caller
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns file path as SQL string literal
+     * @param file File
+     * @return String
+     */
+    protected static String quote(File file)
+    {
+        return "'" + file.getAbsolutePath().replace("'", "''") + "'";
+    }
+
     /**
      * Build an SQL query string from the given clauses.
      *
@@ -376,7 +440,7 @@ public abstract class DatabaseSupportBase implements DatabaseSupport, Connection
             limitValue = Integer.toString(maxResults);
             if (startPosition > 0)
             {   // offset precedes limit
-                StringBuilder builder = new StringBuilder(Integer.valueOf(startPosition));
+                StringBuilder builder = new StringBuilder(Integer.toString(startPosition));
                 builder.append(',').append(limitValue);
                 limitValue = builder.toString();
             }
@@ -395,12 +459,14 @@ public abstract class DatabaseSupportBase implements DatabaseSupport, Connection
                 new FieldType[] {},
                 DatabaseConnection.DEFAULT_RESULT_FLAGS,
                 CACHE_STORE);
+        // Bind no more arguments than there are placeholders
+        int parameterCount = countParameters(statement);
         int parameterIndex = 0;
         for (String arg: queryInfo.getSelectionArgs())
         {
-            compiledStatement.setObject(parameterIndex, arg, SqlType.STRING);
-            if (++parameterIndex >= compiledStatement.getColumnCount())
+            if (parameterIndex >= parameterCount)
                 break;
+            compiledStatement.setObject(parameterIndex++, arg, SqlType.STRING);
         }
         return compiledStatement.runQuery(null /*objectCache*/);
     }
@@ -423,6 +489,31 @@ public abstract class DatabaseSupportBase implements DatabaseSupport, Connection
             }
     }
 
+    /**
+     * Returns number of ? placeholders in SQL statement, excluding any in quoted literals or identifiers
+     * @param statement SQL statement
+     * @return int
+     */
+    protected static int countParameters(String statement)
+    {
+        int count = 0;
+        char quote = 0;
+        for (int i = 0; i < statement.length(); ++i)
+        {
+            char c = statement.charAt(i);
+            if (quote != 0)
+            {
+                if (c == quote)
+                    quote = 0;
+            }
+            else if ((c == '\'') || (c == '"'))
+                quote = c;
+            else if (c == '?')
+                ++count;
+        }
+        return count;
+    }
+
     protected static boolean isEmpty(String text) 
     {
         return (text == null) || (text.length() == 0);
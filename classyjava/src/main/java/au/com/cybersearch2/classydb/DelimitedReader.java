@@ -0,0 +1,203 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DelimitedReader
+ * Streaming reader for delimited text such as CSV or TSV. Reads through a reusable character buffer
+ * and returns one row of fields at a time. Fields may be enclosed in double quotes, in which case
+ * they may contain delimiters, line breaks and doubled quotes. Line endings may be LF or CR LF.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class DelimitedReader implements Closeable
+{
+    /** Comma delimiter */
+    public static final char CSV = ',';
+    /** Tab delimiter */
+    public static final char TSV = '\t';
+
+    protected static final int BUFFER_SIZE = 16384;
+    private static final char QUOTE = '"';
+
+    protected Reader reader;
+    protected char delimiter;
+    /** Read buffer */
+    private char[] buffer;
+    /** Position of next character in buffer */
+    private int position;
+    /** Number of characters in buffer */
+    private int limit;
+    /** Field under construction, reused for every field */
+    private StringBuilder field;
+    /** Fields of row under construction, reused for every row */
+    private List<String> fieldList;
+    /** Number of rows read */
+    private long rowCount;
+
+    /**
+     * Construct DelimitedReader object
+     * @param reader Source of delimited text
+     * @param delimiter Field delimiter eg. CSV or TSV
+     */
+    public DelimitedReader(Reader reader, char delimiter)
+    {
+        this.reader = reader;
+        this.delimiter = delimiter;
+        buffer = new char[BUFFER_SIZE];
+        field = new StringBuilder();
+        fieldList = new ArrayList<String>();
+    }
+
+    /**
+     * Returns next row or null if end of input reached. Blank lines are skipped.
+     * @return Array of field values. Empty fields are returned as empty strings.
+     * @throws IOException for read error or unterminated quoted field
+     */
+    public String[] readRow() throws IOException
+    {
+        fieldList.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean fieldStarted = false;
+        int ch;
+        while ((ch = read()) != -1)
+        {
+            if (quoted)
+            {
+                if (ch == QUOTE)
+                {
+                    if (peek() == QUOTE)
+                    {
+                        read();
+                        field.append(QUOTE);
+                    }
+                    else
+                        quoted = false;
+                }
+                else
+                    field.append((char)ch);
+                continue;
+            }
+            if (ch == delimiter)
+            {
+                endField();
+                fieldStarted = true;
+            }
+            else if ((ch == '\n') || (ch == '\r'))
+            {
+                if ((ch == '\r') && (peek() == '\n'))
+                    read();
+                if (fieldStarted || (field.length() > 0) || !fieldList.isEmpty())
+                    return endRow();
+            }
+            else if ((ch == QUOTE) && (field.length() == 0))
+            {
+                quoted = true;
+                fieldStarted = true;
+            }
+            else
+            {
+                field.append((char)ch);
+                fieldStarted = true;
+            }
+        }
+        if (quoted)
+            throw new IOException("Unterminated quoted field in row " + (rowCount + 1));
+        if (fieldStarted || (field.length() > 0) || !fieldList.isEmpty())
+            return endRow();
+        return null;
+    }
+
+    /**
+     * Skip given number of rows
+     * @param count Number of rows to skip
+     * @return Number of rows actually skipped, which is less than count if end of input reached
+     * @throws IOException for read error
+     */
+    public long skipRows(long count) throws IOException
+    {
+        long skipped = 0;
+        while ((skipped < count) && (readRow() != null))
+            ++skipped;
+        return skipped;
+    }
+
+    /**
+     * Returns number of rows read, including skipped rows
+     * @return long
+     */
+    public long getRowCount()
+    {
+        return rowCount;
+    }
+
+    /**
+     * Close underlying reader
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+
+    private void endField()
+    {
+        fieldList.add(field.toString());
+        field.setLength(0);
+    }
+
+    private String[] endRow()
+    {
+        endField();
+        ++rowCount;
+        return fieldList.toArray(new String[fieldList.size()]);
+    }
+
+    private int read() throws IOException
+    {
+        if ((position == limit) && !fill())
+            return -1;
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException
+    {
+        if ((position == limit) && !fill())
+            return -1;
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException
+    {
+        int count;
+        do
+            count = reader.read(buffer);
+        while (count == 0);
+        if (count == -1)
+            return false;
+        position = 0;
+        limit = count;
+        return true;
+    }
+}
@@ -16,9 +16,16 @@
 package au.com.cybersearch2.classydb;
 
 import java.io.File;
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Enumeration;
+import java.util.Locale;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.persistence.PersistenceException;
 
 import au.com.cybersearch2.classylog.JavaLogger;
 import au.com.cybersearch2.classylog.Log;
@@ -29,11 +36,15 @@ import org.h2.jdbcx.JdbcDataSource;
 
 import com.j256.ormlite.db.H2DatabaseType;
 import com.j256.ormlite.jdbc.DataSourceConnectionSource;
-import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
 import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
 
 /**
  * H2DatabaseSupport
+ * Snapshots are taken with a single command while the database stays open. A snapshot file with ".zip" extension
+ * is written by BACKUP TO and restores as a read-only database opened directly from the zip file. Any other
+ * snapshot file is an SQL script written by SCRIPT TO, which also works for in-memory databases, and restores
+ * into a new in-memory database. Snapshot step size and throttling do not apply.
  * @author Andrew Bowley
  * 16 May 2015
  */
@@ -46,6 +57,10 @@ public class H2DatabaseSupport extends DatabaseSupportBase
     private static final String IN_MEMORY_PATH = "jdbc:h2:mem:";
     /** SQLite location for file database */
     private static final String FILE_LOCATION = "resources/db";
+    /** Extension of snapshot written as a database backup */
+    private static final String ZIP_EXTENSION = ".zip";
+    /** Database file extensions of page store and MVStore formats */
+    private static final String[] DATABASE_FILE_EXTENSIONS = { ".h2.db", ".mv.db" };
     
     private static final String[] EXCLUDE_KEYS = 
     { 
@@ -114,7 +129,7 @@ public class H2DatabaseSupport extends DatabaseSupportBase
 	        	String url = "jdbc:h2:" + fileLocation  + "/" + databaseName;
 	            return getDataSourceConnectionSource(url, properties);
 	        }
-	        case pooled: // TODO - Add H2 Connection Pool
+	        case pooled:
 				return getPooledConnectionSource(databaseName, fileLocation, properties);
 	        case memory: 
 	        default:
@@ -125,6 +140,113 @@ public class H2DatabaseSupport extends DatabaseSupportBase
 	    }
     }
  
+    /**
+     * Copies an open database to a backup zip file or SQL script, according to snapshot file extension
+     * @see au.com.cybersearch2.classydb.DatabaseSupport#snapshot(com.j256.ormlite.support.ConnectionSource, java.io.File, au.com.cybersearch2.classydb.SnapshotOptions)
+     */
+	@Override
+	public void snapshot(ConnectionSource connectionSource, File snapshotFile, SnapshotOptions snapshotOptions)
+	{
+		SnapshotOptions options = snapshotOptions != null ? snapshotOptions : new SnapshotOptions();
+		String command = isZipFile(snapshotFile) ? "BACKUP TO " : "SCRIPT TO ";
+		DatabaseConnection connection = null;
+		try
+		{
+			connection = connectionSource.getReadWriteConnection(DATABASE_INFO_NAME);
+			notifySnapshotProgress(options, 1, 1);
+			connection.executeStatement(command + quote(snapshotFile), DatabaseConnection.DEFAULT_RESULT_FLAGS);
+			notifySnapshotProgress(options, 0, 1);
+			log.info(TAG, "Snapshot written to " + snapshotFile);
+		}
+		catch (SQLException e)
+		{
+			throw new PersistenceException("Snapshot to " + snapshotFile + " failed", e);
+		}
+		finally
+		{
+			if (connection != null)
+				try
+				{
+					connectionSource.releaseConnection(connection);
+				}
+				catch (SQLException e)
+				{
+					log.warn(TAG, "Error releasing connection after snapshot", e);
+				}
+		}
+	}
+
+    /**
+     * Returns connection source of read-only database in backup zip file or in-memory database loaded from SQL script
+     * @see au.com.cybersearch2.classydb.DatabaseSupportBase#getSnapshotConnectionSource(java.io.File, java.lang.String)
+     */
+	@Override
+	protected ConnectionSource getSnapshotConnectionSource(File snapshotFile, String databaseName) throws SQLException
+	{
+		if (isZipFile(snapshotFile))
+			return getDataSourceConnectionSource("jdbc:h2:zip:" + snapshotFile.getAbsolutePath() + "!/" + getBackupDatabaseName(snapshotFile), null);
+		// Keep the database open while the connection source has no open connection
+		ConnectionSource connectionSource = getDataSourceConnectionSource(IN_MEMORY_PATH + databaseName + ";DB_CLOSE_DELAY=-1", null);
+		DatabaseConnection connection = connectionSource.getReadWriteConnection(DATABASE_INFO_NAME);
+		try
+		{
+			connection.executeStatement("RUNSCRIPT FROM " + quote(snapshotFile), DatabaseConnection.DEFAULT_RESULT_FLAGS);
+		}
+		catch (SQLException e)
+		{
+			connectionSource.releaseConnection(connection);
+			connectionSource.closeQuietly();
+			throw e;
+		}
+		connectionSource.releaseConnection(connection);
+		return connectionSource;
+	}
+
+	/**
+	 * Returns name of database contained in backup zip file
+	 * @param snapshotFile Backup zip file
+	 * @return database name
+	 * @throws SQLException if zip file cannot be read or contains no database
+	 */
+	protected String getBackupDatabaseName(File snapshotFile) throws SQLException
+	{
+		ZipFile zipFile = null;
+		try
+		{
+			zipFile = new ZipFile(snapshotFile);
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			while (entries.hasMoreElements())
+			{
+				String name = entries.nextElement().getName();
+				for (String extension: DATABASE_FILE_EXTENSIONS)
+					if (name.endsWith(extension))
+						return name.substring(0, name.length() - extension.length());
+			}
+		}
+		catch (IOException e)
+		{
+			throw new SQLException("Error reading snapshot " + snapshotFile, e);
+		}
+		finally
+		{
+			if (zipFile != null)
+				try
+				{
+					zipFile.close();
+				}
+				catch (IOException e)
+				{
+					log.warn(TAG, "Error closing snapshot " + snapshotFile, e);
+				}
+		}
+		throw new SQLException("Database not found in snapshot " + snapshotFile);
+	}
+
+	private static boolean isZipFile(File snapshotFile)
+	{
+		return snapshotFile.getName().toLowerCase(Locale.US).endsWith(ZIP_EXTENSION);
+	}
+
 	private DataSourceConnectionSource getDataSourceConnectionSource(String url, Properties properties) throws SQLException {
 	    JdbcDataSource jdbcDataSource = new JdbcDataSource();
 	    String finalUrl = appendProperties(url, properties, jdbcDataSource);
@@ -132,9 +254,29 @@ public class H2DatabaseSupport extends DatabaseSupportBase
         return new DataSourceConnectionSource(jdbcDataSource, finalUrl);
 	}
 
-	private JdbcPooledConnectionSource getPooledConnectionSource(String databaseName, String fileLocation, Properties properties) throws SQLException {
-		String url = appendProperties("jdbc:h2:" + fileLocation  + "/" + databaseName, properties);
-        return new JdbcPooledConnectionSource(url); 
+	/**
+	 * Returns connection source backed by a connection pool, configured by "pool-" properties.
+	 * MVCC is enabled unless set in properties, so readers are not blocked by concurrent writers.
+	 */
+	private PooledConnectionSource getPooledConnectionSource(String databaseName, String fileLocation, Properties properties) throws SQLException {
+	    JdbcDataSource jdbcDataSource = new JdbcDataSource();
+	    String finalUrl = appendProperties("jdbc:h2:" + fileLocation  + "/" + databaseName, properties, jdbcDataSource);
+	    if (finalUrl.toUpperCase(Locale.US).indexOf(";MVCC=") == -1)
+	        finalUrl += ";MVCC=TRUE";
+	    jdbcDataSource.setURL(finalUrl);
+	    return new PooledConnectionSource(new ConnectionPool(jdbcDataSource, properties), getDatabaseType());
+	}
+
+	/**
+	 * Returns connection pool of given database
+	 * @param databaseName Database name
+	 * @return ConnectionPool object or null if database connection type is not pooled or database not open
+	 */
+	public ConnectionPool getConnectionPool(String databaseName) {
+	    ConnectionSource connectionSource = connectionSourceMap.get(databaseName);
+	    if (connectionSource instanceof PooledConnectionSource)
+	        return ((PooledConnectionSource)connectionSource).getConnectionPool();
+	    return null;
 	}
 	
 	private String appendProperties(String url, Properties properties, JdbcDataSource jdbcDataSource) {
@@ -156,20 +298,6 @@ public class H2DatabaseSupport extends DatabaseSupportBase
 		}
 		return newUrl;
 	}
-	private String appendProperties(String url, Properties properties) {
-		String newUrl = url;
-		Properties filtered = filterProperties(properties);
-		if (!filtered.isEmpty()) {
-			StringBuilder builder = new StringBuilder(url);
-			for (Entry<Object, Object> entry: filtered.entrySet()) {
-			    String key = entry.getKey().toString();
-			    String value = entry.getValue().toString();
-				builder.append(';').append(key).append('=').append(value);
-			}
-			newUrl = builder.toString();
-		}
-		return newUrl;
-	}
 
     private Properties filterProperties(Properties properties) {
         Properties filtered = new Properties();
@@ -182,6 +310,8 @@ public class H2DatabaseSupport extends DatabaseSupportBase
 			           break;
 			        }
 			    }
+			    if ((key != null) && key.startsWith(ConnectionPool.PROPERTY_PREFIX))
+			        key = null;
 			    if (key != null)
 			        filtered.put(key, entry.getValue().toString());
 			}
@@ -0,0 +1,120 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+/**
+ * ImportStats
+ * Progress and throughput of a bulk import. The checkpoint is the number of data rows committed,
+ * including any rows skipped on resume, and is the value to resume from after a failure.
+ * Thread safe so progress can be monitored while an import is running.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class ImportStats
+{
+    /** Data rows committed, including rows skipped on resume */
+    private volatile long checkpoint;
+    /** Data rows inserted by this import */
+    private volatile long rowsInserted;
+    /** Number of commits */
+    private volatile int commitCount;
+    /** Start time in nanoseconds */
+    private volatile long startNanos;
+    /** Finish time in nanoseconds or 0 if import still running */
+    private volatile long finishNanos;
+
+    /**
+     * Construct ImportStats object
+     * @param resumeRow Number of data rows already committed by a previous import
+     */
+    public ImportStats(long resumeRow)
+    {
+        checkpoint = resumeRow;
+    }
+
+    /**
+     * Returns number of data rows committed, including rows skipped on resume
+     * @return long
+     */
+    public long getCheckpoint()
+    {
+        return checkpoint;
+    }
+
+    /**
+     * Returns number of data rows inserted and committed by this import
+     * @return long
+     */
+    public long getRowsInserted()
+    {
+        return rowsInserted;
+    }
+
+    /**
+     * Returns number of commits
+     * @return int
+     */
+    public int getCommitCount()
+    {
+        return commitCount;
+    }
+
+    /**
+     * Returns elapsed time in milliseconds
+     * @return long
+     */
+    public long getElapsedMillis()
+    {
+        if (startNanos == 0)
+            return 0;
+        long finish = finishNanos == 0 ? System.nanoTime() : finishNanos;
+        return (finish - startNanos) / 1000000L;
+    }
+
+    /**
+     * Returns throughput in rows per second
+     * @return long
+     */
+    public long getRowsPerSecond()
+    {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? rowsInserted * 1000L : rowsInserted * 1000L / elapsed;
+    }
+
+    @Override
+    public String toString()
+    {
+        return rowsInserted + " rows inserted in " + getElapsedMillis() + "ms (" +
+               getRowsPerSecond() + " rows/sec), " + commitCount + " commits, checkpoint " + checkpoint;
+    }
+
+    void start()
+    {
+        startNanos = System.nanoTime();
+    }
+
+    void finish()
+    {
+        finishNanos = System.nanoTime();
+    }
+
+    void commit(long rows)
+    {
+        rowsInserted += rows;
+        checkpoint += rows;
+        ++commitCount;
+    }
+}
@@ -34,17 +34,40 @@ import com.j256.ormlite.support.DatabaseConnection;
  * NativeScriptDatabaseWork
  * Implementation of TransactionCallable interface to be executed upon transaction commit.
  * Executes SQL statements contained in a script file. Each statement must be delimited with a semi-colon ';'.
+ * Where the connection is backed by JDBC, runs of INSERT, UPDATE and DELETE statements are executed in batches.
  * @author Andrew Bowley
  * 31/07/2014
  */
 public class NativeScriptDatabaseWork implements TransactionCallable
 {
+    /**
+     * ProgressCallback
+     * Interface to call back periodically while a script is executing
+     */
+    public interface ProgressCallback
+    {
+        /**
+         * Report progress
+         * @param filename Name of script being executed
+         * @param statementCount Number of statements parsed so far from this script
+         */
+        void onProgress(String filename, int statementCount);
+    }
+
     private static final String TAG = "NativeScriptDatabaseWork";
     private static Log log = JavaLogger.getLogger(TAG);
+    /** Default number of statements between progress reports */
+    public static final int DEFAULT_PROGRESS_INTERVAL = 10000;
     
     final String[] filenames;
     /** Resource environment provides system-specific file open method. */
     protected ResourceEnvironment resourceEnvironment;
+    /** Maximum number of statements per batch */
+    protected int batchSize;
+    /** Optional progress callback */
+    protected ProgressCallback progressCallback;
+    /** Number of statements between progress reports */
+    protected int progressInterval;
     
     /**
      * Create NativeScriptDatabaseWork object
@@ -54,6 +77,28 @@ public class NativeScriptDatabaseWork implements TransactionCallable
     {
         this.resourceEnvironment = resourceEnvironment;
         this.filenames = filenames == null ? new String[]{} : filenames;
+        batchSize = BatchStatementExecutor.DEFAULT_BATCH_SIZE;
+        progressInterval = DEFAULT_PROGRESS_INTERVAL;
+    }
+
+    /**
+     * Set maximum number of statements per batch
+     * @param batchSize Batch size. A value of 1 disables batching.
+     */
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Set progress callback
+     * @param progressCallback ProgressCallback object
+     * @param progressInterval Number of statements between progress reports
+     */
+    public void setProgressCallback(ProgressCallback progressCallback, int progressInterval)
+    {
+        this.progressCallback = progressCallback;
+        this.progressInterval = progressInterval < 1 ? 1 : progressInterval;
     }
 
 	/**
@@ -62,28 +107,39 @@ public class NativeScriptDatabaseWork implements TransactionCallable
 	 */
 	@Override
 	public Boolean call(final DatabaseConnection databaseConnection) throws Exception 
-	{   // Execute SQL statement in SqlParser callback
-        StatementCallback callback = new StatementCallback(){
-            
-            @Override
-            public void onStatement(String statement) throws SQLException {
-                databaseConnection.executeStatement(statement, DatabaseConnection.DEFAULT_RESULT_FLAGS);
-            }};
+	{
         boolean success = false;
-        for (String filename: filenames)
+        for (final String filename: filenames)
         {
             if ((filename == null) || (filename.length() == 0))
                 continue;
             success = false;
             InputStream instream = null;
+            final BatchStatementExecutor executor = new BatchStatementExecutor(databaseConnection, batchSize);
+            // Execute SQL statement in SqlParser callback
+            StatementCallback callback = new StatementCallback(){
+                
+                int count;
+
+                @Override
+                public void onStatement(String statement) throws SQLException {
+                    executor.onStatement(statement);
+                    if ((++count % progressInterval == 0) && (progressCallback != null))
+                        progressCallback.onProgress(filename, count);
+                }};
             try
             {
+                long start = System.currentTimeMillis();
                 instream = resourceEnvironment.openResource(filename);
                 SqlParser sqlParser = new SqlParser();
                 sqlParser.parseStream(instream, callback);
+                executor.flush();
                 success = true;
+                if (progressCallback != null)
+                    progressCallback.onProgress(filename, sqlParser.getCount());
                 if (log.isLoggable(TAG, Level.FINE))
-                    log.debug(TAG, "Executed " + sqlParser.getCount() + " statements from " + filename);
+                    log.debug(TAG, "Executed " + sqlParser.getCount() + " statements from " + filename + 
+                              " in " + (System.currentTimeMillis() - start) + "ms using " + executor.getBatchCount() + " batches");
             }
             catch(SQLException e)
             {
@@ -91,6 +147,7 @@ public class NativeScriptDatabaseWork implements TransactionCallable
             }
             finally
             {
+                executor.close();
                 close(instream, filename);
             }
         }
@@ -0,0 +1,72 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.jdbc.DataSourceConnectionSource;
+
+/**
+ * PooledConnectionSource
+ * OrmLite connection source backed by a ConnectionPool. Each connection request is served by a
+ * separate pooled connection, so work can run concurrently. Closing the connection source closes the pool.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class PooledConnectionSource extends DataSourceConnectionSource
+{
+    protected ConnectionPool connectionPool;
+
+    /**
+     * Construct PooledConnectionSource object
+     * @param connectionPool Connection pool
+     * @param databaseType Database type
+     * @throws SQLException if initialization fails
+     */
+    public PooledConnectionSource(ConnectionPool connectionPool, DatabaseType databaseType) throws SQLException
+    {
+        super(connectionPool, databaseType);
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Returns connection pool for access to metrics
+     * @return ConnectionPool object
+     */
+    public ConnectionPool getConnectionPool()
+    {
+        return connectionPool;
+    }
+
+    /**
+     * Close connection source and connection pool
+     * @see com.j256.ormlite.jdbc.DataSourceConnectionSource#close()
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            super.close();
+        }
+        finally
+        {
+            connectionPool.close();
+        }
+    }
+}
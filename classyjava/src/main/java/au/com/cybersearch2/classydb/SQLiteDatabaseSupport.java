@@ -32,20 +32,35 @@
 package au.com.cybersearch2.classydb;
 
 import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Properties;
 
+import javax.persistence.PersistenceException;
+
 import au.com.cybersearch2.classylog.JavaLogger;
 import au.com.cybersearch2.classylog.Log;
 
 import com.j256.ormlite.db.SqliteDatabaseType;
 import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.jdbc.JdbcDatabaseConnection;
 import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
+import com.j256.ormlite.logger.Logger;
 import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
 
 /**
  * SQLiteDatabaseSupport
- * SQLite implementation for direct database access to allow native operations to be performed
+ * SQLite implementation for direct database access to allow native operations to be performed.
+ * Snapshots use the SQLite online backup API, which the JDBC driver runs in steps. The source database
+ * is only locked while a step copies its pages, so writers continue between steps. A write by another
+ * connection restarts the copy, which therefore completes in the first quiet interval long enough.
  * @author Andrew Bowley
  * 16/06/2014
  */
@@ -58,6 +73,17 @@ public class SQLiteDatabaseSupport extends DatabaseSupportBase
     private static final String IN_MEMORY_PATH = "jdbc:sqlite::memory:";
     /** SQLite location for file database */
     private static final String FILE_LOCATION = "resources/db";
+    /** SQLite result codes for a completed backup */
+    private static final int SQLITE_OK = 0;
+    private static final int SQLITE_DONE = 101;
+    /** Milliseconds to wait for a busy database between steps, when the driver allows it to be set */
+    private static final int BUSY_SLEEP_MILLIS = 100;
+    /** Number of busy waits before a backup fails, when the driver allows it to be set */
+    private static final int BUSY_RETRY_LIMIT = 30;
+    /** Driver property for SQLite open flags */
+    private static final String OPEN_MODE_PROPERTY = "open_mode";
+    /** SQLITE_OPEN_READONLY open flag */
+    private static final String OPEN_MODE_READ_ONLY = "1";
     
     private File databaseDirectory;
  
@@ -113,4 +139,204 @@ public class SQLiteDatabaseSupport extends DatabaseSupportBase
 	            return new JdbcConnectionSource(IN_MEMORY_PATH /*+ databaseName*/);
 	        }
     }
+
+    /**
+     * Copies an open database to a snapshot file using the online backup API.
+     * A file database is copied on a dedicated connection, so application connections are not held by the
+     * driver for the duration of the copy. An in-memory database can only be copied on its own connection.
+     * @see au.com.cybersearch2.classydb.DatabaseSupport#snapshot(com.j256.ormlite.support.ConnectionSource, java.io.File, au.com.cybersearch2.classydb.SnapshotOptions)
+     */
+    @Override
+    public void snapshot(ConnectionSource connectionSource, File snapshotFile, SnapshotOptions snapshotOptions)
+    {
+        SnapshotOptions options = snapshotOptions != null ? snapshotOptions : new SnapshotOptions();
+        DatabaseConnection databaseConnection = null;
+        try
+        {
+            databaseConnection = connectionSource.getReadOnlyConnection(DATABASE_INFO_NAME);
+            Connection connection = (Connection)databaseConnection.getUnderlyingConnection();
+            String url = connection.getMetaData().getURL();
+            if ((url != null) && !url.startsWith(IN_MEMORY_PATH))
+            {
+                connectionSource.releaseConnection(databaseConnection);
+                databaseConnection = null;
+                Connection snapshotConnection = DriverManager.getConnection(url);
+                try
+                {
+                    backup(snapshotConnection, snapshotFile, options);
+                }
+                finally
+                {
+                    snapshotConnection.close();
+                }
+            }
+            else
+                backup(connection, snapshotFile, options);
+            log.info(TAG, "Snapshot of " + url + " written to " + snapshotFile);
+        }
+        catch (SQLException e)
+        {
+            throw new PersistenceException("Snapshot to " + snapshotFile + " failed", e);
+        }
+        finally
+        {
+            if (databaseConnection != null)
+                try
+                {
+                    connectionSource.releaseConnection(databaseConnection);
+                }
+                catch (SQLException e)
+                {
+                    log.warn(TAG, "Error releasing connection after snapshot", e);
+                }
+        }
+    }
+
+    /**
+     * Returns connection source which opens snapshot file in place, read-only, so the snapshot cannot be changed.
+     * The driver is passed the open mode which SQLiteConfig.setReadOnly(true) sets, as the driver is not a compile dependency.
+     * @see au.com.cybersearch2.classydb.DatabaseSupportBase#getSnapshotConnectionSource(java.io.File, java.lang.String)
+     */
+	@Override
+	protected ConnectionSource getSnapshotConnectionSource(File snapshotFile, String databaseName) throws SQLException
+	{
+		return new JdbcConnectionSource("jdbc:sqlite:" + snapshotFile.getAbsolutePath()){
+
+            @Override
+            protected DatabaseConnection makeConnection(Logger logger) throws SQLException
+            {
+                Properties properties = new Properties();
+                properties.setProperty(OPEN_MODE_PROPERTY, OPEN_MODE_READ_ONLY);
+                DatabaseConnection connection = new JdbcDatabaseConnection(DriverManager.getConnection(getUrl(), properties));
+                connection.setAutoCommit(true);
+                logger.debug("opened read-only connection to {} got #{}", getUrl(), connection.hashCode());
+                return connection;
+            }};
+	}
+
+    /**
+     * Copy database of given connection to file, in steps if the driver exposes its backup API,
+     * otherwise in a single step using the driver "backup to" command
+     * @param connection SQLite JDBC connection
+     * @param snapshotFile Destination file
+     * @param snapshotOptions Snapshot options
+     * @throws SQLException
+     */
+    protected void backup(Connection connection, File snapshotFile, SnapshotOptions snapshotOptions) throws SQLException
+    {
+        if (backupInSteps(connection, snapshotFile, snapshotOptions))
+            return;
+        log.warn(TAG, "SQLite backup API not available. Snapshot will be taken in a single step.");
+        Statement statement = connection.createStatement();
+        try
+        {
+            statement.executeUpdate("backup to " + quote(snapshotFile));
+        }
+        finally
+        {
+            statement.close();
+        }
+        notifySnapshotProgress(snapshotOptions, 0, 0);
+    }
+
+    /**
+     * Copy database using the backup method of the driver native database object, with a progress observer
+     * which reports each step and throttles the copy. The driver is only accessed by reflection, as it is
+     * not a compile dependency. Pages per step are applied only by driver versions which support it.
+     * @param connection SQLite JDBC connection
+     * @param snapshotFile Destination file
+     * @param snapshotOptions Snapshot options
+     * @return flag set true if backup completed, false if driver backup API not available
+     * @throws SQLException
+     */
+    protected boolean backupInSteps(Connection connection, File snapshotFile, final SnapshotOptions snapshotOptions) throws SQLException
+    {
+        Object nativeDatabase = getNativeDatabase(connection);
+        if (nativeDatabase == null)
+            return false;
+        Method backupMethod = null;
+        for (Method method: nativeDatabase.getClass().getMethods())
+        {
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            if (!"backup".equals(method.getName()) || (parameterTypes.length < 3) || !parameterTypes[2].isInterface())
+                continue;
+            // Prefer the variant which takes busy wait and pages per step settings
+            if ((parameterTypes.length == 6) || ((parameterTypes.length == 3) && (backupMethod == null)))
+                backupMethod = method;
+        }
+        if (backupMethod == null)
+            return false;
+        Class<?> observerClass = backupMethod.getParameterTypes()[2];
+        final int[] lastTotal = new int[1];
+        Object progressObserver = Proxy.newProxyInstance(observerClass.getClassLoader(), new Class<?>[] { observerClass }, new InvocationHandler(){
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+                String name = method.getName();
+                if ("progress".equals(name) && (args != null) && (args.length == 2))
+                {
+                    lastTotal[0] = ((Integer)args[1]).intValue();
+                    notifySnapshotProgress(snapshotOptions, ((Integer)args[0]).intValue(), lastTotal[0]);
+                    return null;
+                }
+                if ("equals".equals(name))
+                    return Boolean.valueOf(proxy == args[0]);
+                if ("hashCode".equals(name))
+                    return Integer.valueOf(System.identityHashCode(proxy));
+                if ("toString".equals(name))
+                    return "SnapshotProgressObserver";
+                return null;
+            }});
+        Object[] args = backupMethod.getParameterTypes().length == 6 ?
+            new Object[] { "main", snapshotFile.getAbsolutePath(), progressObserver,
+                           Integer.valueOf(BUSY_SLEEP_MILLIS), Integer.valueOf(BUSY_RETRY_LIMIT), Integer.valueOf(snapshotOptions.getPagesPerStep()) } :
+            new Object[] { "main", snapshotFile.getAbsolutePath(), progressObserver };
+        Object result = null;
+        try
+        {
+            result = backupMethod.invoke(nativeDatabase, args);
+        }
+        catch (InvocationTargetException e)
+        {
+            if (e.getCause() instanceof SQLException)
+                throw (SQLException)e.getCause();
+            throw new SQLException("SQLite backup failed", e.getCause());
+        }
+        catch (IllegalAccessException e)
+        {
+            return false;
+        }
+        int resultCode = result instanceof Integer ? ((Integer)result).intValue() : SQLITE_OK;
+        if ((resultCode != SQLITE_OK) && (resultCode != SQLITE_DONE))
+            throw new SQLException("SQLite backup failed with result code " + resultCode);
+        // The final step is not reported by all driver versions
+        notifySnapshotProgress(snapshotOptions, 0, lastTotal[0]);
+        return true;
+    }
+
+    /**
+     * Returns native database object of SQLite JDBC connection
+     * @param connection SQLite JDBC connection
+     * @return Object or null if not available
+     */
+    protected Object getNativeDatabase(Connection connection)
+    {
+        for (String methodName: new String[] { "getDatabase", "db" })
+        {
+            try
+            {
+                return connection.getClass().getMethod(methodName).invoke(connection);
+            }
+            catch (NoSuchMethodException e)
+            {
+            }
+            catch (Exception e)
+            {
+                log.debug(TAG, "Error accessing SQLite native database: " + e.toString());
+                break;
+            }
+        }
+        return null;
+    }
 }
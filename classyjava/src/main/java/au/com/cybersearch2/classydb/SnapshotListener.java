@@ -0,0 +1,32 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+/**
+ * SnapshotListener
+ * Receives progress of a database snapshot. Called on the thread taking the snapshot, between copy steps.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public interface SnapshotListener
+{
+    /**
+     * Report snapshot progress. Total may grow if the database is written while the snapshot is taken.
+     * @param remaining Number of units (SQLite pages) still to copy. Zero when the snapshot is complete.
+     * @param total Total number of units to copy
+     */
+    void onProgress(int remaining, int total);
+}
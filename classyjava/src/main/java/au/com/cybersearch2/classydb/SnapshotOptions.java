@@ -0,0 +1,87 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+/**
+ * SnapshotOptions
+ * Controls how an online database snapshot is taken. A snapshot is copied in steps, and the
+ * database is available to writers between steps. A pause after each step throttles the copy
+ * to limit its impact on application database activity.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class SnapshotOptions
+{
+    /** Default number of SQLite pages copied per step */
+    public static final int DEFAULT_PAGES_PER_STEP = 100;
+
+    /** Number of pages copied per step, if supported by the database driver */
+    protected int pagesPerStep;
+    /** Pause in milliseconds after each step */
+    protected long throttleMillis;
+    /** Optional progress listener */
+    protected SnapshotListener snapshotListener;
+
+    /**
+     * Create SnapshotOptions object with default step size and no throttling
+     */
+    public SnapshotOptions()
+    {
+        pagesPerStep = DEFAULT_PAGES_PER_STEP;
+    }
+
+    public int getPagesPerStep()
+    {
+        return pagesPerStep;
+    }
+
+    /**
+     * Set number of pages copied per step. A negative value copies all remaining pages in one step.
+     * @param pagesPerStep int
+     */
+    public void setPagesPerStep(int pagesPerStep)
+    {
+        if (pagesPerStep == 0)
+            throw new IllegalArgumentException("Pages per step must not be zero");
+        this.pagesPerStep = pagesPerStep;
+    }
+
+    public long getThrottleMillis()
+    {
+        return throttleMillis;
+    }
+
+    /**
+     * Set pause after each step
+     * @param throttleMillis Milliseconds. Zero for no pause.
+     */
+    public void setThrottleMillis(long throttleMillis)
+    {
+        if (throttleMillis < 0)
+            throw new IllegalArgumentException("Throttle time must not be negative");
+        this.throttleMillis = throttleMillis;
+    }
+
+    public SnapshotListener getSnapshotListener()
+    {
+        return snapshotListener;
+    }
+
+    public void setSnapshotListener(SnapshotListener snapshotListener)
+    {
+        this.snapshotListener = snapshotListener;
+    }
+}
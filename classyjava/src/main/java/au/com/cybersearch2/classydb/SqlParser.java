@@ -20,17 +20,22 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StreamTokenizer;
 import java.sql.SQLException;
 
 /**
  * SqlParser
- * Parse SQL script using token parser to create a set of semi colon delimited statements
+ * Parse SQL script one character at a time to create a set of semi colon delimited statements.
+ * Comments are removed and each run of white space is reduced to a single space. Semi colons are
+ * ignored when inside single-quoted literals, double-quoted identifiers or BEGIN ... END blocks,
+ * so trigger bodies are passed on as a single statement.
  * @author Andrew Bowley
  * 30/07/2014
  */
 public class SqlParser
 {
+    /** Size of read buffer */
+    protected static final int BUFFER_SIZE = 8192;
+
     protected int count;
 
     /**
@@ -48,6 +53,17 @@ public class SqlParser
          */
         void onStatement(String statement) throws SQLException;
     }
+
+    /** Statement under construction */
+    private StringBuilder buff;
+    /** Word under construction, used to track BEGIN, CASE and END keywords */
+    private StringBuilder word;
+    /** Nesting depth of BEGIN ... END and CASE ... END blocks */
+    private int blockDepth;
+    /** Flag set true while no word has been completed in current statement */
+    private boolean firstWord;
+    /** Flag set true if white space or a comment is pending */
+    private boolean pendingSpace;
  
     /**
      * Public API call
@@ -58,45 +74,118 @@ public class SqlParser
      */
     public void parseStream(InputStream is, StatementCallback callback) throws IOException, SQLException
     {
-        Reader r = new BufferedReader(new InputStreamReader(is));
-        StreamTokenizer st = new StreamTokenizer(r);
-        st.resetSyntax();
-        st.wordChars('a', 'z');
-        st.wordChars('A', 'Z');
-        st.wordChars('0', '9');
-        st.wordChars(128 + 32, 255);
-        st.whitespaceChars(0, 31); // ' ' is not whitespace so it will be inserted in the text
-        st.quoteChar('\'');
-        st.eolIsSignificant(false);
-        int tok = StreamTokenizer.TT_EOF;
-        StringBuffer buff = new StringBuffer();
-        do 
+        parse(new BufferedReader(new InputStreamReader(is), BUFFER_SIZE), callback);
+    }
+
+    /**
+     * Parse SQL script from given reader. A final statement missing the terminating semi colon is also passed on.
+     *@param reader Reader object
+     *@param callback StatementCallback object
+     *@throws IOException for reader error
+     *@throws SQLException for StatementCallback error
+     */
+    public void parse(Reader reader, StatementCallback callback) throws IOException, SQLException
+    {
+        buff = new StringBuilder();
+        word = new StringBuilder();
+        blockDepth = 0;
+        firstWord = true;
+        pendingSpace = false;
+        char[] chars = new char[BUFFER_SIZE];
+        // Character which terminates current quote or comment, or 0 if none active
+        char quote = 0;
+        boolean lineComment = false;
+        boolean blockComment = false;
+        // Previous character, used to detect comment delimiters
+        char previous = 0;
+        int length;
+        while ((length = reader.read(chars)) != -1)
         {
-            tok = st.nextToken();
-            switch (tok)
+            for (int i = 0; i < length; ++i)
             {
-            case StreamTokenizer.TT_EOF:    // End of input
-            case StreamTokenizer.TT_EOL:    // End of line
-            case StreamTokenizer.TT_NUMBER: // Not activated
-                break;
-            case StreamTokenizer.TT_WORD:   // Any printable character sequence terminated by single quote, eol or eof 
-                buff.append(st.sval);
-                break;
-            case '\'':                      // Preserve escaped single quotes
-                buff.append('\'');
-                buff.append(st.sval);
-                buff.append('\'');
-                break;
-           default:
-                buff.append((char)tok);
-                if (tok == ';') // Semi colon terminates SQL statement
+                char ch = chars[i];
+                if (lineComment)
+                {
+                    if ((ch == '\n') || (ch == '\r'))
+                        lineComment = false;
+                    continue;
+                }
+                if (blockComment)
+                {
+                    if ((ch == '/') && (previous == '*'))
+                    {
+                        blockComment = false;
+                        previous = 0;
+                    }
+                    else
+                        previous = ch;
+                    continue;
+                }
+                if (quote != 0)
+                {   // Doubled quote is an escape which reopens the quote immediately
+                    buff.append(ch);
+                    if (ch == quote)
+                        quote = 0;
+                    continue;
+                }
+                if (previous == '-')
+                {
+                    previous = 0;
+                    if (ch == '-')
+                    {   // Discard the first '-' already appended
+                        discardLast();
+                        lineComment = true;
+                        pendingSpace = true;
+                        continue;
+                    }
+                }
+                else if (previous == '/')
+                {
+                    previous = 0;
+                    if (ch == '*')
+                    {
+                        discardLast();
+                        blockComment = true;
+                        pendingSpace = true;
+                        continue;
+                    }
+                }
+                if (Character.isLetterOrDigit(ch) || (ch == '_'))
                 {
-                    callback.onStatement(buff.toString());
-                    ++count;
-                    buff.setLength(0);
+                    appendPendingSpace();
+                    buff.append(ch);
+                    word.append(ch);
+                    continue;
+                }
+                endWord();
+                if (Character.isWhitespace(ch) || (ch < ' '))
+                {
+                    pendingSpace = true;
+                    continue;
+                }
+                appendPendingSpace();
+                buff.append(ch);
+                switch (ch)
+                {
+                case '\'':
+                case '"':
+                    quote = ch;
+                    break;
+                case '-':
+                case '/':
+                    previous = ch;
+                    break;
+                case ';':
+                    if (blockDepth == 0)
+                        emitStatement(callback);
+                    break;
+                default:
                 }
             }
-        } while (tok != StreamTokenizer.TT_EOF);
+        }
+        endWord();
+        if (buff.length() > 0)
+            emitStatement(callback);
     }
 
     /**
@@ -107,4 +196,67 @@ public class SqlParser
     {
         return count;
     }
+
+    /**
+     * Pass completed statement to callback and reset for next statement
+     *@param callback StatementCallback object
+     *@throws SQLException for StatementCallback error
+     */
+    private void emitStatement(StatementCallback callback) throws SQLException
+    {
+        String statement = buff.toString();
+        buff.setLength(0);
+        blockDepth = 0;
+        firstWord = true;
+        pendingSpace = false;
+        if (statement.length() > 0)
+        {
+            callback.onStatement(statement);
+            ++count;
+        }
+    }
+
+    /**
+     * Insert single space in place of white space and comments, except at start of statement
+     */
+    private void appendPendingSpace()
+    {
+        if (pendingSpace)
+        {
+            if (buff.length() > 0)
+                buff.append(' ');
+            pendingSpace = false;
+        }
+    }
+
+    /**
+     * Remove opening character of comment along with any space inserted before it
+     */
+    private void discardLast()
+    {
+        int length = buff.length() - 1;
+        if ((length > 0) && (buff.charAt(length - 1) == ' '))
+            --length;
+        buff.setLength(length);
+    }
+
+    /**
+     * Track block keywords when a word is completed. A leading BEGIN or END starts or ends a
+     * transaction and so does not open or close a block.
+     */
+    private void endWord()
+    {
+        if (word.length() == 0)
+            return;
+        String keyword = word.toString();
+        word.setLength(0);
+        if (keyword.equalsIgnoreCase("END"))
+        {
+            if (blockDepth > 0)
+                --blockDepth;
+        }
+        else if (keyword.equalsIgnoreCase("CASE") || (!firstWord && keyword.equalsIgnoreCase("BEGIN")))
+            ++blockDepth;
+        firstWord = false;
+    }
 }
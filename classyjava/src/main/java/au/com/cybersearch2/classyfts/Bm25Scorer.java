@@ -0,0 +1,225 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyfts;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Bm25Scorer
+ * Okapi BM25 scoring of SQLite FTS documents from matchinfo() statistics, shared by the JDBC and Android engines.
+ * The caller supplies the matchinfo layout: the offset of the "x" hit values, which follow the "p" phrase count and
+ * "c" column count, and the row count, average column lengths and document column lengths, which FTS4 provides in
+ * matchinfo and FTS3 does not. TopDocuments keeps only the top "limit" documents while scoring.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class Bm25Scorer
+{
+    /**
+     * ScoredDocument
+     * Dictionary row id and rank score
+     */
+    public static class ScoredDocument
+    {
+        public final long docid;
+        public final double score;
+
+        public ScoredDocument(long docid, double score)
+        {
+            this.docid = docid;
+            this.score = score;
+        }
+    }
+
+    /**
+     * TopDocuments
+     * Bounded heap of the highest ranked documents
+     */
+    public static class TopDocuments
+    {
+        /** Maximum number of documents kept or zero if unlimited */
+        protected final int limit;
+        /** Heap head is the lowest ranked document kept so far */
+        protected final PriorityQueue<ScoredDocument> heap;
+
+        /**
+         * Construct TopDocuments object
+         * @param limit Maximum number of documents kept or zero if unlimited
+         */
+        public TopDocuments(int limit)
+        {
+            this.limit = limit;
+            heap = new PriorityQueue<ScoredDocument>(limit > 0 ? limit + 1 : 64,
+                new Comparator<ScoredDocument>(){
+
+                    @Override
+                    public int compare(ScoredDocument lhs, ScoredDocument rhs)
+                    {
+                        return RANK_ORDER.compare(rhs, lhs);
+                    }});
+        }
+
+        /**
+         * Add document, unless the limit is reached and it ranks below every document kept
+         * @param docid Dictionary row id
+         * @param score Rank score
+         */
+        public void add(long docid, double score)
+        {
+            if ((limit > 0) && (heap.size() == limit))
+            {
+                ScoredDocument lowest = heap.peek();
+                if (compare(docid, score, lowest.docid, lowest.score) >= 0)
+                    return;
+                heap.poll();
+            }
+            heap.add(new ScoredDocument(docid, score));
+        }
+
+        /**
+         * Returns documents kept, highest score first
+         * @return List of ScoredDocument objects in rank order
+         */
+        public List<ScoredDocument> getRankList()
+        {
+            List<ScoredDocument> rankList = new ArrayList<ScoredDocument>(heap);
+            Collections.sort(rankList, RANK_ORDER);
+            return rankList;
+        }
+    }
+
+    /** BM25 term frequency saturation default */
+    public static final double DEFAULT_K1 = 1.2;
+    /** BM25 document length normalization default */
+    public static final double DEFAULT_B = 0.75;
+    /** Lower bound of inverse document frequency, so very common terms still count */
+    protected static final double MIN_IDF = 1e-6;
+    /** Orders documents highest score first, then by row id */
+    protected static final Comparator<ScoredDocument> RANK_ORDER = new Comparator<ScoredDocument>(){
+
+        @Override
+        public int compare(ScoredDocument lhs, ScoredDocument rhs)
+        {
+            return Bm25Scorer.compare(lhs.docid, lhs.score, rhs.docid, rhs.score);
+        }};
+
+    /** Relative weight of each column in matchinfo column order. A weight of zero excludes the column */
+    protected double[] columnWeights;
+    /** BM25 k1 parameter */
+    protected double k1 = DEFAULT_K1;
+    /** BM25 b parameter */
+    protected double b = DEFAULT_B;
+
+    /**
+     * Construct Bm25Scorer object
+     * @param columnWeights Relative weight of each column in matchinfo column order
+     */
+    public Bm25Scorer(double... columnWeights)
+    {
+        this.columnWeights = columnWeights.clone();
+    }
+
+    /**
+     * Set relative weights of columns. A weight of zero excludes the column from the score.
+     * @param columnWeights Relative weight of each column in matchinfo column order
+     */
+    public void setColumnWeights(double... columnWeights)
+    {
+        this.columnWeights = columnWeights.clone();
+    }
+
+    /**
+     * Set BM25 parameters
+     * @param k1 Term frequency saturation, usually between 1.2 and 2.0
+     * @param b Document length normalization between 0 and 1
+     */
+    public void setParameters(double k1, double b)
+    {
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    /**
+     * Returns BM25 score of one document
+     * @param matchinfo Match statistics, starting with phrase count and column count
+     * @param hitsOffset Offset of "x" values, which are 3 integers per phrase and column
+     * @param rowCount Number of rows in the table
+     * @param averageLengths Average length of each column
+     * @param lengths Length of each column of the document
+     * @return score, where higher is more relevant
+     */
+    public double score(int[] matchinfo, int hitsOffset, double rowCount, double[] averageLengths, double[] lengths)
+    {
+        double[] weights = columnWeights;
+        int phraseCount = matchinfo[0];
+        int columnCount = matchinfo[1];
+        double score = 0.0;
+        for (int phrase = 0; phrase < phraseCount; ++phrase)
+            for (int column = 0; (column < columnCount) && (column < weights.length); ++column)
+            {
+                double weight = weights[column];
+                int hits = hitsOffset + 3 * (phrase * columnCount + column);
+                double termFrequency = matchinfo[hits];
+                if ((weight == 0.0) || (termFrequency == 0.0))
+                    continue;
+                double documentFrequency = matchinfo[hits + 2];
+                double idf = Math.log((rowCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                if (idf < MIN_IDF)
+                    idf = MIN_IDF;
+                double averageLength = Math.max(1.0, averageLengths[column]);
+                score += weight * idf * (termFrequency * (k1 + 1.0)) / (termFrequency + k1 * (1.0 - b + b * lengths[column] / averageLength));
+            }
+        return score;
+    }
+
+    /**
+     * Returns comparator which orders documents highest score first, then by row id
+     * @return Comparator
+     */
+    public static Comparator<ScoredDocument> getRankOrder()
+    {
+        return RANK_ORDER;
+    }
+
+    /**
+     * Returns matchinfo blob as integer array. The blob is in machine byte order.
+     * @param blob Matchinfo value
+     * @return int array
+     */
+    public static int[] toIntArray(byte[] blob)
+    {
+        int[] values = new int[blob.length / 4];
+        ByteBuffer.wrap(blob).order(ByteOrder.nativeOrder()).asIntBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * Compare documents in rank order
+     */
+    protected static int compare(long lhsDocid, double lhsScore, long rhsDocid, double rhsScore)
+    {
+        int comparison = Double.compare(rhsScore, lhsScore);
+        if (comparison != 0)
+            return comparison;
+        return lhsDocid < rhsDocid ? -1 : (lhsDocid == rhsDocid ? 0 : 1);
+    }
+}
@@ -0,0 +1,534 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyfts;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.persistence.PersistenceException;
+
+import au.com.cybersearch2.classyfts.Bm25Scorer.ScoredDocument;
+import au.com.cybersearch2.classyfts.Bm25Scorer.TopDocuments;
+import au.com.cybersearch2.classyjpa.query.QueryInfo.RowMapper;
+import au.com.cybersearch2.classylog.JavaLogger;
+import au.com.cybersearch2.classylog.Log;
+
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+
+/**
+ * JdbcFtsEngine
+ * Fast text search on the JVM using an SQLite FTS4 virtual table accessed through JDBC.
+ * The dictionary is built in the same database as the source table, using a single INSERT ... SELECT
+ * statement followed by a segment merge. The source key column must be an integer primary key, as it
+ * becomes the row id of the dictionary.
+ * Prefix searches are ranked using the Okapi BM25 function computed from FTS4 matchinfo() statistics,
+ * as FTS5 and its built-in bm25() are not available in all SQLite builds. Only the top "limit"
+ * documents are kept while ranking, then the requested columns of these documents are read and
+ * mapped in rank order.
+ * Column names follow the Android search suggestion convention so the same mapping works on both platforms.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class JdbcFtsEngine implements JdbcFtsQuery
+{
+    public enum FtsStatus
+    {
+        Initial,
+        Loading,
+        Loaded,
+        Error
+    }
+
+    private static final String TAG = "JdbcFtsEngine";
+    private static Log log = JavaLogger.getLogger(TAG);
+
+    /** Data id column, which is the source primary key */
+    public static final String KEY_INTENT_DATA_ID = "suggest_intent_data_id";
+    /** First text column */
+    public static final String KEY_TEXT_1 = "suggest_text_1";
+    /** Second text column */
+    public static final String KEY_TEXT_2 = "suggest_text_2";
+    /** Alias of data id column */
+    public static final String KEY_ID = "_id";
+    /** Dictionary database table */
+    public static final String FTS_VIRTUAL_TABLE = "FTSlexicon";
+    /** BM25 term frequency saturation default */
+    public static final double DEFAULT_K1 = Bm25Scorer.DEFAULT_K1;
+    /** BM25 document length normalization default */
+    public static final double DEFAULT_B = Bm25Scorer.DEFAULT_B;
+    /** Default relative weight of second text column */
+    public static final double DEFAULT_TEXT_2_WEIGHT = 0.5;
+    /** Maximum number of row ids per fetch statement */
+    protected static final int MAX_FETCH_IDS = 500;
+    /** Columns returned when none are specified */
+    protected static final String[] DEFAULT_COLUMNS = new String[] { KEY_INTENT_DATA_ID, KEY_TEXT_1, KEY_TEXT_2 };
+    /** Maps all columns that may be requested to actual columns */
+    protected static final Map<String,String> COLUMN_MAP;
+    /** Dictionary table creation SQL statement. The data id is stored but not indexed and
+     *  prefix indexes of 2 and 3 characters speed up suggestion queries */
+    protected static final String FTS_TABLE_CREATE =
+                "CREATE VIRTUAL TABLE IF NOT EXISTS " + FTS_VIRTUAL_TABLE +
+                " USING fts4 (" +
+                KEY_INTENT_DATA_ID + "," +
+                KEY_TEXT_1 + "," +
+                KEY_TEXT_2 + "," +
+                "notindexed=" + KEY_INTENT_DATA_ID + "," +
+                "prefix=\"2,3\")";
+    /** Ranking query. Matchinfo format "pcnalx" gives the statistics required by BM25 */
+    protected static final String FTS_RANK_QUERY =
+                "SELECT docid, matchinfo(" + FTS_VIRTUAL_TABLE + ",'pcnalx') FROM " + FTS_VIRTUAL_TABLE +
+                " WHERE " + FTS_VIRTUAL_TABLE + " MATCH ?";
+
+    /** Table from which to select words */
+    protected final String SOURCE_TABLE;
+    /** Map of Engine column names to source table column names */
+    protected final Map<String,String> SOURCE_COLUMN_MAP;
+
+    /** Connection source of database containing source table */
+    protected ConnectionSource connectionSource;
+    /** Engine status */
+    volatile FtsStatus status;
+    /** Number of words in dictionary */
+    volatile int wordCount;
+    /** Scores matches using weight of each dictionary column in dictionary column order */
+    protected final Bm25Scorer bm25Scorer;
+
+    static
+    {
+        Map<String,String> columnMap = new HashMap<String,String>();
+        columnMap.put(KEY_INTENT_DATA_ID, KEY_INTENT_DATA_ID);
+        columnMap.put(KEY_TEXT_1, KEY_TEXT_1);
+        columnMap.put(KEY_TEXT_2, KEY_TEXT_2);
+        columnMap.put(KEY_ID, KEY_INTENT_DATA_ID + " AS " + KEY_ID);
+        COLUMN_MAP = Collections.unmodifiableMap(columnMap);
+    }
+
+    /**
+     * Construct a JdbcFtsEngine object
+     * @param connectionSource Connection source of database containing source table. Must provide JDBC connections.
+     * @param sourceTable Table from which to select words
+     * @param sourceColumnMap Map of Engine column names to source table column names. The data id and
+     *      first text columns are mandatory.
+     */
+    public JdbcFtsEngine(ConnectionSource connectionSource, String sourceTable, Map<String,String> sourceColumnMap)
+    {
+        this.connectionSource = connectionSource;
+        if (sourceColumnMap.get(KEY_INTENT_DATA_ID) == null)
+            throw new IllegalArgumentException("Source column map missing " + KEY_INTENT_DATA_ID);
+        if (sourceColumnMap.get(KEY_TEXT_1) == null)
+            throw new IllegalArgumentException("Source column map missing " + KEY_TEXT_1);
+        SOURCE_TABLE = sourceTable;
+        SOURCE_COLUMN_MAP = Collections.unmodifiableMap(new HashMap<String,String>(sourceColumnMap));
+        bm25Scorer = new Bm25Scorer(0.0, 1.0, DEFAULT_TEXT_2_WEIGHT);
+        status = FtsStatus.Initial;
+    }
+
+    /**
+     * Creates FTS dictionary if it does not exist and populates it from the source table if it is empty.
+     * This is a potentially long-running operation that should run on a background thread.
+     * @return FtsStatus Final status "Loaded" or "Error"
+     */
+    public FtsStatus initialize()
+    {
+        status = FtsStatus.Loading;
+        DatabaseConnection connection = null;
+        try
+        {
+            connection = connectionSource.getReadWriteConnection(FTS_VIRTUAL_TABLE);
+            Connection jdbcConnection = getJdbcConnection(connection);
+            Statement statement = jdbcConnection.createStatement();
+            try
+            {
+                statement.executeUpdate(FTS_TABLE_CREATE);
+                int count = countWords(statement);
+                if (count == 0)
+                    count = loadDictionary(jdbcConnection, statement);
+                wordCount = count;
+            }
+            finally
+            {
+                statement.close();
+            }
+            status = FtsStatus.Loaded;
+        }
+        catch (SQLException e)
+        {
+            log.error(TAG, "Error loading FTS dictionary from " + SOURCE_TABLE, e);
+            status = FtsStatus.Error;
+        }
+        finally
+        {
+            release(connection);
+        }
+        return status;
+    }
+
+    /**
+     * Performs a database query on the dictionary.
+     * @param selection The selection clause
+     * @param selectionArgs Selection arguments for "?" components in the selection
+     * @param columns The columns to return, if null then the data id and text columns are returned
+     * @param limit Maximum number of hits to return or unlimited if zero
+     * @param rowMapper Maps each result row to an object
+     * @return List of mapped objects, which is empty if no rows match the query
+     */
+    @Override
+    public List<Object> query(String selection, String[] selectionArgs, String[] columns, int limit, RowMapper rowMapper)
+    {
+        StringBuilder builder = new StringBuilder();
+        appendSelect(builder, columns);
+        if ((selection != null) && !selection.isEmpty())
+            builder.append(" WHERE ").append(selection);
+        if (limit > 0)
+            builder.append(" LIMIT ").append(limit);
+        DatabaseConnection connection = null;
+        try
+        {
+            connection = connectionSource.getReadOnlyConnection(FTS_VIRTUAL_TABLE);
+            PreparedStatement preparedStatement = getJdbcConnection(connection).prepareStatement(builder.toString());
+            try
+            {
+                if (selectionArgs != null)
+                    for (int i = 0; i < selectionArgs.length; ++i)
+                        preparedStatement.setString(i + 1, selectionArgs[i]);
+                List<Object> resultList = new ArrayList<Object>();
+                mapRows(preparedStatement.executeQuery(), rowMapper, resultList);
+                return resultList;
+            }
+            finally
+            {
+                preparedStatement.close();
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new PersistenceException("Query on " + FTS_VIRTUAL_TABLE + " failed: " + builder.toString(), e);
+        }
+        finally
+        {
+            release(connection);
+        }
+    }
+
+    /**
+     * Returns words which match all terms of given search text as prefixes, in BM25 rank order.
+     * @param searchText Text entered by user. Characters other than letters and digits separate terms.
+     * @param columns The columns to return, if null then the data id and text columns are returned
+     * @param limit Maximum number of hits to return or unlimited if zero
+     * @param rowMapper Maps each result row to an object
+     * @return List of mapped objects, which is empty if no words match
+     */
+    public List<Object> search(String searchText, String[] columns, int limit, RowMapper rowMapper)
+    {
+        String matchExpression = toMatchExpression(searchText);
+        if (matchExpression == null)
+            return Collections.emptyList();
+        DatabaseConnection connection = null;
+        try
+        {
+            connection = connectionSource.getReadOnlyConnection(FTS_VIRTUAL_TABLE);
+            Connection jdbcConnection = getJdbcConnection(connection);
+            List<ScoredDocument> rankList = rank(jdbcConnection, matchExpression, limit);
+            if (rankList.isEmpty())
+                return Collections.emptyList();
+            return fetch(jdbcConnection, rankList, columns, rowMapper);
+        }
+        catch (SQLException e)
+        {
+            throw new PersistenceException("Search of " + FTS_VIRTUAL_TABLE + " for \"" + searchText + "\" failed", e);
+        }
+        finally
+        {
+            release(connection);
+        }
+    }
+
+    /**
+     * Set relative weights of the text columns used in ranking. A weight of zero excludes the column from the score.
+     * @param text1Weight First text column weight
+     * @param text2Weight Second text column weight
+     */
+    public void setColumnWeights(double text1Weight, double text2Weight)
+    {
+        bm25Scorer.setColumnWeights(0.0, text1Weight, text2Weight);
+    }
+
+    /**
+     * Set BM25 parameters
+     * @param k1 Term frequency saturation, usually between 1.2 and 2.0
+     * @param b Document length normalization between 0 and 1
+     */
+    public void setBm25Parameters(double k1, double b)
+    {
+        bm25Scorer.setParameters(k1, b);
+    }
+
+    /**
+     * Returns Engine status
+     * @return FtsStatus
+     */
+    public FtsStatus getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * Returns number of words in dictionary after initialization
+     * @return int
+     */
+    public int getWordCount()
+    {
+        return wordCount;
+    }
+
+    /**
+     * Returns FTS MATCH expression which requires every term of given text as a prefix
+     * @param searchText Text entered by user
+     * @return expression or null if the text contains no terms
+     */
+    public static String toMatchExpression(String searchText)
+    {
+        if (searchText == null)
+            return null;
+        StringBuilder builder = new StringBuilder();
+        int start = -1;
+        for (int i = 0; i <= searchText.length(); ++i)
+        {
+            boolean isTermChar = (i < searchText.length()) && Character.isLetterOrDigit(searchText.charAt(i));
+            if (isTermChar && (start == -1))
+                start = i;
+            else if (!isTermChar && (start != -1))
+            {   // Lower case prevents terms being read as operators such as "OR"
+                if (builder.length() > 0)
+                    builder.append(' ');
+                builder.append(searchText.substring(start, i).toLowerCase(Locale.ROOT)).append('*');
+                start = -1;
+            }
+        }
+        return builder.length() > 0 ? builder.toString() : null;
+    }
+
+    /**
+     * Returns documents matching expression, highest score first, keeping at most "limit" documents.
+     * Matchinfo "pcnalx" values give the row count, then average and document lengths of each column, then hits.
+     */
+    protected List<ScoredDocument> rank(Connection jdbcConnection, String matchExpression, int limit) throws SQLException
+    {
+        TopDocuments topDocuments = new TopDocuments(limit);
+        double[] averageLengths = null;
+        double[] lengths = null;
+        PreparedStatement preparedStatement = jdbcConnection.prepareStatement(FTS_RANK_QUERY);
+        try
+        {
+            preparedStatement.setString(1, matchExpression);
+            ResultSet resultSet = preparedStatement.executeQuery();
+            try
+            {
+                while (resultSet.next())
+                {
+                    int[] matchinfo = Bm25Scorer.toIntArray(resultSet.getBytes(2));
+                    int columnCount = matchinfo[1];
+                    if (lengths == null)
+                    {
+                        averageLengths = new double[columnCount];
+                        lengths = new double[columnCount];
+                    }
+                    for (int column = 0; column < columnCount; ++column)
+                    {
+                        averageLengths[column] = matchinfo[3 + column];
+                        lengths[column] = matchinfo[3 + columnCount + column];
+                    }
+                    topDocuments.add(resultSet.getLong(1), bm25Scorer.score(matchinfo, 3 + 2 * columnCount, matchinfo[2], averageLengths, lengths));
+                }
+            }
+            finally
+            {
+                resultSet.close();
+            }
+        }
+        finally
+        {
+            preparedStatement.close();
+        }
+        return topDocuments.getRankList();
+    }
+
+    /**
+     * Returns objects mapped from ranked documents in rank order
+     */
+    protected List<Object> fetch(Connection jdbcConnection, List<ScoredDocument> rankList, String[] columns, RowMapper rowMapper) throws SQLException
+    {
+        List<Object> resultList = new ArrayList<Object>(rankList.size());
+        Statement statement = jdbcConnection.createStatement();
+        try
+        {
+            for (int start = 0; start < rankList.size(); start += MAX_FETCH_IDS)
+            {
+                List<ScoredDocument> chunk = rankList.subList(start, Math.min(start + MAX_FETCH_IDS, rankList.size()));
+                // Row ids are numeric so can be written into the statement
+                StringBuilder builder = new StringBuilder();
+                appendSelect(builder, columns);
+                StringBuilder inList = new StringBuilder();
+                StringBuilder orderBy = new StringBuilder(" ORDER BY CASE docid");
+                for (int i = 0; i < chunk.size(); ++i)
+                {
+                    long docid = chunk.get(i).docid;
+                    inList.append(i == 0 ? "" : ",").append(docid);
+                    orderBy.append(" WHEN ").append(docid).append(" THEN ").append(i);
+                }
+                builder.append(" WHERE docid IN (").append(inList).append(')').append(orderBy).append(" END");
+                mapRows(statement.executeQuery(builder.toString()), rowMapper, resultList);
+            }
+        }
+        finally
+        {
+            statement.close();
+        }
+        return resultList;
+    }
+
+    /**
+     * Populate empty dictionary from source table in one transaction
+     * @return Number of words loaded
+     */
+    protected int loadDictionary(Connection jdbcConnection, Statement statement) throws SQLException
+    {
+        String keyColumn = SOURCE_COLUMN_MAP.get(KEY_INTENT_DATA_ID);
+        String text2Column = SOURCE_COLUMN_MAP.get(KEY_TEXT_2);
+        String insert = "INSERT INTO " + FTS_VIRTUAL_TABLE + " (docid," + KEY_INTENT_DATA_ID + "," + KEY_TEXT_1 + "," + KEY_TEXT_2 +
+                        ") SELECT " + keyColumn + "," + keyColumn + "," + SOURCE_COLUMN_MAP.get(KEY_TEXT_1) + "," +
+                        (text2Column != null ? text2Column : "NULL") + " FROM " + SOURCE_TABLE;
+        boolean autoCommit = jdbcConnection.getAutoCommit();
+        if (autoCommit)
+            jdbcConnection.setAutoCommit(false);
+        boolean success = false;
+        try
+        {
+            long start = System.currentTimeMillis();
+            int count = statement.executeUpdate(insert);
+            // Merge index segments into one b-tree for faster queries
+            statement.executeUpdate("INSERT INTO " + FTS_VIRTUAL_TABLE + "(" + FTS_VIRTUAL_TABLE + ") VALUES('optimize')");
+            jdbcConnection.commit();
+            success = true;
+            log.info(TAG, "Loaded " + count + " words from " + SOURCE_TABLE + " in " + (System.currentTimeMillis() - start) + "ms");
+            return count;
+        }
+        finally
+        {
+            if (!success)
+                jdbcConnection.rollback();
+            if (autoCommit)
+                jdbcConnection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Map every row of result set and close it
+     */
+    protected void mapRows(ResultSet resultSet, RowMapper rowMapper, List<Object> resultList) throws SQLException
+    {
+        try
+        {
+            JdbcResultRow resultRow = new JdbcResultRow(resultSet);
+            int position = resultList.size();
+            while (resultSet.next())
+            {
+                resultRow.setPosition(position++);
+                resultList.add(rowMapper.mapRow(resultRow));
+            }
+        }
+        finally
+        {
+            resultSet.close();
+        }
+    }
+
+    /**
+     * Append SELECT clause of dictionary query, translating column names
+     */
+    protected void appendSelect(StringBuilder builder, String[] columns)
+    {
+        if (columns == null)
+            columns = DEFAULT_COLUMNS;
+        builder.append("SELECT ");
+        for (int i = 0; i < columns.length; ++i)
+        {
+            String column = COLUMN_MAP.get(columns[i]);
+            if (column == null)
+                throw new IllegalArgumentException("Invalid column " + columns[i]);
+            if (i > 0)
+                builder.append(',');
+            builder.append(column);
+        }
+        builder.append(" FROM ").append(FTS_VIRTUAL_TABLE);
+    }
+
+    /**
+     * Returns JDBC connection underlying given connection
+     */
+    protected Connection getJdbcConnection(DatabaseConnection connection)
+    {
+        Object underlyingConnection = null;
+        try
+        {
+            underlyingConnection = connection.getUnderlyingConnection();
+        }
+        catch (Exception e)
+        {
+            throw new PersistenceException("Underlying connection not available", e);
+        }
+        if (!(underlyingConnection instanceof Connection))
+            throw new PersistenceException(getClass().getSimpleName() + " requires a JDBC connection");
+        return (Connection)underlyingConnection;
+    }
+
+    private int countWords(Statement statement) throws SQLException
+    {
+        ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM " + FTS_VIRTUAL_TABLE);
+        try
+        {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+        finally
+        {
+            resultSet.close();
+        }
+    }
+
+    private void release(DatabaseConnection connection)
+    {
+        if (connection == null)
+            return;
+        try
+        {
+            connectionSource.releaseConnection(connection);
+        }
+        catch (SQLException e)
+        {
+            log.warn(TAG, "Error releasing connection", e);
+        }
+    }
+}
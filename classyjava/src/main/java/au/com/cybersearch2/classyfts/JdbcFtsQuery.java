@@ -0,0 +1,41 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyfts;
+
+import java.util.List;
+
+import au.com.cybersearch2.classyjpa.query.QueryInfo.RowMapper;
+
+/**
+ * JdbcFtsQuery
+ * Interface for fast text search query on the JVM. Counterpart of the Android FtsQuery,
+ * with rows returned through a RowMapper instead of a Cursor.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public interface JdbcFtsQuery
+{
+    /**
+     * Performs a database query.
+     * @param selection The selection clause
+     * @param selectionArgs Selection arguments for "?" components in the selection
+     * @param columns The columns to return
+     * @param limit Maximum number of hits to return or unlimited if zero
+     * @param rowMapper Maps each result row to an object
+     * @return List of mapped objects, which is empty if no rows match the query
+     */
+    List<Object> query(String selection, String[] selectionArgs, String[] columns, int limit, RowMapper rowMapper);
+}
@@ -0,0 +1,291 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyfts;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import javax.persistence.PersistenceException;
+
+import au.com.cybersearch2.classyjpa.query.ResultRow;
+
+/**
+ * JdbcResultRow
+ * Presents the current row of a JDBC result set as a generic ResultRow.
+ * The position is set by the caller as the result set is advanced.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class JdbcResultRow implements ResultRow
+{
+    protected final ResultSet resultSet;
+    protected int position;
+    /** Column labels, read from meta data on first use */
+    protected String[] columnNames;
+
+    /**
+     * Construct a JdbcResultRow object
+     * @param resultSet JDBC result set
+     */
+    public JdbcResultRow(ResultSet resultSet)
+    {
+        this.resultSet = resultSet;
+        position = -1;
+    }
+
+    /**
+     * Set position of current row
+     * @param position Zero-based position
+     */
+    public void setPosition(int position)
+    {
+        this.position = position;
+    }
+
+    /**
+     * Returns the current position of the cursor in the row set.
+     * @return The current cursor position.
+     */
+    @Override
+    public int getPosition()
+    {
+        return position;
+    }
+
+    /**
+     * Returns the zero-based index for the given column name, or -1 if the column doesn't exist.
+     * @param columnName The name of the target column.
+     * @return The zero-based column index for the given column name, or -1 if
+     * the column name does not exist.
+     */
+    @Override
+    public int getColumnIndex(String columnName)
+    {
+        String[] names = getColumnNames();
+        for (int i = 0; i < names.length; ++i)
+            if (names[i].equalsIgnoreCase(columnName))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Returns the column name at the given zero-based column index.
+     * @param columnIndex The zero-based column index
+     * @return The column name
+     * @throws IllegalArgumentException if the column does not exist
+     */
+    @Override
+    public String getColumnName(int columnIndex)
+    {
+        String[] names = getColumnNames();
+        if ((columnIndex >= names.length) || (columnIndex < 0))
+            throw new IllegalArgumentException("Column " + columnIndex + " invalid");
+        return names[columnIndex];
+    }
+
+    /**
+     * Returns a string array holding the names of all of the columns in the
+     * result set in the order in which they were listed in the result.
+     * @return The names of the columns returned in this query.
+     */
+    @Override
+    public String[] getColumnNames()
+    {
+        if (columnNames == null)
+        {
+            try
+            {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                String[] names = new String[metaData.getColumnCount()];
+                for (int i = 0; i < names.length; ++i)
+                    names[i] = metaData.getColumnLabel(i + 1);
+                columnNames = names;
+            }
+            catch (SQLException e)
+            {
+                throw new PersistenceException("getColumnNames failed", e);
+            }
+        }
+        return columnNames;
+    }
+
+    /**
+     * Return total number of columns
+     * @return number of columns
+     */
+    @Override
+    public int getColumnCount()
+    {
+        return getColumnNames().length;
+    }
+
+    /**
+     * Returns the value of the requested column as a byte array.
+     * @param columnIndex The zero-based index of the target column.
+     * @return The value of that column as a byte array.
+     */
+    @Override
+    public byte[] getBlob(int columnIndex)
+    {
+        try
+        {
+            return resultSet.getBytes(columnIndex + 1);
+        }
+        catch (SQLException e)
+        {
+            throw new PersistenceException("getBlob failed", e);
+        }
+    }
+
+    /**
+     * Returns the value of the requested column as a String.
+     * @param columnIndex The zero-based index of the target column.
+     * @return The value of that column as a String.
+     */
+    @Override
+    public String getString(int columnIndex)
+    {
+        try
+        {
+            return resultSet.getString(columnIndex + 1);
+        }
+        catch (SQLException e)
+        {
+            throw new PersistenceException("getString failed", e);
+        }
+    }
+
+    /**
+     * Retrieves the requested column text and appends it to the buffer provided.
+     * @param columnIndex The zero-based index of the target column.
+     * @param buffer the buffer to copy the text into.
+     */
+    @Override
+    public void copyStringToBuffer(int columnIndex, StringBuffer buffer)
+    {
+        buffer.append(getString(columnIndex));
+    }
+
+    /**
+     * Returns the value of the requested column as a short.
+     * @param columnIndex The zero-based index of the target column.
+     * @return The value of that column as a short.
+     */
+    @Override
+    public short getShort(int columnIndex)
+    {
+        try
+        {
+            return resultSet.getShort(columnIndex + 1);
+        }
+        catch (SQLException e)
+        {
+            throw new PersistenceException("getShort failed", e);
+        }
+    }
+
+    /**
+     * Returns the value of the requested column as an int.
+     * @param columnIndex The zero-based index of the target column.
+     * @return The value of that column as an int.
+     */
+    @Override
+    public int getInt(int columnIndex)
+    {
+        try
+        {
+            return resultSet.getInt(columnIndex + 1);
+        }
+        catch (SQLException e)
+        {
+            throw new PersistenceException("getInt failed", e);
+        }
+    }
+
+    /**
+     * Returns the value of the requested column as a long.
+     * @param columnIndex The zero-based index of the target column.
+     * @return The value of that column as a long.
+     */
+    @Override
+    public long getLong(int columnIndex)
+    {
+        try
+        {
+            return resultSet.getLong(columnIndex + 1);
+        }
+        catch (SQLException e)
+        {
+            throw new PersistenceException("getLong failed", e);
+        }
+    }
+
+    /**
+     * Returns the value of the requested column as a float.
+     * @param columnIndex The zero-based index of the target column.
+     * @return The value of that column as a float.
+     */
+    @Override
+    public float getFloat(int columnIndex)
+    {
+        try
+        {
+            return resultSet.getFloat(columnIndex + 1);
+        }
+        catch (SQLException e)
+        {
+            throw new PersistenceException("getFloat failed", e);
+        }
+    }
+
+    /**
+     * Returns the value of the requested column as a double.
+     * @param columnIndex The zero-based index of the target column.
+     * @return The value of that column as a double.
+     */
+    @Override
+    public double getDouble(int columnIndex)
+    {
+        try
+        {
+            return resultSet.getDouble(columnIndex + 1);
+        }
+        catch (SQLException e)
+        {
+            throw new PersistenceException("getDouble failed", e);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the value in the indicated column is null.
+     * @param columnIndex The zero-based index of the target column.
+     * @return whether the column value is null.
+     */
+    @Override
+    public boolean isNull(int columnIndex)
+    {
+        try
+        {
+            resultSet.getObject(columnIndex + 1);
+            return resultSet.wasNull();
+        }
+        catch (SQLException e)
+        {
+            throw new PersistenceException("isNull failed", e);
+        }
+    }
+}
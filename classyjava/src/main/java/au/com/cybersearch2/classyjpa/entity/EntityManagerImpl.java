@@ -16,6 +16,7 @@
 package au.com.cybersearch2.classyjpa.entity;
 
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import javax.persistence.EntityExistsException;
 import javax.persistence.EntityNotFoundException;
@@ -24,39 +25,65 @@ import javax.persistence.FlushModeType;
 import javax.persistence.LockModeType;
 import javax.persistence.PersistenceException;
 import javax.persistence.Query;
+import javax.persistence.TransactionRequiredException;
 
 import au.com.cybersearch2.classyjpa.EntityManagerLite;
 import au.com.cybersearch2.classyjpa.persist.PersistenceConfig;
+import au.com.cybersearch2.classyjpa.query.CachedQuery;
+import au.com.cybersearch2.classyjpa.query.EntityResultCopier;
 import au.com.cybersearch2.classyjpa.query.NamedDaoQuery;
 import au.com.cybersearch2.classyjpa.query.NamedSqlQuery;
+import au.com.cybersearch2.classyjpa.query.QueryResultCache;
+import au.com.cybersearch2.classyjpa.transaction.EntityChange;
 import au.com.cybersearch2.classyjpa.transaction.EntityTransactionImpl;
+import au.com.cybersearch2.classyjpa.transaction.ReadOnlySupport;
 import au.com.cybersearch2.classyjpa.transaction.SetRollbackTransaction;
 import au.com.cybersearch2.classyjpa.transaction.TransactionCallable;
 import au.com.cybersearch2.classyjpa.transaction.UserTransactionSupport;
 
 import com.j256.ormlite.support.ConnectionSource;
 import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.table.TableInfo;
 
 /**
  * EntityManagerImpl
  * Implementation of EntityManager interface
  * Transaction scoped. Entity objects are managed only while a transaction is active.
  * Excect for when the EntityManger has been closed, a new transaction will begin whenever an object needs to be managed and the transaction is not active. 
+ * Only FlushModeType.COMMIT is supported. Calling setWriteBehind(true) selects write-behind mode, in which inserts and
+ * deletes are queued and written in batches when the transaction is flushed or committed. Queries do not see queued
+ * changes until then.
+ * In read-only mode, no transaction is ever started, so reads use the connection source's read connection without
+ * savepoint or auto-commit changes, and persist(), merge(), remove() and flush() throw TransactionRequiredException.
+ * If the persistence unit has a change stream, each persist, merge and remove is recorded in the transaction
+ * and published on commit.
  * @author Andrew Bowley
  * 01/05/2014
  */
-public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupport
+public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupport, ReadOnlySupport
 {
     class OnTransactionPreCommitCallback implements TransactionCallable
     {
         @Override
         public Boolean call(DatabaseConnection databaseConnection) throws Exception 
         {
+            flushPendingWrites();
             updateAllManagedObjects();
             return true; // Commit 
         }        
     }
 
+    class OnTransactionPostCommitCallback implements Callable<Boolean>
+    {
+        @Override
+        public Boolean call() throws Exception 
+        {
+            // Writes still pending were not flushed because the transaction was rolled back 
+            discardPendingWrites();
+            return true; 
+        }        
+    }
+
     /** Flag set when close() is called */
     protected volatile boolean isOpen;
     /** Enclosing transaction object */ 
@@ -69,8 +96,14 @@ public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupp
     protected final OnTransactionPreCommitCallback onTransactionPreCommitCallback;
     /** Flag for user transaction mode. If true, getTransaction() returns rollbackonly transaction otherwise it returns the actual entityTransaction */
     protected boolean isUserTransaction; 
+    /** Flag for read-only mode. If true, operations which write to the database are rejected and no transaction begins */
+    protected boolean isReadOnly;
     /** Delegate management of entity objects */ 
     protected ObjectMonitor objectMonitor;
+    /** Inserts and deletes waiting to be flushed in write-behind mode, otherwise null */
+    protected WriteBehindQueue writeBehindQueue;
+    /** Flush mode. Only FlushModeType.COMMIT is supported */
+    protected FlushModeType flushMode = FlushModeType.COMMIT;
  
     /**
      * Create ClassyEntityManager object
@@ -84,7 +117,17 @@ public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupp
         this.connectionSource = connectionSource;
         this.persistenceConfig = persistenceConfig;
         onTransactionPreCommitCallback = new OnTransactionPreCommitCallback();
-        entityTransaction = new EntityTransactionImpl(connectionSource, onTransactionPreCommitCallback);
+        EntityTransactionImpl transaction = new EntityTransactionImpl(connectionSource, onTransactionPreCommitCallback, new OnTransactionPostCommitCallback()){
+
+            @Override
+            public void rollback()
+            {
+                discardPendingWrites();
+                super.rollback();
+            }};
+        transaction.setChangeStream(persistenceConfig.getChangeStream());
+        transaction.setQueryResultCache(persistenceConfig.getQueryResultCache());
+        entityTransaction = transaction;
         objectMonitor = new ObjectMonitor();
         isOpen = true;
     }
@@ -99,12 +142,33 @@ public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupp
     {
         isUserTransaction = value;
     }
+
+    /**
+     * setReadOnly
+     * Determines if operations which write to the database are rejected (true) or allowed (false)
+     * @param value boolean
+     */
+    @Override
+    public void setReadOnly(boolean value)
+    {
+        isReadOnly = value;
+    }
+
+    /**
+     * Returns flag set true if read-only mode is selected
+     * @return boolean
+     */
+    public boolean isReadOnly()
+    {
+        return isReadOnly;
+    }
     
    /**
      * Make an entity instance managed and persistent.
      * @param entity The entity instance
      * @throws IllegalArgumentException if not an entity
      * @throws IllegalStateException if this EntityManager has been closed.
+     * @throws TransactionRequiredException if this EntityManager is read-only.
      */
     @Override
     public void persist(Object entity) 
@@ -112,23 +176,40 @@ public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupp
         if (entity == null)
             throw new IllegalArgumentException("Parameter \"entity\" is null");
         checkEntityManagerClosed("persist()");
+        checkEntityManagerReadOnly("persist()");
         OrmDaoHelper<?,?> ormDaoHelper = getOrmDaoHelperForClass(entity.getClass());
         Object primaryKey = ormDaoHelper.extractId(entity);
+        boolean isPendingRemove = isWriteBehind() && writeBehindQueue.isPendingRemove(entity.getClass(), primaryKey);
         Object alreadyManaged = objectMonitor.startManagingEntity(entity, primaryKey, PersistOp.persist);
         if ((alreadyManaged != null) || 
-            ((primaryKey != null) && ormDaoHelper.entityExists(entity)))
+            ((primaryKey != null) && !isPendingRemove && ormDaoHelper.entityExists(entity)))
             throw new EntityExistsException("Entity of class " + entity.getClass() + ", primary key " + primaryKey.toString() + " already exists");
         if (!entityTransaction.isActive())
             entityTransaction.begin(); // Transaction commit/rollback triggers refresh
+        if (isWriteBehind())
+        {
+            if (ormDaoHelper.isBatchCreate(entity))
+            {   // Primary key is known, so the entity is managed while the insert waits
+                writeBehindQueue.queuePersist(entity, primaryKey);
+                recordTableWrite(ormDaoHelper);
+                captureChange(entity.getClass(), primaryKey, EntityChange.Operation.insert, null);
+                return;
+            }
+            // Keep statement order when DAO must create the entity now
+            flushPendingWrites();
+        }
         if (ormDaoHelper.create(entity) == 0)
             throw new PersistenceException("persist operation returned result count 0");
         // DAO may update primary key value on entity during create operation
-        if (!objectMonitor.monitorNewEntity(entity, primaryKey, ormDaoHelper.extractId(entity)))
+        Object createdKey = ormDaoHelper.extractId(entity);
+        if (!objectMonitor.monitorNewEntity(entity, primaryKey, createdKey))
         {
             // No Primary key or matches one belonging to existing managed entity
             entityTransaction.rollback();
             throw new PersistenceException("Error persisting entity class " + entity.getClass().getName() + ": No Primary key or matches one belonging to managed entity");
         }
+        recordTableWrite(ormDaoHelper);
+        captureChange(entity.getClass(), createdKey, EntityChange.Operation.insert, null);
     }
     
     /**
@@ -138,16 +219,27 @@ public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupp
      * @return The instance that the state was merged to
      * @throws IllegalArgumentException if instance is not an entity or is a removed entity
      * @throws IllegalStateException if this EntityManager has been closed.
+     * @throws TransactionRequiredException if this EntityManager is read-only.
      */
     @Override
     public <T> T merge(T entity) 
     {
         checkEntityManagerClosed("merge()");
+        checkEntityManagerReadOnly("merge()");
         OrmDaoHelper<?,?> ormDaoHelper = getOrmDaoHelperForClass(entity.getClass());
         Object primaryKey = ormDaoHelper.extractId(entity);
+        List<String> changedProperties = null;
+        if (isChangeCapture())
+        {   // Changes can only be identified when merging a different instance of a managed entity
+            Object previous = objectMonitor.getManagedEntity(entity.getClass(), primaryKey);
+            if ((previous != null) && (previous != entity))
+                changedProperties = ObjectMonitor.getChangedProperties(previous, entity);
+        }
         T managed = objectMonitor.startManagingEntity(entity, primaryKey, PersistOp.merge);
         if (!entityTransaction.isActive())
             entityTransaction.begin(); // Transaction commit triggers update and refresh
+        recordTableWrite(ormDaoHelper);
+        captureChange(entity.getClass(), primaryKey, EntityChange.Operation.update, changedProperties);
         return (T) managed;
     }
 
@@ -168,8 +260,10 @@ public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupp
         Object managed = objectMonitor.startManagingEntity(entity, primaryKey, PersistOp.refresh);
         if (managed == null)
             throw new IllegalArgumentException("Entity of class " + entity.getClass() + ", primary key " + primaryKey.toString() + " is not managed");
-        if (!entityTransaction.isActive())
+        if (!isReadOnly && !entityTransaction.isActive())
             entityTransaction.begin(); // Transaction commit/rollback triggers refresh
+        if (isWriteBehind())
+            flushPendingWrites();
         if (ormDaoHelper.refresh(managed) == 0)
             throw new PersistenceException("refresh operation returned result count 0");
     }
@@ -180,23 +274,30 @@ public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupp
      * @param entity The entity instance
      * @throws IllegalArgumentException if not an entity or if a detached entity
      * @throws IllegalStateException if this EntityManager has been closed.
+     * @throws TransactionRequiredException if this EntityManager is read-only.
      */
     @Override
     public void remove(Object entity) 
     {
         checkEntityManagerClosed("remove()");
+        checkEntityManagerReadOnly("remove()");
         OrmDaoHelper<?,?> ormDaoHelper = getOrmDaoHelperForClass(entity.getClass());
         Object primaryKey = ormDaoHelper.extractId(entity);
         objectMonitor.markForRemoval(entity.getClass(), primaryKey);
         if (!entityTransaction.isActive())
             entityTransaction.begin();
-        if (ormDaoHelper.delete(entity) == 0)
+        if (isWriteBehind())
+            writeBehindQueue.queueRemove(entity, primaryKey);
+        else if (ormDaoHelper.delete(entity) == 0)
             throw new PersistenceException("remove operation returned result count 0");
+        recordTableWrite(ormDaoHelper);
+        captureChange(entity.getClass(), primaryKey, EntityChange.Operation.delete, null);
     }
 
     /**
      * Find by primary key.
-     * Does not require transaction.
+     * Does not require transaction. In write-behind mode, an entity waiting to be inserted is returned
+     * and an entity waiting to be deleted is not found.
      * @param entityClass The class of the entity
      * @param primaryKey The primary key as Object
      * @return the found entity instance or null if the entity does not exist
@@ -212,6 +313,14 @@ public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupp
         checkEntityManagerClosed("find()");
         @SuppressWarnings("unchecked")
         OrmDaoHelper<T,?> ormDaoHelper = (OrmDaoHelper<T, ?>) getOrmDaoHelperForClass(entityClass);
+        if (isWriteBehind() && !writeBehindQueue.isEmpty())
+        {
+            if (writeBehindQueue.isPendingRemove(entityClass, primaryKey))
+                return null;
+            Object pending = writeBehindQueue.getPendingPersist(entityClass, primaryKey);
+            if (pending != null)
+                return entityClass.cast(pending);
+        }
         return ormDaoHelper.queryForId(primaryKey);
     }
 
@@ -250,11 +359,13 @@ public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupp
      * Synchronize the persistence context to the underlying database.
      * @throws PersistenceException if the flush fails
      * @throws IllegalStateException if this EntityManager has been closed.
+     * @throws TransactionRequiredException if this EntityManager is read-only.
      */
     @Override
     public void flush() 
     {
         checkEntityManagerClosed("flush()");
+        checkEntityManagerReadOnly("flush()");
         if (entityTransaction.isActive())
             entityTransaction.commit();
         entityTransaction.begin();
@@ -263,8 +374,10 @@ public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupp
     /**
     * Set the flush mode that applies to all objects contained
     * in the persistence context.
+    * Only FlushModeType.COMMIT is supported. Use setWriteBehind() to select write-behind mode.
     * @param flushMode  The flush mode
     * @throws IllegalStateException if this EntityManager has been closed.
+    * @throws UnsupportedOperationException if flush mode is FlushModeType.AUTO
     */
     @Override
     public void setFlushMode(FlushModeType flushMode) 
@@ -272,19 +385,42 @@ public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupp
         checkEntityManagerClosed("setFlushMode()");
         if (FlushModeType.AUTO.equals(flushMode))
             throw new UnsupportedOperationException("FlushModeType.AUTO not supported");
+        this.flushMode = flushMode;
     }
 
     /**
     * Get the flush mode that applies to all objects contained
     * in the persistence context.
-    * @return flush mode - always FlushModeType.COMMIT
+    * @return flush mode
      * @throws IllegalStateException if this EntityManager has been closed.
     */
     @Override
     public FlushModeType getFlushMode() 
     {
         checkEntityManagerClosed("getFlushMode()");
-        return FlushModeType.COMMIT;
+        return flushMode;
+    }
+
+    /**
+     * Select or deselect write-behind mode. In write-behind mode, inserts of entities with assigned primary keys
+     * and all deletes are queued and written as ordered batches at flush or commit. Deselecting write-behind mode
+     * writes any queued changes first.
+     * @param isWriteBehind Flag set true to select write-behind mode
+     * @throws IllegalStateException if this EntityManager has been closed.
+     */
+    public void setWriteBehind(boolean isWriteBehind)
+    {
+        checkEntityManagerClosed("setWriteBehind()");
+        if (isWriteBehind)
+        {
+            if (writeBehindQueue == null)
+                writeBehindQueue = new WriteBehindQueue();
+        }
+        else if (writeBehindQueue != null)
+        {
+            flushPendingWrites();
+            writeBehindQueue = null;
+        }
     }
 
     /**
@@ -312,8 +448,10 @@ public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupp
         checkEntityManagerClosed("clear()");
         if (entityTransaction.isActive())
             entityTransaction.rollback();
+        discardPendingWrites();
         objectMonitor.release();
-        entityTransaction.begin();
+        if (!isReadOnly)
+            entityTransaction.begin();
     }
 
     /**
@@ -351,14 +489,24 @@ public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupp
     {
         checkEntityManagerClosed("createNamedQuery()");
         NamedDaoQuery namedDaoQuery = persistenceConfig.getNamedQueryMap().get(name);
+        QueryResultCache queryResultCache = getQueryResultCache();
         if (namedDaoQuery == null)
         {
             NamedSqlQuery namedSqlQuery = persistenceConfig.getNativeQueryMap().get(name);
             if (namedSqlQuery == null)
                 throw new IllegalArgumentException("Named query '" + name + "' not found");
+            if (queryResultCache != null)
+                return new CachedQuery(namedSqlQuery.createQuery(), name, namedSqlQuery.getTables(), queryResultCache, namedSqlQuery.isCacheable());
             return namedSqlQuery.createQuery();
         }
         PersistenceDao<?, ?> dao = getOrmDaoHelperFactoryForClass(namedDaoQuery.getEntityClass()).getDao(connectionSource);
+        if (queryResultCache != null)
+        {   // Cached entities are copied, so a query which cannot copy them is not cached
+            TableInfo<?, ?> tableInfo = dao.getTableInfo();
+            if (tableInfo != null)
+                return new CachedQuery(namedDaoQuery.createQuery(dao), name, namedDaoQuery.getTables(dao), queryResultCache,
+                                       namedDaoQuery.isCacheable(), new EntityResultCopier(tableInfo));
+        }
         return namedDaoQuery.createQuery(dao);
     }
 
@@ -463,6 +611,44 @@ public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupp
         return ormDaoHelperFactory;
     }
 
+    /**
+     * Returns flag set true if write-behind mode is selected
+     * @return boolean
+     */
+    public boolean isWriteBehind()
+    {
+        return writeBehindQueue != null;
+    }
+
+    /**
+     * Write queued inserts and deletes to the database in batches, in queue order
+     */
+    protected void flushPendingWrites()
+    {
+        if ((writeBehindQueue == null) || writeBehindQueue.isEmpty())
+            return;
+        writeBehindQueue.drain(new WriteBehindQueue.BatchCallback(){
+
+            @Override
+            public void onBatch(Class<?> entityClass, boolean isRemove, List<Object> entityList)
+            {
+                OrmDaoHelper<?,?> ormDaoHelper = getOrmDaoHelperForClass(entityClass);
+                int count = isRemove ? ormDaoHelper.deleteAll(entityList) : ormDaoHelper.createAll(entityList);
+                if (count != entityList.size())
+                    throw new PersistenceException((isRemove ? "remove" : "persist") + " batch of " + entityList.size() + 
+                            " entities of class " + entityClass.getName() + " returned result count " + count);
+            }});
+    }
+
+    /**
+     * Discard queued inserts and deletes when the transaction is rolled back
+     */
+    protected void discardPendingWrites()
+    {
+        if (writeBehindQueue != null)
+            writeBehindQueue.clear();
+    }
+
     /**
      * Perform outstanding updates on all managed objects
      */
@@ -477,6 +663,52 @@ public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupp
         }
     }
 
+    /**
+     * Returns flag set true if entity changes are captured for publication on commit
+     * @return boolean
+     */
+    private boolean isChangeCapture()
+    {
+        return (entityTransaction instanceof EntityTransactionImpl) && ((EntityTransactionImpl)entityTransaction).isChangeCapture();
+    }
+
+    /**
+     * Returns cache for named query results, unless this entity manager has uncommitted writes which other
+     * entity managers must not see
+     * @return QueryResultCache object or null if query results are not to be cached
+     */
+    private QueryResultCache getQueryResultCache()
+    {
+        QueryResultCache queryResultCache = persistenceConfig.getQueryResultCache();
+        if ((queryResultCache == null) ||
+            ((entityTransaction instanceof EntityTransactionImpl) && ((EntityTransactionImpl)entityTransaction).hasUncommittedWrites()))
+            return null;
+        return queryResultCache;
+    }
+
+    /**
+     * Record write to entity table in the active transaction so cached query results are invalidated on commit
+     * @param ormDaoHelper Helper for entity class
+     */
+    private void recordTableWrite(OrmDaoHelper<?,?> ormDaoHelper)
+    {
+        if (entityTransaction instanceof EntityTransactionImpl)
+            ((EntityTransactionImpl)entityTransaction).recordTableWrite(ormDaoHelper.getTableName());
+    }
+
+    /**
+     * Record entity change in the active transaction if change data capture is on
+     * @param entityClass Entity class
+     * @param primaryKey Entity primary key
+     * @param operation Type of change
+     * @param changedProperties Names of changed properties or null if not known
+     */
+    private void captureChange(Class<?> entityClass, Object primaryKey, EntityChange.Operation operation, List<String> changedProperties)
+    {
+        if (isChangeCapture())
+            ((EntityTransactionImpl)entityTransaction).recordChange(new EntityChange(entityClass, primaryKey, operation, changedProperties));
+    }
+
     /**
      * Confirm this Entity Manager is open
      * @param method Name of method being invoked
@@ -487,5 +719,16 @@ public class EntityManagerImpl implements EntityManagerLite, UserTransactionSupp
         if (!isOpen)
             throw new IllegalStateException(method + " called after EntityManager has been closed");
     }
+
+    /**
+     * Confirm this Entity Manager allows writes to the database
+     * @param method Name of method being invoked
+     * @throws TransactionRequiredException if this Entity Manager is read-only.
+     */
+    private void checkEntityManagerReadOnly(String method)
+    {
+        if (isReadOnly)
+            throw new TransactionRequiredException(method + " called on read-only EntityManager");
+    }
     
 }
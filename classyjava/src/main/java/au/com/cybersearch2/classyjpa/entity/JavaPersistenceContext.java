@@ -21,6 +21,7 @@ import javax.persistence.EntityTransaction;
 import javax.persistence.PersistenceException;
 
 import au.com.cybersearch2.classyjpa.EntityManagerLite;
+import au.com.cybersearch2.classyjpa.transaction.ReadOnlySupport;
 import au.com.cybersearch2.classyjpa.transaction.TransactionInfo;
 import au.com.cybersearch2.classyjpa.transaction.UserTransactionSupport;
 import au.com.cybersearch2.classylog.JavaLogger;
@@ -54,7 +55,9 @@ public class JavaPersistenceContext
     /** Unexpected RunTimeException caught in process execution */
     protected ExecutionException executionException;
     /** Execution status - final state will be FINISHED or FAILED */
-    protected WorkStatus status;
+    protected volatile WorkStatus status;
+    /** Flag set true if container requires all work to be read-only */
+    protected boolean readOnly;
 
     /**
      * Construct JavaPersistenceContext object
@@ -87,6 +90,25 @@ public class JavaPersistenceContext
     	return status;
     }
  
+    /**
+     * Set read-only flag to run work without a container managed transaction, regardless of work type
+     * @param readOnly boolean
+     */
+    public void setReadOnly(boolean readOnly)
+    {
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Returns flag set true if work is read-only and runs without a container managed transaction
+     * @return boolean
+     * @see ReadOnlyWork
+     */
+    public boolean isReadOnly()
+    {
+        return !transactionInfo.isUserTransaction() && (readOnly || (persistenceWork instanceof ReadOnlyWork));
+    }
+
     /**
      * Execute task in process 
      * @return Executable to track progress
@@ -120,10 +142,7 @@ public class JavaPersistenceContext
 				        persistenceWork.notifyAll();
 				    }
 				else
-	                synchronized(exe)
-	                {
-	                    exe.notifyAll();
-	                }
+				    exe.notifyCompletion();
 			}
 		};
 		try
@@ -178,8 +197,12 @@ public class JavaPersistenceContext
             {   // Use container managed transaction. User can only request rollback.
                 if (userTransactionSupport != null)
                     userTransactionSupport.setUserTransaction(false);
-                 // The container manages the transaction, so begin before work starts
-                transaction.begin();
+                 // The container manages the transaction, so begin before work starts, unless work is read-only
+                if (!isReadOnly())
+                    transaction.begin();
+                else if (entityManager instanceof ReadOnlySupport)
+                    // Reject writes, which would otherwise start a transaction
+                    ((ReadOnlySupport)entityManager).setReadOnly(true);
             }
             catch (PersistenceException e)
             {
@@ -288,7 +311,9 @@ public class JavaPersistenceContext
             if (rollbackException != null)
             {   // RuntimeException caught, so do rollback  
                 transactionInfo.setRollbackException(rollbackException);
-                transaction.setRollbackOnly();
+                // Read-only work has no transaction to mark
+                if (!isReadOnly())
+                    transaction.setRollbackOnly();
             }
             try
             {
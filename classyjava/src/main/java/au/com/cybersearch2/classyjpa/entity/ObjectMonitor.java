@@ -191,6 +191,57 @@ public class ObjectMonitor
         return result;
     }
 
+    /**
+     * Returns managed entity identified by class and primary key
+     * @param clazz Class of entity
+     * @param primaryKey Primary key of entity
+     * @return Object or null if not managed
+     */
+    public Object getManagedEntity(Class<?> clazz, Object primaryKey)
+    {
+        if ((managedObjects == null) || (primaryKey == null))
+            return null;
+        return managedObjects.get(new EntityKey(clazz, primaryKey));
+    }
+
+    /**
+     * Returns names of properties which differ between two instances of an entity. Performs comparison using reflection.
+     * @param before Entity before change
+     * @param after Entity after change
+     * @return String list or null if properties cannot be read
+     */
+    public static List<String> getChangedProperties(Object before, Object after)
+    {
+        try
+        {
+            Map<String, Object> beforeMap = PropertyUtils.describe(before);
+            Map<String, Object> afterMap = PropertyUtils.describe(after);
+            List<String> changedProperties = new ArrayList<String>();
+            for (Map.Entry<String, Object> entry: afterMap.entrySet())
+            {
+                if ("class".equals(entry.getKey()))
+                    continue;
+                Object beforeValue = beforeMap.get(entry.getKey());
+                Object afterValue = entry.getValue();
+                if ((beforeValue == null) ? (afterValue != null) : !beforeValue.equals(afterValue))
+                    changedProperties.add(entry.getKey());
+            }
+            return changedProperties;
+        }
+        catch (IllegalAccessException e)
+        {
+            return null;
+        }
+        catch (InvocationTargetException e)
+        {
+            return null;
+        }
+        catch (NoSuchMethodException e)
+        {
+            return null;
+        }
+    }
+
     /**
      * Merge entity objects. Performs copy using reflection.
      * @param dest Entity to be updated
@@ -15,6 +15,27 @@
     along with this program.  If not, see <http://www.gnu.org/licenses/> */
 package au.com.cybersearch2.classyjpa.entity;
 
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PersistenceException;
+
+import com.j256.ormlite.dao.ObjectCache;
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.stmt.StatementBuilder.StatementType;
+import com.j256.ormlite.support.CompiledStatement;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.table.TableInfo;
+
 /**
  * OrmDaoHelper
  * JPA adapter for OrmLite
@@ -23,6 +44,9 @@ package au.com.cybersearch2.classyjpa.entity;
  */
 public class OrmDaoHelper<T,ID>
 {
+    /** Maximum number of primary keys in one batch delete statement. SQLite allows 999 host parameters. */
+    public static final int MAX_DELETE_IDS = 500;
+
     protected PersistenceDao<T, ID> entityDao; 
     
     public OrmDaoHelper(PersistenceDao<T, ID> entityDao)
@@ -103,16 +127,57 @@ public class OrmDaoHelper<T,ID>
      * NOTE: This will not save changes made to foreign objects or to foreign collections.
      * </p>
      * 
+     * <p>
+     * If the entity has a version field, the update only succeeds if the row version matches that of the object.
+     * A mismatch means the row was changed by another transaction after the object was read. The stale object is
+     * then evicted from the object cache so it is read again on retry.
+     * </p>
+     *
      * @param object The data item that we are updating in the database.
      * @return The number of rows updated in the database. This should be 1.
      * @throws RuntimeException on any SQL problems.
      * @throws IllegalArgumentException If there is only an ID field in the object.
+     * @throws OptimisticLockException If the entity has a version field and the version does not match.
      */
     public int update(Object object)
     {
         @SuppressWarnings("unchecked")
         T entity = (T)object;
-        return entityDao.update(entity);
+        int count = entityDao.update(entity);
+        if ((count == 0) && isVersioned())
+        {
+            ID id = entityDao.extractId(entity);
+            ObjectCache objectCache = entityDao.getObjectCache();
+            if ((objectCache != null) && (id != null))
+                objectCache.remove(entityDao.getDataClass(), id);
+            throw new OptimisticLockException("Entity of class " + entity.getClass().getName() + ", primary key " + id +
+                    " was updated or deleted by another transaction", null, entity);
+        }
+        return count;
+    }
+
+    /**
+     * Returns name of entity table
+     * @return String
+     */
+    public String getTableName()
+    {
+        return entityDao.getTableName();
+    }
+
+    /**
+     * Returns flag set true if entity has a version field
+     * @return boolean
+     */
+    public boolean isVersioned()
+    {
+        TableInfo<T, ID> tableInfo = entityDao.getTableInfo();
+        if (tableInfo == null)
+            return false;
+        for (FieldType fieldType: tableInfo.getFieldTypes())
+            if (fieldType.isVersion())
+                return true;
+        return false;
     }
 
     /**
@@ -146,5 +211,197 @@ public class OrmDaoHelper<T,ID>
         return entityDao.delete(entity);
     }
 
+    /**
+     * Returns flag set true if insert of given entity can be deferred and batched. The entity must have an
+     * assigned primary key which is not generated, and no version or foreign auto-create fields.
+     * @param object The entity to be persisted
+     * @return boolean
+     */
+    public boolean isBatchCreate(Object object)
+    {
+        TableInfo<T, ID> tableInfo = entityDao.getTableInfo();
+        if ((tableInfo == null) || (tableInfo.getIdField() == null) || tableInfo.getIdField().isGeneratedId())
+            return false;
+        for (FieldType fieldType: tableInfo.getFieldTypes())
+            if (fieldType.isVersion() || fieldType.isForeignAutoCreate())
+                return false;
+        return extractId(object) != null;
+    }
 
+    /**
+     * Persist a batch of objects. Uses a single INSERT statement batch for all the objects and adds
+     * each inserted object to the DAO object cache, if there is one.
+     * @param objectList The entities to be persisted
+     * @return The number of rows updated in the database
+     */
+    public int createAll(List<Object> objectList)
+    {
+        TableInfo<T, ID> tableInfo = entityDao.getTableInfo();
+        if ((objectList.size() > 1) && (tableInfo != null))
+        {
+            ConnectionSource connectionSource = entityDao.getConnectionSource();
+            DatabaseConnection connection = null;
+            try
+            {
+                connection = connectionSource.getReadWriteConnection(tableInfo.getTableName());
+                return executeInsertBatch(connection, connectionSource.getDatabaseType(), tableInfo, objectList);
+            }
+            catch (SQLException e)
+            {
+                throw new PersistenceException("Batch insert into " + tableInfo.getTableName() + " failed", e);
+            }
+            finally
+            {
+                if (connection != null)
+                    try
+                    {
+                        connectionSource.releaseConnection(connection);
+                    }
+                    catch (SQLException e)
+                    {
+                        throw new PersistenceException("Error releasing connection for " + tableInfo.getTableName(), e);
+                    }
+            }
+        }
+        int count = 0;
+        for (Object object: objectList)
+            count += create(object);
+        return count;
+    }
+
+    /**
+     * Delete a batch of objects using the primary key of each object
+     * @param objectList The entities to be deleted
+     * @return The number of rows deleted from the database
+     */
+    public int deleteAll(List<Object> objectList)
+    {
+        int count = 0;
+        List<ID> idList = new ArrayList<ID>();
+        for (Object object: objectList)
+        {
+            idList.add(extractId(object));
+            if (idList.size() == MAX_DELETE_IDS)
+            {
+                count += entityDao.deleteIds(idList);
+                idList.clear();
+            }
+        }
+        if (!idList.isEmpty())
+            count += entityDao.deleteIds(idList);
+        return count;
+    }
+
+    /**
+     * Insert entity objects using one INSERT statement. On a JDBC connection, all rows are added to a single
+     * prepared statement batch, which is executed once. Other connections execute the compiled statement once
+     * for each object. Argument values are converted by each field, so null values, defaults and converted types
+     * are handled the same way as OrmLite create().
+     */
+    protected int executeInsertBatch(DatabaseConnection connection, DatabaseType databaseType, TableInfo<T, ID> tableInfo, List<Object> objectList) throws SQLException
+    {
+        List<FieldType> columnList = new ArrayList<FieldType>();
+        StringBuilder builder = new StringBuilder("INSERT INTO ");
+        databaseType.appendEscapedEntityName(builder, tableInfo.getTableName());
+        builder.append(" (");
+        for (FieldType fieldType: tableInfo.getFieldTypes())
+        {
+            if (fieldType.isForeignCollection())
+                continue;
+            if (!columnList.isEmpty())
+                builder.append(',');
+            databaseType.appendEscapedEntityName(builder, fieldType.getColumnName());
+            columnList.add(fieldType);
+        }
+        builder.append(") VALUES (");
+        for (int i = 0; i < columnList.size(); ++i)
+            builder.append(i == 0 ? "?" : ",?");
+        builder.append(')');
+        FieldType[] argFieldTypes = columnList.toArray(new FieldType[columnList.size()]);
+        Object underlyingConnection = connection.getUnderlyingConnection();
+        if (underlyingConnection instanceof Connection)
+            return executeJdbcBatch((Connection)underlyingConnection, builder.toString(), tableInfo, argFieldTypes, objectList);
+        CompiledStatement compiledStatement =
+            connection.compileStatement(builder.toString(), StatementType.UPDATE, argFieldTypes, DatabaseConnection.DEFAULT_RESULT_FLAGS, false);
+        ObjectCache objectCache = entityDao.getObjectCache();
+        int count = 0;
+        try
+        {
+            for (Object object: objectList)
+            {
+                for (int i = 0; i < argFieldTypes.length; ++i)
+                    compiledStatement.setObject(i, getInsertArg(argFieldTypes[i], object), argFieldTypes[i].getSqlType());
+                int result = compiledStatement.runExecute();
+                count += result;
+                if ((result > 0) && (objectCache != null))
+                    objectCache.put(tableInfo.getDataClass(), extractId(object), tableInfo.getDataClass().cast(object));
+            }
+            return count;
+        }
+        finally
+        {
+            try
+            {
+                compiledStatement.close();
+            }
+            catch (IOException e)
+            {
+                throw new SQLException("Error closing INSERT statement for " + tableInfo.getTableName(), e);
+            }
+        }
+    }
+
+    /**
+     * Add a row for each entity object to a prepared statement batch and execute the batch once.
+     * Arguments are bound by Java type, as the JDBC type mapping of OrmLite is not available on Android.
+     */
+    protected int executeJdbcBatch(Connection connection, String sql, TableInfo<T, ID> tableInfo, FieldType[] argFieldTypes, List<Object> objectList) throws SQLException
+    {
+        PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        try
+        {
+            for (Object object: objectList)
+            {
+                for (int i = 0; i < argFieldTypes.length; ++i)
+                {
+                    Object arg = getInsertArg(argFieldTypes[i], object);
+                    if (arg == null)
+                        preparedStatement.setNull(i + 1, Types.NULL);
+                    else
+                        preparedStatement.setObject(i + 1, arg);
+                }
+                preparedStatement.addBatch();
+            }
+            int[] results = preparedStatement.executeBatch();
+            ObjectCache objectCache = entityDao.getObjectCache();
+            int count = 0;
+            for (int i = 0; i < results.length; ++i)
+            {
+                // Driver may not report the count of each row
+                int result = results[i] == Statement.SUCCESS_NO_INFO ? 1 : results[i];
+                count += result;
+                if ((result > 0) && (objectCache != null))
+                {
+                    Object object = objectList.get(i);
+                    objectCache.put(tableInfo.getDataClass(), extractId(object), tableInfo.getDataClass().cast(object));
+                }
+            }
+            return count;
+        }
+        finally
+        {
+            preparedStatement.close();
+        }
+    }
+
+    /**
+     * Returns INSERT argument of field, replacing a null or default field value with the field's declared default
+     */
+    protected static Object getInsertArg(FieldType fieldType, Object object) throws SQLException
+    {
+        Object arg = fieldType.extractJavaFieldToSqlArgValue(object);
+        if ((arg == null) || ((fieldType.getDefaultValue() != null) && fieldType.isObjectsFieldValueDefault(object)))
+            arg = fieldType.getDefaultValue();
+        return arg;
+    }
 }
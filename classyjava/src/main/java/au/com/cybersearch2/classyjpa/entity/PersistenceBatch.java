@@ -0,0 +1,175 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import au.com.cybersearch2.classyjpa.EntityManagerLite;
+import au.com.cybersearch2.classytask.WorkStatus;
+
+/**
+ * PersistenceBatch
+ * Executes a number of units of work in a single pass. Read-only works each run in their own
+ * persistence context without a transaction. All other works run sequentially in one shared transaction,
+ * placed at the position of the first of them, so if any of them fails, all are rolled back and each
+ * is notified of the rollback cause. Outcomes are delivered to every work on onPostExecute().
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class PersistenceBatch
+{
+    /**
+     * TransactionWork
+     * Runs the batch works which require a transaction as a single unit of work
+     */
+    class TransactionWork implements PersistenceWork
+    {
+        /** Works to run in the shared transaction */
+        List<PersistenceWork> workList = new ArrayList<PersistenceWork>();
+
+        @Override
+        public void doTask(EntityManagerLite entityManager)
+        {
+            for (PersistenceWork persistenceWork: workList)
+                persistenceWork.doTask(entityManager);
+        }
+
+        @Override
+        public void onPostExecute(boolean success)
+        {
+            for (PersistenceWork persistenceWork: workList)
+                persistenceWork.onPostExecute(success);
+        }
+
+        @Override
+        public void onRollback(Throwable rollbackException)
+        {
+            for (PersistenceWork persistenceWork: workList)
+                persistenceWork.onRollback(rollbackException);
+        }
+    }
+
+    /** Container to create persistence contexts */
+    protected PersistenceContainer persistenceContainer;
+    /** Shared transaction work */
+    protected TransactionWork transactionWork;
+    /** Persistence context of shared transaction work, created on first transaction work added */
+    protected JavaPersistenceContext transactionContext;
+    /** Persistence context of each work in order added. Works sharing the transaction share a context. */
+    protected List<JavaPersistenceContext> contextList;
+    /** Result of each distinct persistence context */
+    protected List<Boolean> resultList;
+
+    /**
+     * Create PersistenceBatch object
+     * @param persistenceContainer Container to create persistence contexts
+     */
+    public PersistenceBatch(PersistenceContainer persistenceContainer)
+    {
+        this.persistenceContainer = persistenceContainer;
+        transactionWork = new TransactionWork();
+        contextList = new ArrayList<JavaPersistenceContext>();
+        resultList = new ArrayList<Boolean>();
+    }
+
+    /**
+     * Add work to batch
+     * @param persistenceWork Unit of work
+     * @return index of work in batch
+     */
+    public int add(PersistenceWork persistenceWork)
+    {
+        JavaPersistenceContext jpaContext = persistenceContainer.getPersistenceTask(persistenceWork);
+        if (!jpaContext.isReadOnly())
+        {
+            if (transactionContext == null)
+                transactionContext = persistenceContainer.getPersistenceTask(transactionWork);
+            jpaContext = transactionContext;
+            transactionWork.workList.add(persistenceWork);
+        }
+        contextList.add(jpaContext);
+        return contextList.size() - 1;
+    }
+
+    /**
+     * Returns number of works in batch
+     * @return int
+     */
+    public int size()
+    {
+        return contextList.size();
+    }
+
+    /**
+     * Execute all works in batch. Run on a background thread if multiple connections on a DataSource are allowed.
+     * @return Boolean.TRUE if every work completed successfully
+     */
+    public Boolean doTask()
+    {
+        boolean success = true;
+        for (JavaPersistenceContext jpaContext: getDistinctContexts())
+        {
+            Boolean result = null;
+            try
+            {
+                result = jpaContext.doTask();
+            }
+            catch (RuntimeException e)
+            {   // Report the exception to this work only and continue with the rest of the batch
+                jpaContext.setExecutionException(new ExecutionException(e));
+            }
+            resultList.add(result);
+            if ((result == null) || !result.booleanValue())
+                success = false;
+        }
+        return Boolean.valueOf(success);
+    }
+
+    /**
+     * Deliver the outcome of each work after the batch has run
+     */
+    public void onPostExecute()
+    {
+        List<JavaPersistenceContext> distinctContexts = getDistinctContexts();
+        for (int i = 0; i < distinctContexts.size(); ++i)
+            distinctContexts.get(i).onPostExecute(i < resultList.size() ? resultList.get(i) : null);
+    }
+
+    /**
+     * Returns status of work at specified index
+     * @param index Index returned when work added
+     * @return WorkStatus
+     */
+    public WorkStatus getWorkStatus(int index)
+    {
+        return contextList.get(index).getWorkStatus();
+    }
+
+    /**
+     * Returns persistence contexts in order of first use
+     * @return JavaPersistenceContext list
+     */
+    protected List<JavaPersistenceContext> getDistinctContexts()
+    {
+        List<JavaPersistenceContext> distinctContexts = new ArrayList<JavaPersistenceContext>();
+        for (JavaPersistenceContext jpaContext: contextList)
+            if (!distinctContexts.contains(jpaContext))
+                distinctContexts.add(jpaContext);
+        return distinctContexts;
+    }
+}
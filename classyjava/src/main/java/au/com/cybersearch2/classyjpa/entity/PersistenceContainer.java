@@ -22,6 +22,7 @@ import au.com.cybersearch2.classyjpa.EntityManagerLiteFactory;
 import au.com.cybersearch2.classyjpa.entity.JavaPersistenceContext.EntityManagerProvider;
 import au.com.cybersearch2.classyjpa.persist.PersistenceAdmin;
 import au.com.cybersearch2.classyjpa.persist.PersistenceContext;
+import au.com.cybersearch2.classyjpa.persist.ShardedPersistenceUnit;
 import au.com.cybersearch2.classylog.JavaLogger;
 import au.com.cybersearch2.classylog.Log;
 
@@ -40,6 +41,8 @@ public class PersistenceContainer
     static Log log = JavaLogger.getLogger(TAG);
     /** Flag to indicate user transaction. If false, then only transaction method supported is setRollbackOnly() */
     protected volatile boolean isUserTransactionMode;
+    /** Flag to indicate all work is read-only. If true, work runs without a transaction and writes are rejected */
+    protected volatile boolean isReadOnlyMode;
     /** JPA EntityManager "lite" factory ie. only API v1 supported. */
     protected EntityManagerLiteFactory entityManagerFactory;
     /** Flag set if executes asynchronously (default = false if only single connection ) */
@@ -49,12 +52,19 @@ public class PersistenceContainer
 
     /**
      * Create PersistenceContainer object 
-     * @param puName PersistenceUnitAdmin Unit name
+     * @param puName PersistenceUnitAdmin Unit name. May be the logical name of a sharded persistence unit.
      * @param async Flag set if executes asynchronously 
      */
     public PersistenceContainer(PersistenceContext persistenceContext, String puName, boolean async)
     {
         this.puName = puName;
+        ShardedPersistenceUnit shardedUnit = persistenceContext.getShardedPersistenceUnit(puName);
+        if (shardedUnit != null)
+        {   // EntityManager routes to shards. The shard databases allow concurrent work, so do not force synchronous execution.
+            this.async = async;
+            entityManagerFactory = persistenceContext.getShardedEntityManagerFactory(puName);
+            return;
+        }
         /** Reference PersistenceUnitAdmin Unit specified by name to extract EntityManagerFactory object */
         PersistenceAdmin persistenceAdmin = persistenceContext.getPersistenceAdmin(puName);
         if (persistenceAdmin == null) 
@@ -75,6 +85,16 @@ public class PersistenceContainer
     {
         isUserTransactionMode = value;
     }
+
+    /**
+     * Set read-only mode. Work runs on a read connection without a transaction, and writes are rejected.
+     * Has no effect in user transaction mode. Individual works can instead implement ReadOnlyWork.
+     * @param value boolean
+     */
+    public void setReadOnlyMode(boolean value)
+    {
+        isReadOnlyMode = value;
+    }
  
     /**
      * Returns object which creates a persistence context and executes a task in that contex
@@ -92,6 +112,7 @@ public class PersistenceContainer
                     return entityManagerFactory.createEntityManager();
                 }}); 
         jpaContext.getTransactionInfo().setUserTransaction(isUserTransactionMode);
+        jpaContext.setReadOnly(isReadOnlyMode);
     	return jpaContext;
     }
     
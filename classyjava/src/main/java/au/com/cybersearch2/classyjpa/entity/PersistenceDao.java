@@ -44,6 +44,7 @@ import javax.persistence.PersistenceException;
 import au.com.cybersearch2.classylog.JavaLogger;
 import au.com.cybersearch2.classylog.Log;
 
+import com.j256.ormlite.dao.BaseDaoImpl;
 import com.j256.ormlite.dao.CloseableIterator;
 import com.j256.ormlite.dao.CloseableWrappedIterable;
 import com.j256.ormlite.dao.Dao;
@@ -68,6 +69,7 @@ import com.j256.ormlite.support.DatabaseConnection;
 import com.j256.ormlite.support.DatabaseResults;
 import com.j256.ormlite.table.DatabaseTableConfig;
 import com.j256.ormlite.table.ObjectFactory;
+import com.j256.ormlite.table.TableInfo;
 
 /**
  * Adapted com.j256.ormlite.dao.RuntimeExceptionDao to throw javax.persistence.PersistenceException instead.
@@ -976,6 +978,15 @@ public class PersistenceDao<T, ID> implements Dao<T, ID> {
 		return dao.getTableName();
     }
 
+	/**
+	 * Returns table information of the wrapped DAO or null if the DAO does not extend {@link BaseDaoImpl}
+	 */
+	public TableInfo<T, ID> getTableInfo() {
+		if (dao instanceof BaseDaoImpl)
+			return ((BaseDaoImpl<T, ID>) dao).getTableInfo();
+		return null;
+	}
+
 
 	/**
 	 *  Log message if logging level permits
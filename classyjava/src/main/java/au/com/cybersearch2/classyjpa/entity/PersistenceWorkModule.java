@@ -38,6 +38,7 @@ public class PersistenceWorkModule
     private String puName;
     private boolean async;
     private boolean isUserTransactions;
+    private boolean isReadOnly;
     private PersistenceWork persistenceWork;
     
     public PersistenceWorkModule(String puName, boolean async, PersistenceWork persistenceWork)
@@ -64,6 +65,7 @@ public class PersistenceWorkModule
             TaskMessenger taskMessenger)
     {
         persistenceContainer.setUserTransactionMode(isUserTransactions);
+        persistenceContainer.setReadOnlyMode(isReadOnly);
         JavaPersistenceContext jpaContext = persistenceContainer.getPersistenceTask(persistenceWork);
         if (!async)
             return jpaContext.executeInProcess();
@@ -86,6 +88,15 @@ public class PersistenceWorkModule
         this.isUserTransactions = isUserTransactions;
     }
 
+    /**
+     * Set read-only mode. The work runs without a transaction and writes are rejected.
+     * @param isReadOnly boolean
+     */
+    public void setReadOnly(boolean isReadOnly)
+    {
+        this.isReadOnly = isReadOnly;
+    }
+
     public PersistenceWork getPersistenceWork()
     {
         return persistenceWork;
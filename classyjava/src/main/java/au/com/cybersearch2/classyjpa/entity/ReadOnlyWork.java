@@ -0,0 +1,31 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.entity;
+
+/**
+ * ReadOnlyWork
+ * Marker interface for persistence work which only reads from the database.
+ * When the container manages the transaction, read-only work runs without one,
+ * so no transaction is started, committed or rolled back. Reads use the read connection of the
+ * connection source, without savepoint or auto-commit changes, and any attempt to write throws
+ * TransactionRequiredException. PersistenceContainer read-only mode applies the same to all work.
+ * @see JavaPersistenceContext
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public interface ReadOnlyWork extends PersistenceWork
+{
+}
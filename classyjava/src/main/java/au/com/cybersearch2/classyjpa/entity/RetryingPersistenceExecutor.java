@@ -0,0 +1,200 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.entity;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.persistence.OptimisticLockException;
+
+import au.com.cybersearch2.classylog.JavaLogger;
+import au.com.cybersearch2.classylog.Log;
+import au.com.cybersearch2.classytask.WorkStatus;
+
+/**
+ * RetryingPersistenceExecutor
+ * Executes a unit of work, running it again in a new persistence context if the transaction is rolled back
+ * because of an entity version conflict. Attempts are separated by an exponential backoff with random jitter,
+ * so concurrent writers contending for the same rows do not collide again in lock step. Each attempt starts
+ * with a fresh EntityManager, so entities are read again with their current version. Only the outcome of the
+ * final attempt is delivered to the work.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class RetryingPersistenceExecutor
+{
+    private static final String TAG = "RetryingPersistenceExecutor";
+    private static Log log = JavaLogger.getLogger(TAG);
+    /** Default maximum number of attempts, including the first */
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+    /** Default backoff before the first retry in milliseconds */
+    public static final long DEFAULT_INITIAL_BACKOFF = 10L;
+    /** Default upper limit of backoff in milliseconds */
+    public static final long DEFAULT_MAX_BACKOFF = 1000L;
+
+    /** Container to create persistence contexts */
+    protected PersistenceContainer persistenceContainer;
+    /** Executor for work submitted to run in the background. May be null. */
+    protected ExecutorService executorService;
+    /** Maximum number of attempts */
+    protected int maxAttempts;
+    /** Backoff before the first retry, doubled on each subsequent retry */
+    protected long initialBackoff;
+    /** Upper limit of backoff */
+    protected long maxBackoff;
+    /** Source of backoff jitter */
+    protected Random random;
+
+    /**
+     * Create RetryingPersistenceExecutor object to execute work in process
+     * @param persistenceContainer Container to create persistence contexts
+     */
+    public RetryingPersistenceExecutor(PersistenceContainer persistenceContainer)
+    {
+        this(persistenceContainer, null);
+    }
+
+    /**
+     * Create RetryingPersistenceExecutor object
+     * @param persistenceContainer Container to create persistence contexts
+     * @param executorService Executor for work submitted to run in the background
+     */
+    public RetryingPersistenceExecutor(PersistenceContainer persistenceContainer, ExecutorService executorService)
+    {
+        this.persistenceContainer = persistenceContainer;
+        this.executorService = executorService;
+        maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        initialBackoff = DEFAULT_INITIAL_BACKOFF;
+        maxBackoff = DEFAULT_MAX_BACKOFF;
+        random = new Random();
+    }
+
+    /**
+     * Set maximum number of attempts
+     * @param maxAttempts Number of attempts, including the first. Must be at least 1.
+     */
+    public void setMaxAttempts(int maxAttempts)
+    {
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("Maximum attempts must be at least 1");
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Set backoff between attempts
+     * @param initialBackoff Backoff before the first retry in milliseconds
+     * @param maxBackoff Upper limit of backoff in milliseconds
+     */
+    public void setBackoff(long initialBackoff, long maxBackoff)
+    {
+        if ((initialBackoff < 0) || (maxBackoff < initialBackoff))
+            throw new IllegalArgumentException("Invalid backoff " + initialBackoff + " to " + maxBackoff);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Execute work in process, retrying on version conflict
+     * @param persistenceWork Unit of work
+     * @return Final status FINISHED or FAILED
+     */
+    public WorkStatus execute(PersistenceWork persistenceWork)
+    {
+        for (int attempt = 1; ; ++attempt)
+        {
+            JavaPersistenceContext jpaContext = persistenceContainer.getPersistenceTask(persistenceWork);
+            Boolean result = null;
+            try
+            {
+                result = jpaContext.doTask();
+            }
+            catch (RuntimeException e)
+            {   // Unexpected exception is not retried
+                jpaContext.setExecutionException(new ExecutionException(e));
+                jpaContext.onPostExecute(null);
+                return jpaContext.getWorkStatus();
+            }
+            if ((attempt < maxAttempts) && isVersionConflict(jpaContext.getTransactionInfo().getRollbackException()))
+            {
+                long backoff = getBackoff(attempt);
+                log.debug(TAG, "Version conflict on attempt " + attempt + ". Retry in " + backoff + " ms");
+                try
+                {
+                    Thread.sleep(backoff);
+                    continue;
+                }
+                catch (InterruptedException e)
+                {   // Give up and report the conflict
+                    Thread.currentThread().interrupt();
+                }
+            }
+            jpaContext.onPostExecute(result);
+            return jpaContext.getWorkStatus();
+        }
+    }
+
+    /**
+     * Submit work to run in the background, retrying on version conflict
+     * @param persistenceWork Unit of work
+     * @return Future which returns final status FINISHED or FAILED
+     */
+    public Future<WorkStatus> submit(final PersistenceWork persistenceWork)
+    {
+        if (executorService == null)
+            throw new IllegalStateException("No executor service available to submit work");
+        return executorService.submit(new Callable<WorkStatus>(){
+
+            @Override
+            public WorkStatus call() throws Exception
+            {
+                return execute(persistenceWork);
+            }});
+    }
+
+    /**
+     * Returns backoff before next attempt. Half is fixed and half is random.
+     * @param attempt Number of attempt which failed, starting at 1
+     * @return long milliseconds
+     */
+    protected long getBackoff(int attempt)
+    {
+        long backoff = initialBackoff << Math.min(attempt - 1, 30);
+        if ((backoff > maxBackoff) || (backoff < 0))
+            backoff = maxBackoff;
+        long half = backoff / 2;
+        return half + (long)(random.nextDouble() * (backoff - half));
+    }
+
+    /**
+     * Returns flag set true if given exception or one of its causes is an OptimisticLockException
+     * @param rollbackException Cause of rollback or null
+     * @return boolean
+     */
+    protected static boolean isVersionConflict(Throwable rollbackException)
+    {
+        for (Throwable cause = rollbackException; cause != null; cause = cause.getCause())
+        {
+            if (cause instanceof OptimisticLockException)
+                return true;
+            if (cause.getCause() == cause)
+                break;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,646 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.EntityTransaction;
+import javax.persistence.FlushModeType;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+
+import au.com.cybersearch2.classyjpa.EntityManagerLite;
+import au.com.cybersearch2.classyjpa.persist.ShardKey;
+import au.com.cybersearch2.classyjpa.persist.ShardedPersistenceUnit;
+import au.com.cybersearch2.classyjpa.query.ShardedQuery;
+import au.com.cybersearch2.classyjpa.transaction.ReadOnlySupport;
+import au.com.cybersearch2.classyjpa.transaction.UserTransactionSupport;
+
+/**
+ * ShardedEntityManager
+ * EntityManager of a sharded persistence unit. Delegates to one EntityManager per shard. Operations on an entity are
+ * routed to the shard selected by the entity's shard key. Find is routed by primary key, if it is the shard key,
+ * otherwise it is sent to all shards. Named queries run on all shards in parallel and the results are concatenated
+ * in shard order, or merged in the order set on the ShardedQuery.
+ * Each shard has it's own transaction, which begins when the shard is first used. On commit or close, the shard
+ * transactions complete in parallel. There is no two-phase commit, so if one shard fails to commit, changes on
+ * shards already committed remain.
+ * The transaction connection and state of a shard are bound to the thread which began the transaction, so all
+ * operations on a shard run on that shard's own single thread executor, from begin to commit and close. The
+ * executors are returned to the persistence unit on close.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class ShardedEntityManager implements EntityManagerLite, UserTransactionSupport, ReadOnlySupport
+{
+    /**
+     * ShardCall
+     * Operation performed on a single shard
+     */
+    public interface ShardCall<R>
+    {
+        R call(EntityManagerLite shard);
+    }
+
+    /**
+     * ShardedTransaction
+     * Transaction spanning all shards. A shard transaction begins when the shard is first used.
+     */
+    protected class ShardedTransaction implements EntityTransaction
+    {
+        protected boolean isActive;
+        protected boolean rollbackOnly;
+
+        @Override
+        public void begin()
+        {
+            if (isActive)
+                throw new IllegalStateException("begin() called while active");
+            isActive = true;
+            rollbackOnly = false;
+        }
+
+        @Override
+        public void commit()
+        {
+            if (!isActive)
+                throw new IllegalStateException("commit() called while not active");
+            complete(!rollbackOnly);
+        }
+
+        @Override
+        public void rollback()
+        {
+            if (!isActive)
+                throw new IllegalStateException("rollback() called while not active");
+            complete(false);
+        }
+
+        @Override
+        public void setRollbackOnly()
+        {
+            if (!isActive)
+                throw new IllegalStateException("setRollbackOnly() called while not active");
+            rollbackOnly = true;
+            callAllShards(new ShardCall<Void>(){
+
+                @Override
+                public Void call(EntityManagerLite shard)
+                {
+                    EntityTransaction shardTransaction = shard.getTransaction();
+                    if (shardTransaction.isActive())
+                        shardTransaction.setRollbackOnly();
+                    return null;
+                }});
+        }
+
+        @Override
+        public boolean getRollbackOnly()
+        {
+            if (!isActive)
+                throw new IllegalStateException("getRollbackOnly() called while not active");
+            if (rollbackOnly)
+                return true;
+            List<Boolean> resultList = callAllShards(new ShardCall<Boolean>(){
+
+                @Override
+                public Boolean call(EntityManagerLite shard)
+                {
+                    EntityTransaction shardTransaction = shard.getTransaction();
+                    return Boolean.valueOf(shardTransaction.isActive() && shardTransaction.getRollbackOnly());
+                }});
+            return resultList.contains(Boolean.TRUE);
+        }
+
+        @Override
+        public boolean isActive()
+        {
+            return isActive;
+        }
+
+        /**
+         * Begin transaction of shard if this transaction is active. Must run on the shard's thread.
+         * @param shard Shard EntityManager
+         */
+        protected void join(EntityManagerLite shard)
+        {
+            if (!isActive)
+                return;
+            EntityTransaction shardTransaction = shard.getTransaction();
+            if (!shardTransaction.isActive())
+                shardTransaction.begin();
+            if (rollbackOnly && shardTransaction.isActive())
+                shardTransaction.setRollbackOnly();
+        }
+
+        /**
+         * Commit or roll back active shard transactions in parallel
+         * @param doCommit Flag set true to commit, false to roll back
+         */
+        protected void complete(final boolean doCommit)
+        {
+            isActive = false;
+            rollbackOnly = false;
+            callAllShards(new ShardCall<Void>(){
+
+                @Override
+                public Void call(EntityManagerLite shard)
+                {
+                    EntityTransaction shardTransaction = shard.getTransaction();
+                    if (shardTransaction.isActive())
+                    {
+                        if (doCommit)
+                            shardTransaction.commit();
+                        else
+                            shardTransaction.rollback();
+                    }
+                    return null;
+                }});
+        }
+    }
+
+    /** Sharded persistence unit */
+    protected ShardedPersistenceUnit shardedUnit;
+    /** EntityManager of each shard in index order */
+    protected List<EntityManagerLite> shards;
+    /** Single thread executor of each shard in index order. If null, operations run in sequence on the calling thread. */
+    protected List<ExecutorService> shardExecutors;
+    /** Transaction spanning all shards */
+    protected ShardedTransaction transaction;
+
+    /**
+     * Create ShardedEntityManager object
+     * @param shardedUnit Sharded persistence unit
+     * @param shards EntityManager of each shard in index order
+     * @param shardExecutors Single thread executor of each shard in index order, released to the persistence unit
+     *        on close. If null, operations run in sequence on the calling thread.
+     */
+    public ShardedEntityManager(ShardedPersistenceUnit shardedUnit, List<EntityManagerLite> shards, List<ExecutorService> shardExecutors)
+    {
+        this.shardedUnit = shardedUnit;
+        this.shards = shards;
+        this.shardExecutors = shardExecutors;
+        transaction = new ShardedTransaction();
+    }
+
+    /**
+     * Set user transaction mode of all shards
+     * @param value boolean
+     */
+    @Override
+    public void setUserTransaction(boolean value)
+    {
+        for (EntityManagerLite shard: shards)
+            if (shard instanceof UserTransactionSupport)
+                ((UserTransactionSupport)shard).setUserTransaction(value);
+    }
+
+    /**
+     * Set read-only mode of all shards
+     * @param value boolean
+     */
+    @Override
+    public void setReadOnly(boolean value)
+    {
+        for (EntityManagerLite shard: shards)
+            if (shard instanceof ReadOnlySupport)
+                ((ReadOnlySupport)shard).setReadOnly(value);
+    }
+
+    /**
+     * Returns EntityManager of shard at specified index. Use callShard() to operate on the shard in the active transaction.
+     * @param index Shard index
+     * @return EntityManagerLite
+     */
+    public EntityManagerLite getShard(int index)
+    {
+        return shards.get(index);
+    }
+
+    /**
+     * Perform operation on shard at specified index, joined to the active transaction, and wait for it to complete
+     * @param index Shard index
+     * @param shardCall Operation
+     * @return Result
+     */
+    public <R> R callShard(int index, final ShardCall<R> shardCall)
+    {
+        return runOnShard(index, new ShardCall<R>(){
+
+            @Override
+            public R call(EntityManagerLite shard)
+            {
+                transaction.join(shard);
+                return shardCall.call(shard);
+            }});
+    }
+
+    /**
+     * Returns number of shards
+     * @return int
+     */
+    public int getShardCount()
+    {
+        return shards.size();
+    }
+
+    @Override
+    public void persist(final Object entity)
+    {
+        callShard(shardedUnit.getEntityShardIndex(entity), new ShardCall<Void>(){
+
+            @Override
+            public Void call(EntityManagerLite shard)
+            {
+                shard.persist(entity);
+                return null;
+            }});
+    }
+
+    @Override
+    public <T> T merge(final T entity)
+    {
+        return callShard(shardedUnit.getEntityShardIndex(entity), new ShardCall<T>(){
+
+            @Override
+            public T call(EntityManagerLite shard)
+            {
+                return shard.merge(entity);
+            }});
+    }
+
+    @Override
+    public void refresh(final Object entity)
+    {
+        callShard(shardedUnit.getEntityShardIndex(entity), new ShardCall<Void>(){
+
+            @Override
+            public Void call(EntityManagerLite shard)
+            {
+                shard.refresh(entity);
+                return null;
+            }});
+    }
+
+    @Override
+    public void remove(final Object entity)
+    {
+        callShard(shardedUnit.getEntityShardIndex(entity), new ShardCall<Void>(){
+
+            @Override
+            public Void call(EntityManagerLite shard)
+            {
+                shard.remove(entity);
+                return null;
+            }});
+    }
+
+    @Override
+    public boolean contains(final Object entity)
+    {
+        return runOnShard(shardedUnit.getEntityShardIndex(entity), new ShardCall<Boolean>(){
+
+            @Override
+            public Boolean call(EntityManagerLite shard)
+            {
+                return Boolean.valueOf(shard.contains(entity));
+            }}).booleanValue();
+    }
+
+    @Override
+    public void lock(final Object entity, final LockModeType lockMode)
+    {
+        callShard(shardedUnit.getEntityShardIndex(entity), new ShardCall<Void>(){
+
+            @Override
+            public Void call(EntityManagerLite shard)
+            {
+                shard.lock(entity, lockMode);
+                return null;
+            }});
+    }
+
+    /**
+     * Find by primary key. If the primary key is not the shard key, all shards are searched in parallel.
+     * @param entityClass The class of the entity
+     * @param primaryKey The primary key as Object
+     * @return the found entity instance or null if the entity does not exist
+     */
+    @Override
+    public <T> T find(final Class<T> entityClass, final Object primaryKey)
+    {
+        ShardCall<T> findCall = new ShardCall<T>(){
+
+            @Override
+            public T call(EntityManagerLite shard)
+            {
+                transaction.join(shard);
+                return shard.find(entityClass, primaryKey);
+            }};
+        ShardKey shardKey = shardedUnit.getShardKey(entityClass);
+        if (shardKey.isPrimaryKey())
+            return runOnShard(shardedUnit.getShardIndex(primaryKey), findCall);
+        List<T> resultList = callAllShards(findCall);
+        for (T result: resultList)
+            if (result != null)
+                return result;
+        return null;
+    }
+
+    @Override
+    public <T> T getReference(Class<T> entityClass, Object primaryKey)
+    {
+        T entity = find(entityClass, primaryKey);
+        if (entity == null)
+            throw new EntityNotFoundException("Not found: class " + entityClass.getName() + ", primary key " + primaryKey);
+        return entity;
+    }
+
+    /**
+     * Create named query which runs on all shards
+     * @param name The name of a query
+     * @return ShardedQuery object
+     */
+    @Override
+    public Query createNamedQuery(final String name)
+    {
+        List<Query> shardQueries = new ArrayList<Query>(shards.size());
+        for (EntityManagerLite shard: shards)
+            shardQueries.add(shard.createNamedQuery(name));
+        if (shardExecutors == null)
+            return new ShardedQuery(shardQueries, null);
+        List<Executor> queryExecutors = new ArrayList<Executor>(shards.size());
+        for (int index = 0; index < shards.size(); ++index)
+        {
+            final int shardIndex = index;
+            queryExecutors.add(new Executor(){
+
+                @Override
+                public void execute(Runnable command)
+                {
+                    getShardExecutor(shardIndex).execute(command);
+                }});
+        }
+        return new ShardedQuery(shardQueries, queryExecutors);
+    }
+
+    /**
+     * Flush shards which have an active transaction, in parallel
+     */
+    @Override
+    public void flush()
+    {
+        callAllShards(new ShardCall<Void>(){
+
+            @Override
+            public Void call(EntityManagerLite shard)
+            {
+                if (shard.getTransaction().isActive())
+                    shard.flush();
+                return null;
+            }});
+    }
+
+    @Override
+    public void clear()
+    {
+        callAllShards(new ShardCall<Void>(){
+
+            @Override
+            public Void call(EntityManagerLite shard)
+            {
+                shard.clear();
+                return null;
+            }});
+    }
+
+    @Override
+    public void setFlushMode(FlushModeType flushMode)
+    {
+        for (EntityManagerLite shard: shards)
+            shard.setFlushMode(flushMode);
+    }
+
+    @Override
+    public FlushModeType getFlushMode()
+    {
+        return shards.get(0).getFlushMode();
+    }
+
+    /**
+     * NOT SUPPORTED
+     * @throws UnsupportedOperationException
+     */
+    @Override
+    public void joinTransaction()
+    {
+        throw new UnsupportedOperationException("joinTransaction() not available");
+    }
+
+    /**
+     * Returns delegate of each shard in index order
+     * @return Object list
+     */
+    @Override
+    public Object getDelegate()
+    {
+        List<Object> delegateList = new ArrayList<Object>(shards.size());
+        for (EntityManagerLite shard: shards)
+            delegateList.add(shard.getDelegate());
+        return delegateList;
+    }
+
+    /**
+     * Close all shards in parallel. Each shard commits it's active transaction. The shard executors are then
+     * released to the persistence unit.
+     */
+    @Override
+    public void close()
+    {
+        transaction.isActive = false;
+        transaction.rollbackOnly = false;
+        boolean isClosed = false;
+        try
+        {
+            callAllShards(new ShardCall<Void>(){
+
+                @Override
+                public Void call(EntityManagerLite shard)
+                {
+                    shard.close();
+                    return null;
+                }});
+            isClosed = true;
+        }
+        finally
+        {
+            if (shardExecutors != null)
+            {
+                shardedUnit.releaseShardExecutors(shardExecutors, isClosed);
+                shardExecutors = null;
+            }
+        }
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return shards.get(0).isOpen();
+    }
+
+    /**
+     * Returns transaction spanning all shards
+     * @return EntityTransaction
+     */
+    @Override
+    public EntityTransaction getTransaction()
+    {
+        return transaction;
+    }
+
+    /**
+     * Perform operation on shard at specified index, on the shard's thread, and wait for it to complete
+     * @param index Shard index
+     * @param shardCall Operation
+     * @return Result
+     */
+    protected <R> R runOnShard(int index, final ShardCall<R> shardCall)
+    {
+        final EntityManagerLite shard = shards.get(index);
+        if ((shardExecutors == null) || (shards.size() == 1))
+            return shardCall.call(shard);
+        Future<R> future = getShardExecutor(index).submit(new Callable<R>(){
+
+            @Override
+            public R call() throws Exception
+            {
+                return shardCall.call(shard);
+            }});
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Interrupted waiting for shard", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw getFailure(e);
+        }
+    }
+
+    /**
+     * Perform operation on all shards in parallel, each on the shard's thread, and wait for all to complete
+     * @param shardCall Operation
+     * @return Result of each shard in index order
+     * @throws RuntimeException first exception thrown by any shard, after all shards complete
+     */
+    protected <R> List<R> callAllShards(final ShardCall<R> shardCall)
+    {
+        List<R> resultList = new ArrayList<R>(shards.size());
+        RuntimeException failure = null;
+        if ((shardExecutors == null) || (shards.size() == 1))
+        {
+            for (EntityManagerLite shard: shards)
+            {
+                try
+                {
+                    resultList.add(shardCall.call(shard));
+                }
+                catch (RuntimeException e)
+                {
+                    if (failure == null)
+                        failure = e;
+                    resultList.add(null);
+                }
+            }
+        }
+        else
+        {
+            List<Future<R>> futureList = new ArrayList<Future<R>>(shards.size());
+            for (int index = 0; index < shards.size(); ++index)
+            {
+                final EntityManagerLite shard = shards.get(index);
+                futureList.add(getShardExecutor(index).submit(new Callable<R>(){
+
+                    @Override
+                    public R call() throws Exception
+                    {
+                        return shardCall.call(shard);
+                    }}));
+            }
+            for (Future<R> future: futureList)
+            {
+                R result = null;
+                try
+                {
+                    result = future.get();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    if (failure == null)
+                        failure = new PersistenceException("Interrupted waiting for shard", e);
+                }
+                catch (ExecutionException e)
+                {
+                    if (failure == null)
+                        failure = getFailure(e);
+                }
+                resultList.add(result);
+            }
+        }
+        if (failure != null)
+            throw failure;
+        return resultList;
+    }
+
+    /**
+     * Returns executor of shard at specified index
+     * @param index Shard index
+     * @return ExecutorService
+     * @throws IllegalStateException if the entity manager is closed
+     */
+    protected ExecutorService getShardExecutor(int index)
+    {
+        List<ExecutorService> executors = shardExecutors;
+        if (executors == null)
+            throw new IllegalStateException("Sharded EntityManager is closed");
+        return executors.get(index);
+    }
+
+    /**
+     * Returns exception thrown by shard operation
+     * @param e ExecutionException
+     * @return RuntimeException
+     */
+    protected static RuntimeException getFailure(ExecutionException e)
+    {
+        return e.getCause() instanceof RuntimeException ?
+               (RuntimeException)e.getCause() :
+               new PersistenceException("Shard operation failed", e.getCause());
+    }
+}
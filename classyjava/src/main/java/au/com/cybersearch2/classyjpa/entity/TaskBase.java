@@ -95,10 +95,7 @@ public class TaskBase extends BackgroundTask
      */
     protected void notifyTaskCompleted() 
     {
-        synchronized(executable)
-        {
-            executable.notifyAll();
-        }
+        executable.notifyCompletion();
     }
 
     /**
@@ -0,0 +1,226 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.entity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WriteBehindQueue
+ * Holds inserts and deletes deferred by an EntityManager in write-behind mode until the transaction is flushed.
+ * Operations are drained in the order they were queued. Consecutive operations of the same kind on the same
+ * entity class are grouped into one batch, so statement order is preserved while long runs share a batch.
+ * A remove which follows a queued persist of the same entity cancels both operations.
+ * Note: This class is not thread safe. It assumes that the owning EntityManager runs in a single thread
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class WriteBehindQueue
+{
+    /**
+     * BatchCallback
+     * Receives batches of pending operations when the queue is drained
+     */
+    public interface BatchCallback
+    {
+        /**
+         * Write batch to database
+         * @param entityClass Class of entities in batch
+         * @param isRemove Flag set true if batch is for delete, otherwise insert
+         * @param entityList Entities in queue order
+         */
+        void onBatch(Class<?> entityClass, boolean isRemove, List<Object> entityList);
+    }
+
+    /** Pending operation */
+    static class PendingWrite
+    {
+        final Object entity;
+        final boolean isRemove;
+        /** Pending operation on the same entity which this one follows, restored if this one is cancelled */
+        final PendingWrite previous;
+        boolean cancelled;
+
+        PendingWrite(Object entity, boolean isRemove, PendingWrite previous)
+        {
+            this.entity = entity;
+            this.isRemove = isRemove;
+            this.previous = previous;
+        }
+    }
+
+    /** Pending operations in queue order */
+    protected List<PendingWrite> pendingWrites;
+    /** Latest pending operation mapped by entity key */
+    protected Map<EntityKey, PendingWrite> pendingMap;
+    /** Count of operations not cancelled */
+    protected int size;
+
+    /**
+     * Create WriteBehindQueue object
+     */
+    public WriteBehindQueue()
+    {
+        pendingWrites = new ArrayList<PendingWrite>();
+        pendingMap = new HashMap<EntityKey, PendingWrite>();
+    }
+
+    /**
+     * Queue insert of new entity
+     * @param entity Entity to insert
+     * @param primaryKey Entity primary key
+     * @throws IllegalArgumentException if primary key is null
+     */
+    public void queuePersist(Object entity, Object primaryKey)
+    {
+        if (primaryKey == null)
+            throw new IllegalArgumentException("Entity of class " + entity.getClass().getName() + " queued for persist does not have primary key");
+        EntityKey key = new EntityKey(entity.getClass(), primaryKey);
+        PendingWrite pendingWrite = new PendingWrite(entity, false, pendingMap.get(key));
+        pendingWrites.add(pendingWrite);
+        pendingMap.put(key, pendingWrite);
+        ++size;
+    }
+
+    /**
+     * Queue delete of entity. If the entity is waiting to be inserted, the insert is cancelled instead,
+     * and a delete queued before that insert becomes the latest pending operation again.
+     * @param entity Entity to delete
+     * @param primaryKey Entity primary key
+     * @throws IllegalArgumentException if primary key is null
+     */
+    public void queueRemove(Object entity, Object primaryKey)
+    {
+        if (primaryKey == null)
+            throw new IllegalArgumentException("Entity of class " + entity.getClass().getName() + " queued for remove does not have primary key");
+        EntityKey key = new EntityKey(entity.getClass(), primaryKey);
+        PendingWrite pendingWrite = pendingMap.get(key);
+        if ((pendingWrite != null) && !pendingWrite.isRemove)
+        {   // Entity never reached the database
+            pendingWrite.cancelled = true;
+            if (pendingWrite.previous != null)
+                pendingMap.put(key, pendingWrite.previous);
+            else
+                pendingMap.remove(key);
+            --size;
+            return;
+        }
+        pendingWrite = new PendingWrite(entity, true, null);
+        pendingWrites.add(pendingWrite);
+        pendingMap.put(key, pendingWrite);
+        ++size;
+    }
+
+    /**
+     * Returns entity waiting to be inserted
+     * @param entityClass Class of entity
+     * @param primaryKey Entity primary key
+     * @return Entity object or null if no insert is pending
+     */
+    public Object getPendingPersist(Class<?> entityClass, Object primaryKey)
+    {
+        PendingWrite pendingWrite = getPendingWrite(entityClass, primaryKey);
+        return (pendingWrite != null) && !pendingWrite.isRemove ? pendingWrite.entity : null;
+    }
+
+    /**
+     * Returns flag set true if entity is waiting to be deleted
+     * @param entityClass Class of entity
+     * @param primaryKey Entity primary key
+     * @return boolean
+     */
+    public boolean isPendingRemove(Class<?> entityClass, Object primaryKey)
+    {
+        PendingWrite pendingWrite = getPendingWrite(entityClass, primaryKey);
+        return (pendingWrite != null) && pendingWrite.isRemove;
+    }
+
+    /**
+     * Returns number of pending operations
+     * @return int
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns flag set true if no operations are pending
+     * @return boolean
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Discard all pending operations
+     */
+    public void clear()
+    {
+        pendingWrites.clear();
+        pendingMap.clear();
+        size = 0;
+    }
+
+    /**
+     * Empty the queue, passing pending operations to the callback in batches. The queue is
+     * cleared before the first batch is written so a failure does not leave operations behind.
+     * @param batchCallback Batch callback
+     * @return Number of batches written
+     */
+    public int drain(BatchCallback batchCallback)
+    {
+        List<PendingWrite> drainList = pendingWrites;
+        pendingWrites = new ArrayList<PendingWrite>();
+        pendingMap.clear();
+        size = 0;
+        int batchCount = 0;
+        Class<?> batchClass = null;
+        boolean batchIsRemove = false;
+        List<Object> entityList = new ArrayList<Object>();
+        for (PendingWrite pendingWrite: drainList)
+        {
+            if (pendingWrite.cancelled)
+                continue;
+            Class<?> entityClass = pendingWrite.entity.getClass();
+            if (!entityList.isEmpty() && ((entityClass != batchClass) || (pendingWrite.isRemove != batchIsRemove)))
+            {
+                batchCallback.onBatch(batchClass, batchIsRemove, entityList);
+                ++batchCount;
+                entityList = new ArrayList<Object>();
+            }
+            batchClass = entityClass;
+            batchIsRemove = pendingWrite.isRemove;
+            entityList.add(pendingWrite.entity);
+        }
+        if (!entityList.isEmpty())
+        {
+            batchCallback.onBatch(batchClass, batchIsRemove, entityList);
+            ++batchCount;
+        }
+        return batchCount;
+    }
+
+    private PendingWrite getPendingWrite(Class<?> entityClass, Object primaryKey)
+    {
+        if ((primaryKey == null) || (size == 0))
+            return null;
+        return pendingMap.get(new EntityKey(entityClass, primaryKey));
+    }
+}
@@ -43,6 +43,7 @@ import com.j256.ormlite.table.DatabaseTableConfig;
 /**
  * ClassAnalyser
  * Adds to com.j256.ormlite.misc.JavaxPersistence to support OneToMany and ManyToOne annotations.
+ * A field annotated with @Version is mapped to an OrmLite version field for optimistic locking.
  * Duplicates some DatabaseFieldConfig code for processing @ForeignCollection annotation.
  * @author Andrew Bowley
  * 18/07/2014
@@ -224,6 +225,12 @@ public class ClassAnalyser
                 if (fieldConfig == null) 
                     // In case nothing found, check for unsupported OneToMany annotation
                     fieldConfig = createOneToManyConfig(databaseType, field);
+                if (isVersionField(field))
+                {   // Updates will check and increment the version column
+                    if (fieldConfig == null)
+                        fieldConfig = createFieldConfig(databaseType, field);
+                    fieldConfig.setVersion(true);
+                }
                 if (fieldConfig != null) 
                 {
                     fieldConfigs.add(fieldConfig);
@@ -295,6 +302,19 @@ public class ClassAnalyser
         }
     }
 
+    /**
+     * Returns flag set true if field has @Version annotation
+     * @param field Field object
+     * @return boolean
+     */
+    private boolean isVersionField(Field field)
+    {
+        for (Annotation annotation : field.getAnnotations())
+            if (annotation.annotationType().getName().equals("javax.persistence.Version"))
+                return true;
+        return false;
+    }
+
     /**
      * Process OneToMany annotation missing from com.j256.ormlite.misc.JavaxPersistence probably because
      * ForeignCollection annotation serves the same purpose
@@ -320,6 +340,22 @@ public class ClassAnalyser
         }
         if (oneToManyAnnotation == null)
             return null;
+        DatabaseFieldConfig config = createFieldConfig(databaseType, field);
+        // Defaults from ForeignCollectionField
+        config.setForeignCollection(true);
+        config.setForeignCollectionMaxEagerLevel(1);
+        config.setForeignCollectionOrderAscending(true);
+        return config;
+    }
+
+    /**
+     * Returns DatabaseFieldConfig for field with no annotation recognised by OrmLite
+     * @param databaseType DatabaseType object
+     * @param field Field object
+     * @return DatabaseFieldConfig
+     */
+    private DatabaseFieldConfig createFieldConfig(DatabaseType databaseType, Field field)
+    {
         DatabaseFieldConfig config = new DatabaseFieldConfig();
         String fieldName = field.getName();
         if (databaseType.isEntityNamesMustBeUpCase())
@@ -331,10 +367,6 @@ public class ClassAnalyser
             config.setDataPersister(DataPersisterManager.lookupForField(field));
         config.setUseGetSet((DatabaseFieldConfig.findGetMethod(field, databaseType, false) != null) &&
                             (DatabaseFieldConfig.findSetMethod(field, databaseType, false) != null));
-        // Defaults from ForeignCollectionField
-        config.setForeignCollection(true);
-        config.setForeignCollectionMaxEagerLevel(1);
-        config.setForeignCollectionOrderAscending(true);
         return config;
     }
  
@@ -0,0 +1,119 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.persist;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+
+import javax.persistence.PersistenceException;
+
+import com.j256.ormlite.field.DatabaseField;
+
+/**
+ * FieldShardKey
+ * Shard key which is the value of an entity field. The field defaults to the primary key.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class FieldShardKey implements ShardKey
+{
+    /** Field containing shard key value */
+    protected Field field;
+    /** Flag set true if field is primary key */
+    protected boolean isPrimaryKey;
+
+    /**
+     * Create FieldShardKey object
+     * @param entityClass Entity class
+     * @param fieldName Name of field declared in entity class or one of it's super classes
+     * @throws PersistenceException if field not found
+     */
+    public FieldShardKey(Class<?> entityClass, String fieldName)
+    {
+        for (Class<?> working = entityClass; (working != null) && (field == null); working = working.getSuperclass())
+            for (Field declaredField: working.getDeclaredFields())
+                if (declaredField.getName().equals(fieldName))
+                {
+                    field = declaredField;
+                    break;
+                }
+        if (field == null)
+            throw new PersistenceException("Shard key field \"" + fieldName + "\" not found in class " + entityClass.getName());
+        field.setAccessible(true);
+        isPrimaryKey = isIdField(field);
+    }
+
+    /**
+     * Returns shard key of primary key field
+     * @param entityClass Entity class
+     * @return FieldShardKey
+     * @throws PersistenceException if entity class has no primary key field
+     */
+    public static FieldShardKey forPrimaryKey(Class<?> entityClass)
+    {
+        for (Class<?> working = entityClass; working != null; working = working.getSuperclass())
+            for (Field declaredField: working.getDeclaredFields())
+                if (isIdField(declaredField))
+                    return new FieldShardKey(entityClass, declaredField.getName());
+        throw new PersistenceException("Class " + entityClass.getName() + " has no primary key field to use as shard key");
+    }
+
+    /**
+     * @see au.com.cybersearch2.classyjpa.persist.ShardKey#getShardKey(java.lang.Object)
+     */
+    @Override
+    public Object getShardKey(Object entity)
+    {
+        try
+        {
+            return field.get(entity);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new PersistenceException("Error reading shard key field " + field, e);
+        }
+    }
+
+    /**
+     * @see au.com.cybersearch2.classyjpa.persist.ShardKey#isPrimaryKey()
+     */
+    @Override
+    public boolean isPrimaryKey()
+    {
+        return isPrimaryKey;
+    }
+
+    /**
+     * Returns flag set true if given field is annotated as the primary key
+     * @param field Field object
+     * @return boolean
+     */
+    protected static boolean isIdField(Field field)
+    {
+        for (Annotation annotation : field.getAnnotations())
+        {
+            if (annotation.annotationType().getName().equals("javax.persistence.Id"))
+                return true;
+            if (annotation instanceof DatabaseField)
+            {
+                DatabaseField databaseField = (DatabaseField)annotation;
+                if (databaseField.id() || databaseField.generatedId())
+                    return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,32 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.persist;
+
+/**
+ * InitializationPhase
+ * Stages of persistence unit start up, in order of execution
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public enum InitializationPhase
+{
+    /** Create configuration from persistence.xml and analyse entity classes */
+    configure,
+    /** Open connection source */
+    connect,
+    /** Check version, run create/upgrade scripts and check entity tables */
+    database
+}
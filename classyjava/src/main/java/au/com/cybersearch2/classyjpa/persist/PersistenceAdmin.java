@@ -24,8 +24,11 @@ import com.j256.ormlite.support.ConnectionSource;
 import au.com.cybersearch2.classyjpa.EntityManagerLite;
 import au.com.cybersearch2.classyjpa.EntityManagerLiteFactory;
 import au.com.cybersearch2.classyjpa.query.DaoQueryFactory;
+import au.com.cybersearch2.classyjpa.query.Projection;
 import au.com.cybersearch2.classyjpa.query.QueryInfo;
+import au.com.cybersearch2.classyjpa.query.QueryResultCache;
 import au.com.cybersearch2.classyjpa.query.SqlQueryFactory;
+import au.com.cybersearch2.classyjpa.transaction.ChangeStream;
 
 /**
  * PersistenceAdmin
@@ -42,6 +45,15 @@ public interface PersistenceAdmin extends ConnectionSourceFactory
      * @param daoQueryFactory Query generator
      */
     void addNamedQuery(Class<?> clazz, String name, DaoQueryFactory daoQueryFactory);
+
+    /**
+     * Add named projection query to persistence unit context
+     * @param clazz Entity class
+     * @param name Query name
+     * @param daoQueryFactory Query generator
+     * @param projection Selected columns mapped to result objects
+     */
+    void addNamedQuery(Class<?> clazz, String name, DaoQueryFactory daoQueryFactory, Projection projection);
     
     /**
      * Add native named query to persistence unit context
@@ -110,4 +122,36 @@ public interface PersistenceAdmin extends ConnectionSourceFactory
     /** Flag set true if connection source is for a single connection */
     boolean isSingleConnection();
 
+    /**
+     * Returns stream of entity changes of committed transactions
+     * @return ChangeStream object or null if change data capture is off
+     */
+    ChangeStream getChangeStream();
+
+    /**
+     * Turn on change data capture for entity managers created from now on, or off if stream is null
+     * @param changeStream ChangeStream object
+     */
+    void setChangeStream(ChangeStream changeStream);
+
+    /**
+     * Set whether results of a named query are cached when a query result cache is configured
+     * @param name Query name
+     * @param isCacheable Flag set true to cache results
+     * @param tables Tables read by query if not only the entity or query table
+     */
+    void setQueryCacheable(String name, boolean isCacheable, String... tables);
+
+    /**
+     * Returns cache of named query results
+     * @return QueryResultCache object or null if query results are not cached
+     */
+    QueryResultCache getQueryResultCache();
+
+    /**
+     * Turn on caching of named query results for entity managers created from now on, or off if cache is null
+     * @param queryResultCache QueryResultCache object
+     */
+    void setQueryResultCache(QueryResultCache queryResultCache);
+
  }
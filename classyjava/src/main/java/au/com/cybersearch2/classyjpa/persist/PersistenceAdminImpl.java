@@ -28,8 +28,11 @@ import au.com.cybersearch2.classyjpa.EntityManagerLite;
 import au.com.cybersearch2.classyjpa.EntityManagerLiteFactory;
 import au.com.cybersearch2.classyjpa.entity.EntityManagerImpl;
 import au.com.cybersearch2.classyjpa.query.DaoQueryFactory;
+import au.com.cybersearch2.classyjpa.query.Projection;
 import au.com.cybersearch2.classyjpa.query.QueryInfo;
+import au.com.cybersearch2.classyjpa.query.QueryResultCache;
 import au.com.cybersearch2.classyjpa.query.SqlQueryFactory;
+import au.com.cybersearch2.classyjpa.transaction.ChangeStream;
 import au.com.cybersearch2.classylog.JavaLogger;
 import au.com.cybersearch2.classylog.Log;
 
@@ -100,6 +103,20 @@ public class PersistenceAdminImpl implements PersistenceAdmin
         config.addNamedQuery(clazz, name, daoQueryFactory);
     }
 
+    /**
+     * Add named projection query to persistence unit context
+     * @param clazz Entity class
+     * @param name Query name
+     * @param daoQueryFactory Query generator
+     * @param projection Selected columns mapped to result objects
+     */
+    @Override
+    public void addNamedQuery(Class<?> clazz, String name,
+            DaoQueryFactory daoQueryFactory, Projection projection)
+    {
+        config.addNamedQuery(clazz, name, daoQueryFactory, projection);
+    }
+
     /**
      * Add native named query to persistence unit context
      * @param name Query name
@@ -257,6 +274,36 @@ public class PersistenceAdminImpl implements PersistenceAdmin
 	{
 		config.registerClasses(managedClassNames);
 	}
+
+	@Override
+	public ChangeStream getChangeStream()
+	{
+		return config.getChangeStream();
+	}
+
+	@Override
+	public void setChangeStream(ChangeStream changeStream)
+	{
+		config.setChangeStream(changeStream);
+	}
+
+	@Override
+	public void setQueryCacheable(String name, boolean isCacheable, String... tables)
+	{
+		config.setQueryCacheable(name, isCacheable, tables);
+	}
+
+	@Override
+	public QueryResultCache getQueryResultCache()
+	{
+		return config.getQueryResultCache();
+	}
+
+	@Override
+	public void setQueryResultCache(QueryResultCache queryResultCache)
+	{
+		config.setQueryResultCache(queryResultCache);
+	}
 	
 	public static String getDatabaseName(PersistenceUnitInfo puInfo)
 	{
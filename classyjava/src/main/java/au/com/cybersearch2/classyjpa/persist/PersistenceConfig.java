@@ -45,8 +45,11 @@ import au.com.cybersearch2.classyjpa.persist.ClassAnalyser.ClassRegistry;
 import au.com.cybersearch2.classyjpa.query.DaoQueryFactory;
 import au.com.cybersearch2.classyjpa.query.NamedDaoQuery;
 import au.com.cybersearch2.classyjpa.query.NamedSqlQuery;
+import au.com.cybersearch2.classyjpa.query.Projection;
 import au.com.cybersearch2.classyjpa.query.QueryInfo;
+import au.com.cybersearch2.classyjpa.query.QueryResultCache;
 import au.com.cybersearch2.classyjpa.query.SqlQueryFactory;
+import au.com.cybersearch2.classyjpa.transaction.ChangeStream;
 import au.com.cybersearch2.classylog.JavaLogger;
 import au.com.cybersearch2.classylog.Log;
 
@@ -80,6 +83,10 @@ public class PersistenceConfig
     protected DatabaseType databaseType;
     /** Class loader to instantiate entity classes (optional) */
     protected EntityClassLoader entityClassLoader;
+    /** Stream to publish entity changes of committed transactions (optional) */
+    protected volatile ChangeStream changeStream;
+    /** Cache of named query results (optional) */
+    protected volatile QueryResultCache queryResultCache;
 
     /**
      * Construct a PersistenceConfig instance
@@ -100,11 +107,24 @@ public class PersistenceConfig
      * @param daoQueryFactory Query generator which uses supplied DAO for entity class
      */
     public void addNamedQuery(Class<?> clazz, String name, DaoQueryFactory daoQueryFactory)
+    {
+        addNamedQuery(clazz, name, daoQueryFactory, null);
+    }
+
+    /**
+     * Create a named projection query and store it in namedQueryMap. The query selects only the projection columns
+     * and returns result objects created by the projection instead of entities.
+     * @param clazz Class&lt;?&gt; class of entity to which the query applies
+     * @param name Query name
+     * @param daoQueryFactory Query generator which uses supplied DAO for entity class
+     * @param projection Selected columns mapped to result objects, or null if query returns entities
+     */
+    public void addNamedQuery(Class<?> clazz, String name, DaoQueryFactory daoQueryFactory, Projection projection)
     {
         if (existsName(name))
             log.warn(TAG, NAME_EXISTS_MESSAGE + name);
         else
-            namedQueryMap.put(name, new NamedDaoQuery(clazz, name, daoQueryFactory));
+            namedQueryMap.put(name, new NamedDaoQuery(clazz, name, daoQueryFactory, projection));
     }
 
     /**
@@ -121,6 +141,24 @@ public class PersistenceConfig
             nativeQueryMap.put(name, new NamedSqlQuery(name, queryInfo, queryGenerator));
     }
 
+    /**
+     * Set whether results of a named query are cached when a query result cache is configured
+     * @param name Query name
+     * @param isCacheable Flag set true to cache results
+     * @param tables Tables read by query if not only the entity or query table, for example when the query has a join
+     * @throws IllegalArgumentException if a query has not been defined with the given name
+     */
+    public void setQueryCacheable(String name, boolean isCacheable, String... tables)
+    {
+        NamedDaoQuery namedDaoQuery = namedQueryMap.get(name);
+        if (namedDaoQuery != null)
+            namedDaoQuery.setCacheable(isCacheable, tables);
+        else if (nativeQueryMap.containsKey(name))
+            nativeQueryMap.get(name).setCacheable(isCacheable, tables);
+        else
+            throw new IllegalArgumentException("Named query '" + name + "' not found");
+    }
+
     /**
      * Returns true in query of specified name exists
      * @param name
@@ -183,6 +221,42 @@ public class PersistenceConfig
     {
     	this.entityClassLoader = entityClassLoader;
     }
+
+    /**
+     * Returns stream to which entity managers publish entity changes of committed transactions
+     * @return ChangeStream object or null if change data capture is off
+     */
+    public ChangeStream getChangeStream()
+    {
+        return changeStream;
+    }
+
+    /**
+     * Set stream to which entity managers created from now on publish entity changes of committed transactions
+     * @param changeStream ChangeStream object or null to turn off change data capture
+     */
+    public void setChangeStream(ChangeStream changeStream)
+    {
+        this.changeStream = changeStream;
+    }
+
+    /**
+     * Returns cache of named query results
+     * @return QueryResultCache object or null if query results are not cached
+     */
+    public QueryResultCache getQueryResultCache()
+    {
+        return queryResultCache;
+    }
+
+    /**
+     * Set cache of named query results for entity managers created from now on
+     * @param queryResultCache QueryResultCache object or null to turn off caching
+     */
+    public void setQueryResultCache(QueryResultCache queryResultCache)
+    {
+        this.queryResultCache = queryResultCache;
+    }
     protected void registerClasses(List<String> managedClassNames)
     {
         ClassRegistry classRegistry = new ClassRegistry(){
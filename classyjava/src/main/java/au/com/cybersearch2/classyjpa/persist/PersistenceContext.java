@@ -23,6 +23,7 @@ import javax.persistence.PersistenceException;
 import au.com.cybersearch2.classydb.DatabaseAdmin;
 import au.com.cybersearch2.classydb.DatabaseSupport;
 import au.com.cybersearch2.classydb.ConnectionSourceFactory;
+import au.com.cybersearch2.classyjpa.EntityManagerLiteFactory;
 
 /**
  * PersistenceContext
@@ -86,6 +87,27 @@ public class PersistenceContext
         return getPersistenceUnit(puName).getPersistenceAdmin();
     }
 
+    /**
+     * Returns sharded persistence unit, specified by logical name
+     * @param puName Logical persistence unit name
+     * @return ShardedPersistenceUnit or null if persistence unit is not sharded
+     */
+    public ShardedPersistenceUnit getShardedPersistenceUnit(String puName)
+    {
+        return persistenceFactory.getShardedPersistenceUnit(puName);
+    }
+
+    /**
+     * Returns EntityManager factory of sharded persistence unit
+     * @param puName Logical persistence unit name
+     * @return EntityManagerLiteFactory
+     * @throws PersistenceException if persistence unit is not sharded
+     */
+    public EntityManagerLiteFactory getShardedEntityManagerFactory(String puName)
+    {
+        return persistenceFactory.getShardedEntityManagerFactory(puName);
+    }
+
     public void registerClasses(String puName, List<String> managedClassNames)
     {
     	getPersistenceAdmin(puName).registerClasses(managedClassNames);
@@ -98,6 +120,7 @@ public class PersistenceContext
     
     public void close()
     {
+        persistenceFactory.closeShardedUnits();
         persistenceFactory.getDatabaseSupport().close();
     }
 
@@ -120,4 +143,13 @@ public class PersistenceContext
     {
         return persistenceFactory.getDatabaseSupport();
     }
+
+    /**
+     * Returns start up timings by persistence unit and initialization phase
+     * @return StartupReport
+     */
+    public StartupReport getStartupReport()
+    {
+        return persistenceFactory.getStartupReport();
+    }
 }
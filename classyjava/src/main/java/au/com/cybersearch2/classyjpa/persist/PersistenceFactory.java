@@ -17,9 +17,13 @@ package au.com.cybersearch2.classyjpa.persist;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.persistence.PersistenceException;
 import javax.persistence.spi.PersistenceUnitInfo;
@@ -34,6 +38,8 @@ import au.com.cybersearch2.classydb.DatabaseAdmin;
 import au.com.cybersearch2.classydb.DatabaseAdminImpl;
 import au.com.cybersearch2.classydb.DatabaseSupport;
 import au.com.cybersearch2.classydb.OpenHelperCallbacks;
+import au.com.cybersearch2.classyjpa.EntityManagerLiteFactory;
+import au.com.cybersearch2.classyjpa.persist.PersistenceUnitInitializer.UnitTask;
 
 /**
  * PersistenceFactory
@@ -51,18 +57,42 @@ public class PersistenceFactory
     protected Map<String, DatabaseAdminImpl> databaseAdminImplMap;
     /** Interface for access to persistence.xml */
     protected ResourceEnvironment resourceEnvironment;
+    /** Runs each initialization phase over all persistence units, sequentially or in parallel */
+    protected PersistenceUnitInitializer persistenceUnitInitializer;
+    /** Persistence unit names grouped by database name. Units sharing a database are initialized in turn. */
+    protected Collection<List<String>> unitGroups;
+    /** Maps sharded persistence unit to logical persistence unit name */
+    protected Map<String, ShardedPersistenceUnit> shardedUnitMap;
    
     /**
-     * Create PersistenceFactory object
+     * Create PersistenceFactory object. Persistence units are initialized sequentially unless a unit in
+     * persistence.xml sets property "startup-threads" to a value greater than 1.
      * @param databaseSupport Native support
+     * @param resourceEnvironment Resource environment
      * @throws PersistenceException for error opening or parsing persistence.xml
      */
     public PersistenceFactory(DatabaseSupport databaseSupport, ResourceEnvironment resourceEnvironment)
+    {
+        this(databaseSupport, resourceEnvironment, null);
+    }
+
+    /**
+     * Create PersistenceFactory object
+     * @param databaseSupport Native support
+     * @param resourceEnvironment Resource environment
+     * @param persistenceUnitInitializer Runs initialization phases. Set parallelism greater than 1 for parallel startup.
+     *     If null, parallelism is set by persistence unit property "startup-threads".
+     * @throws PersistenceException for error opening or parsing persistence.xml
+     */
+    public PersistenceFactory(DatabaseSupport databaseSupport, ResourceEnvironment resourceEnvironment, PersistenceUnitInitializer persistenceUnitInitializer)
     {
         this.databaseSupport = databaseSupport;
         this.resourceEnvironment = resourceEnvironment;
-        persistenceImplMap = new HashMap<String, PersistenceAdminImpl>();
-        databaseAdminImplMap = new HashMap<String, DatabaseAdminImpl>();
+        this.persistenceUnitInitializer = persistenceUnitInitializer;
+        // Maps are updated concurrently during parallel startup
+        persistenceImplMap = new ConcurrentHashMap<String, PersistenceAdminImpl>();
+        databaseAdminImplMap = new ConcurrentHashMap<String, DatabaseAdminImpl>();
+        shardedUnitMap = new ConcurrentHashMap<String, ShardedPersistenceUnit>();
         initializePersistenceContext();
     }
 
@@ -74,6 +104,15 @@ public class PersistenceFactory
     {
         return databaseSupport;
     }
+
+    /**
+     * Returns start up timings by persistence unit and initialization phase
+     * @return StartupReport
+     */
+    public StartupReport getStartupReport()
+    {
+        return persistenceUnitInitializer.getStartupReport();
+    }
  
     /**
      * Returns persistence unit implementation, specified by name
@@ -118,31 +157,161 @@ public class PersistenceFactory
         };
     }
 
+    /**
+     * Returns sharded persistence unit, specified by logical name
+     * @param puName Logical persistence unit name
+     * @return ShardedPersistenceUnit or null if persistence unit is not sharded
+     */
+    public ShardedPersistenceUnit getShardedPersistenceUnit(String puName)
+    {
+        return shardedUnitMap.get(puName);
+    }
+
+    /**
+     * Returns EntityManager factory of sharded persistence unit
+     * @param puName Logical persistence unit name
+     * @return EntityManagerLiteFactory
+     * @throws PersistenceException if persistence unit is not sharded
+     */
+    public EntityManagerLiteFactory getShardedEntityManagerFactory(String puName)
+    {
+        ShardedPersistenceUnit shardedUnit = shardedUnitMap.get(puName);
+        if (shardedUnit == null)
+            throw new PersistenceException("Sharded Persistence Unit named \"" + puName + "\" not found");
+        List<EntityManagerLiteFactory> shardFactories = new ArrayList<EntityManagerLiteFactory>(shardedUnit.getShardCount());
+        for (String shardName: shardedUnit.getShardNames())
+            shardFactories.add(persistenceImplMap.get(shardName).getEntityManagerFactory());
+        return new ShardedEntityManagerFactory(shardedUnit, shardFactories);
+    }
+
+    /**
+     * Release resources of sharded persistence units
+     */
+    public void closeShardedUnits()
+    {
+        for (ShardedPersistenceUnit shardedUnit: shardedUnitMap.values())
+            shardedUnit.close();
+    }
+
     /**
      * Initialize persistence unit implementations based on persistence.xml configuration
-     * @param databaseSupport Native support used to obtain database type
      * @throws PersistenceException for error opening or parsing persistence.xml
      */
     protected synchronized void initializePersistenceContext()
     {
         // Input persistence.xml
-        Map<String, PersistenceUnitInfo> puMap = readPersistenceConfigFile(resourceEnvironment);
+        final Map<String, PersistenceUnitInfo> puMap = expandShardedUnits(readPersistenceConfigFile(resourceEnvironment));
+        unitGroups = getUnitGroups(puMap);
+        if (persistenceUnitInitializer == null)
+            persistenceUnitInitializer = new PersistenceUnitInitializer(getStartupThreads(puMap));
         // Set up PU implementations
-        for (String name: puMap.keySet())
+        persistenceUnitInitializer.runPhase(InitializationPhase.configure, unitGroups, new UnitTask(){
+
+            @Override
+            public void initialize(String puName)
+            {
+                configurePersistenceUnit(puName, puMap.get(puName));
+            }});
+        databaseSupport.initialize();
+    }
+
+    /**
+     * Create persistence unit implementation
+     * @param name Persistence unit name
+     * @param puInfo PU info read from persistence.xml
+     */
+    protected void configurePersistenceUnit(String name, PersistenceUnitInfo puInfo)
+    {
+        // Create configuration object and initialize it according to PU info read from persistence.xml
+        // This includes setting up DAOs for all entity classes
+        PersistenceConfig persistenceConfig = new PersistenceConfig(databaseSupport.getDatabaseType());
+        persistenceConfig.setEntityClassLoader(resourceEnvironment.getEntityClassLoader());
+        persistenceConfig.setPuInfo(puInfo);
+        // Create objects for JPA and native support which are accessed using PersistenceFactory
+        PersistenceAdminImpl persistenceAdmin = new PersistenceAdminImpl(name, databaseSupport, persistenceConfig);
+        persistenceImplMap.put(name, persistenceAdmin);
+        OpenHelperCallbacks openHelperCallbacks = getOpenHelperCallbacks(persistenceConfig.getPuInfo().getProperties());
+        DatabaseAdminImpl databaseAdmin = new DatabaseAdminImpl(name, persistenceAdmin, resourceEnvironment, openHelperCallbacks);
+        databaseAdminImplMap.put(name, databaseAdmin);
+    }
+
+    /**
+     * Returns persistence units with each sharded unit replaced by it's shards
+     * @param puMap PU info read from persistence.xml mapped to persistence unit name
+     * @return PU info of physical persistence units mapped to persistence unit name
+     */
+    protected Map<String, PersistenceUnitInfo> expandShardedUnits(Map<String, PersistenceUnitInfo> puMap)
+    {
+        Map<String, PersistenceUnitInfo> expandedMap = new LinkedHashMap<String, PersistenceUnitInfo>();
+        for (Map.Entry<String, PersistenceUnitInfo> entry: puMap.entrySet())
         {
-            // Create configuration object and initialize it according to PU info read from persistence.xml
-            // This includes setting up DAOs for all entity classes
-            PersistenceConfig persistenceConfig = new PersistenceConfig(databaseSupport.getDatabaseType());
-            persistenceConfig.setEntityClassLoader(resourceEnvironment.getEntityClassLoader());
-            persistenceConfig.setPuInfo(puMap.get(name));
-            // Create objects for JPA and native support which are accessed using PersistenceFactory
-            PersistenceAdminImpl persistenceAdmin = new PersistenceAdminImpl(name, databaseSupport, persistenceConfig);
-            persistenceImplMap.put(name, persistenceAdmin);
-            OpenHelperCallbacks openHelperCallbacks = getOpenHelperCallbacks(persistenceConfig.getPuInfo().getProperties());
-            DatabaseAdminImpl databaseAdmin = new DatabaseAdminImpl(name, persistenceAdmin, resourceEnvironment, openHelperCallbacks);
-            databaseAdminImplMap.put(name, databaseAdmin);
+            int shardCount = ShardedPersistenceUnit.getShardCount(entry.getValue());
+            if (shardCount > 1)
+            {
+                ShardedPersistenceUnit shardedUnit = new ShardedPersistenceUnit(entry.getValue(), shardCount);
+                shardedUnitMap.put(entry.getKey(), shardedUnit);
+                for (int i = 0; i < shardCount; ++i)
+                {
+                    PersistenceUnitInfo shardInfo = shardedUnit.createShardInfo(i);
+                    expandedMap.put(shardInfo.getPersistenceUnitName(), shardInfo);
+                }
+            }
+            else
+                expandedMap.put(entry.getKey(), entry.getValue());
         }
-        databaseSupport.initialize();
+        return expandedMap;
+    }
+
+    /**
+     * Returns persistence unit names grouped by database name
+     * @param puMap PU info read from persistence.xml mapped to persistence unit name
+     * @return Collection of name lists
+     */
+    protected Collection<List<String>> getUnitGroups(Map<String, PersistenceUnitInfo> puMap)
+    {
+        Map<String, List<String>> groupMap = new LinkedHashMap<String, List<String>>();
+        for (Map.Entry<String, PersistenceUnitInfo> entry: puMap.entrySet())
+        {
+            String databaseName = PersistenceAdminImpl.getDatabaseName(entry.getValue());
+            List<String> group = groupMap.get(databaseName);
+            if (group == null)
+            {
+                group = new ArrayList<String>();
+                groupMap.put(databaseName, group);
+            }
+            group.add(entry.getKey());
+        }
+        return groupMap.values();
+    }
+
+    /**
+     * Returns number of threads for persistence unit initialization configured in persistence.xml
+     * @param puMap PU info read from persistence.xml mapped to persistence unit name
+     * @return Largest "startup-threads" property value of any unit, or 1 if none is set
+     * @throws PersistenceException if a property value is not a positive integer
+     */
+    protected static int getStartupThreads(Map<String, PersistenceUnitInfo> puMap)
+    {
+        int startupThreads = 1;
+        for (PersistenceUnitInfo puInfo: puMap.values())
+        {
+            String value = puInfo.getProperties().getProperty(PersistenceUnitInfoImpl.STARTUP_THREADS_PROPERTY);
+            if (value == null)
+                continue;
+            int threads = 0;
+            try
+            {
+                threads = Integer.parseInt(value.trim());
+            }
+            catch (NumberFormatException e)
+            {
+            }
+            if (threads < 1)
+                throw new PersistenceException("\"" + puInfo.getPersistenceUnitName() + "\" property \"" +
+                                               PersistenceUnitInfoImpl.STARTUP_THREADS_PROPERTY + "\" is invalid: " + value);
+            startupThreads = Math.max(startupThreads, threads);
+        }
+        return startupThreads;
     }
 
     /**
@@ -186,30 +355,46 @@ public class PersistenceFactory
         return puMap;
     }
     
+    /**
+     * Open each database and handle create/upgrade events
+     * @param connectionSourceFactory Connection source factory
+     * @throws PersistenceException if initialization of any persistence unit fails
+     */
     public void initializeAllDatabases(ConnectionSourceFactory connectionSourceFactory)
     {
         //Initialize PU implementations
-        for (Map.Entry<String, DatabaseAdminImpl> entry: databaseAdminImplMap.entrySet())
-        {
-            PersistenceAdminImpl persistenceAdmin = persistenceImplMap.get(entry.getKey());
-        	DatabaseAdminImpl databaseAdmin = entry.getValue();
-        	databaseAdmin.initializeDatabase(persistenceAdmin.getConfig(), databaseSupport);
-        }
+        persistenceUnitInitializer.runPhase(InitializationPhase.database, unitGroups, new UnitTask(){
+
+            @Override
+            public void initialize(String puName)
+            {
+                PersistenceAdminImpl persistenceAdmin = persistenceImplMap.get(puName);
+                DatabaseAdminImpl databaseAdmin = databaseAdminImplMap.get(puName);
+                databaseAdmin.initializeDatabase(persistenceAdmin.getConfig(), databaseSupport);
+            }});
     }
     
-    public void initializeAllConnectionSources(ConnectionSourceFactory connectionSourceFactory)
+    /**
+     * Set connection source of each persistence unit
+     * @param connectionSourceFactory Connection source factory
+     * @throws PersistenceException if initialization of any persistence unit fails
+     */
+    public void initializeAllConnectionSources(final ConnectionSourceFactory connectionSourceFactory)
     {
         //Initialize PU implementations
-        for (Map.Entry<String, DatabaseAdminImpl> entry: databaseAdminImplMap.entrySet())
-        {
-            PersistenceAdminImpl persistenceAdmin = persistenceImplMap.get(entry.getKey());
-            PersistenceUnitInfo puInfo = persistenceAdmin.getConfig().getPuInfo();
-            String databaseName = PersistenceAdminImpl.getDatabaseName(puInfo);
-            ConnectionSource connectionSource = 
-                    connectionSourceFactory.getConnectionSource(databaseName, puInfo.getProperties());
-            persistenceAdmin.setConnectionSource(connectionSource);
-            persistenceAdmin.setSingleConnection();
-        }
+        persistenceUnitInitializer.runPhase(InitializationPhase.connect, unitGroups, new UnitTask(){
+
+            @Override
+            public void initialize(String puName)
+            {
+                PersistenceAdminImpl persistenceAdmin = persistenceImplMap.get(puName);
+                PersistenceUnitInfo puInfo = persistenceAdmin.getConfig().getPuInfo();
+                String databaseName = PersistenceAdminImpl.getDatabaseName(puInfo);
+                ConnectionSource connectionSource = 
+                        connectionSourceFactory.getConnectionSource(databaseName, puInfo.getProperties());
+                persistenceAdmin.setConnectionSource(connectionSource);
+                persistenceAdmin.setSingleConnection();
+            }});
     }
     
     /**
@@ -37,6 +37,8 @@ public class PersistenceUnitInfoImpl implements PersistenceUnitInfo
     public static final String PERSISTENCE_CONFIG_FILENAME = "persistence.xml";
     public static final String PU_NAME_PROPERTY = "persistence-unit-name";
     public static final String CUSTOM_OHC_PROPERTY = "open-helper-callbacks-classname";
+    /** Maximum number of persistence units initialized concurrently. The largest value of any unit applies. */
+    public static final String STARTUP_THREADS_PROPERTY = "startup-threads";
     
     private String persistenceUnitName;
     String persistenceProviderClassName = "";
@@ -0,0 +1,263 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.persist;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.PersistenceException;
+
+import au.com.cybersearch2.classylog.JavaLogger;
+import au.com.cybersearch2.classylog.Log;
+
+/**
+ * PersistenceUnitInitializer
+ * Runs each initialization phase over all persistence units, either sequentially in the caller thread
+ * or concurrently on a bounded thread pool. Persistence units are passed in groups. Units in the same
+ * group share a database and are initialized one after another in group order, while separate groups
+ * run in parallel. A failure is recorded and initialization of the rest of the group is skipped.
+ * All failures of a phase are aggregated in a single PersistenceException thrown once the phase completes.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class PersistenceUnitInitializer
+{
+    /**
+     * UnitTask
+     * Performs one initialization phase for one persistence unit
+     */
+    public interface UnitTask
+    {
+        /**
+         * Initialize persistence unit
+         * @param puName Persistence unit name
+         */
+        void initialize(String puName);
+    }
+
+    private static final String TAG = "PersistenceUnitInitializer";
+    private static Log log = JavaLogger.getLogger(TAG);
+    /** Default wait for a phase to complete */
+    public static final long DEFAULT_TIMEOUT_SECS = 300L;
+
+    /** Maximum number of threads. A value of 1 selects sequential initialization */
+    protected int parallelism;
+    /** Maximum time to wait for a phase to complete in seconds */
+    protected long timeoutSecs;
+    /** Timings by unit and phase */
+    protected StartupReport startupReport;
+
+    /**
+     * Construct a sequential PersistenceUnitInitializer object
+     */
+    public PersistenceUnitInitializer()
+    {
+        this(1);
+    }
+
+    /**
+     * Construct PersistenceUnitInitializer object
+     * @param parallelism Maximum number of persistence units to initialize concurrently
+     */
+    public PersistenceUnitInitializer(int parallelism)
+    {
+        this(parallelism, DEFAULT_TIMEOUT_SECS);
+    }
+
+    /**
+     * Construct PersistenceUnitInitializer object
+     * @param parallelism Maximum number of persistence units to initialize concurrently
+     * @param timeoutSecs Maximum time to wait for a phase to complete in seconds
+     */
+    public PersistenceUnitInitializer(int parallelism, long timeoutSecs)
+    {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parameter \"parallelism\" must be at least 1");
+        this.parallelism = parallelism;
+        this.timeoutSecs = timeoutSecs;
+        startupReport = new StartupReport();
+    }
+
+    /**
+     * Returns timings by unit and phase
+     * @return StartupReport object
+     */
+    public StartupReport getStartupReport()
+    {
+        return startupReport;
+    }
+
+    /**
+     * Returns flag set true if persistence units are initialized concurrently
+     * @return boolean
+     */
+    public boolean isParallel()
+    {
+        return parallelism > 1;
+    }
+
+    /**
+     * Run one initialization phase over all persistence units
+     * @param phase Initialization phase
+     * @param unitGroups Persistence unit names grouped by shared database
+     * @param unitTask Task to perform on each unit
+     * @throws PersistenceException if initialization of any unit fails
+     */
+    public void runPhase(InitializationPhase phase, Collection<List<String>> unitGroups, UnitTask unitTask)
+    {
+        long start = System.nanoTime();
+        List<Throwable> failures = new ArrayList<Throwable>();
+        try
+        {
+            if (!isParallel() || (unitGroups.size() < 2))
+                for (List<String> group: unitGroups)
+                {
+                    Throwable failure = runGroup(phase, group, unitTask);
+                    if (failure != null)
+                        failures.add(failure);
+                }
+            else
+                runConcurrently(phase, unitGroups, unitTask, failures);
+        }
+        finally
+        {
+            startupReport.recordPhaseTime(phase, System.nanoTime() - start);
+        }
+        if (!failures.isEmpty())
+        {
+            if (failures.size() == 1)
+            {
+                Throwable failure = failures.get(0);
+                if (failure instanceof PersistenceException)
+                    throw (PersistenceException)failure;
+                throw new PersistenceException("Persistence unit " + phase.toString() + " failed", failure);
+            }
+            PersistenceException persistenceException =
+                new PersistenceException(failures.size() + " persistence units failed " + phase.toString(), failures.get(0));
+            for (int i = 1; i < failures.size(); ++i)
+                persistenceException.addSuppressed(failures.get(i));
+            throw persistenceException;
+        }
+    }
+
+    /**
+     * Run one group per thread and collect failures
+     * @param phase Initialization phase
+     * @param unitGroups Persistence unit names grouped by shared database
+     * @param unitTask Task to perform on each unit
+     * @param failures List to collect failures
+     */
+    protected void runConcurrently(
+            final InitializationPhase phase,
+            Collection<List<String>> unitGroups,
+            final UnitTask unitTask,
+            List<Throwable> failures)
+    {
+        ExecutorService executor =
+            Executors.newFixedThreadPool(Math.min(parallelism, unitGroups.size()), new ThreadFactory()
+            {
+                private final AtomicInteger count = new AtomicInteger(1);
+
+                public Thread newThread(Runnable r)
+                {
+                    return new Thread(r, "PU " + phase.toString() + " #" + count.getAndIncrement());
+                }
+            });
+        List<Future<Throwable>> futureList = new ArrayList<Future<Throwable>>();
+        try
+        {
+            for (final List<String> group: unitGroups)
+                futureList.add(executor.submit(new Callable<Throwable>(){
+
+                    @Override
+                    public Throwable call() throws Exception
+                    {
+                        return runGroup(phase, group, unitTask);
+                    }}));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSecs);
+            for (Future<Throwable> future: futureList)
+            {
+                try
+                {
+                    Throwable failure = future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (failure != null)
+                        failures.add(failure);
+                }
+                catch (ExecutionException e)
+                {
+                    failures.add(e.getCause());
+                }
+                catch (TimeoutException e)
+                {
+                    future.cancel(true);
+                    failures.add(new PersistenceException("Persistence unit " + phase.toString() + " timed out after " + timeoutSecs + " seconds"));
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    failures.add(new PersistenceException("Persistence unit " + phase.toString() + " interrupted", e));
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Initialize one group of persistence units in order, stopping at first failure
+     * @param phase Initialization phase
+     * @param group Persistence unit names which share a database
+     * @param unitTask Task to perform on each unit
+     * @return Throwable which caused failure or null if all units initialized successfully
+     */
+    protected Throwable runGroup(InitializationPhase phase, List<String> group, UnitTask unitTask)
+    {
+        for (int i = 0; i < group.size(); ++i)
+        {
+            String puName = group.get(i);
+            long start = System.nanoTime();
+            try
+            {
+                unitTask.initialize(puName);
+            }
+            catch (RuntimeException e)
+            {
+                log.error(TAG, "Persistence unit \"" + puName + "\" " + phase.toString() + " failed", e);
+                if (i < group.size() - 1)
+                    log.warn(TAG, "Skipped " + group.subList(i + 1, group.size()).toString() + " which share database with \"" + puName + "\"");
+                return e;
+            }
+            finally
+            {
+                startupReport.recordUnitTime(puName, phase, System.nanoTime() - start);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.persist;
+
+/**
+ * ShardKey
+ * Function which selects the shard of a sharded persistence unit in which an entity is stored
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public interface ShardKey
+{
+    /**
+     * Returns shard key value of given entity
+     * @param entity Entity object
+     * @return Object which is hashed to select shard
+     */
+    Object getShardKey(Object entity);
+
+    /**
+     * Returns flag set true if the shard key is the primary key, in which case find() is routed to a single shard.
+     * Otherwise find() is sent to all shards.
+     * @return boolean
+     */
+    boolean isPrimaryKey();
+}
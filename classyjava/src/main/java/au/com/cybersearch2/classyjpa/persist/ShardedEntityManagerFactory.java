@@ -0,0 +1,107 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.persist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import au.com.cybersearch2.classyjpa.EntityManagerLite;
+import au.com.cybersearch2.classyjpa.EntityManagerLiteFactory;
+import au.com.cybersearch2.classyjpa.entity.ShardedEntityManager;
+
+/**
+ * ShardedEntityManagerFactory
+ * Creates EntityManagers for a sharded persistence unit
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class ShardedEntityManagerFactory implements EntityManagerLiteFactory
+{
+    /** Sharded persistence unit */
+    protected ShardedPersistenceUnit shardedUnit;
+    /** EntityManager factory of each shard in index order */
+    protected List<EntityManagerLiteFactory> shardFactories;
+    /** Flag to track if open */
+    private volatile boolean isOpen;
+
+    /**
+     * Create ShardedEntityManagerFactory object
+     * @param shardedUnit Sharded persistence unit
+     * @param shardFactories EntityManager factory of each shard in index order
+     */
+    public ShardedEntityManagerFactory(ShardedPersistenceUnit shardedUnit, List<EntityManagerLiteFactory> shardFactories)
+    {
+        this.shardedUnit = shardedUnit;
+        this.shardFactories = shardFactories;
+        isOpen = true;
+    }
+
+    /**
+     * Create a new EntityManager which delegates to a new EntityManager of each shard
+     * @return entity manager instance
+     * @throws IllegalStateException if the entity manager factory has been closed
+     */
+    @Override
+    public EntityManagerLite createEntityManager()
+    {
+        checkEntityManagerFactoryClosed("createEntityManager");
+        List<EntityManagerLite> shards = new ArrayList<EntityManagerLite>(shardFactories.size());
+        for (EntityManagerLiteFactory shardFactory: shardFactories)
+            shards.add(shardFactory.createEntityManager());
+        return new ShardedEntityManager(shardedUnit, shards, shards.size() > 1 ? shardedUnit.acquireShardExecutors() : null);
+    }
+
+    @Override
+    public EntityManagerLite createEntityManager(Map<String, Object> map)
+    {
+        return createEntityManager();
+    }
+
+    @Override
+    public void close()
+    {
+        checkEntityManagerFactoryClosed("close");
+        isOpen = false;
+        for (EntityManagerLiteFactory shardFactory: shardFactories)
+            shardFactory.close();
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return isOpen;
+    }
+
+    @Override
+    public Map<String, Object> getProperties()
+    {
+        checkEntityManagerFactoryClosed("getProperties");
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Confirm this factory is open
+     * @param method Name of method being invoked
+     * @throws IllegalStateException if this factory is closed.
+     */
+    private void checkEntityManagerFactoryClosed(String method)
+    {
+        if (!isOpen)
+            throw new IllegalStateException(method + " called after EntityManagerFactory has been closed");
+    }
+}
@@ -0,0 +1,299 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.persist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.PersistenceException;
+import javax.persistence.spi.PersistenceUnitInfo;
+
+import au.com.cybersearch2.classydb.DatabaseAdmin;
+
+/**
+ * ShardedPersistenceUnit
+ * Persistence unit which stores entities across a number of physical databases, each configured as a separate
+ * persistence unit named by appending "-shard" and the shard index to the logical unit name. The database name
+ * of each shard has the index inserted before the file extension eg. "orders.db" becomes "orders_0.db".
+ * An entity is stored in the shard selected by hashing it's shard key. The key defaults to the primary key,
+ * and can be set to another field with property "shard-key.&lt;entity class name&gt;" in persistence.xml.
+ * Entities must have an assigned shard key when persisted, so generated primary keys cannot be used for routing.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class ShardedPersistenceUnit
+{
+    /** Property for number of shards. A persistence unit is sharded if this is greater than 1. */
+    public static final String SHARD_COUNT_PROPERTY = "shard-count";
+    /** Prefix of property naming shard key field. Append entity class name. */
+    public static final String SHARD_KEY_PROPERTY_PREFIX = "shard-key.";
+
+    /** Logical persistence unit name */
+    protected String puName;
+    /** Persistence unit information read from persistence.xml */
+    protected PersistenceUnitInfo puInfo;
+    /** Names of shard persistence units in index order */
+    protected List<String> shardNames;
+    /** Shard key functions mapped to entity class name, created on first use */
+    protected Map<String, ShardKey> shardKeyMap;
+    /** Shard executors released by entity managers, available for reuse */
+    protected List<List<ExecutorService>> idleExecutorsList;
+    /** Counts shard worker threads, for thread names */
+    protected AtomicInteger threadCount;
+    /** Flag set true after close */
+    protected boolean isClosed;
+
+    /**
+     * Create ShardedPersistenceUnit object
+     * @param puInfo Persistence unit information read from persistence.xml
+     * @param shardCount Number of shards
+     */
+    public ShardedPersistenceUnit(PersistenceUnitInfo puInfo, int shardCount)
+    {
+        this.puInfo = puInfo;
+        puName = puInfo.getPersistenceUnitName();
+        shardNames = new ArrayList<String>(shardCount);
+        for (int i = 0; i < shardCount; ++i)
+            shardNames.add(getShardName(puName, i));
+        shardKeyMap = new ConcurrentHashMap<String, ShardKey>();
+        idleExecutorsList = new ArrayList<List<ExecutorService>>();
+        threadCount = new AtomicInteger();
+    }
+
+    /**
+     * Returns number of shards declared by persistence unit, or 0 if not sharded
+     * @param puInfo Persistence unit information read from persistence.xml
+     * @return int
+     * @throws PersistenceException if shard count is not a number
+     */
+    public static int getShardCount(PersistenceUnitInfo puInfo)
+    {
+        String shardCount = puInfo.getProperties().getProperty(SHARD_COUNT_PROPERTY);
+        if ((shardCount == null) || (shardCount.length() == 0))
+            return 0;
+        try
+        {
+            return Integer.parseInt(shardCount.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw new PersistenceException("\"" + puInfo.getPersistenceUnitName() + "\" property \"" +
+                                           SHARD_COUNT_PROPERTY + "\" is invalid: " + shardCount);
+        }
+    }
+
+    /**
+     * Returns name of shard persistence unit
+     * @param puName Logical persistence unit name
+     * @param index Shard index
+     * @return String
+     */
+    public static String getShardName(String puName, int index)
+    {
+        return puName + "-shard" + index;
+    }
+
+    /**
+     * Returns database name of shard
+     * @param databaseName Database name of logical persistence unit
+     * @param index Shard index
+     * @return String
+     */
+    public static String getShardDatabaseName(String databaseName, int index)
+    {
+        int extension = databaseName.lastIndexOf('.');
+        if (extension <= 0)
+            return databaseName + "_" + index;
+        return databaseName.substring(0, extension) + "_" + index + databaseName.substring(extension);
+    }
+
+    /**
+     * Returns persistence unit information for shard at specified index. The shard has the same entity classes and
+     * properties as the logical unit, apart from database name.
+     * @param index Shard index
+     * @return PersistenceUnitInfo
+     */
+    public PersistenceUnitInfo createShardInfo(int index)
+    {
+        PersistenceUnitInfoImpl shardInfo = new PersistenceUnitInfoImpl(shardNames.get(index));
+        shardInfo.persistenceProviderClassName = puInfo.getPersistenceProviderClassName();
+        shardInfo.managedClassNames.addAll(puInfo.getManagedClassNames());
+        for (String name: puInfo.getProperties().stringPropertyNames())
+            if (!name.equals(PersistenceUnitInfoImpl.PU_NAME_PROPERTY) && !name.equals(SHARD_COUNT_PROPERTY))
+                shardInfo.getProperties().setProperty(name, puInfo.getProperties().getProperty(name));
+        String databaseName = PersistenceAdminImpl.getDatabaseName(puInfo);
+        shardInfo.getProperties().setProperty(DatabaseAdmin.DATABASE_NAME, getShardDatabaseName(databaseName, index));
+        return shardInfo;
+    }
+
+    /**
+     * Returns logical persistence unit name
+     * @return String
+     */
+    public String getPersistenceUnitName()
+    {
+        return puName;
+    }
+
+    /**
+     * Returns number of shards
+     * @return int
+     */
+    public int getShardCount()
+    {
+        return shardNames.size();
+    }
+
+    /**
+     * Returns names of shard persistence units in index order
+     * @return String list
+     */
+    public List<String> getShardNames()
+    {
+        return Collections.unmodifiableList(shardNames);
+    }
+
+    /**
+     * Set shard key function for entity class, replacing any configured in persistence.xml
+     * @param entityClass Entity class
+     * @param shardKey Shard key function
+     */
+    public void setShardKey(Class<?> entityClass, ShardKey shardKey)
+    {
+        shardKeyMap.put(entityClass.getName(), shardKey);
+    }
+
+    /**
+     * Returns shard key function for entity class
+     * @param entityClass Entity class
+     * @return ShardKey
+     * @throws IllegalArgumentException if class is not an entity of this persistence unit
+     */
+    public ShardKey getShardKey(Class<?> entityClass)
+    {
+        ShardKey shardKey = shardKeyMap.get(entityClass.getName());
+        if (shardKey == null)
+        {
+            if (!puInfo.getManagedClassNames().contains(entityClass.getName()))
+                throw new IllegalArgumentException("Class " + entityClass.getName() + " not an entity in this persistence context");
+            String fieldName = puInfo.getProperties().getProperty(SHARD_KEY_PROPERTY_PREFIX + entityClass.getName());
+            shardKey = fieldName == null ? FieldShardKey.forPrimaryKey(entityClass) : new FieldShardKey(entityClass, fieldName.trim());
+            shardKeyMap.put(entityClass.getName(), shardKey);
+        }
+        return shardKey;
+    }
+
+    /**
+     * Returns index of shard for given shard key value
+     * @param shardKeyValue Shard key value
+     * @return int
+     * @throws IllegalArgumentException if shard key value is null
+     */
+    public int getShardIndex(Object shardKeyValue)
+    {
+        if (shardKeyValue == null)
+            throw new IllegalArgumentException("Shard key is null");
+        int hash = shardKeyValue.hashCode();
+        // Spread high bits so keys differing only in upper bits do not collide
+        hash ^= (hash >>> 16);
+        return (hash & 0x7fffffff) % shardNames.size();
+    }
+
+    /**
+     * Returns index of shard in which given entity is stored
+     * @param entity Entity object
+     * @return int
+     * @throws IllegalArgumentException if object is not an entity of this persistence unit or it's shard key is null
+     */
+    public int getEntityShardIndex(Object entity)
+    {
+        if (entity == null)
+            throw new IllegalArgumentException("Parameter \"entity\" is null");
+        Object shardKeyValue = getShardKey(entity.getClass()).getShardKey(entity);
+        if (shardKeyValue == null)
+            throw new IllegalArgumentException("Shard key of entity class " + entity.getClass().getName() + " is null");
+        return getShardIndex(shardKeyValue);
+    }
+
+    /**
+     * Returns a single thread executor for each shard, for the exclusive use of one entity manager until released.
+     * All work of the entity manager on a shard, from transaction begin to commit, runs on the shard's thread, as
+     * the transaction connection and state of a shard are bound to the thread which began the transaction.
+     * Executors released by a previous entity manager are reused. Threads are daemons, so do not prevent shutdown.
+     * @return ExecutorService list in shard index order
+     */
+    public synchronized List<ExecutorService> acquireShardExecutors()
+    {
+        if (!idleExecutorsList.isEmpty())
+            return idleExecutorsList.remove(idleExecutorsList.size() - 1);
+        List<ExecutorService> shardExecutors = new ArrayList<ExecutorService>(shardNames.size());
+        for (int i = 0; i < shardNames.size(); ++i)
+        {
+            final String threadName = shardNames.get(i) + "-worker-";
+            shardExecutors.add(Executors.newSingleThreadExecutor(new ThreadFactory(){
+
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, threadName + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }}));
+        }
+        return shardExecutors;
+    }
+
+    /**
+     * Release shard executors acquired by an entity manager which has closed
+     * @param shardExecutors ExecutorService list returned by acquireShardExecutors()
+     * @param isReusable Flag set false if a shard failed to close, so it's thread may still hold transaction state
+     */
+    public synchronized void releaseShardExecutors(List<ExecutorService> shardExecutors, boolean isReusable)
+    {
+        if (isReusable && !isClosed)
+            idleExecutorsList.add(shardExecutors);
+        else
+            shutdown(shardExecutors);
+    }
+
+    /**
+     * Shut down idle shard executors. Executors released after close are shut down on release.
+     */
+    public synchronized void close()
+    {
+        isClosed = true;
+        for (List<ExecutorService> shardExecutors: idleExecutorsList)
+            shutdown(shardExecutors);
+        idleExecutorsList.clear();
+    }
+
+    /**
+     * Shut down executors
+     * @param shardExecutors ExecutorService list
+     */
+    protected static void shutdown(List<ExecutorService> shardExecutors)
+    {
+        for (ExecutorService executorService: shardExecutors)
+            executorService.shutdown();
+    }
+}
@@ -0,0 +1,146 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.persist;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StartupReport
+ * Records elapsed time of each initialization phase for each persistence unit.
+ * Thread safe so persistence units can report while being initialized concurrently.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class StartupReport
+{
+    /** Maps phase times in nanoseconds to persistence unit name, in order of first report */
+    protected Map<String, Map<InitializationPhase, Long>> unitTimeMap;
+    /** Maps wall clock time of each phase in nanoseconds */
+    protected Map<InitializationPhase, Long> phaseTimeMap;
+
+    /**
+     * Construct StartupReport object
+     */
+    public StartupReport()
+    {
+        unitTimeMap = new LinkedHashMap<String, Map<InitializationPhase, Long>>();
+        phaseTimeMap = new EnumMap<InitializationPhase, Long>(InitializationPhase.class);
+    }
+
+    /**
+     * Record time taken by one persistence unit to complete a phase
+     * @param puName Persistence unit name
+     * @param phase Initialization phase
+     * @param nanos Elapsed time in nanoseconds
+     */
+    public synchronized void recordUnitTime(String puName, InitializationPhase phase, long nanos)
+    {
+        Map<InitializationPhase, Long> timeMap = unitTimeMap.get(puName);
+        if (timeMap == null)
+        {
+            timeMap = new EnumMap<InitializationPhase, Long>(InitializationPhase.class);
+            unitTimeMap.put(puName, timeMap);
+        }
+        Long previous = timeMap.get(phase);
+        // A phase may be repeated eg. database upgrade
+        timeMap.put(phase, previous == null ? nanos : previous + nanos);
+    }
+
+    /**
+     * Record wall clock time taken by all persistence units to complete a phase
+     * @param phase Initialization phase
+     * @param nanos Elapsed time in nanoseconds
+     */
+    public synchronized void recordPhaseTime(InitializationPhase phase, long nanos)
+    {
+        Long previous = phaseTimeMap.get(phase);
+        phaseTimeMap.put(phase, previous == null ? nanos : previous + nanos);
+    }
+
+    /**
+     * Returns time taken by one persistence unit to complete a phase
+     * @param puName Persistence unit name
+     * @param phase Initialization phase
+     * @return Elapsed time in milliseconds or -1 if not recorded
+     */
+    public synchronized long getUnitTime(String puName, InitializationPhase phase)
+    {
+        Map<InitializationPhase, Long> timeMap = unitTimeMap.get(puName);
+        if ((timeMap == null) || !timeMap.containsKey(phase))
+            return -1L;
+        return TimeUnit.NANOSECONDS.toMillis(timeMap.get(phase));
+    }
+
+    /**
+     * Returns wall clock time taken by all persistence units to complete a phase
+     * @param phase Initialization phase
+     * @return Elapsed time in milliseconds or -1 if not recorded
+     */
+    public synchronized long getPhaseTime(InitializationPhase phase)
+    {
+        Long nanos = phaseTimeMap.get(phase);
+        return nanos == null ? -1L : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * Returns names of persistence units which have reported
+     * @return Set of names
+     */
+    public synchronized Set<String> getPersistenceUnitNames()
+    {
+        return Collections.unmodifiableSet(new LinkedHashSet<String>(unitTimeMap.keySet()));
+    }
+
+    /**
+     * Returns report as text with one line per persistence unit followed by a line for phase totals
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public synchronized String toString()
+    {
+        StringBuilder builder = new StringBuilder("Startup times (ms)");
+        for (Map.Entry<String, Map<InitializationPhase, Long>> entry: unitTimeMap.entrySet())
+        {
+            builder.append('\n').append(entry.getKey()).append(':');
+            appendTimes(builder, entry.getValue());
+        }
+        builder.append("\nTotal:");
+        appendTimes(builder, phaseTimeMap);
+        return builder.toString();
+    }
+
+    /**
+     * Append phase times to report
+     * @param builder StringBuilder
+     * @param timeMap Maps times in nanoseconds to phase
+     */
+    private void appendTimes(StringBuilder builder, Map<InitializationPhase, Long> timeMap)
+    {
+        for (InitializationPhase phase: InitializationPhase.values())
+        {
+            Long nanos = timeMap.get(phase);
+            if (nanos != null)
+                builder.append(' ').append(phase.toString()).append('=')
+                       .append(TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+}
@@ -0,0 +1,382 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.persistence.Query;
+import javax.persistence.TemporalType;
+
+/**
+ * CachedQuery
+ * Named query which looks up its result in a QueryResultCache before executing the query it decorates.
+ * Caching is enabled by the query registration flag or the QueryResultCache.CACHEABLE_HINT hint.
+ * The cache key is the query name, bound parameter values and page window. Given a ResultCopier, results are
+ * copied both when stored and when found in the cache, so callers never share result objects with the cache.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class CachedQuery extends QueryBase
+{
+    /** Query to execute on cache miss */
+    protected Query query;
+    /** Name of query */
+    protected String name;
+    /** Names of tables read by query */
+    protected String[] tables;
+    /** Shared query result cache */
+    protected QueryResultCache queryResultCache;
+    /** Flag set true if caching is enabled */
+    protected boolean isCacheable;
+    /** Copies results which callers may modify, or null if results are immutable */
+    protected QueryResultCache.ResultCopier resultCopier;
+    /** Bound parameter values, by ":" + name or "?" + position */
+    protected Map<String, Object> parameterMap;
+
+    /**
+     * Create CachedQuery object
+     * @param query Query to execute on cache miss
+     * @param name Name of query
+     * @param tables Names of tables read by query
+     * @param queryResultCache Shared query result cache
+     * @param isCacheable Flag set true if caching is enabled by query registration
+     */
+    public CachedQuery(Query query, String name, String[] tables, QueryResultCache queryResultCache, boolean isCacheable)
+    {
+        this(query, name, tables, queryResultCache, isCacheable, null);
+    }
+
+    /**
+     * Create CachedQuery object with result copier
+     * @param query Query to execute on cache miss
+     * @param name Name of query
+     * @param tables Names of tables read by query
+     * @param queryResultCache Shared query result cache
+     * @param isCacheable Flag set true if caching is enabled by query registration
+     * @param resultCopier Copies results which callers may modify, or null if results are immutable
+     */
+    public CachedQuery(Query query, String name, String[] tables, QueryResultCache queryResultCache, boolean isCacheable, QueryResultCache.ResultCopier resultCopier)
+    {
+        this.resultCopier = resultCopier;
+        this.query = query;
+        this.name = name;
+        this.tables = tables;
+        this.queryResultCache = queryResultCache;
+        this.isCacheable = isCacheable;
+        parameterMap = new TreeMap<String, Object>();
+    }
+
+    /**
+     * Execute an update or delete statement. A change to the database makes cached results of this query stale.
+     * @return The number of entities updated or deleted
+     */
+    @Override
+    public int executeUpdate()
+    {
+        try
+        {
+            int count = query.executeUpdate();
+            if (count > 0)
+                queryResultCache.invalidate(Arrays.asList(tables));
+            return count;
+        }
+        finally
+        {
+            release();
+        }
+    }
+
+    /**
+     * Execute a SELECT query and return the query results as a List.
+     * @return a list of the results
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<Object> getResultList()
+    {
+        if (isClosed) // Only perform query once
+            return new ArrayList<Object>();
+        try
+        {
+            if (!isCacheable || (keyset != null))
+                return query.getResultList();
+            Object key = getKey(false);
+            Object cached = queryResultCache.get(key);
+            if (cached != null)
+                return copyResultList((List<Object>)cached);
+            long[] versions = queryResultCache.getTableVersions(tables);
+            List<Object> resultList = query.getResultList();
+            queryResultCache.put(key, copyResultList(resultList), tables, versions);
+            return resultList;
+        }
+        finally
+        {
+            release();
+        }
+    }
+
+    /**
+     * Execute a SELECT query that returns a single result. A query with no result is not cached.
+     * @return The result
+     * @throws javax.persistence.NoResultException if there is no result
+     */
+    @Override
+    public Object getSingleResult()
+    {
+        try
+        {
+            if (!isCacheable || isClosed || (keyset != null))
+                return query.getSingleResult();
+            Object key = getKey(true);
+            Object cached = queryResultCache.get(key);
+            if (cached != null)
+                return copyResult(cached);
+            long[] versions = queryResultCache.getTableVersions(tables);
+            Object result = query.getSingleResult();
+            queryResultCache.put(key, copyResult(result), tables, versions);
+            return result;
+        }
+        finally
+        {
+            release();
+        }
+    }
+
+    /**
+     * Set the maximum number of results to retrieve.
+     * @param maxResults Maximum number of objects to return, 0 means unlimited
+     * @return The same query instance
+     * @throws IllegalArgumentException if argument is negative
+     */
+    @Override
+    public Query setMaxResults(int maxResults)
+    {
+        super.setMaxResults(maxResults);
+        query.setMaxResults(maxResults);
+        return this;
+    }
+
+    /**
+     * Set the position of the first result to retrieve.
+     * @param startPosition The start position of the first result, numbered from 0
+     * @return The same query instance
+     * @throws IllegalArgumentException if argument is negative
+     */
+    @Override
+    public Query setFirstResult(int startPosition)
+    {
+        super.setFirstResult(startPosition);
+        query.setFirstResult(startPosition);
+        return this;
+    }
+
+    /**
+     * Select seek pagination on the decorated query. Pages of a seek pagination query are not cached.
+     * @param keyset Ordered key
+     * @param continuationToken Token returned by getContinuationToken() after the previous page, or null for the first page
+     * @return The same query instance
+     * @throws UnsupportedOperationException if the decorated query does not support seek pagination
+     */
+    @Override
+    public Query setKeyset(Keyset keyset, String continuationToken)
+    {
+        if (!(query instanceof QueryBase))
+            throw new UnsupportedOperationException("Keyset pagination not supported");
+        ((QueryBase)query).setKeyset(keyset, continuationToken);
+        this.keyset = keyset;
+        return this;
+    }
+
+    /**
+     * Returns continuation token of the decorated query
+     * @return String or null if there are no more results
+     */
+    @Override
+    public String getContinuationToken()
+    {
+        return query instanceof QueryBase ? ((QueryBase)query).getContinuationToken() : null;
+    }
+
+    /**
+     * Set a hint. QueryResultCache.CACHEABLE_HINT enables or disables caching. Other hints are passed to the decorated query.
+     * @param hintName Name of hint
+     * @param value Hint value
+     * @return The same query instance
+     */
+    @Override
+    public Query setHint(String hintName, Object value)
+    {
+        if (QueryResultCache.CACHEABLE_HINT.equals(hintName))
+            isCacheable = Boolean.TRUE.equals(value) || "true".equalsIgnoreCase(String.valueOf(value));
+        else
+            query.setHint(hintName, value);
+        return this;
+    }
+
+    /**
+     * Get the hints in effect for the query instance
+     * @return Map containing cacheable hint value
+     */
+    @Override
+    public Map<String, Object> getHints()
+    {
+        return Collections.singletonMap(QueryResultCache.CACHEABLE_HINT, (Object)Boolean.valueOf(isCacheable));
+    }
+
+    /**
+     * Bind an argument to a named parameter.
+     * @param param The parameter name
+     * @param value Object
+     * @return The same query instance
+     * @throws IllegalArgumentException if parameter name does not
+     *    correspond to parameter in query string
+     */
+    @Override
+    public Query setParameter(String param, Object value)
+    {
+        query.setParameter(param, value);
+        parameterMap.put(":" + param, value);
+        return this;
+    }
+
+    /**
+     * Bind an argument to a positional parameter.
+     * @param position  Starts at 1
+     * @param value Object
+     * @return The same query instance
+     * @throws IllegalArgumentException if position does not
+     *    correspond to positional parameter of query
+     */
+    @Override
+    public Query setParameter(int position, Object value)
+    {
+        query.setParameter(position, value);
+        parameterMap.put("?" + position, value);
+        return this;
+    }
+
+    /**
+     * Bind an instance of java.util.Date to a named parameter.
+     * @param param The parameter name
+     * @param value Date
+     * @param type Temporal type
+     * @return The same query instance
+     */
+    @Override
+    public Query setParameter(String param, Date value, TemporalType type)
+    {
+        query.setParameter(param, value, type);
+        parameterMap.put(":" + param, value);
+        return this;
+    }
+
+    /**
+     * Bind an instance of java.util.Calendar to a named parameter.
+     * @param param The parameter name
+     * @param value Calendar
+     * @param type Temporal type
+     * @return The same query instance
+     */
+    @Override
+    public Query setParameter(String param, Calendar value, TemporalType type)
+    {
+        query.setParameter(param, value, type);
+        parameterMap.put(":" + param, value.getTime());
+        return this;
+    }
+
+    /**
+     * Bind an instance of java.util.Date to a positional parameter.
+     * @param position  Starts at 1
+     * @param value Date
+     * @param type Temporal type
+     * @return The same query instance
+     */
+    @Override
+    public Query setParameter(int position, Date value, TemporalType type)
+    {
+        query.setParameter(position, value, type);
+        parameterMap.put("?" + position, value);
+        return this;
+    }
+
+    /**
+     * Bind an instance of java.util.Calendar to a positional parameter.
+     * @param position  Starts at 1
+     * @param value Calendar
+     * @param type Temporal type
+     * @return The same query instance
+     */
+    @Override
+    public Query setParameter(int position, Calendar value, TemporalType type)
+    {
+        query.setParameter(position, value, type);
+        parameterMap.put("?" + position, value.getTime());
+        return this;
+    }
+
+    /**
+     * Returns flag set true if caching is enabled
+     * @return boolean
+     */
+    public boolean isCacheable()
+    {
+        return isCacheable;
+    }
+
+    /**
+     * Returns copy of result list made by the result copier, or the given list if there is no result copier
+     * @param resultList List
+     * @return List
+     */
+    protected List<Object> copyResultList(List<Object> resultList)
+    {
+        if (resultCopier == null)
+            return resultList;
+        List<Object> copyList = new ArrayList<Object>(resultList.size());
+        for (Object result: resultList)
+            copyList.add(resultCopier.copy(result));
+        return copyList;
+    }
+
+    /**
+     * Returns copy of result made by the result copier, or the given result if there is no result copier
+     * @param result Object
+     * @return Object
+     */
+    protected Object copyResult(Object result)
+    {
+        return resultCopier == null ? result : resultCopier.copy(result);
+    }
+
+    /**
+     * Returns cache key composed of query name, parameter values, page window and result type
+     * @param isSingleResult Flag set true for single result
+     * @return Object
+     */
+    protected Object getKey(boolean isSingleResult)
+    {
+        return Arrays.asList(name, new TreeMap<String, Object>(parameterMap), Integer.valueOf(startPosition),
+                             Integer.valueOf(maxResults), Boolean.valueOf(isSingleResult));
+    }
+}
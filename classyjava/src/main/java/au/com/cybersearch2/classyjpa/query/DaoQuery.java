@@ -15,7 +15,9 @@
     along with this program.  If not, see <http://www.gnu.org/licenses/> */
 package au.com.cybersearch2.classyjpa.query;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,10 +25,22 @@ import java.util.Map;
 import javax.persistence.PersistenceException;
 
 import au.com.cybersearch2.classyjpa.entity.PersistenceDao;
+import au.com.cybersearch2.classylog.JavaLogger;
+import au.com.cybersearch2.classylog.Log;
 
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.field.FieldType;
 import com.j256.ormlite.stmt.PreparedQuery;
 import com.j256.ormlite.stmt.QueryBuilder;
 import com.j256.ormlite.stmt.SelectArg;
+import com.j256.ormlite.stmt.StatementBuilder.StatementType;
+import com.j256.ormlite.stmt.Where;
+import com.j256.ormlite.support.CompiledStatement;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.support.DatabaseResults;
+import com.j256.ormlite.table.TableInfo;
 
 /**
  * DaoQuery
@@ -37,6 +51,9 @@ import com.j256.ormlite.stmt.SelectArg;
  */
 public abstract class DaoQuery<T>
 {
+    private static final String TAG = "DaoQuery";
+    private static Log log = JavaLogger.getLogger(TAG);
+
     /**
      * SimpleSelectArg
      * Makes value accessible without potential SQLException
@@ -57,6 +74,35 @@ public abstract class DaoQuery<T>
         }
     }
     
+    /**
+     * SeekQueryBuilder
+     * QueryBuilder which keeps the Where object built by buildQuery() so a seek condition can be combined with it
+     */
+    static class SeekQueryBuilder<T, ID> extends QueryBuilder<T, ID>
+    {
+        /** Where object of query or null if none */
+        Where<T, ID> lastWhere;
+
+        SeekQueryBuilder(DatabaseType databaseType, TableInfo<T, ID> tableInfo, Dao<T, ID> dao)
+        {
+            super(databaseType, tableInfo, dao);
+        }
+
+        @Override
+        public Where<T, ID> where()
+        {
+            lastWhere = super.where();
+            return lastWhere;
+        }
+
+        @Override
+        public void setWhere(Where<T, ID> where)
+        {
+            super.setWhere(where);
+            lastWhere = where;
+        }
+    }
+
     /** Entity DAO, which has open connection source */
     protected PersistenceDao<T, ?> dao;
     /** Maps selection argument to name ie. columnName attribute */
@@ -108,6 +154,45 @@ public abstract class DaoQuery<T>
         return dao.query(prepare(startPosition, maxResults));
     }
 
+    /**
+     * Returns page of objects in key order, starting after a given position
+     * @param keyset Ordered key
+     * @param afterValues Key values of last row of previous page, or null for first page
+     * @param maxResults Page size, or 0 for all remaining results
+     * @return List of Entity objects
+     */
+    protected List<T> getResultList(Keyset keyset, Object[] afterValues, int maxResults)
+    {
+        return dao.query(prepare(keyset, afterValues, maxResults));
+    }
+
+    /**
+     * Returns key values of an entity. Unless the keyset has a KeyExtractor, the key columns must be columns of the entity table.
+     * @param keyset Ordered key
+     * @param entity Entity object
+     * @return Object array
+     */
+    protected Object[] getKeyValues(Keyset keyset, T entity)
+    {
+        if (keyset.getKeyExtractor() != null)
+            return keyset.getKeyExtractor().getKeyValues(entity);
+        TableInfo<T, ?> tableInfo = dao.getTableInfo();
+        if (tableInfo == null)
+            throw new PersistenceException("Keyset requires a KeyExtractor as entity table information is not available");
+        String[] columns = keyset.getColumns();
+        Object[] keyValues = new Object[columns.length];
+        try
+        {
+            for (int i = 0; i < columns.length; ++i)
+                keyValues[i] = tableInfo.getFieldTypeByColumnName(columns[i]).extractJavaFieldValue(entity);
+        }
+        catch (SQLException e)
+        {
+            throw new PersistenceException("Error reading key of " + keyset, e);
+        }
+        return keyValues;
+    }
+
     /**
      * Returns object from executing prepared query
      * @return Entity object or null if nothing returned by query
@@ -117,6 +202,63 @@ public abstract class DaoQuery<T>
         return dao.queryForFirst(prepare(0, 1));
     }
 
+    /**
+     * Returns list of result objects mapped from selected columns. Entity objects are not created.
+     * @param projection Selected columns and row mapper
+     * @param startPosition The start position of the first result, numbered from 0
+     * @param maxResults Maximum number of results to retrieve, or 0 for no limit
+     * @return List of result objects
+     */
+    protected List<Object> getResultList(Projection projection, int startPosition, int maxResults)
+    {
+        FieldType[] fieldTypes = getFieldTypes(projection);
+        PreparedQuery<T> prepared = prepare(projection, startPosition, maxResults);
+        List<Object> resultList = new ArrayList<Object>();
+        ConnectionSource connectionSource = dao.getConnectionSource();
+        DatabaseConnection connection = null;
+        CompiledStatement compiledStatement = null;
+        try
+        {
+            connection = connectionSource.getReadOnlyConnection(dao.getTableName());
+            compiledStatement = prepared.compile(connection, StatementType.SELECT);
+            DatabaseResults results = compiledStatement.runQuery(null /*objectCache*/);
+            Map<String, Integer> columnPositions = new HashMap<String, Integer>();
+            if (results.first())
+            {
+                do
+                {
+                    Object[] values = new Object[fieldTypes.length];
+                    for (int i = 0; i < fieldTypes.length; ++i)
+                        values[i] = fieldTypes[i].resultToJava(results, columnPositions);
+                    resultList.add(projection.mapRow(values));
+                } while (results.next());
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new PersistenceException("Error executing query for " + projection, e);
+        }
+        finally
+        {
+            if (compiledStatement != null)
+                close(compiledStatement);
+            if (connection != null)
+                release(connectionSource, connection);
+        }
+        return resultList;
+    }
+
+    /**
+     * Returns result object mapped from selected columns of first row
+     * @param projection Selected columns and row mapper
+     * @return Result object or null if nothing returned by query
+     */
+    protected Object getSingleResult(Projection projection)
+    {
+        List<Object> resultList = getResultList(projection, 0, 1);
+        return resultList.isEmpty() ? null : resultList.get(0);
+    }
+
     /**
      * Returns prepared query
      * @param startPosition The start position of the first result, numbered from 0
@@ -124,6 +266,18 @@ public abstract class DaoQuery<T>
      * @return PreparedQuery
      */
     protected PreparedQuery<T> prepare(int startPosition, int maxResults)
+    {
+        return prepare(null, startPosition, maxResults);
+    }
+
+    /**
+     * Returns prepared query which selects only the columns of a projection
+     * @param projection Selected columns, or null to select all columns
+     * @param startPosition The start position of the first result, numbered from 0
+     * @param maxResults Maximum number of results to retrieve, or 0 for no limit
+     * @return PreparedQuery
+     */
+    protected PreparedQuery<T> prepare(Projection projection, int startPosition, int maxResults)
     {
         PreparedQuery<T> prepared = null;
         try
@@ -133,7 +287,10 @@ public abstract class DaoQuery<T>
                 statementBuilder.offset(Long.valueOf(startPosition));
             if (maxResults > 0)
                 statementBuilder.limit(Long.valueOf(maxResults));
-            prepared = buildQuery(statementBuilder).prepare();
+            buildQuery(statementBuilder);
+            if (projection != null)
+                statementBuilder.selectColumns(projection.getColumns());
+            prepared = statementBuilder.prepare();
         }
         catch (SQLException e)
         {
@@ -142,6 +299,103 @@ public abstract class DaoQuery<T>
         return prepared;
     }
 
+    /**
+     * Returns prepared query for a page in key order. The query built by buildQuery() is combined with
+     * a condition selecting rows after the given position, and is ordered by the key columns, so buildQuery()
+     * should not set an order of its own.
+     * @param keyset Ordered key
+     * @param afterValues Key values of last row of previous page, or null for first page
+     * @param maxResults Page size, or 0 for all remaining results
+     * @return PreparedQuery
+     */
+    protected PreparedQuery<T> prepare(Keyset keyset, Object[] afterValues, int maxResults)
+    {
+        try
+        {
+            SeekQueryBuilder<T, ?> statementBuilder = createSeekQueryBuilder(dao);
+            if (maxResults > 0)
+                statementBuilder.limit(Long.valueOf(maxResults));
+            buildQuery(statementBuilder);
+            for (String column: keyset.getColumns())
+                statementBuilder.orderBy(column, !keyset.isDescending());
+            if (afterValues != null)
+                appendSeek(statementBuilder, keyset, afterValues);
+            return statementBuilder.prepare();
+        }
+        catch (SQLException e)
+        {
+            throw new PersistenceException("Error preparing query", e);
+        }
+    }
+
+    /**
+     * Returns new SeekQueryBuilder for given DAO
+     * @param dao Entity DAO
+     * @return SeekQueryBuilder
+     */
+    protected static <T, ID> SeekQueryBuilder<T, ID> createSeekQueryBuilder(PersistenceDao<T, ID> dao)
+    {
+        return new SeekQueryBuilder<T, ID>(dao.getConnectionSource().getDatabaseType(), dao.getTableInfo(), dao);
+    }
+
+    /**
+     * Add condition selecting rows after the given position to the query WHERE clause.
+     * A composite key is expanded to "k1 &gt;= ? AND (k1 &gt; ? OR (k1 = ? AND k2 &gt; ?))", the same as Keyset.getSeekSelection().
+     * @param statementBuilder Query builder after buildQuery() has been applied
+     * @param keyset Ordered key
+     * @param afterValues Key values of last row of previous page
+     * @throws SQLException
+     */
+    protected static <T, ID> void appendSeek(SeekQueryBuilder<T, ID> statementBuilder, Keyset keyset, Object[] afterValues) throws SQLException
+    {
+        Where<T, ID> where = statementBuilder.lastWhere;
+        boolean hasWhere = where != null;
+        if (!hasWhere)
+            where = statementBuilder.where();
+        String[] columns = keyset.getColumns();
+        for (int i = 0; i < columns.length; ++i)
+        {
+            for (int j = 0; j < i; ++j)
+                where.eq(columns[j], new SelectArg(afterValues[j]));
+            if (keyset.isDescending())
+                where.lt(columns[i], new SelectArg(afterValues[i]));
+            else
+                where.gt(columns[i], new SelectArg(afterValues[i]));
+            if (i > 0)
+                where.and(i + 1);
+        }
+        if (columns.length > 1)
+        {
+            where.or(columns.length);
+            // Leading range lets the database seek the index
+            if (keyset.isDescending())
+                where.le(columns[0], new SelectArg(afterValues[0]));
+            else
+                where.ge(columns[0], new SelectArg(afterValues[0]));
+            where.and(2);
+        }
+        if (hasWhere)
+            where.and(2);
+    }
+
+    /**
+     * Returns entity field type of each projection column
+     * @param projection Selected columns
+     * @return FieldType array
+     * @throws IllegalArgumentException if a column is not a column of the entity table
+     */
+    protected FieldType[] getFieldTypes(Projection projection)
+    {
+        TableInfo<T, ?> tableInfo = dao.getTableInfo();
+        if (tableInfo == null)
+            throw new PersistenceException("Projection not available as entity table information is not available");
+        String[] columns = projection.getColumns();
+        FieldType[] fieldTypes = new FieldType[columns.length];
+        for (int i = 0; i < columns.length; ++i)
+            fieldTypes[i] = tableInfo.getFieldTypeByColumnName(columns[i]);
+        return fieldTypes;
+    }
+
     /**
      * Returns true if position value is in range of 1 to number of arguments
      * @param position
@@ -171,4 +425,28 @@ public abstract class DaoQuery<T>
     {
         return argumentMap.get(param);
     }
+
+    private static void close(CompiledStatement compiledStatement)
+    {
+        try
+        {
+            compiledStatement.close();
+        }
+        catch (IOException e)
+        {
+            log.warn(TAG, "Error closing statement", e);
+        }
+    }
+
+    private static void release(ConnectionSource connectionSource, DatabaseConnection connection)
+    {
+        try
+        {
+            connectionSource.releaseConnection(connection);
+        }
+        catch (SQLException e)
+        {
+            log.warn(TAG, "Error releasing connection", e);
+        }
+    }
 }
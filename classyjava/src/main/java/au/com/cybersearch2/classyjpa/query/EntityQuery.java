@@ -41,12 +41,42 @@ public class EntityQuery<T> extends QueryBase
     private static Log log = JavaLogger.getLogger(TAG);
     /** OrmLite query for generic entity class */
     protected DaoQuery<T> daoQuery;
+    /** Selected columns mapped to result objects instead of entities, or null for entity results */
+    protected Projection projection;
 
     public EntityQuery(DaoQuery<T> daoQuery)
     {
         this.daoQuery = daoQuery;
     }
 
+    /**
+     * Create EntityQuery object which returns projection results
+     * @param daoQuery OrmLite query for generic entity class
+     * @param projection Selected columns mapped to result objects, or null for entity results
+     */
+    public EntityQuery(DaoQuery<T> daoQuery, Projection projection)
+    {
+        this.daoQuery = daoQuery;
+        this.projection = projection;
+    }
+
+    /**
+     * Set columns to select and how to map them to result objects. The query then returns result objects,
+     * not entities, and getResultList() elements are not of the entity type.
+     * @param projection Projection object, or null for entity results
+     * @return The same query instance
+     */
+    public Query setProjection(Projection projection)
+    {
+        this.projection = projection;
+        return this;
+    }
+
+    public Projection getProjection()
+    {
+        return projection;
+    }
+
     /**
      * Execute an update or delete statement. NOT implemented.
      * @return 0
@@ -60,8 +90,12 @@ public class EntityQuery<T> extends QueryBase
 
     /**
      * Execute a SELECT query and return the query results as a List.
+     * If a keyset is set, returns the page after the continuation token.
+     * If a projection is set, returns projection result objects.
      * @return a list of the results
+     * @throws IllegalStateException if both a keyset and a projection are set
      */   
+    @SuppressWarnings("unchecked")
     @Override
     public List<T> getResultList() 
     {
@@ -69,7 +103,18 @@ public class EntityQuery<T> extends QueryBase
             return new ArrayList<T>();
         try
         {
-            return daoQuery.getResultList(startPosition, maxResults);
+            if (projection != null)
+            {
+                if (keyset != null)
+                    throw new IllegalStateException("Keyset pagination not supported with " + projection);
+                // Elements are projection results, not entities
+                return (List<T>)(List<?>)daoQuery.getResultList(projection, startPosition, maxResults);
+            }
+            if (keyset == null)
+                return daoQuery.getResultList(startPosition, maxResults);
+            List<T> resultList = daoQuery.getResultList(keyset, afterValues, maxResults);
+            setContinuationToken(isFullPage(resultList) ? daoQuery.getKeyValues(keyset, resultList.get(resultList.size() - 1)) : null);
+            return resultList;
         }
         finally
         {
@@ -90,7 +135,7 @@ public class EntityQuery<T> extends QueryBase
             throw new NoResultException("getSingleResult() called when query already executed");
         try
         {
-            result = daoQuery.getSingleResult();
+            result = projection != null ? daoQuery.getSingleResult(projection) : daoQuery.getSingleResult();
         }
         catch (PersistenceException e)
         {
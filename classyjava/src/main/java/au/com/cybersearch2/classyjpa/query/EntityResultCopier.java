@@ -0,0 +1,93 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.query;
+
+import java.lang.reflect.Field;
+import java.sql.SQLException;
+import java.util.Date;
+
+import javax.persistence.PersistenceException;
+
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.table.TableInfo;
+
+/**
+ * EntityResultCopier
+ * Copies entity results of a named query so a cached result is never handed to a caller. An entity is copied by
+ * creating a new object of the entity class and assigning it the value of each persisted field. Objects referenced
+ * by foreign fields and foreign collections are shared with the cached entity. A projection row array is cloned.
+ * Other results, such as values and constructor projection objects, are returned as they are.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class EntityResultCopier implements QueryResultCache.ResultCopier
+{
+    /** Entity table information */
+    protected final TableInfo<?, ?> tableInfo;
+    /** Persisted fields, made accessible */
+    protected final Field[] fields;
+
+    /**
+     * Create EntityResultCopier object
+     * @param tableInfo Entity table information
+     */
+    public EntityResultCopier(TableInfo<?, ?> tableInfo)
+    {
+        this.tableInfo = tableInfo;
+        FieldType[] fieldTypes = tableInfo.getFieldTypes();
+        fields = new Field[fieldTypes.length];
+        for (int i = 0; i < fieldTypes.length; i++)
+        {
+            fields[i] = fieldTypes[i].getField();
+            fields[i].setAccessible(true);
+        }
+    }
+
+    /**
+     * Returns copy of result
+     * @param result Entity, projection row or value
+     * @return Object
+     * @throws PersistenceException if an entity cannot be copied
+     */
+    @Override
+    public Object copy(Object result)
+    {
+        if (result instanceof Object[])
+            return ((Object[])result).clone();
+        if (!tableInfo.getDataClass().isInstance(result))
+            return result;
+        try
+        {
+            Object copy = tableInfo.createObject();
+            for (Field field: fields)
+            {
+                Object value = field.get(result);
+                if (value instanceof Date)
+                    value = ((Date)value).clone();
+                field.set(copy, value);
+            }
+            return copy;
+        }
+        catch (SQLException e)
+        {
+            throw new PersistenceException("Error creating copy of " + tableInfo.getDataClass().getName(), e);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new PersistenceException("Error copying " + tableInfo.getDataClass().getName(), e);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.query;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Keyset
+ * Ordered key for seek pagination. Instead of skipping rows with an offset, each page after the first selects
+ * rows which sort after the last row of the previous page, so the database can start from that position in an
+ * index on the key columns. The last column must make the key unique, for example the primary key, so no row
+ * is skipped or repeated. The query is ordered by the key columns, all ascending or all descending.
+ * The position after a page is passed between requests as an opaque continuation token, which encodes the key
+ * values of the last row and is the same for the same values.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class Keyset
+{
+    /**
+     * KeyExtractor
+     * Returns key values of a query result. Required for native queries, as their results are mapped by a RowMapper.
+     */
+    public interface KeyExtractor
+    {
+        /**
+         * Returns key values of result in order of key columns
+         * @param result Query result object
+         * @return Object array
+         */
+        Object[] getKeyValues(Object result);
+    }
+
+    /** Token format version */
+    private static final byte TOKEN_VERSION = 1;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /** Key column names, most significant first */
+    protected final String[] columns;
+    /** Flag set true if rows are in descending key order */
+    protected final boolean isDescending;
+    /** Returns key values of a query result (optional for entity queries) */
+    protected KeyExtractor keyExtractor;
+
+    /**
+     * Create Keyset object for ascending order
+     * @param columns Key column names, most significant first
+     */
+    public Keyset(String... columns)
+    {
+        this(false, columns);
+    }
+
+    /**
+     * Create Keyset object
+     * @param isDescending Flag set true if rows are in descending key order
+     * @param columns Key column names, most significant first
+     * @throws IllegalArgumentException if no columns are specified
+     */
+    public Keyset(boolean isDescending, String... columns)
+    {
+        if ((columns == null) || (columns.length == 0))
+            throw new IllegalArgumentException("Parameter \"columns\" is empty");
+        this.isDescending = isDescending;
+        this.columns = columns.clone();
+    }
+
+    /**
+     * Set agent which returns key values of a query result
+     * @param keyExtractor KeyExtractor object
+     * @return This object
+     */
+    public Keyset setKeyExtractor(KeyExtractor keyExtractor)
+    {
+        this.keyExtractor = keyExtractor;
+        return this;
+    }
+
+    public KeyExtractor getKeyExtractor()
+    {
+        return keyExtractor;
+    }
+
+    /**
+     * Returns key column names, most significant first
+     * @return String array
+     */
+    public String[] getColumns()
+    {
+        return columns.clone();
+    }
+
+    public boolean isDescending()
+    {
+        return isDescending;
+    }
+
+    /**
+     * Returns native SQL ORDER BY clause (excluding the ORDER BY itself)
+     * @return String
+     */
+    public String getOrderBy()
+    {
+        StringBuilder builder = new StringBuilder();
+        for (String column: columns)
+        {
+            if (builder.length() > 0)
+                builder.append(", ");
+            builder.append(column).append(isDescending ? " DESC" : " ASC");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns native SQL WHERE clause (excluding the WHERE itself) selecting rows after a position.
+     * A composite key is expanded to "k1 &gt;= ? AND (k1 &gt; ? OR (k1 = ? AND k2 &gt; ?))" as row value
+     * comparisons are not supported by all databases. The leading range lets the database seek the index.
+     * @return String with ? placeholders for the values returned by getSeekArguments()
+     */
+    public String getSeekSelection()
+    {
+        String after = isDescending ? " < ?" : " > ?";
+        if (columns.length == 1)
+            return columns[0] + after;
+        StringBuilder builder = new StringBuilder();
+        builder.append(columns[0]).append(isDescending ? " <= ?" : " >= ?").append(" AND (");
+        for (int i = 0; i < columns.length; ++i)
+        {
+            if (i > 0)
+                builder.append(" OR ");
+            builder.append('(');
+            for (int j = 0; j < i; ++j)
+                builder.append(columns[j]).append(" = ? AND ");
+            builder.append(columns[i]).append(after).append(')');
+        }
+        return builder.append(')').toString();
+    }
+
+    /**
+     * Returns values to bind to getSeekSelection() placeholders
+     * @param afterValues Key values of last row of previous page
+     * @return Object list
+     */
+    public List<Object> getSeekArguments(Object[] afterValues)
+    {
+        List<Object> arguments = new ArrayList<Object>();
+        if (columns.length > 1)
+            arguments.add(afterValues[0]);
+        for (int i = 0; i < columns.length; ++i)
+            for (int j = 0; j <= i; ++j)
+                arguments.add(afterValues[j]);
+        return arguments;
+    }
+
+    /**
+     * Returns continuation token for position after a row
+     * @param keyValues Key values of the row in order of key columns
+     * @return String
+     * @throws IllegalArgumentException if a value is null or of a type which is not supported
+     */
+    public String encodeToken(Object[] keyValues)
+    {
+        if ((keyValues == null) || (keyValues.length != columns.length))
+            throw new IllegalArgumentException("Expected " + columns.length + " key values");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        try
+        {
+            output.writeByte(TOKEN_VERSION);
+            output.writeInt(getSignature());
+            for (int i = 0; i < keyValues.length; ++i)
+                writeValue(output, columns[i], keyValues[i]);
+            output.flush();
+        }
+        catch (IOException e)
+        {   // Not expected writing to memory
+            throw new IllegalStateException(e);
+        }
+        byte[] data = bytes.toByteArray();
+        char[] token = new char[data.length * 2];
+        for (int i = 0; i < data.length; ++i)
+        {
+            token[i * 2] = HEX_DIGITS[(data[i] >> 4) & 0x0f];
+            token[i * 2 + 1] = HEX_DIGITS[data[i] & 0x0f];
+        }
+        return new String(token);
+    }
+
+    /**
+     * Returns key values of position encoded in a continuation token
+     * @param token Continuation token produced by a query with the same key columns and order
+     * @return Object array
+     * @throws IllegalArgumentException if the token is invalid or belongs to a different keyset
+     */
+    public Object[] decodeToken(String token)
+    {
+        if ((token == null) || (token.length() % 2 != 0))
+            throw new IllegalArgumentException("Invalid continuation token");
+        byte[] data = new byte[token.length() / 2];
+        for (int i = 0; i < data.length; ++i)
+        {
+            int high = Character.digit(token.charAt(i * 2), 16);
+            int low = Character.digit(token.charAt(i * 2 + 1), 16);
+            if ((high < 0) || (low < 0))
+                throw new IllegalArgumentException("Invalid continuation token");
+            data[i] = (byte)((high << 4) | low);
+        }
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+        try
+        {
+            if ((input.readByte() != TOKEN_VERSION) || (input.readInt() != getSignature()))
+                throw new IllegalArgumentException("Continuation token does not belong to keyset " + getOrderBy());
+            Object[] keyValues = new Object[columns.length];
+            for (int i = 0; i < keyValues.length; ++i)
+                keyValues[i] = readValue(input);
+            if (input.available() > 0)
+                throw new IllegalArgumentException("Invalid continuation token");
+            return keyValues;
+        }
+        catch (IOException e)
+        {
+            throw new IllegalArgumentException("Invalid continuation token", e);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Keyset " + getOrderBy();
+    }
+
+    /**
+     * Returns hash of key columns and order, which is the same on every platform
+     * @return int
+     */
+    protected int getSignature()
+    {
+        return getOrderBy().hashCode();
+    }
+
+    private static void writeValue(DataOutputStream output, String column, Object value) throws IOException
+    {
+        if (value instanceof String)
+        {
+            output.writeByte('S');
+            output.writeUTF((String)value);
+        }
+        else if (value instanceof Integer)
+        {
+            output.writeByte('I');
+            output.writeInt(((Integer)value).intValue());
+        }
+        else if (value instanceof Long)
+        {
+            output.writeByte('J');
+            output.writeLong(((Long)value).longValue());
+        }
+        else if (value instanceof Short)
+        {
+            output.writeByte('H');
+            output.writeShort(((Short)value).shortValue());
+        }
+        else if (value instanceof Double)
+        {
+            output.writeByte('D');
+            output.writeDouble(((Double)value).doubleValue());
+        }
+        else if (value instanceof Float)
+        {
+            output.writeByte('F');
+            output.writeFloat(((Float)value).floatValue());
+        }
+        else if (value instanceof Boolean)
+        {
+            output.writeByte('Z');
+            output.writeBoolean(((Boolean)value).booleanValue());
+        }
+        else if (value instanceof Date)
+        {
+            output.writeByte('T');
+            output.writeLong(((Date)value).getTime());
+        }
+        else if (value == null)
+            throw new IllegalArgumentException("Key column \"" + column + "\" is null");
+        else
+            throw new IllegalArgumentException("Key column \"" + column + "\" type " + value.getClass().getName() + " not supported");
+    }
+
+    private static Object readValue(DataInputStream input) throws IOException
+    {
+        byte type = input.readByte();
+        switch (type)
+        {
+        case 'S': return input.readUTF();
+        case 'I': return Integer.valueOf(input.readInt());
+        case 'J': return Long.valueOf(input.readLong());
+        case 'H': return Short.valueOf(input.readShort());
+        case 'D': return Double.valueOf(input.readDouble());
+        case 'F': return Float.valueOf(input.readFloat());
+        case 'Z': return Boolean.valueOf(input.readBoolean());
+        case 'T': return new Date(input.readLong());
+        default:
+            throw new IllegalArgumentException("Invalid continuation token");
+        }
+    }
+}
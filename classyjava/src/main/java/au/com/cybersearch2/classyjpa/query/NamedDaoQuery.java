@@ -36,6 +36,12 @@ public class NamedDaoQuery implements Comparable<NamedDaoQuery>
     protected String name;
     /** Query generator which incorporates selection arguments */
     protected DaoQueryFactory daoQueryFactory;
+    /** Flag set true if results are cached when a query result cache is configured */
+    protected boolean isCacheable;
+    /** Tables read by query, if not only the entity table */
+    protected String[] tables;
+    /** Selected columns mapped to result objects, or null if query returns entities */
+    protected Projection projection;
     
     /**
      * Create NamedDaoQuery object
@@ -44,10 +50,23 @@ public class NamedDaoQuery implements Comparable<NamedDaoQuery>
      * @param daoQueryFactory Query generator which incorporates selection arguments
      */
     public NamedDaoQuery(Class<?> clazz, String name, DaoQueryFactory daoQueryFactory)
+    {
+        this(clazz, name, daoQueryFactory, null);
+    }
+
+    /**
+     * Create NamedDaoQuery object for projection query
+     * @param clazz Entity class
+     * @param name Name of query
+     * @param daoQueryFactory Query generator which incorporates selection arguments
+     * @param projection Selected columns mapped to result objects, or null if query returns entities
+     */
+    public NamedDaoQuery(Class<?> clazz, String name, DaoQueryFactory daoQueryFactory, Projection projection)
     {
         this.clazz = clazz;
         this.name = name;
         this.daoQueryFactory = daoQueryFactory;
+        this.projection = projection;
     }
 
     /**
@@ -61,7 +80,7 @@ public class NamedDaoQuery implements Comparable<NamedDaoQuery>
         try
         {
             DaoQuery<?> daoQuery = daoQueryFactory.generateQuery(dao);
-            return new EntityQuery(daoQuery);
+            return new EntityQuery(daoQuery, projection);
         }
         catch (SQLException e)
         {
@@ -69,6 +88,45 @@ public class NamedDaoQuery implements Comparable<NamedDaoQuery>
         }
     }
 
+    /**
+     * Set whether results are cached when a query result cache is configured
+     * @param isCacheable Flag set true to cache results
+     * @param tables Tables read by query if not only the entity table, for example when the query has a join
+     */
+    public void setCacheable(boolean isCacheable, String... tables)
+    {
+        this.isCacheable = isCacheable;
+        this.tables = (tables != null) && (tables.length > 0) ? tables : null;
+    }
+
+    /**
+     * Returns flag set true if results are cached when a query result cache is configured
+     * @return boolean
+     */
+    public boolean isCacheable()
+    {
+        return isCacheable;
+    }
+
+    /**
+     * Returns names of tables read by query
+     * @param dao Entity DAO
+     * @return String array, which defaults to the entity table
+     */
+    public String[] getTables(PersistenceDao<?, ?> dao)
+    {
+        return tables != null ? tables : new String[] { dao.getTableName() };
+    }
+
+    /**
+     * Returns selected columns mapped to result objects
+     * @return Projection object or null if query returns entities
+     */
+    public Projection getProjection()
+    {
+        return projection;
+    }
+
     /**
      * Returns Entity class
      * @return Class
@@ -31,6 +31,10 @@ public class NamedSqlQuery implements Comparable<NamedSqlQuery>
     private QueryInfo queryInfo;
     /** Native query generator */
     protected SqlQueryFactory sqlQueryFactory;
+    /** Flag set true if results are cached when a query result cache is configured */
+    protected boolean isCacheable;
+    /** Tables read by query, if not only the query table */
+    protected String[] tables;
     
     /**
      * Create NamedSqlQuery object
@@ -54,6 +58,35 @@ public class NamedSqlQuery implements Comparable<NamedSqlQuery>
         return sqlQueryFactory.createSqlQuery(queryInfo);
     }
 
+    /**
+     * Set whether results are cached when a query result cache is configured
+     * @param isCacheable Flag set true to cache results
+     * @param tables Tables read by query if not only the query table, for example when the query has a join
+     */
+    public void setCacheable(boolean isCacheable, String... tables)
+    {
+        this.isCacheable = isCacheable;
+        this.tables = (tables != null) && (tables.length > 0) ? tables : null;
+    }
+
+    /**
+     * Returns flag set true if results are cached when a query result cache is configured
+     * @return boolean
+     */
+    public boolean isCacheable()
+    {
+        return isCacheable;
+    }
+
+    /**
+     * Returns names of tables read by query
+     * @return String array, which defaults to the query table
+     */
+    public String[] getTables()
+    {
+        return tables != null ? tables : new String[] { queryInfo.getTable() };
+    }
+
     /**
      * Compares this object with the specified object for order.  Returns a
      * negative integer, zero, or a positive integer as this object is less
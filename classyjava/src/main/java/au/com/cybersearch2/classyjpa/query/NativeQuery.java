@@ -61,8 +61,24 @@ public class NativeQuery extends QueryBase
         return 0; // Updates and deletes are not currently supported.
     }
 
+    /**
+     * Select seek pagination. The keyset must have a KeyExtractor, as results are mapped by the query RowMapper.
+     * @param keyset Ordered key
+     * @param continuationToken Token returned by getContinuationToken() after the previous page, or null for the first page
+     * @return The same query instance
+     * @throws IllegalArgumentException if the keyset has no KeyExtractor, or the token is invalid or belongs to a different keyset
+     */
+    @Override
+    public Query setKeyset(Keyset keyset, String continuationToken)
+    {
+        if ((keyset != null) && (keyset.getKeyExtractor() == null))
+            throw new IllegalArgumentException("Keyset of native query requires a KeyExtractor");
+        return super.setKeyset(keyset, continuationToken);
+    }
+
     /**
      * Execute a SELECT query and return the query results as a List.
+     * If a keyset is set, returns the page after the continuation token.
      * @return List of objects
      */   
     @SuppressWarnings("unchecked")
@@ -73,7 +89,11 @@ public class NativeQuery extends QueryBase
             return new ArrayList<Object>();
         try
         {
-            return (List<Object>) sqlQuery.getResultObjectList(startPosition, maxResults);
+            if (keyset == null)
+                return (List<Object>) sqlQuery.getResultObjectList(startPosition, maxResults);
+            List<Object> resultList = (List<Object>) sqlQuery.getResultObjectList(keyset, afterValues, maxResults);
+            setContinuationToken(isFullPage(resultList) ? keyset.getKeyExtractor().getKeyValues(resultList.get(resultList.size() - 1)) : null);
+            return resultList;
         }
         finally
         {
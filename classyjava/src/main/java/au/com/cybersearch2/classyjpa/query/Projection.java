@@ -0,0 +1,252 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.query;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.persistence.PersistenceException;
+
+/**
+ * Projection
+ * Selected columns of an entity query and how each row of them is mapped to a result object. A projection query
+ * reads only the selected columns and does not create entity objects, so no foreign fields or foreign collections
+ * are loaded and the OrmLite object cache is not involved. Column values are converted to the Java types of the
+ * corresponding entity fields. A foreign field column yields the id of the foreign object.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class Projection
+{
+    /**
+     * RowMapper
+     * Maps column values of one row to a result object
+     */
+    public interface RowMapper
+    {
+        /**
+         * Returns result object for column values
+         * @param values Column values in order of projection columns
+         * @return Object
+         */
+        Object mapRow(Object[] values);
+    }
+
+    /**
+     * ConstructorMapper
+     * Maps a row by passing the column values, in order, to the constructor of a result class
+     */
+    static class ConstructorMapper implements RowMapper
+    {
+        /** Constructor with one parameter per column */
+        protected final Constructor<?> constructor;
+        protected final Class<?>[] parameterTypes;
+
+        ConstructorMapper(Class<?> resultClass, int columnCount)
+        {
+            Constructor<?> match = null;
+            for (Constructor<?> candidate: resultClass.getConstructors())
+            {
+                if (candidate.getParameterTypes().length != columnCount)
+                    continue;
+                if (match != null)
+                    throw new IllegalArgumentException("Class " + resultClass.getName() + " has more than one public constructor with " + columnCount + " parameters");
+                match = candidate;
+            }
+            if (match == null)
+                throw new IllegalArgumentException("Class " + resultClass.getName() + " has no public constructor with " + columnCount + " parameters");
+            constructor = match;
+            parameterTypes = match.getParameterTypes();
+        }
+
+        @Override
+        public Object mapRow(Object[] values)
+        {
+            Object[] arguments = new Object[values.length];
+            for (int i = 0; i < values.length; ++i)
+                arguments[i] = convert(values[i], parameterTypes[i]);
+            try
+            {
+                return constructor.newInstance(arguments);
+            }
+            catch (InstantiationException e)
+            {
+                throw new PersistenceException("Error creating " + constructor.getDeclaringClass().getName(), e);
+            }
+            catch (IllegalAccessException e)
+            {
+                throw new PersistenceException("Error creating " + constructor.getDeclaringClass().getName(), e);
+            }
+            catch (InvocationTargetException e)
+            {
+                throw new PersistenceException("Error creating " + constructor.getDeclaringClass().getName(), e.getCause());
+            }
+        }
+    }
+
+    /** Wrapper class of each primitive type */
+    private static final Map<Class<?>, Class<?>> WRAPPER_MAP;
+
+    static
+    {
+        WRAPPER_MAP = new HashMap<Class<?>, Class<?>>();
+        WRAPPER_MAP.put(boolean.class, Boolean.class);
+        WRAPPER_MAP.put(byte.class, Byte.class);
+        WRAPPER_MAP.put(char.class, Character.class);
+        WRAPPER_MAP.put(short.class, Short.class);
+        WRAPPER_MAP.put(int.class, Integer.class);
+        WRAPPER_MAP.put(long.class, Long.class);
+        WRAPPER_MAP.put(float.class, Float.class);
+        WRAPPER_MAP.put(double.class, Double.class);
+    }
+
+    /** Selected column names */
+    protected final String[] columns;
+    /** Maps column values of one row to a result object */
+    protected final RowMapper rowMapper;
+
+    /**
+     * Create Projection object
+     * @param rowMapper Maps column values of one row to a result object
+     * @param columns Selected column names
+     * @throws IllegalArgumentException if no columns are specified
+     */
+    public Projection(RowMapper rowMapper, String... columns)
+    {
+        if ((columns == null) || (columns.length == 0))
+            throw new IllegalArgumentException("Parameter \"columns\" is empty");
+        if (rowMapper == null)
+            throw new IllegalArgumentException("Parameter \"rowMapper\" is null");
+        this.rowMapper = rowMapper;
+        this.columns = columns.clone();
+    }
+
+    /**
+     * Returns projection which maps each row to an Object array of the column values
+     * @param columns Selected column names
+     * @return Projection
+     */
+    public static Projection toArray(String... columns)
+    {
+        return new Projection(new RowMapper(){
+
+            @Override
+            public Object mapRow(Object[] values)
+            {
+                return values;
+            }}, columns);
+    }
+
+    /**
+     * Returns projection which maps each row to the value of a single column
+     * @param column Selected column name
+     * @return Projection
+     */
+    public static Projection toValue(String column)
+    {
+        return new Projection(new RowMapper(){
+
+            @Override
+            public Object mapRow(Object[] values)
+            {
+                return values[0];
+            }}, column);
+    }
+
+    /**
+     * Returns projection which maps each row to an object created by the public constructor of a given class
+     * which has one parameter per column. Column values are passed in column order and numbers are converted
+     * to the parameter type, so for example an int field may be passed to a long parameter.
+     * @param resultClass Result class, which must be a top level or static nested class
+     * @param columns Selected column names
+     * @return Projection
+     * @throws IllegalArgumentException if the class does not have exactly one public constructor with a matching number of parameters
+     */
+    public static Projection toConstructor(Class<?> resultClass, String... columns)
+    {
+        return new Projection(new ConstructorMapper(resultClass, columns == null ? 0 : columns.length), columns);
+    }
+
+    /**
+     * Returns selected column names
+     * @return String array
+     */
+    public String[] getColumns()
+    {
+        return columns.clone();
+    }
+
+    public RowMapper getRowMapper()
+    {
+        return rowMapper;
+    }
+
+    /**
+     * Returns result object for column values of one row
+     * @param values Column values in order of projection columns
+     * @return Object
+     */
+    public Object mapRow(Object[] values)
+    {
+        return rowMapper.mapRow(values);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Projection " + Arrays.toString(columns);
+    }
+
+    /**
+     * Returns value converted to given type
+     * @param value Column value
+     * @param type Parameter type
+     * @return Object
+     * @throws PersistenceException if the value cannot be converted
+     */
+    protected static Object convert(Object value, Class<?> type)
+    {
+        if (value == null)
+            // Default value of a primitive type
+            return type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0) : null;
+        Class<?> targetType = type.isPrimitive() ? WRAPPER_MAP.get(type) : type;
+        if (targetType.isInstance(value))
+            return value;
+        if (value instanceof Number)
+        {
+            Number number = (Number)value;
+            if (targetType == Integer.class)
+                return Integer.valueOf(number.intValue());
+            if (targetType == Long.class)
+                return Long.valueOf(number.longValue());
+            if (targetType == Short.class)
+                return Short.valueOf(number.shortValue());
+            if (targetType == Byte.class)
+                return Byte.valueOf(number.byteValue());
+            if (targetType == Double.class)
+                return Double.valueOf(number.doubleValue());
+            if (targetType == Float.class)
+                return Float.valueOf(number.floatValue());
+        }
+        if (targetType == String.class)
+            return value.toString();
+        throw new PersistenceException("Cannot convert " + value.getClass().getName() + " to " + type.getName());
+    }
+}
@@ -18,6 +18,7 @@ package au.com.cybersearch2.classyjpa.query;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -44,6 +45,12 @@ abstract public class QueryBase implements Query
     protected int startPosition;
     /** Flag for query closed */
     protected volatile boolean isClosed;
+    /** Key for seek pagination or null if results are paged by position */
+    protected Keyset keyset;
+    /** Key values of last row of previous page or null for first page */
+    protected Object[] afterValues;
+    /** Continuation token for the page after the results returned, or null if there are no more results */
+    protected String continuationToken;
 
     /**
      * Set the maximum number of results to retrieve.
@@ -75,6 +82,51 @@ abstract public class QueryBase implements Query
          return this;
      }
 
+    /**
+     * Select seek pagination. Rows are ordered by the key and the page starts after the position encoded in the
+     * continuation token, so the start position is not used. The page size is set by setMaxResults().
+     * @param keyset Ordered key
+     * @param continuationToken Token returned by getContinuationToken() after the previous page, or null for the first page
+     * @return The same query instance
+     * @throws IllegalArgumentException if the token is invalid or belongs to a different keyset
+     */
+    public Query setKeyset(Keyset keyset, String continuationToken)
+    {
+        if (keyset == null)
+            throw new IllegalArgumentException("Parameter \"keyset\" is null");
+        this.afterValues = continuationToken == null ? null : keyset.decodeToken(continuationToken);
+        this.keyset = keyset;
+        return this;
+    }
+
+    /**
+     * Returns continuation token to fetch the page after the results of a seek pagination query
+     * @return String or null if the last page returned fewer rows than the page size, or no seek pagination query has run
+     */
+    public String getContinuationToken()
+    {
+        return continuationToken;
+    }
+
+    /**
+     * Returns flag set true if a page of results is full, so more results may follow
+     * @param resultList Page of results
+     * @return boolean
+     */
+    protected boolean isFullPage(List<?> resultList)
+    {
+        return (maxResults > 0) && (resultList.size() == maxResults);
+    }
+
+    /**
+     * Set continuation token after a page of results
+     * @param lastKeyValues Key values of last result of a full page, or null if there are no more results
+     */
+    protected void setContinuationToken(Object[] lastKeyValues)
+    {
+        continuationToken = lastKeyValues == null ? null : keyset.encodeToken(lastKeyValues);
+    }
+
     /**
      * Set the flush mode type to be used for the query execution not supported.
      * @param type Not used
@@ -118,6 +118,22 @@ public class QueryInfo
         this.rowMapper = rowMapper;
     }
 
+    /**
+     * Create copy of QueryInfo object
+     * @param queryInfo Object to copy
+     */
+    public QueryInfo(QueryInfo queryInfo)
+    {
+        this(queryInfo.rowMapper, queryInfo.table, queryInfo.columns);
+        selection = queryInfo.selection;
+        parameterNames = queryInfo.parameterNames;
+        selectionArgs = queryInfo.selectionArgs;
+        groupBy = queryInfo.groupBy;
+        having = queryInfo.having;
+        orderBy = queryInfo.orderBy;
+        limit = queryInfo.limit;
+    }
+
     /**
      * Returns The table name to compile the query against.
      * @return String
@@ -0,0 +1,353 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * QueryResultCache
+ * Results of named queries shared between entity managers. An entry is keyed by query name, bound parameter
+ * values and page window, and is tagged with the tables the query reads and the version of each table when the
+ * query started. A committed write to a table increments its version, so entries reading that table become stale
+ * and are dropped when next looked up. Memory is bounded by both an entry limit and a total weight limit, where
+ * weight is the number of result rows, with least recently used entries evicted first.
+ * Result objects are held as given, so a CachedQuery stores and hands out copies made by a ResultCopier wherever
+ * results can be modified by callers, such as entity objects. A cache must serve only one persistence unit, so
+ * each shard of a sharded persistence unit needs a cache of its own.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class QueryResultCache
+{
+    /** Query hint to enable (Boolean.TRUE or "true") or disable caching of a single query instance */
+    public static final String CACHEABLE_HINT = "classyjpa.query.cacheable";
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    public static final long DEFAULT_MAX_WEIGHT = 10000L;
+
+    /**
+     * ResultCopier
+     * Copies a result object, so callers cannot change the cached result by modifying the object they receive
+     */
+    public interface ResultCopier
+    {
+        /**
+         * Returns copy of result object
+         * @param result Object
+         * @return Object
+         */
+        Object copy(Object result);
+    }
+
+    /**
+     * CacheEntry
+     * Query result together with the table versions it was read at
+     */
+    static class CacheEntry
+    {
+        /** Unmodifiable result list or single result object */
+        final Object result;
+        /** Normalized names of tables read by query */
+        final String[] tables;
+        /** Table versions when query started, in same order as tables */
+        final long[] versions;
+        /** Number of result rows, minimum 1 */
+        final int weight;
+
+        CacheEntry(Object result, String[] tables, long[] versions, int weight)
+        {
+            this.result = result;
+            this.tables = tables;
+            this.versions = versions;
+            this.weight = weight;
+        }
+    }
+
+    /** Maximum number of entries */
+    protected final int maxEntries;
+    /** Maximum total weight of entries */
+    protected final long maxWeight;
+    /** Entries in access order, least recently used first. Guarded by "this". */
+    protected final LinkedHashMap<Object, CacheEntry> entryMap;
+    /** Total weight of entries. Guarded by "this". */
+    protected long totalWeight;
+    /** Version counter of each table written since cache created */
+    protected final ConcurrentMap<String, AtomicLong> tableVersionMap;
+    protected final AtomicLong hitCount;
+    protected final AtomicLong missCount;
+    protected final AtomicLong staleCount;
+    protected final AtomicLong evictionCount;
+
+    /**
+     * Create QueryResultCache object with default limits
+     */
+    public QueryResultCache()
+    {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT);
+    }
+
+    /**
+     * Create QueryResultCache object
+     * @param maxEntries Maximum number of entries
+     * @param maxWeight Maximum total number of result rows
+     * @throws IllegalArgumentException if a limit is less than 1
+     */
+    public QueryResultCache(int maxEntries, long maxWeight)
+    {
+        if (maxEntries < 1)
+            throw new IllegalArgumentException("Parameter \"maxEntries\" is less than 1: " + maxEntries);
+        if (maxWeight < 1)
+            throw new IllegalArgumentException("Parameter \"maxWeight\" is less than 1: " + maxWeight);
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        entryMap = new LinkedHashMap<Object, CacheEntry>(16, 0.75f, true);
+        tableVersionMap = new ConcurrentHashMap<String, AtomicLong>();
+        hitCount = new AtomicLong();
+        missCount = new AtomicLong();
+        staleCount = new AtomicLong();
+        evictionCount = new AtomicLong();
+    }
+
+    /**
+     * Returns current versions of given tables. Call before executing the query to be cached so a write
+     * committed while the query runs leaves the entry stale.
+     * @param tables Table names
+     * @return Table versions in same order
+     */
+    public long[] getTableVersions(String[] tables)
+    {
+        long[] versions = new long[tables.length];
+        for (int i = 0; i < tables.length; ++i)
+        {
+            AtomicLong version = tableVersionMap.get(normalize(tables[i]));
+            versions[i] = version == null ? 0L : version.get();
+        }
+        return versions;
+    }
+
+    /**
+     * Returns cached result for given key. A stale entry is removed and counted as a miss.
+     * @param key Query key
+     * @return Result list copy or single result object, or null if not cached
+     */
+    public Object get(Object key)
+    {
+        CacheEntry entry;
+        synchronized(this)
+        {
+            entry = entryMap.get(key);
+            if ((entry != null) && !isCurrent(entry))
+            {
+                removeEntry(key);
+                staleCount.incrementAndGet();
+                entry = null;
+            }
+        }
+        if (entry == null)
+        {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        if (entry.result instanceof List)
+            return new ArrayList<Object>((List<?>)entry.result);
+        return entry.result;
+    }
+
+    /**
+     * Store query result. The result is discarded if a table it reads was written after the query started
+     * or if it alone exceeds the weight limit.
+     * @param key Query key
+     * @param result Result list or single result object
+     * @param tables Names of tables read by query
+     * @param versions Table versions obtained from getTableVersions() before the query started
+     * @return Flag set true if result stored
+     */
+    public boolean put(Object key, Object result, String[] tables, long[] versions)
+    {
+        if (result == null)
+            return false;
+        Object value = result;
+        int weight = 1;
+        if (result instanceof List)
+        {
+            List<?> resultList = (List<?>)result;
+            value = Collections.unmodifiableList(new ArrayList<Object>(resultList));
+            weight = Math.max(1, resultList.size());
+        }
+        if (weight > maxWeight)
+            return false;
+        String[] normalized = new String[tables.length];
+        for (int i = 0; i < tables.length; ++i)
+            normalized[i] = normalize(tables[i]);
+        CacheEntry entry = new CacheEntry(value, normalized, versions.clone(), weight);
+        synchronized(this)
+        {
+            if (!isCurrent(entry))
+                return false;
+            removeEntry(key);
+            entryMap.put(key, entry);
+            totalWeight += weight;
+            Iterator<Map.Entry<Object, CacheEntry>> iterator = entryMap.entrySet().iterator();
+            while (((entryMap.size() > maxEntries) || (totalWeight > maxWeight)) && iterator.hasNext())
+            {
+                Map.Entry<Object, CacheEntry> eldest = iterator.next();
+                if (eldest.getValue() == entry)
+                    break;
+                totalWeight -= eldest.getValue().weight;
+                iterator.remove();
+                evictionCount.incrementAndGet();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Increment versions of given tables, making stale every entry which reads any of them
+     * @param tables Names of written tables
+     */
+    public void invalidate(Collection<String> tables)
+    {
+        for (String table: tables)
+        {
+            String name = normalize(table);
+            AtomicLong version = tableVersionMap.get(name);
+            if (version == null)
+            {
+                AtomicLong newVersion = new AtomicLong();
+                version = tableVersionMap.putIfAbsent(name, newVersion);
+                if (version == null)
+                    version = newVersion;
+            }
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Remove all entries. Table versions and metrics are retained.
+     */
+    public synchronized void clear()
+    {
+        entryMap.clear();
+        totalWeight = 0;
+    }
+
+    /**
+     * Returns number of entries
+     * @return int
+     */
+    public synchronized int size()
+    {
+        return entryMap.size();
+    }
+
+    /**
+     * Returns total weight of entries
+     * @return long
+     */
+    public synchronized long getWeight()
+    {
+        return totalWeight;
+    }
+
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * Returns number of misses caused by an entry invalidated by a table write
+     * @return long
+     */
+    public long getStaleCount()
+    {
+        return staleCount.get();
+    }
+
+    public long getEvictionCount()
+    {
+        return evictionCount.get();
+    }
+
+    /**
+     * Returns fraction of lookups which were hits
+     * @return double in range 0 to 1
+     */
+    public double getHitRatio()
+    {
+        long hits = hitCount.get();
+        long lookups = hits + missCount.get();
+        return lookups == 0 ? 0.0 : (double)hits / lookups;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "hits=" + getHitCount() + ", misses=" + getMissCount() + ", stale=" + getStaleCount() +
+               ", evictions=" + getEvictionCount() + ", size=" + size() + ", weight=" + getWeight();
+    }
+
+    /**
+     * Returns flag set true if no table read by entry has been written since entry query started
+     * @param entry CacheEntry
+     * @return boolean
+     */
+    protected boolean isCurrent(CacheEntry entry)
+    {
+        for (int i = 0; i < entry.tables.length; ++i)
+        {
+            AtomicLong version = tableVersionMap.get(entry.tables[i]);
+            if ((version == null ? 0L : version.get()) != entry.versions[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Remove entry and deduct its weight. Caller must hold lock on "this".
+     * @param key Query key
+     */
+    protected void removeEntry(Object key)
+    {
+        CacheEntry previous = entryMap.remove(key);
+        if (previous != null)
+            totalWeight -= previous.weight;
+    }
+
+    /**
+     * Returns table name in form used as version key, as SQL table names are not case sensitive
+     * @param table Table name
+     * @return String
+     */
+    protected static String normalize(String table)
+    {
+        return table.toLowerCase(Locale.US);
+    }
+}
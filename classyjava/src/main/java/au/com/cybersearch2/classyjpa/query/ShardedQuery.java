@@ -0,0 +1,350 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.query;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import javax.persistence.NoResultException;
+import javax.persistence.NonUniqueResultException;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+import javax.persistence.TemporalType;
+
+/**
+ * ShardedQuery
+ * Named query of a sharded persistence unit. Parameters are bound on the query of every shard. On execution, the
+ * shard queries run in parallel and their results are concatenated in shard order. The result window set by
+ * setFirstResult() and setMaxResults() applies to the combined results, so a window on an ordered query needs the
+ * order given as a Comparator with setComparator() or the ORDER_HINT hint. The results of each shard, which must
+ * already be in that order, are then merged in order before the window is applied.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class ShardedQuery extends QueryBase
+{
+    /** Query hint to set the Comparator which orders the combined results */
+    public static final String ORDER_HINT = "classyjpa.query.order";
+
+    /** Query of each shard in index order */
+    protected List<Query> shardQueries;
+    /** Executor of each shard in index order, so shard queries run in parallel. If null, queries run in sequence. */
+    protected List<? extends Executor> shardExecutors;
+    /** Order of query results, or null if results are concatenated in shard order */
+    protected Comparator<Object> comparator;
+
+    /**
+     * Create ShardedQuery object
+     * @param shardQueries Query of each shard in index order
+     * @param shardExecutors Executor of each shard in index order, so shard queries run in parallel. If null, queries run in sequence.
+     */
+    public ShardedQuery(List<Query> shardQueries, List<? extends Executor> shardExecutors)
+    {
+        this.shardQueries = shardQueries;
+        this.shardExecutors = shardExecutors;
+    }
+
+    /**
+     * Execute an update or delete statement on all shards
+     * @return Total number of entities updated or deleted
+     */
+    @Override
+    public int executeUpdate()
+    {
+        int count = 0;
+        try
+        {
+            for (Object result: executeAll(false))
+                count += ((Integer)result).intValue();
+        }
+        finally
+        {
+            release();
+        }
+        return count;
+    }
+
+    /**
+     * Execute a SELECT query on all shards and return the combined results as a List.
+     * @return a list of the results
+     */
+    @Override
+    public List<Object> getResultList()
+    {
+        List<Object> resultList = new ArrayList<Object>();
+        if (isClosed) // Only perform query once
+            return resultList;
+        try
+        {
+            // Each shard returns enough results to fill the window from the start of the combined results
+            if (maxResults > 0)
+                for (Query shardQuery: shardQueries)
+                    shardQuery.setMaxResults(startPosition + maxResults);
+            List<Object> shardResultsList = executeAll(true);
+            if (comparator != null)
+                resultList = merge(shardResultsList, maxResults > 0 ? startPosition + maxResults : 0);
+            else
+                for (Object shardResults: shardResultsList)
+                    resultList.addAll((List<?>)shardResults);
+        }
+        finally
+        {
+            release();
+        }
+        int fromIndex = Math.min(startPosition, resultList.size());
+        int toIndex = maxResults > 0 ? Math.min(fromIndex + maxResults, resultList.size()) : resultList.size();
+        if ((fromIndex == 0) && (toIndex == resultList.size()))
+            return resultList;
+        return new ArrayList<Object>(resultList.subList(fromIndex, toIndex));
+    }
+
+    /**
+     * Execute a SELECT query that returns a single result. The result window is ignored.
+     * @return The result
+     * @throws NoResultException if there is no result
+     * @throws NonUniqueResultException if more than one result is found on all shards combined
+     */
+    @Override
+    public Object getSingleResult()
+    {
+        if (isClosed) // Only perform query once
+            throw new NoResultException("getSingleResult() called when query already executed");
+        List<Object> resultList = new ArrayList<Object>();
+        try
+        {
+            // Two results are enough to show the result is not unique
+            for (Query shardQuery: shardQueries)
+                shardQuery.setMaxResults(2);
+            for (Object shardResults: executeAll(true))
+                resultList.addAll((List<?>)shardResults);
+        }
+        finally
+        {
+            release();
+        }
+        if (resultList.isEmpty())
+            throw new NoResultException("getSingleResult() query returned no result on any shard");
+        if (resultList.size() > 1)
+            throw new NonUniqueResultException("getSingleResult() query returned more than one result");
+        return resultList.get(0);
+    }
+
+    /**
+     * Set order of query results. The results of each shard must already be in this order.
+     * @param comparator Comparator of result objects, or null to concatenate results in shard order
+     * @return The same query instance
+     */
+    public Query setComparator(Comparator<Object> comparator)
+    {
+        this.comparator = comparator;
+        return this;
+    }
+
+    /**
+     * Seek pagination is not supported, as shard results are not merged in key order
+     * @throws UnsupportedOperationException
+     */
+    @Override
+    public Query setKeyset(Keyset keyset, String continuationToken)
+    {
+        throw new UnsupportedOperationException("Keyset pagination not supported on sharded query");
+    }
+
+    /**
+     * Set a hint. ORDER_HINT sets the Comparator which orders the combined results. Other hints are set on the
+     * query of every shard.
+     * @param hintName Name of hint
+     * @param value Hint value
+     * @return The same query instance
+     * @throws IllegalArgumentException if ORDER_HINT value is not a Comparator
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Query setHint(String hintName, Object value)
+    {
+        if (ORDER_HINT.equals(hintName))
+        {
+            if ((value != null) && !(value instanceof Comparator))
+                throw new IllegalArgumentException("Hint " + ORDER_HINT + " value must be a Comparator");
+            return setComparator((Comparator<Object>)value);
+        }
+        for (Query shardQuery: shardQueries)
+            shardQuery.setHint(hintName, value);
+        return this;
+    }
+
+    @Override
+    public Query setParameter(String param, Object value)
+    {
+        for (Query shardQuery: shardQueries)
+            shardQuery.setParameter(param, value);
+        return this;
+    }
+
+    @Override
+    public Query setParameter(int position, Object value)
+    {
+        for (Query shardQuery: shardQueries)
+            shardQuery.setParameter(position, value);
+        return this;
+    }
+
+    @Override
+    public Query setParameter(String param, Date value, TemporalType type)
+    {
+        for (Query shardQuery: shardQueries)
+            shardQuery.setParameter(param, value, type);
+        return this;
+    }
+
+    @Override
+    public Query setParameter(String param, Calendar value, TemporalType type)
+    {
+        for (Query shardQuery: shardQueries)
+            shardQuery.setParameter(param, value, type);
+        return this;
+    }
+
+    @Override
+    public Query setParameter(int position, Date value, TemporalType type)
+    {
+        for (Query shardQuery: shardQueries)
+            shardQuery.setParameter(position, value, type);
+        return this;
+    }
+
+    @Override
+    public Query setParameter(int position, Calendar value, TemporalType type)
+    {
+        for (Query shardQuery: shardQueries)
+            shardQuery.setParameter(position, value, type);
+        return this;
+    }
+
+    /**
+     * Merge shard results, each already in order, into one list in order. Equal results are taken in shard order.
+     * @param shardResultsList Result list of each shard in index order
+     * @param limit Number of results needed from the start of the merged results, or 0 for all results
+     * @return Object list
+     */
+    protected List<Object> merge(final List<Object> shardResultsList, int limit)
+    {
+        List<Object> resultList = new ArrayList<Object>();
+        // Queue holds the position of the next result of each shard which has one, ordered by that result
+        PriorityQueue<int[]> queue = new PriorityQueue<int[]>(Math.max(shardResultsList.size(), 1), new Comparator<int[]>(){
+
+            @Override
+            public int compare(int[] lhs, int[] rhs)
+            {
+                int order = comparator.compare(getShardResult(lhs), getShardResult(rhs));
+                return order != 0 ? order : lhs[0] - rhs[0];
+            }
+
+            private Object getShardResult(int[] position)
+            {
+                return ((List<?>)shardResultsList.get(position[0])).get(position[1]);
+            }});
+        for (int index = 0; index < shardResultsList.size(); ++index)
+            if (!((List<?>)shardResultsList.get(index)).isEmpty())
+                queue.add(new int[] { index, 0 });
+        while (!queue.isEmpty() && ((limit == 0) || (resultList.size() < limit)))
+        {
+            int[] position = queue.poll();
+            List<?> shardResults = (List<?>)shardResultsList.get(position[0]);
+            resultList.add(shardResults.get(position[1]));
+            if (++position[1] < shardResults.size())
+                queue.add(position);
+        }
+        return resultList;
+    }
+
+    /**
+     * Execute query on all shards and wait for all to complete
+     * @param isSelect Flag set true for getResultList(), false for executeUpdate()
+     * @return Result of each shard in index order
+     * @throws RuntimeException first exception thrown by any shard, after all shards complete
+     */
+    protected List<Object> executeAll(final boolean isSelect)
+    {
+        List<Object> resultList = new ArrayList<Object>(shardQueries.size());
+        List<Future<Object>> futureList = new ArrayList<Future<Object>>(shardQueries.size());
+        for (int index = 0; index < shardQueries.size(); ++index)
+        {
+            final Query shardQuery = shardQueries.get(index);
+            Callable<Object> callable = new Callable<Object>(){
+
+                @Override
+                public Object call() throws Exception
+                {
+                    return isSelect ? shardQuery.getResultList() : Integer.valueOf(shardQuery.executeUpdate());
+                }};
+            if ((shardExecutors == null) || (shardQueries.size() == 1))
+            {
+                try
+                {
+                    resultList.add(callable.call());
+                }
+                catch (RuntimeException e)
+                {
+                    throw e;
+                }
+                catch (Exception e)
+                {
+                    throw new PersistenceException("Shard query failed", e);
+                }
+            }
+            else
+            {
+                FutureTask<Object> futureTask = new FutureTask<Object>(callable);
+                shardExecutors.get(index).execute(futureTask);
+                futureList.add(futureTask);
+            }
+        }
+        RuntimeException failure = null;
+        for (Future<Object> future: futureList)
+        {
+            try
+            {
+                resultList.add(future.get());
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                if (failure == null)
+                    failure = new PersistenceException("Interrupted waiting for shard query", e);
+            }
+            catch (ExecutionException e)
+            {
+                if (failure == null)
+                    failure = e.getCause() instanceof RuntimeException ?
+                              (RuntimeException)e.getCause() :
+                              new PersistenceException("Shard query failed", e.getCause());
+            }
+        }
+        if (failure != null)
+            throw failure;
+        return resultList;
+    }
+}
@@ -76,6 +76,34 @@ public class SqlQuery
         return persistenceAdmin.getResultList(queryInfo, startPosition, maxResults);
     }
 
+    /**
+     * Execute query for a page of results in key order, starting after a given position
+     * @param keyset Ordered key
+     * @param afterValues Key values of last row of previous page, or null for first page
+     * @param maxResults Page size, or 0 for all remaining results
+     * @return Object list
+     */
+    public List<?> getResultObjectList(Keyset keyset, Object[] afterValues, int maxResults)
+    {
+        // Work on a copy, as the query information is shared by all instances of the named query
+        QueryInfo seekInfo = new QueryInfo(queryInfo);
+        List<String> args = new ArrayList<String>(selectionArgs);
+        if (afterValues != null)
+        {
+            String selection = queryInfo.getSelection();
+            String seekSelection = keyset.getSeekSelection();
+            if ((selection == null) || (selection.length() == 0))
+                seekInfo.setSelection(seekSelection);
+            else
+                seekInfo.setSelection("(" + selection + ") AND (" + seekSelection + ")");
+            for (Object value: keyset.getSeekArguments(afterValues))
+                args.add(formatObject(value));
+        }
+        seekInfo.setOrderBy(keyset.getOrderBy());
+        seekInfo.setSelectionArgs(args.toArray(new String[args.size()]));
+        return persistenceAdmin.getResultList(seekInfo, 0, maxResults);
+    }
+
     /**
      * Execute query and return a single Object result
      * @return Object or null if nothing returned by query
@@ -0,0 +1,69 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.transaction;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ChangeSet
+ * Entity changes of one committed transaction, in the order they were made, as published on a ChangeStream.
+ * Changes of a nested transaction are included in the change set of the top-level transaction which encloses it.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class ChangeSet
+{
+    /** Position in change stream */
+    protected final long sequence;
+    /** Time of publication in milliseconds since epoch */
+    protected final long commitTime;
+    /** Entity changes */
+    protected final List<EntityChange> changes;
+
+    /**
+     * Create ChangeSet object
+     * @param sequence Position in change stream
+     * @param changes Entity changes
+     */
+    public ChangeSet(long sequence, List<EntityChange> changes)
+    {
+        this.sequence = sequence;
+        this.changes = Collections.unmodifiableList(changes);
+        commitTime = System.currentTimeMillis();
+    }
+
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    public long getCommitTime()
+    {
+        return commitTime;
+    }
+
+    public List<EntityChange> getChanges()
+    {
+        return changes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ChangeSet " + sequence + " " + changes.toString();
+    }
+}
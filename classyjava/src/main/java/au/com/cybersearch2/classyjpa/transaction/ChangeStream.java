@@ -0,0 +1,219 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.transaction;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import au.com.cybersearch2.classylog.JavaLogger;
+import au.com.cybersearch2.classylog.Log;
+
+/**
+ * ChangeStream
+ * Change data capture stream of committed transactions. Change sets are published to a lock-free ring buffer
+ * which any number of subscribers read independently, each at its own cursor. Publishers claim sequence numbers
+ * atomically and each slot holds an immutable change set tagged with its sequence, so a subscriber can tell
+ * whether a slot holds the next change set, one not yet published or one which has overwritten it.
+ * Backpressure is chosen per subscriber. A publisher waits for "block" subscribers to free a slot, but not beyond
+ * the block timeout, as the transaction has already committed. A "drop" subscriber never holds up publishers and
+ * skips change sets overwritten before it reads them, counting them as missed.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class ChangeStream
+{
+    /** Behaviour when a subscriber falls a full buffer behind */
+    public enum Backpressure
+    {
+        block,
+        drop
+    }
+
+    private static final String TAG = "ChangeStream";
+    static Log log = JavaLogger.getLogger(TAG);
+
+    /** Default number of change sets held */
+    public static final int DEFAULT_CAPACITY = 1024;
+    /** Default maximum time a publisher waits for a blocking subscriber */
+    public static final long DEFAULT_BLOCK_TIMEOUT_MILLIS = 1000L;
+    /** Number of yields before a waiting publisher parks */
+    private static final int SPIN_LIMIT = 100;
+    /** Park time of a waiting publisher */
+    private static final long PARK_NANOS = 100000L;
+
+    /** Buffer size, a power of 2 */
+    protected final int capacity;
+    /** Mask to map sequence to slot */
+    protected final int mask;
+    /** Slots holding most recent change sets */
+    protected final AtomicReferenceArray<ChangeSet> ring;
+    /** Next sequence to claim */
+    protected final AtomicLong nextSequence;
+    /** Current subscribers */
+    protected final List<ChangeSubscription> subscriptions;
+    /** Maximum time a publisher waits for a blocking subscriber */
+    protected volatile long blockTimeoutMillis;
+
+    /**
+     * Create ChangeStream object with default capacity
+     */
+    public ChangeStream()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create ChangeStream object
+     * @param capacity Number of change sets held, rounded up to a power of 2
+     */
+    public ChangeStream(int capacity)
+    {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+        this.capacity = size;
+        mask = size - 1;
+        ring = new AtomicReferenceArray<ChangeSet>(size);
+        nextSequence = new AtomicLong();
+        subscriptions = new CopyOnWriteArrayList<ChangeSubscription>();
+        blockTimeoutMillis = DEFAULT_BLOCK_TIMEOUT_MILLIS;
+    }
+
+    /**
+     * Returns new subscription which receives change sets published from now on
+     * @param name Subscriber name for logging
+     * @param backpressure Behaviour when subscriber falls a full buffer behind
+     * @return ChangeSubscription
+     */
+    public ChangeSubscription subscribe(String name, Backpressure backpressure)
+    {
+        ChangeSubscription subscription = new ChangeSubscription(this, name, backpressure, nextSequence.get());
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Publish changes of a committed transaction. Does not wait longer than the block timeout.
+     * @param changes Entity changes
+     * @return ChangeSet
+     */
+    public ChangeSet publish(List<EntityChange> changes)
+    {
+        long sequence = nextSequence.getAndIncrement();
+        awaitSlot(sequence);
+        ChangeSet changeSet = new ChangeSet(sequence, changes);
+        int index = (int)sequence & mask;
+        while (true)
+        {   // Never replace a later change set with an earlier one from a publisher which was held up
+            ChangeSet current = ring.get(index);
+            if ((current != null) && (current.getSequence() > sequence))
+                break;
+            if (ring.compareAndSet(index, current, changeSet))
+                break;
+        }
+        return changeSet;
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Returns sequence which next published change set will have
+     * @return long
+     */
+    public long getNextSequence()
+    {
+        return nextSequence.get();
+    }
+
+    public long getBlockTimeoutMillis()
+    {
+        return blockTimeoutMillis;
+    }
+
+    public void setBlockTimeoutMillis(long blockTimeoutMillis)
+    {
+        this.blockTimeoutMillis = blockTimeoutMillis;
+    }
+
+    /**
+     * Returns content of slot for given sequence
+     * @param sequence Sequence
+     * @return ChangeSet which may have a different sequence, or null if slot never used
+     */
+    protected ChangeSet getSlot(long sequence)
+    {
+        return ring.get((int)sequence & mask);
+    }
+
+    /**
+     * Remove subscription
+     * @param subscription ChangeSubscription
+     */
+    protected void unsubscribe(ChangeSubscription subscription)
+    {
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * Wait until every blocking subscriber has read the change set which given sequence will overwrite
+     * @param sequence Claimed sequence
+     */
+    protected void awaitSlot(long sequence)
+    {
+        long wrapPoint = sequence - capacity;
+        if (wrapPoint < 0)
+            return;
+        long deadline = 0;
+        int spins = 0;
+        while (wrapPoint >= getMinimumBlockingCursor())
+        {
+            long now = System.nanoTime();
+            if (deadline == 0)
+                deadline = now + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+            else if (now - deadline >= 0)
+            {
+                log.warn(TAG, "Publish of change set " + sequence + " overtook a blocking subscriber after " + blockTimeoutMillis + "ms");
+                return;
+            }
+            if (++spins < SPIN_LIMIT)
+                Thread.yield();
+            else
+                LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    /**
+     * Returns lowest cursor of blocking subscribers
+     * @return long or Long.MAX_VALUE if there are no blocking subscribers
+     */
+    protected long getMinimumBlockingCursor()
+    {
+        long minimum = Long.MAX_VALUE;
+        for (ChangeSubscription subscription: subscriptions)
+            if (subscription.getBackpressure() == Backpressure.block)
+                minimum = Math.min(minimum, subscription.getCursor());
+        return minimum;
+    }
+}
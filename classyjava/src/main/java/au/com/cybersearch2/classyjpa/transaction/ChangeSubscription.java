@@ -0,0 +1,178 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import au.com.cybersearch2.classyjpa.transaction.ChangeStream.Backpressure;
+
+/**
+ * ChangeSubscription
+ * A subscriber's cursor on a ChangeStream. Change sets are read in publication order. Each subscription
+ * is intended to be read by a single consumer thread.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class ChangeSubscription
+{
+    /** Park time while waiting for a change set */
+    private static final long PARK_NANOS = 1000000L;
+
+    /** Stream subscribed to */
+    protected final ChangeStream changeStream;
+    /** Subscriber name */
+    protected final String name;
+    /** Behaviour when subscriber falls a full buffer behind */
+    protected final Backpressure backpressure;
+    /** Sequence of next change set to read */
+    protected final AtomicLong cursor;
+    /** Number of change sets overwritten before they were read */
+    protected final AtomicLong missedCount;
+
+    /**
+     * Create ChangeSubscription object
+     * @param changeStream Stream subscribed to
+     * @param name Subscriber name
+     * @param backpressure Behaviour when subscriber falls a full buffer behind
+     * @param startSequence Sequence of first change set to read
+     */
+    protected ChangeSubscription(ChangeStream changeStream, String name, Backpressure backpressure, long startSequence)
+    {
+        this.changeStream = changeStream;
+        this.name = name;
+        this.backpressure = backpressure;
+        cursor = new AtomicLong(startSequence);
+        missedCount = new AtomicLong();
+    }
+
+    /**
+     * Returns next change set without waiting
+     * @return ChangeSet or null if none available
+     */
+    public ChangeSet poll()
+    {
+        while (true)
+        {
+            long next = cursor.get();
+            ChangeSet changeSet = changeStream.getSlot(next);
+            if ((changeSet == null) || (changeSet.getSequence() < next))
+                return null;
+            if (changeSet.getSequence() == next)
+            {
+                cursor.set(next + 1);
+                return changeSet;
+            }
+            // Slot overwritten. Skip to the oldest change set which may still be held.
+            long resume = changeSet.getSequence() - changeStream.getCapacity() + 1;
+            missedCount.addAndGet(resume - next);
+            cursor.set(resume);
+        }
+    }
+
+    /**
+     * Returns next change set, waiting if necessary
+     * @param timeout Maximum time to wait
+     * @param unit Time unit
+     * @return ChangeSet or null if timed out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public ChangeSet poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true)
+        {
+            ChangeSet changeSet = poll();
+            if (changeSet != null)
+                return changeSet;
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                return null;
+            LockSupport.parkNanos(Math.min(remaining, PARK_NANOS));
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Returns all available change sets, up to a maximum, without waiting
+     * @param maxCount Maximum number of change sets
+     * @return ChangeSet list, which is empty if none available
+     */
+    public List<ChangeSet> drain(int maxCount)
+    {
+        List<ChangeSet> changeSetList = new ArrayList<ChangeSet>();
+        ChangeSet changeSet;
+        while ((changeSetList.size() < maxCount) && ((changeSet = poll()) != null))
+            changeSetList.add(changeSet);
+        return changeSetList;
+    }
+
+    /**
+     * Stop receiving change sets. A blocking subscription no longer holds up publishers.
+     */
+    public void close()
+    {
+        changeStream.unsubscribe(this);
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public Backpressure getBackpressure()
+    {
+        return backpressure;
+    }
+
+    /**
+     * Returns sequence of next change set to read
+     * @return long
+     */
+    public long getCursor()
+    {
+        return cursor.get();
+    }
+
+    /**
+     * Returns number of change sets published but not yet read
+     * @return long
+     */
+    public long getLag()
+    {
+        return Math.max(0, changeStream.getNextSequence() - cursor.get());
+    }
+
+    /**
+     * Returns number of change sets overwritten before they were read. A consumer which misses change sets
+     * should resynchronize, for example by invalidating a whole cache.
+     * @return long
+     */
+    public long getMissedCount()
+    {
+        return missedCount.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ChangeSubscription " + name + " (" + backpressure + ") at " + cursor.get();
+    }
+}
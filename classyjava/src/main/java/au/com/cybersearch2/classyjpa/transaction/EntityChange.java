@@ -0,0 +1,102 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.transaction;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * EntityChange
+ * Records an insert, update or delete of an entity made by an EntityManager in a transaction
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class EntityChange
+{
+    /** Type of change */
+    public enum Operation
+    {
+        insert,
+        update,
+        delete
+    }
+
+    /** Entity class */
+    protected final Class<?> entityClass;
+    /** Entity primary key */
+    protected final Object primaryKey;
+    /** Type of change */
+    protected final Operation operation;
+    /** Names of changed properties or null if not known */
+    protected final List<String> changedProperties;
+
+    /**
+     * Create EntityChange object
+     * @param entityClass Entity class
+     * @param primaryKey Entity primary key
+     * @param operation Type of change
+     * @param changedProperties Names of changed properties or null if not known
+     */
+    public EntityChange(Class<?> entityClass, Object primaryKey, Operation operation, List<String> changedProperties)
+    {
+        this.entityClass = entityClass;
+        this.primaryKey = primaryKey;
+        this.operation = operation;
+        this.changedProperties = changedProperties == null ? null : Collections.unmodifiableList(changedProperties);
+    }
+
+    /**
+     * Create EntityChange object for insert or delete, or update with unknown changed properties
+     * @param entityClass Entity class
+     * @param primaryKey Entity primary key
+     * @param operation Type of change
+     */
+    public EntityChange(Class<?> entityClass, Object primaryKey, Operation operation)
+    {
+        this(entityClass, primaryKey, operation, null);
+    }
+
+    public Class<?> getEntityClass()
+    {
+        return entityClass;
+    }
+
+    public Object getPrimaryKey()
+    {
+        return primaryKey;
+    }
+
+    public Operation getOperation()
+    {
+        return operation;
+    }
+
+    /**
+     * Returns names of changed properties of an update
+     * @return String list or null if not known, in which case any property may have changed
+     */
+    public List<String> getChangedProperties()
+    {
+        return changedProperties;
+    }
+
+    @Override
+    public String toString()
+    {
+        return operation.toString() + " " + entityClass.getSimpleName() + " " + primaryKey +
+               (changedProperties == null ? "" : " " + changedProperties.toString());
+    }
+}
@@ -29,12 +29,14 @@ The author may be contacted via http://ormlite.com/
 package au.com.cybersearch2.classyjpa.transaction;
 
 import javax.persistence.EntityTransaction;
+import javax.persistence.OptimisticLockException;
 import javax.persistence.PersistenceException;
 
 import java.sql.SQLException;
 import java.util.concurrent.Callable;
 import java.util.logging.Level;
 
+import au.com.cybersearch2.classyjpa.query.QueryResultCache;
 import au.com.cybersearch2.classylog.*;
 
 import com.j256.ormlite.support.ConnectionSource;
@@ -65,6 +67,10 @@ public class EntityTransactionImpl implements EntityTransaction
     protected Callable<Boolean> onPostCommit;
     protected ConnectionSource connectionSource;
     protected TransactionState transactionState;
+    /** Stream to publish entity changes of committed transactions, or null if change data capture is off */
+    protected ChangeStream changeStream;
+    /** Cache of named query results made stale by writes of each committed top-level transaction (optional) */
+    protected QueryResultCache queryResultCache;
 
     /**
      * Construct a ClassyEntityTransaction instance
@@ -100,6 +106,65 @@ public class EntityTransactionImpl implements EntityTransaction
         this.onPostCommit = onPostCommit;
     }
 
+    /**
+     * Set stream to publish entity changes of each committed top-level transaction
+     * @param changeStream ChangeStream object or null to turn off change data capture
+     */
+    public void setChangeStream(ChangeStream changeStream)
+    {
+        this.changeStream = changeStream;
+    }
+
+    /**
+     * Returns flag set true if entity changes are captured
+     * @return boolean
+     */
+    public boolean isChangeCapture()
+    {
+        return changeStream != null;
+    }
+
+    /**
+     * Record entity change in the active transaction. Ignored if change data capture is off or no transaction is active.
+     * @param entityChange EntityChange object
+     */
+    public void recordChange(EntityChange entityChange)
+    {
+        TransactionState currentState = transactionState;
+        if ((changeStream != null) && (currentState != null))
+            currentState.addChange(entityChange);
+    }
+
+    /**
+     * Set cache of named query results to invalidate on commit of tables written in the transaction
+     * @param queryResultCache QueryResultCache object or null if query results are not cached
+     */
+    public void setQueryResultCache(QueryResultCache queryResultCache)
+    {
+        this.queryResultCache = queryResultCache;
+    }
+
+    /**
+     * Record name of table written in the active transaction. Ignored if query results are not cached or no transaction is active.
+     * @param table Table name
+     */
+    public void recordTableWrite(String table)
+    {
+        TransactionState currentState = transactionState;
+        if ((queryResultCache != null) && (currentState != null))
+            currentState.addWriteTable(table);
+    }
+
+    /**
+     * Returns flag set true if the active transaction has written tables which are not yet committed
+     * @return boolean
+     */
+    public boolean hasUncommittedWrites()
+    {
+        TransactionState currentState = transactionState;
+        return (currentState != null) && !currentState.getWriteTables().isEmpty();
+    }
+
     /**
      * Start the resource transaction.
      * @throws IllegalStateException if {@link #isActive()} is true.
@@ -136,6 +201,7 @@ public class EntityTransactionImpl implements EntityTransaction
      * Commit the current transaction, writing any unflushed changes to the database.
      * @throws IllegalStateException if {@link #isActive()} is false.
      * @throws RollbackException if the commit fails.
+     * @throws OptimisticLockException if an entity version conflict is detected when changes are flushed.
      */
     @Override
     public void commit() 
@@ -171,6 +237,9 @@ public class EntityTransactionImpl implements EntityTransaction
                     }
                 }
             }
+            // A version conflict on flush is passed through so the caller can retry the work
+            if (preCommit.getPreCommitException() instanceof OptimisticLockException)
+                throw (OptimisticLockException)preCommit.getPreCommitException();
             if (preCommit.getPreCommitException() != null)
                 throw new PersistenceException("Pre commit operation failed", preCommit.getPreCommitException());
             if (preCommit.isDoRollback())
@@ -189,6 +258,11 @@ public class EntityTransactionImpl implements EntityTransaction
         {   // Delay handling this exception to after post commit called, if required.
             sqlException = e;
         }
+        if (!doRollback && (sqlException == null))
+        {
+            publishChanges(commitTransactionState);
+            invalidateQueryResults(commitTransactionState);
+        }
         // PostCommit operation is not allowed to to throw exceptions (except for unexpected RuntimeExceptions)
         if (onPostCommit != null)
         {
@@ -208,6 +282,36 @@ public class EntityTransactionImpl implements EntityTransaction
     }
 
 
+    /**
+     * Publish entity changes of a committed top-level transaction. Changes of a nested transaction
+     * pass to the enclosing transaction instead. Publication failure is only logged, as the transaction has committed.
+     * @param committedState TransactionState of committed transaction
+     */
+    protected void publishChanges(TransactionState committedState)
+    {
+        if ((changeStream == null) || (committedState.getDepth() > 0) || committedState.getChangeList().isEmpty())
+            return;
+        try
+        {
+            changeStream.publish(committedState.getChangeList());
+        }
+        catch (RuntimeException e)
+        {
+            log.error(TAG, "Publish of committed changes failed", e);
+        }
+    }
+
+    /**
+     * Make stale cached query results which read tables written by a committed top-level transaction.
+     * Tables written by a nested transaction pass to the enclosing transaction instead.
+     * @param committedState TransactionState of committed transaction
+     */
+    protected void invalidateQueryResults(TransactionState committedState)
+    {
+        if ((queryResultCache != null) && (committedState.getDepth() == 0) && !committedState.getWriteTables().isEmpty())
+            queryResultCache.invalidate(committedState.getWriteTables());
+    }
+
     /**
      * Determine whether the current transaction has been marked
      * for rollback.
@@ -0,0 +1,32 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.transaction;
+
+/**
+ * ReadOnlySupport
+ * Interface to extend javax.persistence.EntityManager to support read-only persistence contexts.
+ * A read-only context never begins a transaction and rejects any operation which writes to the database.
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public interface ReadOnlySupport
+{
+    /**
+     * Set read-only flag
+     * @param value boolean
+     */
+    void setReadOnly(boolean value);
+}
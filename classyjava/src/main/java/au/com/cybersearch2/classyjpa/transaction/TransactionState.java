@@ -19,6 +19,13 @@ package au.com.cybersearch2.classyjpa.transaction;
 
 import java.sql.SQLException;
 import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
@@ -31,6 +38,11 @@ import com.j256.ormlite.support.DatabaseConnection;
 /**
  * TransactionState
  * Database connection management to enable transaction begin(), commit() and rollback()
+ * A top-level transaction turns off auto commit and ends with a plain commit or rollback of the connection.
+ * A transaction begun while another is active on the same connection and thread is nested. It sets a save point,
+ * which is released on commit and rolled back to on rollback, so a nested rollback leaves the enclosing transaction intact.
+ * Active transactions form a stack per thread and connection source, with each nested transaction referencing the one
+ * which encloses it. Transactions of different connection sources on the same thread are independent.
  * @author Andrew Bowley
  * 09/05/2014
  */
@@ -41,6 +53,8 @@ public class TransactionState
 
     protected static final String SAVE_POINT_PREFIX = "ORMLITE";
     protected static AtomicInteger savePointCounter;
+    /** Innermost active transaction of current thread, mapped by connection source */
+    protected static ThreadLocal<Map<ConnectionSource, TransactionState>> activeStates;
 
     protected ConnectionSource connectionSource;
     protected DatabaseConnection connection;
@@ -50,11 +64,21 @@ public class TransactionState
     protected Savepoint savePoint;
     protected String savePointName;
     protected int transactionId;
+    /** Enclosing transaction if nested, otherwise null */
+    protected TransactionState parent;
+    /** Nesting depth, 0 = top-level */
+    protected int depth;
+    /** Flag set true if save point is managed with SQL statements rather than the connection save point API */
+    protected boolean isSqlSavePoint;
+    /** Entity changes captured in this transaction, lazily created */
+    protected List<EntityChange> changeList;
+    /** Names of tables written in this transaction, lazily created */
+    protected Set<String> writeTableSet;
 
     static
     {   // Use counter to generate unique savepoint identifiers
-        // Note SQLite does not support nested save points
         savePointCounter = new AtomicInteger();
+        activeStates = new ThreadLocal<Map<ConnectionSource, TransactionState>>();
     }
     
  /**
@@ -83,6 +107,59 @@ public class TransactionState
         return connection;
     }
     
+    /**
+     * Returns nesting depth
+     * @return 0 if top-level transaction, otherwise number of enclosing transactions
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * Record entity change for change data capture
+     * @param entityChange EntityChange object
+     */
+    public void addChange(EntityChange entityChange)
+    {
+        if (changeList == null)
+            changeList = new ArrayList<EntityChange>();
+        changeList.add(entityChange);
+    }
+
+    /**
+     * Returns entity changes captured in this transaction, including those of committed nested transactions
+     * @return EntityChange list, which is empty if none captured
+     */
+    public List<EntityChange> getChangeList()
+    {
+        if (changeList == null)
+            return Collections.emptyList();
+        return changeList;
+    }
+
+    /**
+     * Record name of table written in this transaction
+     * @param table Table name
+     */
+    public void addWriteTable(String table)
+    {
+        if (writeTableSet == null)
+            writeTableSet = new HashSet<String>();
+        writeTableSet.add(table);
+    }
+
+    /**
+     * Returns names of tables written in this transaction, including those of committed nested transactions
+     * @return String set, which is empty if none recorded
+     */
+    public Set<String> getWriteTables()
+    {
+        if (writeTableSet == null)
+            return Collections.emptySet();
+        return writeTableSet;
+    }
+
     protected void setup() throws SQLException
     {
         /*
@@ -101,15 +178,27 @@ public class TransactionState
          * using connections in this scenario.
          * </p>
          * 
+         * The connection is already saved if a transaction is active, in which case this transaction is nested.
          */
     	connection = connectionSource.getReadWriteConnection(DatabaseSupportBase.DATABASE_INFO_NAME);
     	savedSpecialConnection = connectionSource.saveSpecialConnection(connection);
     	transactionId = savePointCounter.incrementAndGet();
-    	if (savedSpecialConnection || connectionSource.getDatabaseType().isNestedSavePointsSupported())
-    	{
+        TransactionState enclosing = getActiveState(connectionSource);
+        if (savedSpecialConnection)
+            // Top-level transaction needs no save point
             setAutoCommit();
+        else if (((enclosing != null) && (enclosing.connection == connection)) ||
+                 connectionSource.getDatabaseType().isNestedSavePointsSupported())
+        {
+            if ((enclosing != null) && (enclosing.connection == connection))
+            {
+                parent = enclosing;
+                depth = enclosing.depth + 1;
+            }
             setSavePoint();
     	}
+        if (isValid())
+            setActiveState(connectionSource, this);
     }
     
     /**
@@ -122,8 +211,13 @@ public class TransactionState
             if (autoCommitAtStart != null)
                 resetAutoCommit();
             clearSpecialConnection();
+            // Pop this transaction from the stack
+            if (getActiveState(connectionSource) == this)
+                setActiveState(connectionSource, parent);
+            parent = null;
             savePoint = null;
             hasSavePoint = null;
+            isSqlSavePoint = false;
             connection = null;
     	}
     }
@@ -142,26 +236,39 @@ public class TransactionState
                 log.warn(TAG, "doCommit() called while invalid");
             return;
         }
+        // Changes and written tables of a nested transaction become part of the enclosing transaction once committed
+        TransactionState enclosing = parent;
         try
         {
-	    	//System.out.println("Transaction " + transactionId + " about to commit");
-            connection.commit(savePoint);
-            if (log.isLoggable(TAG, Level.FINE))
-                log.debug(TAG, "committed savePoint transaction " + savePointName);
+            if (hasSavePoint != null)
+            {
+                releaseSavePoint();
+                if ((enclosing != null) && (changeList != null))
+                    for (EntityChange entityChange: changeList)
+                        enclosing.addChange(entityChange);
+                if ((enclosing != null) && (writeTableSet != null))
+                    for (String table: writeTableSet)
+                        enclosing.addWriteTable(table);
+                if (log.isLoggable(TAG, Level.FINE))
+                    log.debug(TAG, "committed savePoint transaction " + savePointName);
+            }
+            else
+            {
+                connection.commit(null);
+                if (log.isLoggable(TAG, Level.FINE))
+                    log.debug(TAG, "committed transaction " + transactionId);
+            }
         }
 	    catch (SQLException e) 
         {
-		    if (hasSavePoint) 
+            try
+            {
+                doRollback();
+            }
+            catch (SQLException e2)
 		    {
-			    try 
-			    {
-			    	doRollback();
-			    } 
-			    catch (SQLException e2) 
-			    {
-				    log.error(TAG, "After commit exception, rolling back to save-point also threw exception", e);
-				    // we continue to throw the commit exception
-			    }
+                log.error(TAG, "After commit exception, rolling back also threw exception", e);
+                // we continue to throw the commit exception
 		    }
 		    throw e;
         }
@@ -172,7 +279,7 @@ public class TransactionState
     }
 
     /**
-     * Rollback
+     * Rollback. If nested, only the changes made since the save point was set are undone.
      * @throws SQLException
      */
     public void doRollback() throws SQLException 
@@ -186,9 +293,18 @@ public class TransactionState
         }
         try
         {
-            connection.rollback(savePoint);
-            if (log.isLoggable(TAG, Level.FINE))
-                log.debug(TAG, "rolled back savePoint transaction " + savePointName);
+            if (hasSavePoint != null)
+            {
+                rollbackToSavePoint();
+                if (log.isLoggable(TAG, Level.FINE))
+                    log.debug(TAG, "rolled back savePoint transaction " + savePointName);
+            }
+            else
+            {
+                connection.rollback(null);
+                if (log.isLoggable(TAG, Level.FINE))
+                    log.debug(TAG, "rolled back transaction " + transactionId);
+            }
         }
         finally
         {
@@ -202,7 +318,7 @@ public class TransactionState
      */
     protected boolean isValid()
     {
-        return (connection != null) && (hasSavePoint != null) && (autoCommitAtStart != null);
+        return (connection != null) && ((hasSavePoint != null) || (autoCommitAtStart != null));
     }
 
     /**
@@ -226,18 +342,60 @@ public class TransactionState
     }
 
     /**
-     * Store save point
+     * Store save point. The connection save point API is used for JDBC, which maps it to
+     * SAVEPOINT, RELEASE and ROLLBACK TO. Other connections, such as Android, map the API to nested
+     * transactions which cannot be rolled back separately, so SQL statements are executed instead.
      * @throws SQLException
      */
     protected void setSavePoint() throws SQLException
     {
     	savePointName = SAVE_POINT_PREFIX + transactionId;
-        savePoint = connection.setSavePoint(savePointName);
+        Object underlyingConnection = connection.getUnderlyingConnection();
+        isSqlSavePoint = (underlyingConnection != null) && !(underlyingConnection instanceof java.sql.Connection);
+        if (isSqlSavePoint)
+            connection.executeStatement("SAVEPOINT " + savePointName, DatabaseConnection.DEFAULT_RESULT_FLAGS);
+        else
+            savePoint = connection.setSavePoint(savePointName);
         if (log.isLoggable(TAG, Level.FINE))
-            log.debug(TAG, "Started savePoint transaction " + savePointName);
+            log.debug(TAG, "Started savePoint transaction " + savePointName + " at depth " + depth);
         hasSavePoint = Boolean.TRUE;
     }
  
+    /**
+     * Release save point, keeping changes in the enclosing transaction
+     * @throws SQLException
+     */
+    protected void releaseSavePoint() throws SQLException
+    {
+        if (isSqlSavePoint)
+            connection.executeStatement("RELEASE SAVEPOINT " + savePointName, DatabaseConnection.DEFAULT_RESULT_FLAGS);
+        else
+            connection.commit(savePoint);
+    }
+
+    /**
+     * Roll back to save point, then release it, as a save point remains active after it is rolled back to.
+     * Android classifies any statement starting with "ROL" as an abort and ends the whole transaction instead
+     * of executing it, so the SQL statement starts with an empty statement, which SQLite ignores.
+     * @throws SQLException
+     */
+    protected void rollbackToSavePoint() throws SQLException
+    {
+        if (isSqlSavePoint)
+            connection.executeStatement(";ROLLBACK TO SAVEPOINT " + savePointName, DatabaseConnection.DEFAULT_RESULT_FLAGS);
+        else
+            connection.rollback(savePoint);
+        try
+        {
+            releaseSavePoint();
+        }
+        catch (SQLException e)
+        {
+            if (log.isLoggable(TAG, Level.WARNING))
+                log.warn(TAG, "Release of savePoint " + savePointName + " after rollback failed");
+        }
+    }
+
     /**
      * Restore auto commit if required
      */
@@ -262,6 +420,44 @@ public class TransactionState
             }
     }
     
+    /**
+     * Returns innermost active transaction of current thread for given connection source
+     * @param connectionSource Connection source
+     * @return TransactionState object or null if no transaction is active
+     */
+    protected static TransactionState getActiveState(ConnectionSource connectionSource)
+    {
+        Map<ConnectionSource, TransactionState> stateMap = activeStates.get();
+        return stateMap == null ? null : stateMap.get(connectionSource);
+    }
+
+    /**
+     * Set innermost active transaction of current thread for given connection source
+     * @param connectionSource Connection source
+     * @param transactionState TransactionState object or null if no transaction is active
+     */
+    protected static void setActiveState(ConnectionSource connectionSource, TransactionState transactionState)
+    {
+        Map<ConnectionSource, TransactionState> stateMap = activeStates.get();
+        if (transactionState == null)
+        {
+            if (stateMap != null)
+            {
+                stateMap.remove(connectionSource);
+                // Do not leave an empty map on pooled threads
+                if (stateMap.isEmpty())
+                    activeStates.remove();
+            }
+            return;
+        }
+        if (stateMap == null)
+        {
+            stateMap = new IdentityHashMap<ConnectionSource, TransactionState>();
+            activeStates.set(stateMap);
+        }
+        stateMap.put(connectionSource, transactionState);
+    }
+
     /**
      * Clear arrangement to use a single connection for the transaction
      */
@@ -15,14 +15,22 @@
     along with this program.  If not, see <http://www.gnu.org/licenses/> */
 package au.com.cybersearch2.classytask;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Executable
- * Object returned on start of task execution to track status and notify completion
+ * Object returned on start of task execution to track status and notify completion.
+ * Completion is signalled once with notifyCompletion(), which releases all threads waiting
+ * for the task, including any which start waiting after the signal.
  * @author Andrew Bowley
  * 27/06/2014
  */
 public abstract class Executable
 {
+    /** One-shot latch released on task completion */
+    private final CountDownLatch completionLatch = new CountDownLatch(1);
+
     /**
      * Returns task status
      * @return WorkStatus
@@ -30,19 +38,51 @@ public abstract class Executable
     public abstract WorkStatus getStatus();
 
     /**
-     * Wait for task completion. The caller thread may block
-     * if task is executed asynchronously 
-     * @throws InterruptedException Should not happen
+     * Signal task completion. To be called after the final status is set. Subsequent calls have no effect.
      */
-    public WorkStatus waitForTask() throws InterruptedException
+    public void notifyCompletion()
     {
-    	WorkStatus status = getStatus();
-    	if ((status == WorkStatus.FINISHED) || (status == WorkStatus.FAILED))
-    		return status;
+        completionLatch.countDown();
+        // Also wake any thread waiting on this object's monitor
         synchronized (this)
         {
-            wait();
+            notifyAll();
         }
+    }
+
+    /**
+     * Wait for task completion. The caller thread may block
+     * if task is executed asynchronously
+     * @return WorkStatus Status value will be FINISHED or FAILED
+     * @throws InterruptedException if the caller thread is interrupted while waiting
+     */
+    public WorkStatus waitForTask() throws InterruptedException
+    {
+        if (!isCompleted(getStatus()))
+            completionLatch.await();
         return getStatus() == WorkStatus.FINISHED ? WorkStatus.FINISHED : WorkStatus.FAILED;
     }
+
+    /**
+     * Wait up to specified number of milliseconds for task completion
+     * @param timeoutMillis Maximum time to wait in milliseconds
+     * @return WorkStatus Current status, which will be PENDING or RUNNING if the wait timed out
+     * @throws InterruptedException if the caller thread is interrupted while waiting
+     */
+    public WorkStatus waitForTask(long timeoutMillis) throws InterruptedException
+    {
+        if (!isCompleted(getStatus()))
+            completionLatch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        return getStatus();
+    }
+
+    /**
+     * Returns flag set true if status is final
+     * @param status WorkStatus
+     * @return boolean
+     */
+    protected static boolean isCompleted(WorkStatus status)
+    {
+        return (status == WorkStatus.FINISHED) || (status == WorkStatus.FAILED);
+    }
 }
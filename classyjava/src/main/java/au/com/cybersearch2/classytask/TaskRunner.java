@@ -162,6 +162,7 @@ public class TaskRunner extends Executable
         // Final status will be FINISHED or FAILED
         if (status != WorkStatus.FAILED)
             status = WorkStatus.FINISHED;
+        notifyCompletion();
     }
 
    /**
@@ -103,55 +103,21 @@ public class WorkTracker extends Executable
             if ((timeoutSecs == 0) && !log.isLoggable(TAG, Level.FINE))
                // Only allow indeterminate wait for debugging
                 timeoutSecs = MAX_TASK_WAIT_SECS;
-            if (timeoutSecs == 0)
-                synchronized(workTracker)
-                {
-                    try
-                    {
-                    	workTracker.wait();
-                    }
-                    catch (InterruptedException e)
-                    {
-                        log.warn(TAG, taskName + " interrupted", e);
-                    }
-                }
-            else
-                waitTicks(workTracker, timeoutSecs);
-            workStatus = workTracker.getStatus();
-        }
-        return workStatus;
-    }
-
-    /**
-     * Wait specified number of seconds for task to complte
-     *@param task Executable tracking Database work
-     *@param timeoutSecs int
-     */
-    private void waitTicks(Executable task, int timeoutSecs) 
-    {
-        int tick = 0;
-        while (tick < timeoutSecs)
-        {
-            synchronized(task)
+            try
             {
-                try
-                {
-                    task.wait(1000);
-                }
-                catch (InterruptedException e)
-                {
-                    log.warn(TAG, "createDatabaseTask interrupted", e);
-                    return;
-                }
+                if (timeoutSecs == 0)
+                    workTracker.waitForTask();
+                else if (workTracker.waitForTask(timeoutSecs * 1000L) == WorkStatus.RUNNING)
+                    log.warn(TAG, "Task \"" + taskName + "\" taking more than " + timeoutSecs + " seconds to complete");
             }
-            if (task.getStatus() != WorkStatus.RUNNING)
-                break;
-            ++tick;
-        }
-        if (tick == MAX_TASK_WAIT_SECS)
-        {
-            log.warn(TAG, "Task \"" + taskName + "\" taking more than " + MAX_TASK_WAIT_SECS + " seconds to complete");
+            catch (InterruptedException e)
+            {
+                log.warn(TAG, taskName + " interrupted", e);
+                Thread.currentThread().interrupt();
+            }
+            workStatus = workTracker.getStatus();
         }
+        return workStatus;
     }
 
 }
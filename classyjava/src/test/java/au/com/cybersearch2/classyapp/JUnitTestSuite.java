@@ -18,29 +18,51 @@ package au.com.cybersearch2.classyapp;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import au.com.cybersearch2.classydb.BatchStatementExecutorTest;
+import au.com.cybersearch2.classydb.BulkImporterTest;
+import au.com.cybersearch2.classydb.ConnectionPoolTest;
 import au.com.cybersearch2.classydb.DatabaseAdminImplTest;
+import au.com.cybersearch2.classydb.DatabaseSnapshotTest;
+import au.com.cybersearch2.classydb.DelimitedReaderTest;
 import au.com.cybersearch2.classydb.NativeScriptDatabaseWorkTest;
 import au.com.cybersearch2.classydb.SQLiteDatabaseSupportTest;
 import au.com.cybersearch2.classydb.SQLiteSupportTest;
+import au.com.cybersearch2.classydb.SqlParserTest;
+import au.com.cybersearch2.classyfts.Bm25ScorerTest;
+import au.com.cybersearch2.classyfts.JdbcFtsEngineBenchmarkTest;
+import au.com.cybersearch2.classyfts.JdbcFtsEngineTest;
 import au.com.cybersearch2.classyjpa.JpaIntegrationTest;
 import au.com.cybersearch2.classyjpa.entity.EntityManagerImplTest;
 import au.com.cybersearch2.classyjpa.entity.JavaPersistenceContextTest;
+import au.com.cybersearch2.classyjpa.entity.PersistenceBatchTest;
+import au.com.cybersearch2.classyjpa.entity.RetryingPersistenceExecutorTest;
+import au.com.cybersearch2.classyjpa.entity.ShardedEntityManagerTest;
+import au.com.cybersearch2.classyjpa.entity.ReadOnlyWorkBenchmarkTest;
 import au.com.cybersearch2.classyjpa.entity.ObjectMonitorTest;
+import au.com.cybersearch2.classyjpa.entity.WriteBehindQueueTest;
 import au.com.cybersearch2.classyjpa.entity.OrmDaoHelperFactoryTest;
 import au.com.cybersearch2.classyjpa.entity.OrmDaoHelperTest;
 import au.com.cybersearch2.classyjpa.entity.PersistenceContainerTest;
 import au.com.cybersearch2.classyjpa.entity.SingleConnectPersistenceContainerTest;
 import au.com.cybersearch2.classyjpa.entity.PersistenceDaoTest;
 import au.com.cybersearch2.classyjpa.persist.ClassAnalyserTest;
+import au.com.cybersearch2.classyjpa.persist.ShardedPersistenceUnitTest;
 import au.com.cybersearch2.classyjpa.persist.PersistenceConfigTest;
+import au.com.cybersearch2.classyjpa.persist.PersistenceUnitInitializerTest;
 import au.com.cybersearch2.classyjpa.persist.PersistenceXmlParserTest;
 import au.com.cybersearch2.classyjpa.query.DaoQueryTest;
 import au.com.cybersearch2.classyjpa.query.EntityQueryTest;
+import au.com.cybersearch2.classyjpa.query.KeysetPaginationTest;
 import au.com.cybersearch2.classyjpa.query.NativeQueryTest;
+import au.com.cybersearch2.classyjpa.query.ProjectionTest;
+import au.com.cybersearch2.classyjpa.query.QueryResultCacheTest;
 import au.com.cybersearch2.classyjpa.query.SqlQueryTest;
+import au.com.cybersearch2.classyjpa.transaction.ChangeStreamTest;
 import au.com.cybersearch2.classyjpa.transaction.ClassyEntityTransactionTest;
 import au.com.cybersearch2.classyjpa.transaction.TransactionStateTest;
+import au.com.cybersearch2.classyjpa.transaction.NestedTransactionTest;
 import au.com.cybersearch2.classynode.NodeTest;
+import au.com.cybersearch2.classytask.WorkTrackerTest;
 
 /**
  * JUnitTestSuite
@@ -54,23 +76,45 @@ import au.com.cybersearch2.classynode.NodeTest;
     OrmDaoHelperTest.class,
     OrmDaoHelperFactoryTest.class,
     ObjectMonitorTest.class,
+    WriteBehindQueueTest.class,
     EntityManagerImplTest.class,
     PersistenceConfigTest.class,
     PersistenceXmlParserTest.class,
     TransactionStateTest.class,
+    NestedTransactionTest.class,
     DatabaseAdminImplTest.class,
     PersistenceDaoTest.class,
     JavaPersistenceContextTest.class,
+    PersistenceBatchTest.class,
+    RetryingPersistenceExecutorTest.class,
+    ShardedEntityManagerTest.class,
+    ReadOnlyWorkBenchmarkTest.class,
+    WorkTrackerTest.class,
     PersistenceContainerTest.class,
     SingleConnectPersistenceContainerTest.class,
     SQLiteDatabaseSupportTest.class,
     NativeScriptDatabaseWorkTest.class,
+    SqlParserTest.class,
+    BatchStatementExecutorTest.class,
+    DelimitedReaderTest.class,
+    BulkImporterTest.class,
+    ConnectionPoolTest.class,
+    DatabaseSnapshotTest.class,
+    Bm25ScorerTest.class,
+    JdbcFtsEngineTest.class,
+    JdbcFtsEngineBenchmarkTest.class,
     DaoQueryTest.class,
     EntityQueryTest.class,
     NativeQueryTest.class,
+    QueryResultCacheTest.class,
+    KeysetPaginationTest.class,
+    ProjectionTest.class,
     SqlQueryTest.class,
     ClassyEntityTransactionTest.class,
+    ChangeStreamTest.class,
     ClassAnalyserTest.class,
+    ShardedPersistenceUnitTest.class,
+    PersistenceUnitInitializerTest.class,
     NodeTest.class
 })
 public class JUnitTestSuite 
@@ -0,0 +1,173 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import au.com.cybersearch2.classydb.BatchStatementExecutor.InsertTemplate;
+import au.com.cybersearch2.classylog.JavaLogger;
+import au.com.cybersearch2.classylog.Log;
+
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+
+/**
+ * BatchStatementExecutorTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class BatchStatementExecutorTest
+{
+    private static final String TAG = "BatchStatementExecutorTest";
+    private static Log log = JavaLogger.getLogger(TAG);
+    private static final String IN_MEMORY_PATH = "jdbc:sqlite::memory:";
+    static final String INSERT_SQL = "insert into models (_id, name) values (%d, 'name%d');";
+    static final String PREPARED_SQL = "insert into models (_id, name) values (?,?)";
+    static final int ROW_COUNT = 100000;
+
+    DatabaseConnection databaseConnection;
+    Connection connection;
+    PreparedStatement preparedStatement;
+    Statement statement;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        databaseConnection = mock(DatabaseConnection.class);
+        connection = mock(Connection.class);
+        preparedStatement = mock(PreparedStatement.class);
+        statement = mock(Statement.class);
+        when(databaseConnection.getUnderlyingConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(connection.createStatement()).thenReturn(statement);
+    }
+
+    @Test
+    public void test_insert_template()
+    {
+        InsertTemplate insertTemplate = BatchStatementExecutor.getInsertTemplate("INSERT INTO models (_id, name, data) VALUES ( -1, 'it''s', NULL ) ;");
+        assertThat(insertTemplate.sql).isEqualTo("INSERT INTO models (_id, name, data) VALUES (?,?,?)");
+        assertThat(insertTemplate.values).containsExactly(Long.valueOf(-1L), "it's", null);
+        assertThat(BatchStatementExecutor.getInsertTemplate("insert into models values (1.5, 'x');")).isNull();
+        assertThat(BatchStatementExecutor.getInsertTemplate("insert into models values (1, 'x'), (2, 'y');")).isNull();
+        assertThat(BatchStatementExecutor.getInsertTemplate("insert into models select * from old_models;")).isNull();
+        assertThat(BatchStatementExecutor.getInsertTemplate("update models set name = 'values (1)';")).isNull();
+    }
+
+    @Test
+    public void test_prepared_batch() throws Exception
+    {
+        BatchStatementExecutor underTest = new BatchStatementExecutor(databaseConnection, 2);
+        assertThat(underTest.isBatching()).isTrue();
+        underTest.onStatement(String.format(INSERT_SQL, 1, 1));
+        underTest.onStatement(String.format(INSERT_SQL, 2, 2));
+        underTest.onStatement(String.format(INSERT_SQL, 3, 3));
+        underTest.flush();
+        underTest.close();
+        // One prepared statement is reused across batches
+        verify(connection).prepareStatement(PREPARED_SQL);
+        verify(preparedStatement).setLong(1, 3L);
+        verify(preparedStatement).setString(2, "name3");
+        verify(preparedStatement, times(3)).addBatch();
+        verify(preparedStatement, times(2)).executeBatch();
+        verify(preparedStatement).close();
+        assertThat(underTest.getStatementCount()).isEqualTo(3);
+        assertThat(underTest.getBatchCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_statement_order_preserved() throws Exception
+    {
+        BatchStatementExecutor underTest = new BatchStatementExecutor(databaseConnection);
+        underTest.onStatement(String.format(INSERT_SQL, 1, 1));
+        underTest.onStatement("update models set name = 'x' where _id = 1;");
+        verify(preparedStatement).executeBatch();
+        verify(statement).addBatch("update models set name = 'x' where _id = 1;");
+        underTest.onStatement("create index name_idx on models (name);");
+        verify(statement).executeBatch();
+        verify(databaseConnection).executeStatement("create index name_idx on models (name);", DatabaseConnection.DEFAULT_RESULT_FLAGS);
+        underTest.flush();
+        underTest.close();
+        assertThat(underTest.getStatementCount()).isEqualTo(3);
+        assertThat(underTest.getBatchCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_not_jdbc() throws Exception
+    {
+        when(databaseConnection.getUnderlyingConnection()).thenReturn(new Object());
+        BatchStatementExecutor underTest = new BatchStatementExecutor(databaseConnection);
+        assertThat(underTest.isBatching()).isFalse();
+        underTest.onStatement(String.format(INSERT_SQL, 1, 1));
+        verify(databaseConnection).executeStatement(String.format(INSERT_SQL, 1, 1), DatabaseConnection.DEFAULT_RESULT_FLAGS);
+        verify(connection, never()).prepareStatement(anyString());
+    }
+
+    @Test
+    public void test_throughput() throws Exception
+    {
+        StringBuilder builder = new StringBuilder("create table models (_id integer primary key, name text);\n");
+        for (int i = 1; i <= ROW_COUNT; ++i)
+            builder.append(String.format(INSERT_SQL, i, i)).append('\n');
+        ConnectionSource connectionSource = new JdbcConnectionSource(IN_MEMORY_PATH);
+        try
+        {
+            DatabaseConnection jdbcConnection = connectionSource.getReadWriteConnection("models");
+            jdbcConnection.setAutoCommit(false);
+            BatchStatementExecutor underTest = new BatchStatementExecutor(jdbcConnection);
+            long start = System.currentTimeMillis();
+            try
+            {
+                new SqlParser().parse(new StringReader(builder.toString()), underTest);
+                underTest.flush();
+            }
+            finally
+            {
+                underTest.close();
+            }
+            jdbcConnection.commit(null);
+            long elapsed = Math.max(1L, System.currentTimeMillis() - start);
+            log.info(TAG, ROW_COUNT + " rows inserted in " + elapsed + "ms (" + (ROW_COUNT * 1000L / elapsed) + " rows/sec)");
+            assertThat(underTest.getStatementCount()).isEqualTo(ROW_COUNT + 1);
+            Statement query = ((Connection)jdbcConnection.getUnderlyingConnection()).createStatement();
+            ResultSet resultSet = query.executeQuery("select count(*) from models");
+            assertThat(resultSet.next()).isTrue();
+            assertThat(resultSet.getInt(1)).isEqualTo(ROW_COUNT);
+            query.close();
+            connectionSource.releaseConnection(jdbcConnection);
+        }
+        finally
+        {
+            connectionSource.close();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.failBecauseExceptionWasNotThrown;
+
+import java.io.StringReader;
+import java.util.List;
+
+import javax.persistence.PersistenceException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.table.DatabaseTable;
+import com.j256.ormlite.table.TableUtils;
+
+/**
+ * BulkImporterTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class BulkImporterTest
+{
+    @DatabaseTable(tableName = "city")
+    public static class City
+    {
+        @DatabaseField(generatedId = true)
+        int id;
+        @DatabaseField(index = true)
+        String name;
+        @DatabaseField(columnName = "pop")
+        long population;
+        @DatabaseField
+        boolean capital;
+
+        public City()
+        {
+        }
+    }
+
+    private static final String IN_MEMORY_PATH = "jdbc:sqlite::memory:";
+    static final String HEADER = "name,pop,capital\n";
+
+    ConnectionSource connectionSource;
+    Dao<City, Integer> cityDao;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        DaoManager.clearCache();
+        connectionSource = new JdbcConnectionSource(IN_MEMORY_PATH);
+        TableUtils.createTable(connectionSource, City.class);
+        cityDao = DaoManager.createDao(connectionSource, City.class);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        connectionSource.close();
+    }
+
+    @Test
+    public void test_import() throws Exception
+    {
+        StringBuilder builder = new StringBuilder(HEADER);
+        for (int i = 1; i <= 25; ++i)
+            builder.append("City").append(i).append(',').append(i * 1000).append(',').append(i == 1).append('\n');
+        BulkImporter<City> underTest = new BulkImporter<City>(connectionSource, City.class);
+        underTest.setBatchSize(4);
+        underTest.setCommitSize(10);
+        underTest.setDeferIndexes(true);
+        ImportStats stats = underTest.importRows(new StringReader(builder.toString()));
+        assertThat(stats.getRowsInserted()).isEqualTo(25);
+        assertThat(stats.getCheckpoint()).isEqualTo(25);
+        assertThat(stats.getCommitCount()).isEqualTo(3);
+        assertThat(underTest.getImportStats()).isEqualTo(stats);
+        assertThat(cityDao.countOf()).isEqualTo(25);
+        List<City> cities = cityDao.queryForEq("name", "City1");
+        assertThat(cities).hasSize(1);
+        assertThat(cities.get(0).population).isEqualTo(1000);
+        assertThat(cities.get(0).capital).isTrue();
+        // Deferred index restored
+        assertThat(cityDao.queryRaw("select name from sqlite_master where type = 'index' and name = 'city_name_idx'").getResults()).hasSize(1);
+    }
+
+    @Test
+    public void test_tsv_no_header() throws Exception
+    {
+        BulkImporter<City> underTest = new BulkImporter<City>(connectionSource, City.class);
+        underTest.setDelimiter(DelimitedReader.TSV);
+        underTest.setColumns("population", "name");
+        ImportStats stats = underTest.importRows(new StringReader("500\tTown, North\n600\t\"Town \"\"South\"\"\"\n"));
+        assertThat(stats.getRowsInserted()).isEqualTo(2);
+        assertThat(cityDao.queryForEq("name", "Town, North").get(0).population).isEqualTo(500);
+        assertThat(cityDao.queryForEq("name", "Town \"South\"").get(0).population).isEqualTo(600);
+    }
+
+    @Test
+    public void test_resume_after_failure() throws Exception
+    {
+        String data = HEADER + "A,1,false\nB,2,false\nC,3,false\nD,4,false\nE,five,false\nF,6,false\n";
+        BulkImporter<City> underTest = new BulkImporter<City>(connectionSource, City.class);
+        underTest.setCommitSize(2);
+        try
+        {
+            underTest.importRows(new StringReader(data));
+            failBecauseExceptionWasNotThrown(PersistenceException.class);
+        }
+        catch (PersistenceException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("Bulk import into city failed after checkpoint 4");
+        }
+        long checkpoint = underTest.getImportStats().getCheckpoint();
+        assertThat(checkpoint).isEqualTo(4);
+        assertThat(cityDao.countOf()).isEqualTo(4);
+        underTest.setResumeRow(checkpoint);
+        ImportStats stats = underTest.importRows(new StringReader(data.replace("five", "5")));
+        assertThat(stats.getRowsInserted()).isEqualTo(2);
+        assertThat(stats.getCheckpoint()).isEqualTo(6);
+        assertThat(cityDao.countOf()).isEqualTo(6);
+    }
+
+    @Test
+    public void test_unknown_column() throws Exception
+    {
+        BulkImporter<City> underTest = new BulkImporter<City>(connectionSource, City.class);
+        try
+        {
+            underTest.importRows(new StringReader("name,area\nA,1\n"));
+            failBecauseExceptionWasNotThrown(PersistenceException.class);
+        }
+        catch (PersistenceException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("Column \"area\" not found in table city");
+        }
+    }
+
+    @Test
+    public void test_refused_in_transaction() throws Exception
+    {
+        DatabaseConnection connection = connectionSource.getReadWriteConnection("city");
+        connectionSource.saveSpecialConnection(connection);
+        connection.setAutoCommit(false);
+        BulkImporter<City> underTest = new BulkImporter<City>(connectionSource, City.class);
+        try
+        {
+            underTest.importRows(new StringReader(HEADER + "A,1,false\n"));
+            failBecauseExceptionWasNotThrown(PersistenceException.class);
+        }
+        catch (PersistenceException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("Bulk import into city cannot run inside an active transaction");
+        }
+        finally
+        {
+            connection.rollback(null);
+            connection.setAutoCommit(true);
+            connectionSource.clearSpecialConnection(connection);
+            connectionSource.releaseConnection(connection);
+        }
+        assertThat(cityDao.countOf()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,187 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.failBecauseExceptionWasNotThrown;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.j256.ormlite.db.H2DatabaseType;
+import com.j256.ormlite.support.DatabaseConnection;
+
+/**
+ * ConnectionPoolTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class ConnectionPoolTest
+{
+    JdbcDataSource dataSource;
+    Properties properties;
+    ConnectionPool connectionPool;
+
+    @Before
+    public void setUp()
+    {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:pooltest;MVCC=TRUE");
+        properties = new Properties();
+        properties.setProperty(ConnectionPool.MIN_SIZE, "0");
+        properties.setProperty(ConnectionPool.MAX_SIZE, "2");
+        properties.setProperty(ConnectionPool.ACQUIRE_TIMEOUT, "1");
+        properties.setProperty(ConnectionPool.EVICTION_INTERVAL, "0");
+    }
+
+    @After
+    public void tearDown()
+    {
+        if (connectionPool != null)
+            connectionPool.close();
+    }
+
+    @Test
+    public void test_reuse() throws Exception
+    {
+        connectionPool = new ConnectionPool(dataSource, properties);
+        Connection connection = connectionPool.getConnection();
+        assertThat(connectionPool.getActiveCount()).isEqualTo(1);
+        connection.close();
+        assertThat(connectionPool.getActiveCount()).isEqualTo(0);
+        assertThat(connectionPool.getIdleCount()).isEqualTo(1);
+        connection = connectionPool.getConnection();
+        connection.close();
+        assertThat(connectionPool.getCreatedCount()).isEqualTo(1);
+        assertThat(connectionPool.getAcquiredCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_acquire_timeout() throws Exception
+    {
+        connectionPool = new ConnectionPool(dataSource, properties);
+        Connection connection1 = connectionPool.getConnection();
+        Connection connection2 = connectionPool.getConnection();
+        try
+        {
+            connectionPool.getConnection();
+            failBecauseExceptionWasNotThrown(SQLException.class);
+        }
+        catch (SQLException e)
+        {
+            assertThat(e.getMessage()).startsWith("Timed out waiting 1 seconds for a connection.");
+        }
+        assertThat(connectionPool.getTimeoutCount()).isEqualTo(1);
+        assertThat(connectionPool.getWaitCount()).isEqualTo(1);
+        connection1.close();
+        connection2.close();
+        assertThat(connectionPool.getTotalCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_waiter_receives_returned_connection() throws Exception
+    {
+        properties.setProperty(ConnectionPool.MAX_SIZE, "1");
+        properties.setProperty(ConnectionPool.ACQUIRE_TIMEOUT, "10");
+        connectionPool = new ConnectionPool(dataSource, properties);
+        final Connection connection = connectionPool.getConnection();
+        Thread thread = new Thread(new Runnable(){
+
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(200);
+                    connection.close();
+                }
+                catch (Exception e)
+                {
+                }
+            }});
+        thread.start();
+        Connection connection2 = connectionPool.getConnection();
+        assertThat(connection2.isClosed()).isFalse();
+        connection2.close();
+        assertThat(connectionPool.getCreatedCount()).isEqualTo(1);
+        assertThat(connectionPool.getWaitCount()).isEqualTo(1);
+        thread.join();
+    }
+
+    @Test
+    public void test_evict() throws Exception
+    {
+        properties.setProperty(ConnectionPool.IDLE_TIMEOUT, "0");
+        properties.setProperty(ConnectionPool.MIN_SIZE, "1");
+        connectionPool = new ConnectionPool(dataSource, properties);
+        connectionPool.evict();
+        // Topped up to minimum size
+        assertThat(connectionPool.getIdleCount()).isEqualTo(1);
+        Connection connection1 = connectionPool.getConnection();
+        Connection connection2 = connectionPool.getConnection();
+        connection1.close();
+        connection2.close();
+        assertThat(connectionPool.getIdleCount()).isEqualTo(2);
+        connectionPool.idleTimeoutNanos = 1;
+        Thread.sleep(5);
+        connectionPool.evict();
+        assertThat(connectionPool.getIdleCount()).isEqualTo(1);
+        assertThat(connectionPool.getClosedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_close() throws Exception
+    {
+        connectionPool = new ConnectionPool(dataSource, properties);
+        Connection connection = connectionPool.getConnection();
+        connectionPool.close();
+        connection.close();
+        assertThat(connectionPool.getTotalCount()).isEqualTo(0);
+        try
+        {
+            connectionPool.getConnection();
+            failBecauseExceptionWasNotThrown(SQLException.class);
+        }
+        catch (SQLException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("Connection pool is closed");
+        }
+    }
+
+    @Test
+    public void test_connection_source() throws Exception
+    {
+        connectionPool = new ConnectionPool(dataSource, properties);
+        PooledConnectionSource connectionSource = new PooledConnectionSource(connectionPool, new H2DatabaseType());
+        // Multiple connections allow PersistenceContainer to run work asynchronously
+        assertThat(connectionSource.isSingleConnection("test")).isFalse();
+        DatabaseConnection connection1 = connectionSource.getReadWriteConnection("test");
+        DatabaseConnection connection2 = connectionSource.getReadWriteConnection("test");
+        assertThat(connectionPool.getActiveCount()).isEqualTo(2);
+        connectionSource.releaseConnection(connection1);
+        connectionSource.releaseConnection(connection2);
+        assertThat(connectionPool.getIdleCount()).isEqualTo(2);
+        connectionSource.close();
+        assertThat(connectionPool.getTotalCount()).isEqualTo(0);
+        connectionPool = null;
+    }
+}
@@ -0,0 +1,243 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.failBecauseExceptionWasNotThrown;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.persistence.PersistenceException;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+
+import au.com.cybersearch2.classylog.JavaLogger;
+import au.com.cybersearch2.classylog.Log;
+
+/**
+ * DatabaseSnapshotTest
+ * Online snapshot and restore of SQLite and H2 databases
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class DatabaseSnapshotTest
+{
+    private static final String TAG = "DatabaseSnapshotTest";
+    private static Log log = JavaLogger.getLogger(TAG);
+    private static final int ROW_COUNT = 2000;
+    private static final int WRITE_COUNT = 20;
+    private static final String CREATE_TABLE = "CREATE TABLE item (id INTEGER PRIMARY KEY, name VARCHAR(255))";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    DatabaseSupportBase databaseSupport;
+
+    @After
+    public void tearDown()
+    {
+        if (databaseSupport != null)
+            databaseSupport.close();
+    }
+
+    @Test
+    public void test_sqlite_snapshot_with_concurrent_writer() throws Exception
+    {
+        databaseSupport = new SQLiteDatabaseSupport(temporaryFolder.newFolder("sqlite"));
+        final ConnectionSource connectionSource = databaseSupport.getConnectionSource("source.db", new Properties());
+        populate(connectionSource, ROW_COUNT);
+        final List<int[]> progressList = Collections.synchronizedList(new ArrayList<int[]>());
+        SnapshotOptions snapshotOptions = new SnapshotOptions();
+        snapshotOptions.setThrottleMillis(5);
+        snapshotOptions.setSnapshotListener(new SnapshotListener(){
+
+            @Override
+            public void onProgress(int remaining, int total)
+            {
+                progressList.add(new int[] { remaining, total });
+            }});
+        final AtomicInteger writeCount = new AtomicInteger();
+        final AtomicReference<Exception> writeException = new AtomicReference<Exception>();
+        Thread writer = new Thread(new Runnable(){
+
+            @Override
+            public void run()
+            {
+                try
+                {
+                    for (int i = 0; i < WRITE_COUNT; ++i)
+                    {
+                        execute(connectionSource, "INSERT INTO item (id, name) VALUES (" + (ROW_COUNT + i) + ", 'written during snapshot')");
+                        writeCount.incrementAndGet();
+                    }
+                }
+                catch (Exception e)
+                {
+                    writeException.set(e);
+                }
+            }});
+        File snapshotFile = new File(temporaryFolder.getRoot(), "snapshot.db");
+        writer.start();
+        databaseSupport.snapshot(connectionSource, snapshotFile, snapshotOptions);
+        writer.join(10000);
+        assertThat(writeException.get()).isNull();
+        assertThat(writeCount.get()).isEqualTo(WRITE_COUNT);
+        assertThat(progressList).isNotEmpty();
+        int[] lastProgress = progressList.get(progressList.size() - 1);
+        assertThat(lastProgress[0]).isEqualTo(0);
+        log.info(TAG, "Snapshot of " + lastProgress[1] + " pages reported in " + progressList.size() + " steps");
+        if (lastProgress[1] > SnapshotOptions.DEFAULT_PAGES_PER_STEP)
+            assertThat(progressList.size()).isGreaterThan(1);
+        ConnectionSource restored = databaseSupport.restoreSnapshot(snapshotFile, "restored.db");
+        // Snapshot holds all rows present at start, and any concurrent writes it completed after
+        long restoredCount = count(restored);
+        assertThat(restoredCount).isGreaterThanOrEqualTo(ROW_COUNT);
+        assertThat(restoredCount).isLessThanOrEqualTo(ROW_COUNT + WRITE_COUNT);
+        assertThat(count(connectionSource)).isEqualTo(ROW_COUNT + WRITE_COUNT);
+        try
+        {
+            databaseSupport.restoreSnapshot(snapshotFile, "restored.db");
+            failBecauseExceptionWasNotThrown(PersistenceException.class);
+        }
+        catch (PersistenceException e)
+        {
+            assertThat(e.getMessage()).contains("already open");
+        }
+    }
+
+    @Test
+    public void test_sqlite_snapshot_memory() throws Exception
+    {
+        databaseSupport = new SQLiteDatabaseSupport(DatabaseSupport.ConnectionType.memory);
+        ConnectionSource connectionSource = databaseSupport.getConnectionSource("memory.db", new Properties());
+        populate(connectionSource, 10);
+        File snapshotFile = new File(temporaryFolder.getRoot(), "memory-snapshot.db");
+        databaseSupport.snapshot(connectionSource, snapshotFile, null);
+        ConnectionSource restored = databaseSupport.restoreSnapshot(snapshotFile, "memory-restored.db");
+        assertThat(count(restored)).isEqualTo(10);
+        // Snapshot is opened read-only
+        try
+        {
+            execute(restored, "DELETE FROM item");
+            failBecauseExceptionWasNotThrown(SQLException.class);
+        }
+        catch (SQLException e)
+        {
+        }
+        assertThat(count(restored)).isEqualTo(10);
+    }
+
+    @Test
+    public void test_h2_backup_and_script() throws Exception
+    {
+        databaseSupport = new H2DatabaseSupport(temporaryFolder.newFolder("h2"));
+        ConnectionSource connectionSource = databaseSupport.getConnectionSource("source", new Properties());
+        populate(connectionSource, 100);
+        final AtomicInteger progressCount = new AtomicInteger();
+        SnapshotOptions snapshotOptions = new SnapshotOptions();
+        snapshotOptions.setSnapshotListener(new SnapshotListener(){
+
+            @Override
+            public void onProgress(int remaining, int total)
+            {
+                progressCount.incrementAndGet();
+            }});
+        File backupFile = new File(temporaryFolder.getRoot(), "source.zip");
+        databaseSupport.snapshot(connectionSource, backupFile, snapshotOptions);
+        assertThat(progressCount.get()).isEqualTo(2);
+        ConnectionSource restored = databaseSupport.restoreSnapshot(backupFile, "backup");
+        assertThat(count(restored)).isEqualTo(100);
+        // Database in zip file is read-only
+        try
+        {
+            execute(restored, "INSERT INTO item (id, name) VALUES (1000, 'rejected')");
+            failBecauseExceptionWasNotThrown(SQLException.class);
+        }
+        catch (SQLException e)
+        {
+        }
+        File scriptFile = new File(temporaryFolder.getRoot(), "source.sql");
+        databaseSupport.snapshot(connectionSource, scriptFile, null);
+        assertThat(count(databaseSupport.restoreSnapshot(scriptFile, "script"))).isEqualTo(100);
+    }
+
+    private static void populate(ConnectionSource connectionSource, int rowCount) throws SQLException
+    {
+        DatabaseConnection databaseConnection = connectionSource.getReadWriteConnection("item");
+        try
+        {
+            databaseConnection.executeStatement(CREATE_TABLE, DatabaseConnection.DEFAULT_RESULT_FLAGS);
+            Connection connection = (Connection)databaseConnection.getUnderlyingConnection();
+            connection.setAutoCommit(false);
+            PreparedStatement statement = connection.prepareStatement("INSERT INTO item (id, name) VALUES (?, ?)");
+            for (int i = 0; i < rowCount; ++i)
+            {
+                statement.setInt(1, i);
+                statement.setString(2, String.format("%0200d", Integer.valueOf(i)));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            statement.close();
+            connection.commit();
+            connection.setAutoCommit(true);
+        }
+        finally
+        {
+            connectionSource.releaseConnection(databaseConnection);
+        }
+    }
+
+    private static void execute(ConnectionSource connectionSource, String sql) throws SQLException
+    {
+        DatabaseConnection databaseConnection = connectionSource.getReadWriteConnection("item");
+        try
+        {
+            databaseConnection.executeStatement(sql, DatabaseConnection.DEFAULT_RESULT_FLAGS);
+        }
+        finally
+        {
+            connectionSource.releaseConnection(databaseConnection);
+        }
+    }
+
+    private static long count(ConnectionSource connectionSource) throws SQLException
+    {
+        DatabaseConnection databaseConnection = connectionSource.getReadOnlyConnection("item");
+        try
+        {
+            return databaseConnection.queryForLong("SELECT COUNT(*) FROM item");
+        }
+        finally
+        {
+            connectionSource.releaseConnection(databaseConnection);
+        }
+    }
+}
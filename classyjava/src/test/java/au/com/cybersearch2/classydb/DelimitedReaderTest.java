@@ -0,0 +1,71 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.failBecauseExceptionWasNotThrown;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+/**
+ * DelimitedReaderTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class DelimitedReaderTest
+{
+    @Test
+    public void test_csv() throws Exception
+    {
+        DelimitedReader underTest = new DelimitedReader(new StringReader(
+            "id,name,notes\r\n1,Alpha,\"Say \"\"hi\"\", then leave\"\r\n\r\n2,,\"two\nlines\"\n3,Gamma,"), DelimitedReader.CSV);
+        assertThat(underTest.readRow()).containsExactly("id", "name", "notes");
+        assertThat(underTest.readRow()).containsExactly("1", "Alpha", "Say \"hi\", then leave");
+        assertThat(underTest.readRow()).containsExactly("2", "", "two\nlines");
+        assertThat(underTest.readRow()).containsExactly("3", "Gamma", "");
+        assertThat(underTest.readRow()).isNull();
+        assertThat(underTest.getRowCount()).isEqualTo(4);
+        underTest.close();
+    }
+
+    @Test
+    public void test_tsv_skip() throws Exception
+    {
+        DelimitedReader underTest = new DelimitedReader(new StringReader("a\tb,c\n1\t2\n3\t4\n"), DelimitedReader.TSV);
+        assertThat(underTest.readRow()).containsExactly("a", "b,c");
+        assertThat(underTest.skipRows(1)).isEqualTo(1);
+        assertThat(underTest.readRow()).containsExactly("3", "4");
+        assertThat(underTest.skipRows(5)).isEqualTo(0);
+    }
+
+    @Test
+    public void test_unterminated_quote() throws Exception
+    {
+        DelimitedReader underTest = new DelimitedReader(new StringReader("1,\"open"), DelimitedReader.CSV);
+        try
+        {
+            underTest.readRow();
+            failBecauseExceptionWasNotThrown(IOException.class);
+        }
+        catch (IOException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("Unterminated quoted field in row 1");
+        }
+    }
+}
@@ -19,10 +19,13 @@ import static org.fest.assertions.api.Assertions.assertThat;
 import static org.fest.assertions.api.Assertions.failBecauseExceptionWasNotThrown;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -30,6 +33,7 @@ import org.junit.Test;
 import com.j256.ormlite.support.DatabaseConnection;
 
 import au.com.cybersearch2.classyapp.ResourceEnvironment;
+import au.com.cybersearch2.classydb.NativeScriptDatabaseWork.ProgressCallback;
 
 /**
  * NativeScriptDatabaseWorkTest
@@ -71,6 +75,27 @@ public class NativeScriptDatabaseWorkTest
         verify(databaseConnection).executeStatement(CREATE_SQL.trim(), DatabaseConnection.DEFAULT_RESULT_FLAGS);
     }
 
+    @Test
+    public void test_call_progress() throws Exception
+    {
+        TestByteArrayInputStream bais = new TestByteArrayInputStream((CREATE_SQL + CREATE_SQL + CREATE_SQL).getBytes());
+        NativeScriptDatabaseWork databaseWork = new NativeScriptDatabaseWork(resourceEnvironment, CREATE_SQL_FILENAME);
+        final List<Integer> progressList = new ArrayList<Integer>();
+        databaseWork.setProgressCallback(new ProgressCallback(){
+
+            @Override
+            public void onProgress(String filename, int statementCount)
+            {
+                assertThat(filename).isEqualTo(CREATE_SQL_FILENAME);
+                progressList.add(statementCount);
+            }}, 2);
+        when(resourceEnvironment.openResource(CREATE_SQL_FILENAME)).thenReturn(bais);
+        Boolean result = databaseWork.call(databaseConnection);
+        assertThat(result).isEqualTo(true);
+        assertThat(progressList).containsExactly(2, 3);
+        verify(databaseConnection, times(3)).executeStatement(CREATE_SQL.trim(), DatabaseConnection.DEFAULT_RESULT_FLAGS);
+    }
+
     @Test
     public void test_call_null_filename() throws Exception
     {
@@ -0,0 +1,71 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classydb;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import au.com.cybersearch2.classydb.SqlParser.StatementCallback;
+
+/**
+ * SqlParserTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class SqlParserTest
+{
+    static final String SCRIPT = 
+        "-- Create table\n" +
+        "create table models (\n    _id integer primary key,\n    name text);\n" +
+        "/* Semi colon in comment ; */ insert into models values (1, 'a;b');\n" +
+        "insert into models values (2, 'it''s') ;\n" +
+        "CREATE TRIGGER models_trigger AFTER INSERT ON models BEGIN\n" +
+        "  UPDATE models SET name = CASE WHEN _id > 1 THEN 'x' ELSE 'y' END;\n" +
+        "  DELETE FROM models WHERE _id = 0;\nEND;\n" +
+        "BEGIN TRANSACTION;\nEND;\n" +
+        "select \"a;b\" from models -- comment\nwhere name = '--not a comment';\n" +
+        "delete from models";
+
+    @Test
+    public void test_parse() throws Exception
+    {
+        final List<String> statements = new ArrayList<String>();
+        SqlParser sqlParser = new SqlParser();
+        sqlParser.parse(new StringReader(SCRIPT), new StatementCallback(){
+
+            @Override
+            public void onStatement(String statement) throws SQLException
+            {
+                statements.add(statement);
+            }});
+        assertThat(statements).containsExactly(
+            "create table models ( _id integer primary key, name text);",
+            "insert into models values (1, 'a;b');",
+            "insert into models values (2, 'it''s') ;",
+            "CREATE TRIGGER models_trigger AFTER INSERT ON models BEGIN UPDATE models SET name = CASE WHEN _id > 1 THEN 'x' ELSE 'y' END; DELETE FROM models WHERE _id = 0; END;",
+            "BEGIN TRANSACTION;",
+            "END;",
+            "select \"a;b\" from models where name = '--not a comment';",
+            "delete from models");
+        assertThat(sqlParser.getCount()).isEqualTo(8);
+    }
+}
@@ -0,0 +1,82 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyfts;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import org.junit.Test;
+
+import au.com.cybersearch2.classyfts.Bm25Scorer.ScoredDocument;
+import au.com.cybersearch2.classyfts.Bm25Scorer.TopDocuments;
+
+/**
+ * Bm25ScorerTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class Bm25ScorerTest
+{
+    @Test
+    public void test_score()
+    {
+        Bm25Scorer underTest = new Bm25Scorer(0.0, 1.0, 0.5);
+        // One phrase, 3 columns, hits at offset 2: column 1 has 1 hit in 10 of 100 rows, column 2 has none
+        int[] matchinfo = new int[] { 1, 3, 0, 0, 0, 1, 1, 10, 0, 0, 4 };
+        double[] averageLengths = new double[] { 1.0, 2.0, 4.0 };
+        double[] lengths = new double[] { 1.0, 2.0, 3.0 };
+        double idf = Math.log((100 - 10 + 0.5) / (10 + 0.5));
+        double expected = idf * (1.0 * (1.2 + 1.0)) / (1.0 + 1.2 * (1.0 - 0.75 + 0.75 * 2.0 / 2.0));
+        assertThat(Math.abs(underTest.score(matchinfo, 2, 100, averageLengths, lengths) - expected)).isLessThan(1e-9);
+        // Excluding column 1 leaves no hits to score
+        underTest.setColumnWeights(0.0, 0.0, 1.0);
+        assertThat(underTest.score(matchinfo, 2, 100, averageLengths, lengths)).isEqualTo(0.0);
+        // Term in every row still counts
+        underTest.setColumnWeights(0.0, 1.0, 0.5);
+        matchinfo[7] = 100;
+        assertThat(underTest.score(matchinfo, 2, 100, averageLengths, lengths)).isGreaterThan(0.0);
+    }
+
+    @Test
+    public void test_top_documents()
+    {
+        TopDocuments topDocuments = new TopDocuments(3);
+        double[] scores = new double[] { 0.5, 2.0, 1.0, 2.0, 0.1, 3.0 };
+        for (int docid = 0; docid < scores.length; ++docid)
+            topDocuments.add(docid, scores[docid]);
+        List<ScoredDocument> rankList = topDocuments.getRankList();
+        assertThat(rankList).hasSize(3);
+        // Highest score first, equal scores in row id order
+        assertThat(rankList.get(0).docid).isEqualTo(5);
+        assertThat(rankList.get(1).docid).isEqualTo(1);
+        assertThat(rankList.get(2).docid).isEqualTo(3);
+        topDocuments = new TopDocuments(0);
+        for (int docid = 0; docid < scores.length; ++docid)
+            topDocuments.add(docid, scores[docid]);
+        assertThat(topDocuments.getRankList()).hasSize(scores.length);
+    }
+
+    @Test
+    public void test_to_int_array()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder());
+        buffer.putInt(7).putInt(-1);
+        assertThat(Bm25Scorer.toIntArray(buffer.array())).isEqualTo(new int[] { 7, -1 });
+    }
+}
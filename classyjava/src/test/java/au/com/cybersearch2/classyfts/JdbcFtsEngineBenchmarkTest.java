@@ -0,0 +1,142 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyfts;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import au.com.cybersearch2.classyfts.JdbcFtsEngine.FtsStatus;
+import au.com.cybersearch2.classyjpa.query.QueryInfo.RowMapper;
+import au.com.cybersearch2.classyjpa.query.ResultRow;
+import au.com.cybersearch2.classylog.JavaLogger;
+import au.com.cybersearch2.classylog.Log;
+
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+
+/**
+ * JdbcFtsEngineBenchmarkTest
+ * Measures dictionary build time and suggestion query throughput on an in-memory database
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class JdbcFtsEngineBenchmarkTest
+{
+    private static final String TAG = "JdbcFtsEngineBenchmark";
+    private static Log log = JavaLogger.getLogger(TAG);
+    private static final String IN_MEMORY_PATH = "jdbc:sqlite::memory:";
+    private static final int ROW_COUNT = 20000;
+    private static final int QUERY_COUNT = 5000;
+    private static final int LIMIT = 10;
+    static final String[] SYLLABLES = new String[] { "ar", "be", "con", "da", "el", "fi", "gro", "hu", "in", "jo", "ka", "lu", "mo", "ne", "or", "pa" };
+
+    ConnectionSource connectionSource;
+    JdbcFtsEngine ftsEngine;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        connectionSource = new JdbcConnectionSource(IN_MEMORY_PATH);
+        DatabaseConnection connection = connectionSource.getReadWriteConnection(null);
+        try
+        {
+            Connection jdbcConnection = (Connection)connection.getUnderlyingConnection();
+            jdbcConnection.createStatement().executeUpdate("CREATE TABLE all_nodes (_id INTEGER PRIMARY KEY, title TEXT, model TEXT)");
+            jdbcConnection.setAutoCommit(false);
+            PreparedStatement insert = jdbcConnection.prepareStatement("INSERT INTO all_nodes (_id, title, model) VALUES (?,?,?)");
+            for (int i = 1; i <= ROW_COUNT; ++i)
+            {
+                insert.setInt(1, i);
+                insert.setString(2, getWord(i) + " " + getWord(i * 7 + 3) + " " + i);
+                insert.setString(3, (i % 2) == 0 ? "recordCategory" : "recordFolder");
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            insert.close();
+            jdbcConnection.commit();
+            jdbcConnection.setAutoCommit(true);
+        }
+        finally
+        {
+            connectionSource.releaseConnection(connection);
+        }
+        Map<String,String> columnMap = new HashMap<String,String>();
+        columnMap.put(JdbcFtsEngine.KEY_INTENT_DATA_ID, "_id");
+        columnMap.put(JdbcFtsEngine.KEY_TEXT_1, "title");
+        columnMap.put(JdbcFtsEngine.KEY_TEXT_2, "model");
+        ftsEngine = new JdbcFtsEngine(connectionSource, "all_nodes", columnMap);
+        long start = System.currentTimeMillis();
+        assertThat(ftsEngine.initialize()).isEqualTo(FtsStatus.Loaded);
+        log.info(TAG, ROW_COUNT + " words loaded in " + (System.currentTimeMillis() - start) + "ms");
+        assertThat(ftsEngine.getWordCount()).isEqualTo(ROW_COUNT);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        connectionSource.close();
+    }
+
+    @Test
+    public void test_suggestion_throughput()
+    {
+        RowMapper rowMapper = new RowMapper(){
+
+            @Override
+            public Object mapRow(ResultRow resultRow)
+            {
+                return resultRow.getString(1);
+            }};
+        String[] columns = new String[] { JdbcFtsEngine.KEY_ID, JdbcFtsEngine.KEY_TEXT_1 };
+        // Warm up
+        for (int i = 0; i < 100; ++i)
+            ftsEngine.search(getPrefix(i), columns, LIMIT, rowMapper);
+        int hitCount = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < QUERY_COUNT; ++i)
+        {
+            List<Object> resultList = ftsEngine.search(getPrefix(i), columns, LIMIT, rowMapper);
+            assertThat(resultList.size()).isLessThanOrEqualTo(LIMIT);
+            hitCount += resultList.size();
+        }
+        long elapsed = Math.max(1L, (System.nanoTime() - start) / 1000000L);
+        log.info(TAG, QUERY_COUNT + " suggestion queries in " + elapsed + "ms (" + (QUERY_COUNT * 1000L / elapsed) + " queries/sec)");
+        assertThat(hitCount).isGreaterThan(0);
+    }
+
+    /** Returns a two syllable word selected by number */
+    private static String getWord(int number)
+    {
+        return SYLLABLES[number % SYLLABLES.length] + SYLLABLES[(number / SYLLABLES.length) % SYLLABLES.length];
+    }
+
+    /** Returns a search prefix of between 2 and 4 characters */
+    private static String getPrefix(int number)
+    {
+        String word = getWord(number * 31 + 5);
+        return word.substring(0, Math.min(word.length(), 2 + number % 3));
+    }
+}
@@ -0,0 +1,260 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyfts;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.failBecauseExceptionWasNotThrown;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import au.com.cybersearch2.classyfts.JdbcFtsEngine.FtsStatus;
+import au.com.cybersearch2.classyjpa.query.QueryInfo.RowMapper;
+import au.com.cybersearch2.classyjpa.query.ResultRow;
+
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+
+/**
+ * JdbcFtsEngineTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class JdbcFtsEngineTest
+{
+    private static final String IN_MEMORY_PATH = "jdbc:sqlite::memory:";
+    static final String[][] NODES = new String[][]
+    {
+        { "1", "Annual Report", "Finance" },
+        { "2", "Report Archive 2014", "Records" },
+        { "3", "Meeting minutes", "Annual report summary" },
+        { "4", "Reports", "Reports" },
+        { "5", "Budget", "Planning" },
+        { "6", "Staff roster", "Human resources" },
+        { "7", "Asset register", "Finance" },
+        { "8", "Minutes archive", "Governance" },
+        { "9", "Policy manual", "Governance" },
+        { "10", "Contracts", "Legal" }
+    };
+
+    static RowMapper ID_MAPPER = new RowMapper(){
+
+        @Override
+        public Object mapRow(ResultRow resultRow)
+        {
+            return Integer.valueOf(resultRow.getInt(resultRow.getColumnIndex(JdbcFtsEngine.KEY_INTENT_DATA_ID)));
+        }};
+
+    ConnectionSource connectionSource;
+    Map<String,String> columnMap;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        connectionSource = new JdbcConnectionSource(IN_MEMORY_PATH);
+        executeUpdate("CREATE TABLE all_nodes (_id INTEGER PRIMARY KEY, title TEXT, model TEXT)");
+        for (String[] node: NODES)
+            executeUpdate("INSERT INTO all_nodes (_id, title, model) VALUES (" + node[0] + ", '" + node[1] + "', '" + node[2] + "')");
+        columnMap = new HashMap<String,String>();
+        columnMap.put(JdbcFtsEngine.KEY_INTENT_DATA_ID, "_id");
+        columnMap.put(JdbcFtsEngine.KEY_TEXT_1, "title");
+        columnMap.put(JdbcFtsEngine.KEY_TEXT_2, "model");
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        connectionSource.close();
+    }
+
+    @Test
+    public void test_initialize()
+    {
+        JdbcFtsEngine underTest = new JdbcFtsEngine(connectionSource, "all_nodes", columnMap);
+        assertThat(underTest.getStatus()).isEqualTo(FtsStatus.Initial);
+        assertThat(underTest.initialize()).isEqualTo(FtsStatus.Loaded);
+        assertThat(underTest.getWordCount()).isEqualTo(NODES.length);
+    }
+
+    @Test
+    public void test_initialize_existing_dictionary() throws Exception
+    {
+        JdbcFtsEngine underTest = new JdbcFtsEngine(connectionSource, "all_nodes", columnMap);
+        assertThat(underTest.initialize()).isEqualTo(FtsStatus.Loaded);
+        executeUpdate("INSERT INTO all_nodes (_id, title, model) VALUES (11, 'Late entry', 'Records')");
+        underTest = new JdbcFtsEngine(connectionSource, "all_nodes", columnMap);
+        assertThat(underTest.initialize()).isEqualTo(FtsStatus.Loaded);
+        assertThat(underTest.getWordCount()).isEqualTo(NODES.length);
+    }
+
+    @Test
+    public void test_initialize_error()
+    {
+        JdbcFtsEngine underTest = new JdbcFtsEngine(connectionSource, "no_such_table", columnMap);
+        assertThat(underTest.initialize()).isEqualTo(FtsStatus.Error);
+        assertThat(underTest.getStatus()).isEqualTo(FtsStatus.Error);
+    }
+
+    @Test
+    public void test_missing_source_column()
+    {
+        columnMap.remove(JdbcFtsEngine.KEY_TEXT_1);
+        try
+        {
+            new JdbcFtsEngine(connectionSource, "all_nodes", columnMap);
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("Source column map missing " + JdbcFtsEngine.KEY_TEXT_1);
+        }
+    }
+
+    @Test
+    public void test_search_ranked()
+    {
+        JdbcFtsEngine underTest = createFtsEngine();
+        // Short title and model matches outrank longer titles, model only match is last
+        List<Object> resultList = underTest.search("rep", null, 0, ID_MAPPER);
+        assertThat(resultList).containsExactly(Integer.valueOf(4), Integer.valueOf(1), Integer.valueOf(2), Integer.valueOf(3));
+        resultList = underTest.search("Annual, REP", null, 0, ID_MAPPER);
+        assertThat(resultList).containsExactly(Integer.valueOf(1), Integer.valueOf(3));
+        // Equal scores are ordered by id
+        resultList = underTest.search("min", null, 0, ID_MAPPER);
+        assertThat(resultList).containsExactly(Integer.valueOf(3), Integer.valueOf(8));
+    }
+
+    @Test
+    public void test_search_limit()
+    {
+        JdbcFtsEngine underTest = createFtsEngine();
+        List<Object> resultList = underTest.search("rep", null, 2, ID_MAPPER);
+        assertThat(resultList).containsExactly(Integer.valueOf(4), Integer.valueOf(1));
+    }
+
+    @Test
+    public void test_search_column_weights()
+    {
+        JdbcFtsEngine underTest = createFtsEngine();
+        underTest.setColumnWeights(1.0, 0.0);
+        // Model only match still qualifies, but does not score
+        List<Object> resultList = underTest.search("rep", null, 0, ID_MAPPER);
+        assertThat(resultList).hasSize(4);
+        assertThat(resultList.get(3)).isEqualTo(Integer.valueOf(3));
+    }
+
+    @Test
+    public void test_search_columns()
+    {
+        JdbcFtsEngine underTest = createFtsEngine();
+        List<Object> resultList = underTest.search("polic", new String[] { JdbcFtsEngine.KEY_ID, JdbcFtsEngine.KEY_TEXT_1 }, 10, new RowMapper(){
+
+            @Override
+            public Object mapRow(ResultRow resultRow)
+            {
+                assertThat(resultRow.getPosition()).isEqualTo(0);
+                assertThat(resultRow.getColumnCount()).isEqualTo(2);
+                assertThat(resultRow.getColumnName(0)).isEqualTo(JdbcFtsEngine.KEY_ID);
+                return resultRow.getLong(0) + ":" + resultRow.getString(1);
+            }});
+        assertThat(resultList).containsExactly("9:Policy manual");
+    }
+
+    @Test
+    public void test_search_no_match()
+    {
+        JdbcFtsEngine underTest = createFtsEngine();
+        assertThat(underTest.search("xyz", null, 10, ID_MAPPER)).isEmpty();
+        assertThat(underTest.search(" ,; ", null, 10, ID_MAPPER)).isEmpty();
+        assertThat(underTest.search(null, null, 10, ID_MAPPER)).isEmpty();
+    }
+
+    @Test
+    public void test_query()
+    {
+        JdbcFtsEngine underTest = createFtsEngine();
+        List<Object> resultList = underTest.query(JdbcFtsEngine.KEY_TEXT_1 + " MATCH ?", new String[] { "meet*" }, null, 0, ID_MAPPER);
+        assertThat(resultList).containsExactly(Integer.valueOf(3));
+        resultList = underTest.query("rowid = ?", new String[] { "7" }, new String[] { JdbcFtsEngine.KEY_TEXT_2 }, 1, new RowMapper(){
+
+            @Override
+            public Object mapRow(ResultRow resultRow)
+            {
+                return resultRow.getString(0);
+            }});
+        assertThat(resultList).containsExactly("Finance");
+        assertThat(underTest.query(null, null, null, 3, ID_MAPPER)).hasSize(3);
+    }
+
+    @Test
+    public void test_query_invalid_column()
+    {
+        JdbcFtsEngine underTest = createFtsEngine();
+        try
+        {
+            underTest.query(null, null, new String[] { "title" }, 0, ID_MAPPER);
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("Invalid column title");
+        }
+    }
+
+    @Test
+    public void test_match_expression()
+    {
+        assertThat(JdbcFtsEngine.toMatchExpression("Annual, REP")).isEqualTo("annual* rep*");
+        assertThat(JdbcFtsEngine.toMatchExpression("report OR \"x")).isEqualTo("report* or* x*");
+        assertThat(JdbcFtsEngine.toMatchExpression("-*")).isNull();
+    }
+
+    private JdbcFtsEngine createFtsEngine()
+    {
+        JdbcFtsEngine ftsEngine = new JdbcFtsEngine(connectionSource, "all_nodes", columnMap);
+        assertThat(ftsEngine.initialize()).isEqualTo(FtsStatus.Loaded);
+        return ftsEngine;
+    }
+
+    private void executeUpdate(String sql) throws Exception
+    {
+        DatabaseConnection connection = connectionSource.getReadWriteConnection(null);
+        try
+        {
+            Statement statement = ((Connection)connection.getUnderlyingConnection()).createStatement();
+            try
+            {
+                statement.executeUpdate(sql);
+            }
+            finally
+            {
+                statement.close();
+            }
+        }
+        finally
+        {
+            connectionSource.releaseConnection(connection);
+        }
+    }
+}
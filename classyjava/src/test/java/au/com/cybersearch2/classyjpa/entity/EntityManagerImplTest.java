@@ -23,6 +23,7 @@ import static org.mockito.Mockito.*;
 import java.io.IOException;
 import java.sql.Savepoint;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import javax.inject.Singleton;
@@ -33,9 +34,11 @@ import javax.persistence.FlushModeType;
 import javax.persistence.LockModeType;
 import javax.persistence.PersistenceException;
 import javax.persistence.Query;
+import javax.persistence.TransactionRequiredException;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import au.com.cybersearch2.classyapp.JavaTestResourceEnvironment;
@@ -50,6 +53,7 @@ import au.com.cybersearch2.classyjpa.persist.PersistenceFactory;
 import au.com.cybersearch2.classyjpa.query.EntityQuery;
 import au.com.cybersearch2.classyjpa.query.NamedDaoQuery;
 import au.com.cybersearch2.classyjpa.query.NamedSqlQuery;
+import au.com.cybersearch2.classyjpa.transaction.EntityChange;
 import au.com.cybersearch2.classyjpa.transaction.EntityTransactionImpl;
 import au.com.cybersearch2.classyjpa.transaction.TransactionCallable;
 
@@ -311,6 +315,67 @@ public class EntityManagerImplTest
     }
  
     @Test 
+    public void test_refresh_read_only() throws Exception
+    {
+        RecordCategory entity = prepareHelperMap();
+        Integer id = new Integer(1);
+        when(ormDaoHelper.extractId(entity)).thenReturn(id);
+        when(objectMonitor.startManagingEntity(entity, id, PersistOp.refresh)).thenReturn(entity);
+        when(transaction.isActive()).thenReturn(false);
+        when(ormDaoHelper.refresh(entity)).thenReturn(1);
+        entityManagerImpl.setReadOnly(true);
+        entityManagerImpl.refresh(entity);
+        verify(transaction, times(0)).begin();
+    }
+
+    @Test
+    public void test_read_only_rejects_writes() throws Exception
+    {
+        RecordCategory entity = prepareHelperMap();
+        entityManagerImpl.setReadOnly(true);
+        assertThat(entityManagerImpl.isReadOnly()).isTrue();
+        try
+        {
+            entityManagerImpl.persist(entity);
+            failBecauseExceptionWasNotThrown(TransactionRequiredException.class);
+        }
+        catch(TransactionRequiredException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("persist() called on read-only EntityManager");
+        }
+        try
+        {
+            entityManagerImpl.merge(entity);
+            failBecauseExceptionWasNotThrown(TransactionRequiredException.class);
+        }
+        catch(TransactionRequiredException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("merge() called on read-only EntityManager");
+        }
+        try
+        {
+            entityManagerImpl.remove(entity);
+            failBecauseExceptionWasNotThrown(TransactionRequiredException.class);
+        }
+        catch(TransactionRequiredException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("remove() called on read-only EntityManager");
+        }
+        try
+        {
+            entityManagerImpl.flush();
+            failBecauseExceptionWasNotThrown(TransactionRequiredException.class);
+        }
+        catch(TransactionRequiredException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("flush() called on read-only EntityManager");
+        }
+        entityManagerImpl.clear();
+        verify(transaction, times(0)).begin();
+        verifyZeroInteractions(ormDaoHelper);
+    }
+
+    @Test
     public void test_remove() throws Exception
     { 
         RecordCategory entity = prepareHelperMap();
@@ -324,6 +389,40 @@ public class EntityManagerImplTest
     }
  
     @Test 
+    public void test_change_capture() throws Exception
+    {
+        EntityTransactionImpl transactionImpl = (EntityTransactionImpl)transaction;
+        when(transactionImpl.isChangeCapture()).thenReturn(true);
+        when(transaction.isActive()).thenReturn(true);
+        RecordCategory entity = prepareHelperMap();
+        entity.setDescription("Filing");
+        Integer id = new Integer(1);
+        when(ormDaoHelper.extractId(entity)).thenReturn(id);
+        when(ormDaoHelper.entityExists(entity)).thenReturn(false);
+        when(ormDaoHelper.create(entity)).thenReturn(1);
+        when(objectMonitor.monitorNewEntity(entity, id, id)).thenReturn(true);
+        entityManagerImpl.persist(entity);
+        // Merge of a different instance identifies changed properties
+        RecordCategory update = prepareHelperMap();
+        update.setDescription("Archive");
+        when(ormDaoHelper.extractId(update)).thenReturn(id);
+        when(objectMonitor.getManagedEntity(RecordCategory.class, id)).thenReturn(entity);
+        when(objectMonitor.startManagingEntity(update, id, PersistOp.merge)).thenReturn(update);
+        entityManagerImpl.merge(update);
+        when(ormDaoHelper.delete(update)).thenReturn(1);
+        entityManagerImpl.remove(update);
+        ArgumentCaptor<EntityChange> changeArg = ArgumentCaptor.forClass(EntityChange.class);
+        verify(transactionImpl, times(3)).recordChange(changeArg.capture());
+        List<EntityChange> changes = changeArg.getAllValues();
+        assertThat(changes.get(0).getOperation()).isEqualTo(EntityChange.Operation.insert);
+        assertThat(changes.get(0).getEntityClass()).isEqualTo(RecordCategory.class);
+        assertThat(changes.get(0).getPrimaryKey()).isEqualTo(id);
+        assertThat(changes.get(1).getOperation()).isEqualTo(EntityChange.Operation.update);
+        assertThat(changes.get(1).getChangedProperties()).containsExactly("description");
+        assertThat(changes.get(2).getOperation()).isEqualTo(EntityChange.Operation.delete);
+    }
+
+    @Test
     public void test_remove_no_transaction() throws Exception
     { 
         RecordCategory entity = prepareHelperMap();
@@ -870,6 +969,8 @@ public class EntityManagerImplTest
     {
         entityManagerImpl.setFlushMode(FlushModeType.COMMIT);
         assertThat(entityManagerImpl.getFlushMode()).isEqualTo(FlushModeType.COMMIT);
+        // Flush mode does not select write-behind
+        assertThat(entityManagerImpl.isWriteBehind()).isFalse();
         try
         {
             entityManagerImpl.setFlushMode(FlushModeType.AUTO);
@@ -897,6 +998,130 @@ public class EntityManagerImplTest
         }
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void test_persist_write_behind() throws Exception
+    {
+        RecordCategory entity = prepareHelperMap();
+        Integer id = new Integer(1);
+        when(ormDaoHelper.extractId(entity)).thenReturn(id);
+        when(objectMonitor.startManagingEntity(entity, id, PersistOp.persist)).thenReturn(null);
+        when(ormDaoHelper.entityExists(entity)).thenReturn(false);
+        when(ormDaoHelper.isBatchCreate(entity)).thenReturn(true);
+        when(transaction.isActive()).thenReturn(true);
+        entityManagerImpl.setWriteBehind(true);
+        assertThat(entityManagerImpl.isWriteBehind()).isTrue();
+        entityManagerImpl.persist(entity);
+        verify(ormDaoHelper, times(0)).create(entity);
+        assertThat(entityManagerImpl.find(RecordCategory.class, id)).isEqualTo(entity);
+        verify(ormDaoHelper, times(0)).queryForId(id);
+        ArrayList<Object> batch = new ArrayList<Object>();
+        batch.add(entity);
+        when(ormDaoHelper.createAll(batch)).thenReturn(1);
+        assertThat(onPrecommit.call(connection)).isTrue();
+        verify(ormDaoHelper).createAll(batch);
+        assertThat(entityManagerImpl.writeBehindQueue.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void test_persist_write_behind_not_batched() throws Exception
+    {
+        RecordCategory entity = prepareHelperMap();
+        Integer id = new Integer(1);
+        when(ormDaoHelper.extractId(entity)).thenReturn(id);
+        when(objectMonitor.startManagingEntity(entity, id, PersistOp.persist)).thenReturn(null);
+        when(ormDaoHelper.entityExists(entity)).thenReturn(false);
+        when(ormDaoHelper.isBatchCreate(entity)).thenReturn(false);
+        when(transaction.isActive()).thenReturn(true);
+        when(ormDaoHelper.create(entity)).thenReturn(1);
+        when(objectMonitor.monitorNewEntity(entity, id, id)).thenReturn(true);
+        entityManagerImpl.setWriteBehind(true);
+        entityManagerImpl.persist(entity);
+        verify(ormDaoHelper).create(entity);
+        assertThat(entityManagerImpl.writeBehindQueue.isEmpty()).isTrue();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void test_remove_write_behind() throws Exception
+    {
+        RecordCategory entity = prepareHelperMap();
+        Integer id = new Integer(1);
+        when(ormDaoHelper.extractId(entity)).thenReturn(id);
+        when(transaction.isActive()).thenReturn(true);
+        entityManagerImpl.setWriteBehind(true);
+        entityManagerImpl.remove(entity);
+        verify(objectMonitor).markForRemoval(RecordCategory.class, id);
+        verify(ormDaoHelper, times(0)).delete(entity);
+        assertThat(entityManagerImpl.find(RecordCategory.class, id)).isNull();
+        verify(ormDaoHelper, times(0)).queryForId(id);
+        ArrayList<Object> batch = new ArrayList<Object>();
+        batch.add(entity);
+        when(ormDaoHelper.deleteAll(batch)).thenReturn(0);
+        try
+        {
+            onPrecommit.call(connection);
+            failBecauseExceptionWasNotThrown(PersistenceException.class);
+        }
+        catch(PersistenceException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("remove batch of 1 entities of class " + RecordCategory.class.getName() + " returned result count 0");
+        }
+        assertThat(entityManagerImpl.writeBehindQueue.isEmpty()).isTrue();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void test_persist_remove_write_behind() throws Exception
+    {
+        RecordCategory entity = prepareHelperMap();
+        Integer id = new Integer(1);
+        when(ormDaoHelper.extractId(entity)).thenReturn(id);
+        when(objectMonitor.startManagingEntity(entity, id, PersistOp.persist)).thenReturn(null);
+        when(ormDaoHelper.entityExists(entity)).thenReturn(false);
+        when(ormDaoHelper.isBatchCreate(entity)).thenReturn(true);
+        when(transaction.isActive()).thenReturn(true);
+        entityManagerImpl.setWriteBehind(true);
+        entityManagerImpl.persist(entity);
+        entityManagerImpl.remove(entity);
+        onPrecommit.call(connection);
+        verify(ormDaoHelper, times(0)).createAll(isA(List.class));
+        verify(ormDaoHelper, times(0)).deleteAll(isA(List.class));
+    }
+
+    @Test
+    public void test_write_behind_deselected() throws Exception
+    {
+        RecordCategory entity = prepareHelperMap();
+        Integer id = new Integer(1);
+        when(ormDaoHelper.extractId(entity)).thenReturn(id);
+        when(transaction.isActive()).thenReturn(true);
+        entityManagerImpl.setWriteBehind(true);
+        entityManagerImpl.remove(entity);
+        ArrayList<Object> batch = new ArrayList<Object>();
+        batch.add(entity);
+        when(ormDaoHelper.deleteAll(batch)).thenReturn(1);
+        entityManagerImpl.setWriteBehind(false);
+        verify(ormDaoHelper).deleteAll(batch);
+        assertThat(entityManagerImpl.isWriteBehind()).isFalse();
+        assertThat(entityManagerImpl.getFlushMode()).isEqualTo(FlushModeType.COMMIT);
+    }
+
+    @Test
+    public void test_write_behind_discarded_on_rollback() throws Exception
+    {
+        RecordCategory entity = prepareHelperMap();
+        Integer id = new Integer(1);
+        when(ormDaoHelper.extractId(entity)).thenReturn(id);
+        when(transaction.isActive()).thenReturn(true);
+        entityManagerImpl.setWriteBehind(true);
+        entityManagerImpl.remove(entity);
+        assertThat(entityManagerImpl.writeBehindQueue.size()).isEqualTo(1);
+        entityManagerImpl.clear();
+        verify(transaction).rollback();
+        assertThat(entityManagerImpl.writeBehindQueue.isEmpty()).isTrue();
+    }
+
     @Test 
     public void test_get_flush_mode_after_close() throws Exception
     { 
@@ -87,6 +87,14 @@ public class JavaPersistenceContextTest
     }
 
 
+    class ReadOnlyTestWork extends TestPersistenceWork implements ReadOnlyWork
+    {
+        public ReadOnlyTestWork(Transcript transcript)
+        {
+            super(transcript);
+        }
+    }
+
     static class TestMocks
     {
         public EntityManagerProvider entityManagerProvider;
@@ -136,6 +144,65 @@ public class JavaPersistenceContextTest
         assertThat(jpaContext.getTransactionInfo().isUserTransaction()).isFalse();
     }
 
+    @Test
+    public void test_doTask_read_only()
+    {
+        Transcript transcript = new Transcript();
+        PersistenceWork persistenceWork = new ReadOnlyTestWork(transcript);
+        JavaPersistenceContext jpaContext = new JavaPersistenceContext(persistenceWork, testMocks.entityManagerProvider);
+        assertThat(jpaContext.isReadOnly()).isTrue();
+        Boolean success = jpaContext.doTask();
+        transcript.assertEventsSoFar("background task");
+        verify(testMocks.transaction, never()).begin();
+        verify((EntityManagerImpl)testMocks.entityManager).setReadOnly(true);
+        verify(testMocks.entityManager).close();
+        assertThat(success).isTrue();
+        // Hint ignored in user transaction mode
+        jpaContext = new JavaPersistenceContext(persistenceWork, testMocks.entityManagerProvider);
+        jpaContext.getTransactionInfo().setUserTransaction(true);
+        assertThat(jpaContext.isReadOnly()).isFalse();
+    }
+
+    @Test
+    public void test_doTask_container_read_only()
+    {
+        Transcript transcript = new Transcript();
+        PersistenceWork persistenceWork = new TestPersistenceWork(transcript);
+        JavaPersistenceContext jpaContext = new JavaPersistenceContext(persistenceWork, testMocks.entityManagerProvider);
+        assertThat(jpaContext.isReadOnly()).isFalse();
+        jpaContext.setReadOnly(true);
+        assertThat(jpaContext.isReadOnly()).isTrue();
+        assertThat(jpaContext.doTask()).isTrue();
+        transcript.assertEventsSoFar("background task");
+        verify(testMocks.transaction, never()).begin();
+        verify((EntityManagerImpl)testMocks.entityManager).setReadOnly(true);
+        verify(testMocks.entityManager).close();
+    }
+
+    @Test
+    public void test_read_only_exception_thrown()
+    {
+        Transcript transcript = new Transcript();
+        final PersistenceException exception = new PersistenceException("Query failed");
+        PersistenceWork persistenceWork = new ReadOnlyTestWork(transcript);
+        ((TestPersistenceWork)persistenceWork).setCallable(new TestPersistenceWork.Callable(){
+
+            @Override
+            public Boolean call(EntityManagerLite entityManager) throws Exception
+            {
+                throw exception;
+            }});
+        JavaPersistenceContext jpaContext = new JavaPersistenceContext(persistenceWork, testMocks.entityManagerProvider);
+        Boolean success = jpaContext.doTask();
+        assertThat(success).isFalse();
+        jpaContext.onPostExecute(success);
+        verify(testMocks.transaction, never()).begin();
+        verify(testMocks.transaction, never()).setRollbackOnly();
+        verify(testMocks.entityManager).close();
+        transcript.assertEventsSoFar("background task", "onRollback " + exception.toString());
+        assertThat(jpaContext.status).isEqualTo(WorkStatus.FAILED);
+    }
+
     @Test 
     public void test_onPostExecute()
     {
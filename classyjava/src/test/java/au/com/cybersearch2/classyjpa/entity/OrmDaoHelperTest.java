@@ -15,12 +15,40 @@
     along with this program.  If not, see <http://www.gnu.org/licenses/> */
 package au.com.cybersearch2.classyjpa.entity;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.OptimisticLockException;
+
 import org.junit.Before;
 import org.junit.Test;
 
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.dao.ObjectCache;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.jdbc.JdbcDatabaseConnection;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.table.DatabaseTable;
+import com.j256.ormlite.table.TableInfo;
+import com.j256.ormlite.table.TableUtils;
+
 import au.com.cybersearch2.classyfy.data.alfresco.RecordCategory;
 
 import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.failBecauseExceptionWasNotThrown;
 import static org.mockito.Mockito.*;
 
 /**
@@ -108,6 +136,23 @@ public class OrmDaoHelperTest
         }
     }
 */
+    @DatabaseTable(tableName = "batch_item")
+    public static class BatchItem
+    {
+        @DatabaseField(id = true)
+        int id;
+        @DatabaseField
+        String title;
+        @DatabaseField
+        Date created;
+        @DatabaseField(defaultValue = "7")
+        int priority;
+
+        public BatchItem()
+        {
+        }
+    }
+
     PersistenceDao<RecordCategory, Integer> dao;
 
     @SuppressWarnings("unchecked")
@@ -168,6 +213,39 @@ public class OrmDaoHelperTest
         assertThat(helper.update(entity1)).isEqualTo(1);
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void test_update_version_conflict() throws Exception
+    {
+        OrmDaoHelper<RecordCategory, Integer> helper = new OrmDaoHelper<RecordCategory, Integer>(dao);
+        RecordCategory entity1 = new RecordCategory();
+        Integer id = new Integer(1);
+        TableInfo<RecordCategory, Integer> tableInfo = mock(TableInfo.class);
+        FieldType versionField = mock(FieldType.class);
+        when(versionField.isVersion()).thenReturn(true);
+        when(tableInfo.getFieldTypes()).thenReturn(new FieldType[] { versionField });
+        ObjectCache objectCache = mock(ObjectCache.class);
+        when(dao.getTableInfo()).thenReturn(tableInfo);
+        when(dao.getObjectCache()).thenReturn(objectCache);
+        when(dao.getDataClass()).thenReturn(RecordCategory.class);
+        when(dao.extractId(entity1)).thenReturn(id);
+        when(dao.update(entity1)).thenReturn(0);
+        try
+        {
+            helper.update(entity1);
+            failBecauseExceptionWasNotThrown(OptimisticLockException.class);
+        }
+        catch (OptimisticLockException e)
+        {
+            assertThat(e.getEntity()).isEqualTo(entity1);
+        }
+        // Stale entity must be read again on retry
+        verify(objectCache).remove(RecordCategory.class, id);
+        // No version field, so no conflict
+        when(versionField.isVersion()).thenReturn(false);
+        assertThat(helper.update(entity1)).isEqualTo(0);
+    }
+
     @Test
     public void test_delete() throws Exception
     {
@@ -176,4 +254,111 @@ public class OrmDaoHelperTest
         when(dao.delete(entity1)).thenReturn(1);
         assertThat(helper.delete(entity1)).isEqualTo(1);
     }
+
+    @Test
+    public void test_create_all() throws Exception
+    {
+        JdbcConnectionSource connectionSource = new JdbcConnectionSource("jdbc:sqlite::memory:");
+        try
+        {
+            TableUtils.createTable(connectionSource, BatchItem.class);
+            Dao<BatchItem, Integer> batchDao = DaoManager.createDao(connectionSource, BatchItem.class);
+            batchDao.setObjectCache(true);
+            PersistenceDao<BatchItem, Integer> persistenceDao = new PersistenceDao<BatchItem, Integer>(batchDao);
+            OrmDaoHelper<BatchItem, Integer> helper = new OrmDaoHelper<BatchItem, Integer>(persistenceDao);
+            Date created = new Date(1234567000L);
+            List<Object> batch = new ArrayList<Object>();
+            for (int id = 1; id <= 3; ++id)
+            {
+                BatchItem item = new BatchItem();
+                item.id = id;
+                // Null title and date are bound by SQL type
+                item.title = (id == 2) ? null : "Item " + id;
+                item.created = (id == 2) ? null : created;
+                batch.add(item);
+            }
+            assertThat(helper.createAll(batch)).isEqualTo(3);
+            // Inserted objects are cached
+            assertThat(batchDao.getObjectCache().size(BatchItem.class)).isEqualTo(3);
+            batchDao.clearObjectCache();
+            BatchItem item = batchDao.queryForId(1);
+            assertThat(item.title).isEqualTo("Item 1");
+            assertThat(item.created).isEqualTo(created);
+            assertThat(item.priority).isEqualTo(7);
+            item = batchDao.queryForId(2);
+            assertThat(item.title).isNull();
+            assertThat(item.created).isNull();
+        }
+        finally
+        {
+            connectionSource.close();
+        }
+    }
+
+    @Test
+    public void test_create_all_single_batch() throws Exception
+    {
+        JdbcConnectionSource connectionSource = new JdbcConnectionSource("jdbc:sqlite::memory:");
+        try
+        {
+            TableUtils.createTable(connectionSource, BatchItem.class);
+            Dao<BatchItem, Integer> batchDao = DaoManager.createDao(connectionSource, BatchItem.class);
+            PersistenceDao<BatchItem, Integer> persistenceDao = new PersistenceDao<BatchItem, Integer>(batchDao);
+            OrmDaoHelper<BatchItem, Integer> helper = new OrmDaoHelper<BatchItem, Integer>(persistenceDao);
+            List<Object> batch = new ArrayList<Object>();
+            for (int id = 1; id <= 50; ++id)
+            {
+                BatchItem item = new BatchItem();
+                item.id = id;
+                item.title = "Item " + id;
+                batch.add(item);
+            }
+            final Map<String, AtomicInteger> callCountMap = new HashMap<String, AtomicInteger>();
+            DatabaseConnection databaseConnection = connectionSource.getReadWriteConnection("batch_item");
+            Connection countingConnection = countingProxy(Connection.class, databaseConnection.getUnderlyingConnection(), callCountMap);
+            assertThat(helper.executeInsertBatch(new JdbcDatabaseConnection(countingConnection), connectionSource.getDatabaseType(), persistenceDao.getTableInfo(), batch)).isEqualTo(50);
+            // All rows of the table are sent in one batch
+            assertThat(callCountMap.get("addBatch").get()).isEqualTo(50);
+            assertThat(callCountMap.get("executeBatch").get()).isEqualTo(1);
+            assertThat(callCountMap.containsKey("executeUpdate")).isFalse();
+            assertThat(callCountMap.containsKey("execute")).isFalse();
+            assertThat(batchDao.countOf()).isEqualTo(50);
+        }
+        finally
+        {
+            connectionSource.close();
+        }
+    }
+
+    /**
+     * Returns proxy which counts method calls on target and on any statements it creates
+     */
+    private static <P> P countingProxy(final Class<P> proxyInterface, final Object target, final Map<String, AtomicInteger> callCountMap)
+    {
+        return proxyInterface.cast(Proxy.newProxyInstance(OrmDaoHelperTest.class.getClassLoader(), new Class<?>[] { proxyInterface }, new InvocationHandler(){
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+                AtomicInteger callCount = callCountMap.get(method.getName());
+                if (callCount == null)
+                {
+                    callCount = new AtomicInteger();
+                    callCountMap.put(method.getName(), callCount);
+                }
+                callCount.incrementAndGet();
+                Object result;
+                try
+                {
+                    result = method.invoke(target, args);
+                }
+                catch (InvocationTargetException e)
+                {
+                    throw e.getCause();
+                }
+                if (result instanceof PreparedStatement)
+                    return countingProxy(PreparedStatement.class, result, callCountMap);
+                return result;
+            }}));
+    }
 }
@@ -0,0 +1,164 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.entity;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.persistence.PersistenceException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import au.com.cybersearch2.classyjpa.EntityManagerLite;
+import au.com.cybersearch2.classyjpa.entity.JavaPersistenceContext.EntityManagerProvider;
+import au.com.cybersearch2.classyjpa.transaction.EntityTransactionImpl;
+import au.com.cybersearch2.classytask.WorkStatus;
+import au.com.cybersearch2.classyutil.Transcript;
+
+/**
+ * PersistenceBatchTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class PersistenceBatchTest
+{
+    static class ReadOnlyTestWork extends TestPersistenceWork implements ReadOnlyWork
+    {
+        public ReadOnlyTestWork(Transcript transcript)
+        {
+            super(transcript);
+        }
+    }
+
+    EntityManagerLite entityManager;
+    EntityTransactionImpl transaction;
+    PersistenceContainer persistenceContainer;
+
+    @Before
+    public void setUp()
+    {
+        transaction = mock(EntityTransactionImpl.class);
+        entityManager = mock(EntityManagerImpl.class);
+        when(entityManager.getTransaction()).thenReturn(transaction);
+        final EntityManagerProvider entityManagerProvider = new EntityManagerProvider(){
+
+            @Override
+            public EntityManagerLite entityManagerInstance()
+            {
+                return entityManager;
+            }};
+        persistenceContainer = mock(PersistenceContainer.class);
+        when(persistenceContainer.getPersistenceTask(any(PersistenceWork.class))).thenAnswer(new Answer<JavaPersistenceContext>(){
+
+            @Override
+            public JavaPersistenceContext answer(InvocationOnMock invocation) throws Throwable
+            {
+                return new JavaPersistenceContext((PersistenceWork)invocation.getArguments()[0], entityManagerProvider);
+            }});
+    }
+
+    @Test
+    public void test_shared_transaction()
+    {
+        Transcript transcript = new Transcript();
+        PersistenceBatch underTest = new PersistenceBatch(persistenceContainer);
+        assertThat(underTest.add(new TestPersistenceWork(transcript))).isEqualTo(0);
+        assertThat(underTest.add(new ReadOnlyTestWork(transcript))).isEqualTo(1);
+        assertThat(underTest.add(new TestPersistenceWork(transcript))).isEqualTo(2);
+        assertThat(underTest.size()).isEqualTo(3);
+        assertThat(underTest.doTask()).isTrue();
+        transcript.assertEventsSoFar("background task", "background task", "background task");
+        // One transaction for the two read-write works and none for the read-only work
+        verify(transaction, times(1)).begin();
+        verify(entityManager, times(2)).close();
+        underTest.onPostExecute();
+        transcript.assertEventsSoFar("background task", "background task", "background task",
+                "onPostExecute true", "onPostExecute true", "onPostExecute true");
+        for (int i = 0; i < underTest.size(); ++i)
+            assertThat(underTest.getWorkStatus(i)).isEqualTo(WorkStatus.FINISHED);
+    }
+
+    @Test
+    public void test_shared_transaction_rollback()
+    {
+        Transcript writeTranscript = new Transcript();
+        Transcript readTranscript = new Transcript();
+        final PersistenceException exception = new PersistenceException("Constraint violation");
+        PersistenceBatch underTest = new PersistenceBatch(persistenceContainer);
+        underTest.add(new TestPersistenceWork(writeTranscript, new TestPersistenceWork.Callable(){
+
+            @Override
+            public Boolean call(EntityManagerLite entityManager) throws Exception
+            {
+                throw exception;
+            }}));
+        underTest.add(new TestPersistenceWork(writeTranscript));
+        underTest.add(new ReadOnlyTestWork(readTranscript));
+        assertThat(underTest.doTask()).isFalse();
+        verify(transaction).setRollbackOnly();
+        underTest.onPostExecute();
+        // Work following the failure is not run, but is rolled back with the rest of the transaction
+        writeTranscript.assertEventsSoFar("background task", "onRollback " + exception.toString(), "onRollback " + exception.toString());
+        readTranscript.assertEventsSoFar("background task", "onPostExecute true");
+        assertThat(underTest.getWorkStatus(0)).isEqualTo(WorkStatus.FAILED);
+        assertThat(underTest.getWorkStatus(1)).isEqualTo(WorkStatus.FAILED);
+        assertThat(underTest.getWorkStatus(2)).isEqualTo(WorkStatus.FINISHED);
+    }
+
+    @Test
+    public void test_unexpected_exception()
+    {
+        Transcript writeTranscript = new Transcript();
+        Transcript readTranscript = new Transcript();
+        final NullPointerException exception = new NullPointerException("Entity missing");
+        PersistenceBatch underTest = new PersistenceBatch(persistenceContainer);
+        underTest.add(new ReadOnlyTestWork(readTranscript));
+        underTest.add(new TestPersistenceWork(writeTranscript, new TestPersistenceWork.Callable(){
+
+            @Override
+            public Boolean call(EntityManagerLite entityManager) throws Exception
+            {
+                throw exception;
+            }}));
+        assertThat(underTest.doTask()).isFalse();
+        underTest.onPostExecute();
+        readTranscript.assertEventsSoFar("background task", "onPostExecute true");
+        writeTranscript.assertEventsSoFar("background task", "onRollback " + exception.toString());
+        assertThat(underTest.getWorkStatus(0)).isEqualTo(WorkStatus.FINISHED);
+        assertThat(underTest.getWorkStatus(1)).isEqualTo(WorkStatus.FAILED);
+    }
+
+    @Test
+    public void test_read_only_batch()
+    {
+        Transcript transcript = new Transcript();
+        PersistenceBatch underTest = new PersistenceBatch(persistenceContainer);
+        underTest.add(new ReadOnlyTestWork(transcript));
+        underTest.add(new ReadOnlyTestWork(transcript));
+        assertThat(underTest.doTask()).isTrue();
+        verify(transaction, never()).begin();
+        underTest.onPostExecute();
+        transcript.assertEventsSoFar("background task", "background task", "onPostExecute true", "onPostExecute true");
+    }
+}
@@ -295,6 +295,21 @@ public class PersistenceContainerTest
     }
     
     @Test 
+    public void test_background_read_only() throws InterruptedException
+    {
+        PersistenceWork persistenceWork = new TestPersistenceWork(transcript);
+        persistenceWorkModule = new PersistenceWorkModule(TestClassyApplication.PU_NAME, true, persistenceWork);
+        persistenceWorkModule.setReadOnly(true);
+        Executable exe = component.plus(persistenceWorkModule).executable();
+        exe.waitForTask();
+        transcript.assertEventsSoFar("background task", "onPostExecute true");
+        verify(transaction, times(0)).begin();
+        verify(entityManager).setReadOnly(true);
+        verify(entityManager).close();
+        assertThat(exe.getStatus()).isEqualTo(WorkStatus.FINISHED);
+    }
+
+    @Test
     public void test_background_user_transaction() throws InterruptedException
     {
         PersistenceWork persistenceWork = new TestPersistenceWork(transcript);
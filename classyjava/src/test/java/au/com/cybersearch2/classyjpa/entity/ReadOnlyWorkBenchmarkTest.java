@@ -0,0 +1,213 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.entity;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.TransactionRequiredException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import au.com.cybersearch2.classyjpa.EntityManagerLite;
+import au.com.cybersearch2.classyjpa.entity.JavaPersistenceContext.EntityManagerProvider;
+import au.com.cybersearch2.classyjpa.persist.PersistenceConfig;
+import au.com.cybersearch2.classylog.JavaLogger;
+import au.com.cybersearch2.classylog.Log;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.table.DatabaseTable;
+import com.j256.ormlite.table.TableUtils;
+
+/**
+ * ReadOnlyWorkBenchmarkTest
+ * Compares find() throughput of read-only work with work run in a container managed transaction,
+ * on an in-memory database
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class ReadOnlyWorkBenchmarkTest
+{
+    @DatabaseTable(tableName = "benchmark_item")
+    public static class BenchmarkItem
+    {
+        @DatabaseField(id = true)
+        int id;
+        @DatabaseField
+        String name;
+
+        public BenchmarkItem()
+        {
+        }
+    }
+
+    class FindWork implements PersistenceWork
+    {
+        int id;
+        BenchmarkItem item;
+        Throwable rollbackException;
+
+        @Override
+        public void doTask(EntityManagerLite entityManager)
+        {
+            item = entityManager.find(BenchmarkItem.class, Integer.valueOf(id));
+        }
+
+        @Override
+        public void onPostExecute(boolean success)
+        {
+        }
+
+        @Override
+        public void onRollback(Throwable rollbackException)
+        {
+            this.rollbackException = rollbackException;
+        }
+    }
+
+    class ReadOnlyFindWork extends FindWork implements ReadOnlyWork
+    {
+    }
+
+    private static final String TAG = "ReadOnlyWorkBenchmark";
+    private static Log log = JavaLogger.getLogger(TAG);
+    private static final String IN_MEMORY_PATH = "jdbc:sqlite::memory:";
+    private static final int ROW_COUNT = 1000;
+    private static final int WORK_COUNT = 5000;
+    private static final int WARM_UP_COUNT = 200;
+
+    JdbcConnectionSource connectionSource;
+    PersistenceConfig persistenceConfig;
+    EntityManagerProvider entityManagerProvider;
+    /** Number of times a transaction has saved its connection */
+    AtomicInteger transactionCount;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        transactionCount = new AtomicInteger();
+        connectionSource = new JdbcConnectionSource(IN_MEMORY_PATH){
+
+            @Override
+            public boolean saveSpecialConnection(DatabaseConnection connection) throws SQLException
+            {
+                transactionCount.incrementAndGet();
+                return super.saveSpecialConnection(connection);
+            }};
+        TableUtils.createTable(connectionSource, BenchmarkItem.class);
+        final Dao<BenchmarkItem, Integer> dao = DaoManager.createDao(connectionSource, BenchmarkItem.class);
+        dao.callBatchTasks(new Callable<Void>(){
+
+            @Override
+            public Void call() throws Exception
+            {
+                for (int i = 1; i <= ROW_COUNT; ++i)
+                {
+                    BenchmarkItem item = new BenchmarkItem();
+                    item.id = i;
+                    item.name = "item" + i;
+                    dao.create(item);
+                }
+                return null;
+            }});
+        transactionCount.set(0);
+        persistenceConfig = new PersistenceConfig(connectionSource.getDatabaseType());
+        persistenceConfig.getHelperFactoryMap().put(BenchmarkItem.class.getName(), new OrmDaoHelperFactory<BenchmarkItem, Integer>(BenchmarkItem.class));
+        entityManagerProvider = new EntityManagerProvider(){
+
+            @Override
+            public EntityManagerLite entityManagerInstance()
+            {
+                return new EntityManagerImpl(connectionSource, persistenceConfig);
+            }};
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        DaoManager.clearCache();
+        connectionSource.close();
+    }
+
+    @Test
+    public void test_find_throughput()
+    {
+        // Warm up
+        runFindWork(new FindWork(), WARM_UP_COUNT);
+        runFindWork(new ReadOnlyFindWork(), WARM_UP_COUNT);
+        transactionCount.set(0);
+        long readWriteElapsed = runFindWork(new FindWork(), WORK_COUNT);
+        assertThat(transactionCount.get()).isEqualTo(WORK_COUNT);
+        transactionCount.set(0);
+        long readOnlyElapsed = runFindWork(new ReadOnlyFindWork(), WORK_COUNT);
+        // No transaction, so no savepoint or auto-commit changes
+        assertThat(transactionCount.get()).isEqualTo(0);
+        log.info(TAG, WORK_COUNT + " find works in transaction " + readWriteElapsed + "ms, read-only " + readOnlyElapsed + "ms");
+    }
+
+    @Test
+    public void test_read_only_write_rejected()
+    {
+        FindWork persistenceWork = new ReadOnlyFindWork(){
+
+            @Override
+            public void doTask(EntityManagerLite entityManager)
+            {
+                BenchmarkItem item = new BenchmarkItem();
+                item.id = ROW_COUNT + 1;
+                item.name = "rejected";
+                entityManager.persist(item);
+            }};
+        JavaPersistenceContext jpaContext = new JavaPersistenceContext(persistenceWork, entityManagerProvider);
+        Boolean success = jpaContext.doTask();
+        assertThat(success).isFalse();
+        jpaContext.onPostExecute(success);
+        assertThat(persistenceWork.rollbackException).isInstanceOf(TransactionRequiredException.class);
+        assertThat(transactionCount.get()).isEqualTo(0);
+        FindWork findWork = new ReadOnlyFindWork();
+        findWork.id = ROW_COUNT + 1;
+        assertThat(new JavaPersistenceContext(findWork, entityManagerProvider).doTask()).isTrue();
+        assertThat(findWork.item).isNull();
+    }
+
+    /**
+     * Run find work repeatedly, each time in a new persistence context
+     * @param findWork Work to run
+     * @param count Number of times to run work
+     * @return elapsed time in milliseconds
+     */
+    private long runFindWork(FindWork findWork, int count)
+    {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; ++i)
+        {
+            findWork.id = (i % ROW_COUNT) + 1;
+            JavaPersistenceContext jpaContext = new JavaPersistenceContext(findWork, entityManagerProvider);
+            assertThat(jpaContext.doTask()).isTrue();
+            assertThat(findWork.item.id).isEqualTo(findWork.id);
+        }
+        return Math.max(1L, (System.nanoTime() - start) / 1000000L);
+    }
+}
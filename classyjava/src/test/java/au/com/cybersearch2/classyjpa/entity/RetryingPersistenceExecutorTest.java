@@ -0,0 +1,197 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.entity;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PersistenceException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import au.com.cybersearch2.classyjpa.EntityManagerLite;
+import au.com.cybersearch2.classyjpa.entity.JavaPersistenceContext.EntityManagerProvider;
+import au.com.cybersearch2.classyjpa.transaction.EntityTransactionImpl;
+import au.com.cybersearch2.classytask.WorkStatus;
+import au.com.cybersearch2.classyutil.Transcript;
+
+/**
+ * RetryingPersistenceExecutorTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class RetryingPersistenceExecutorTest
+{
+    /** Fails with a version conflict a given number of times before succeeding */
+    static class ConflictCallable implements TestPersistenceWork.Callable
+    {
+        AtomicInteger conflictCount;
+        OptimisticLockException exception = new OptimisticLockException("Version conflict");
+
+        public ConflictCallable(int conflictCount)
+        {
+            this.conflictCount = new AtomicInteger(conflictCount);
+        }
+
+        @Override
+        public Boolean call(EntityManagerLite entityManager) throws Exception
+        {
+            if (conflictCount.getAndDecrement() > 0)
+                throw exception;
+            return Boolean.TRUE;
+        }
+    }
+
+    EntityManagerLite entityManager;
+    EntityTransactionImpl transaction;
+    PersistenceContainer persistenceContainer;
+
+    @Before
+    public void setUp()
+    {
+        transaction = mock(EntityTransactionImpl.class);
+        entityManager = mock(EntityManagerImpl.class);
+        when(entityManager.getTransaction()).thenReturn(transaction);
+        final EntityManagerProvider entityManagerProvider = new EntityManagerProvider(){
+
+            @Override
+            public EntityManagerLite entityManagerInstance()
+            {
+                return entityManager;
+            }};
+        persistenceContainer = mock(PersistenceContainer.class);
+        when(persistenceContainer.getPersistenceTask(any(PersistenceWork.class))).thenAnswer(new Answer<JavaPersistenceContext>(){
+
+            @Override
+            public JavaPersistenceContext answer(InvocationOnMock invocation) throws Throwable
+            {
+                return new JavaPersistenceContext((PersistenceWork)invocation.getArguments()[0], entityManagerProvider);
+            }});
+    }
+
+    @Test
+    public void test_retry_on_conflict()
+    {
+        Transcript transcript = new Transcript();
+        RetryingPersistenceExecutor underTest = new RetryingPersistenceExecutor(persistenceContainer);
+        underTest.setBackoff(1, 4);
+        TestPersistenceWork work = new TestPersistenceWork(transcript, new ConflictCallable(2));
+        assertThat(underTest.execute(work)).isEqualTo(WorkStatus.FINISHED);
+        // Only the outcome of the final attempt is delivered
+        transcript.assertEventsSoFar("background task", "background task", "background task", "onPostExecute true");
+        verify(persistenceContainer, times(3)).getPersistenceTask(work);
+        verify(transaction, times(2)).setRollbackOnly();
+    }
+
+    @Test
+    public void test_attempts_exhausted()
+    {
+        Transcript transcript = new Transcript();
+        RetryingPersistenceExecutor underTest = new RetryingPersistenceExecutor(persistenceContainer);
+        underTest.setMaxAttempts(2);
+        underTest.setBackoff(1, 1);
+        ConflictCallable callable = new ConflictCallable(5);
+        TestPersistenceWork work = new TestPersistenceWork(transcript, callable);
+        assertThat(underTest.execute(work)).isEqualTo(WorkStatus.FAILED);
+        transcript.assertEventsSoFar("background task", "background task", "onRollback " + callable.exception.toString());
+    }
+
+    @Test
+    public void test_no_retry_on_other_failure()
+    {
+        Transcript transcript = new Transcript();
+        final PersistenceException exception = new PersistenceException("Constraint violation");
+        RetryingPersistenceExecutor underTest = new RetryingPersistenceExecutor(persistenceContainer);
+        TestPersistenceWork work = new TestPersistenceWork(transcript, new TestPersistenceWork.Callable(){
+
+            @Override
+            public Boolean call(EntityManagerLite entityManager) throws Exception
+            {
+                throw exception;
+            }});
+        assertThat(underTest.execute(work)).isEqualTo(WorkStatus.FAILED);
+        transcript.assertEventsSoFar("background task", "onRollback " + exception.toString());
+        verify(persistenceContainer, times(1)).getPersistenceTask(work);
+    }
+
+    @Test
+    public void test_conflict_on_commit()
+    {
+        Transcript transcript = new Transcript();
+        // Conflict detected when changes are flushed on commit
+        final OptimisticLockException exception = new OptimisticLockException("Version conflict");
+        final AtomicInteger closeCount = new AtomicInteger();
+        doAnswer(new Answer<Void>(){
+
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable
+            {
+                if (closeCount.getAndIncrement() == 0)
+                    throw exception;
+                return null;
+            }}).when(entityManager).close();
+        RetryingPersistenceExecutor underTest = new RetryingPersistenceExecutor(persistenceContainer);
+        underTest.setBackoff(1, 1);
+        assertThat(underTest.execute(new TestPersistenceWork(transcript))).isEqualTo(WorkStatus.FINISHED);
+        transcript.assertEventsSoFar("background task", "background task", "onPostExecute true");
+    }
+
+    @Test
+    public void test_backoff()
+    {
+        RetryingPersistenceExecutor underTest = new RetryingPersistenceExecutor(persistenceContainer);
+        underTest.setBackoff(10, 50);
+        for (int i = 0; i < 20; ++i)
+        {
+            assertThat(underTest.getBackoff(1)).isGreaterThanOrEqualTo(5L).isLessThanOrEqualTo(10L);
+            assertThat(underTest.getBackoff(2)).isGreaterThanOrEqualTo(10L).isLessThanOrEqualTo(20L);
+            assertThat(underTest.getBackoff(40)).isGreaterThanOrEqualTo(25L).isLessThanOrEqualTo(50L);
+        }
+    }
+
+    @Test
+    public void test_parallel_writers() throws Exception
+    {
+        final int WRITER_COUNT = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        RetryingPersistenceExecutor underTest = new RetryingPersistenceExecutor(persistenceContainer, executorService);
+        underTest.setMaxAttempts(WRITER_COUNT);
+        underTest.setBackoff(1, 8);
+        // Writers contend for the same row, so every one but the last conflicts once
+        ConflictCallable callable = new ConflictCallable(WRITER_COUNT - 1);
+        @SuppressWarnings("unchecked")
+        Future<WorkStatus>[] futures = new Future[WRITER_COUNT];
+        for (int i = 0; i < WRITER_COUNT; ++i)
+            futures[i] = underTest.submit(new TestPersistenceWork(new Transcript(), callable));
+        for (Future<WorkStatus> future: futures)
+            assertThat(future.get()).isEqualTo(WorkStatus.FINISHED);
+        executorService.shutdown();
+    }
+}
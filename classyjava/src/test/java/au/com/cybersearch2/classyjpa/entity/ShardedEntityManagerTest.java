@@ -0,0 +1,446 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.entity;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.failBecauseExceptionWasNotThrown;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EntityTransaction;
+import javax.persistence.Id;
+import javax.persistence.NoResultException;
+import javax.persistence.NonUniqueResultException;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import au.com.cybersearch2.classydb.DatabaseAdmin;
+import au.com.cybersearch2.classyjpa.EntityManagerLite;
+import au.com.cybersearch2.classyjpa.persist.PersistenceConfig;
+import au.com.cybersearch2.classyjpa.persist.PersistenceUnitInfoImpl;
+import au.com.cybersearch2.classyjpa.persist.ShardedPersistenceUnit;
+import au.com.cybersearch2.classyjpa.query.ShardedQuery;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.table.TableUtils;
+
+/**
+ * ShardedEntityManagerTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class ShardedEntityManagerTest
+{
+    @Entity(name="orders")
+    static class Order
+    {
+        @Id
+        int id;
+        @Column
+        String customer;
+
+        Order()
+        {
+        }
+
+        public Order(int id, String customer)
+        {
+            this.id = id;
+            this.customer = customer;
+        }
+    }
+
+    /** In-memory shard database which records the threads which save and clear the transaction connection */
+    static class ShardConnectionSource extends JdbcConnectionSource
+    {
+        List<Thread> saveThreads = Collections.synchronizedList(new ArrayList<Thread>());
+        List<Thread> clearThreads = Collections.synchronizedList(new ArrayList<Thread>());
+
+        ShardConnectionSource() throws SQLException
+        {
+            super("jdbc:sqlite::memory:");
+        }
+
+        @Override
+        public boolean saveSpecialConnection(DatabaseConnection connection) throws SQLException
+        {
+            saveThreads.add(Thread.currentThread());
+            return super.saveSpecialConnection(connection);
+        }
+
+        @Override
+        public void clearSpecialConnection(DatabaseConnection connection)
+        {
+            clearThreads.add(Thread.currentThread());
+            super.clearSpecialConnection(connection);
+        }
+    }
+
+    static final int SHARD_COUNT = 4;
+
+    PersistenceUnitInfoImpl puInfo;
+    ShardedPersistenceUnit shardedUnit;
+    List<EntityManagerLite> shards;
+    List<EntityTransaction> transactions;
+
+    @Before
+    public void setUp()
+    {
+        puInfo = new PersistenceUnitInfoImpl("orders");
+        puInfo.getManagedClassNames().add(Order.class.getName());
+        puInfo.getProperties().setProperty(DatabaseAdmin.DATABASE_NAME, "orders.db");
+        shardedUnit = new ShardedPersistenceUnit(puInfo, SHARD_COUNT);
+        shards = new ArrayList<EntityManagerLite>();
+        transactions = new ArrayList<EntityTransaction>();
+        for (int i = 0; i < SHARD_COUNT; ++i)
+        {
+            EntityManagerLite shard = mock(EntityManagerImpl.class);
+            EntityTransaction transaction = mock(EntityTransaction.class);
+            when(shard.getTransaction()).thenReturn(transaction);
+            shards.add(shard);
+            transactions.add(transaction);
+        }
+    }
+
+    @After
+    public void tearDown()
+    {
+        shardedUnit.close();
+    }
+
+    @Test
+    public void test_routing()
+    {
+        ShardedEntityManager underTest = new ShardedEntityManager(shardedUnit, shards, shardedUnit.acquireShardExecutors());
+        Order order = new Order(6, "acme");
+        int index = shardedUnit.getShardIndex(Integer.valueOf(6));
+        underTest.persist(order);
+        verify(shards.get(index)).persist(order);
+        when(shards.get(index).find(Order.class, Integer.valueOf(6))).thenReturn(order);
+        assertThat(underTest.find(Order.class, Integer.valueOf(6))).isEqualTo(order);
+        underTest.remove(order);
+        verify(shards.get(index)).remove(order);
+        for (int i = 0; i < SHARD_COUNT; ++i)
+            if (i != index)
+            {
+                verify(shards.get(i), never()).persist(order);
+                verify(shards.get(i), never()).find(Order.class, Integer.valueOf(6));
+            }
+    }
+
+    @Test
+    public void test_find_fan_out()
+    {
+        puInfo.getProperties().setProperty(ShardedPersistenceUnit.SHARD_KEY_PROPERTY_PREFIX + Order.class.getName(), "customer");
+        ShardedEntityManager underTest = new ShardedEntityManager(shardedUnit, shards, shardedUnit.acquireShardExecutors());
+        Order order = new Order(6, "acme");
+        when(shards.get(3).find(Order.class, Integer.valueOf(6))).thenReturn(order);
+        // Primary key is not the shard key, so all shards are searched
+        assertThat(underTest.find(Order.class, Integer.valueOf(6))).isEqualTo(order);
+        for (EntityManagerLite shard: shards)
+            verify(shard).find(Order.class, Integer.valueOf(6));
+        assertThat(underTest.find(Order.class, Integer.valueOf(7))).isNull();
+    }
+
+    @Test
+    public void test_named_query()
+    {
+        List<Query> shardQueries = new ArrayList<Query>();
+        for (int i = 0; i < SHARD_COUNT; ++i)
+        {
+            Query shardQuery = mock(Query.class);
+            when(shardQuery.getResultList()).thenReturn(Arrays.asList("a" + i, "b" + i));
+            when(shards.get(i).createNamedQuery("all_orders")).thenReturn(shardQuery);
+            shardQueries.add(shardQuery);
+        }
+        ShardedEntityManager underTest = new ShardedEntityManager(shardedUnit, shards, shardedUnit.acquireShardExecutors());
+        Query query = underTest.createNamedQuery("all_orders");
+        query.setParameter("customer", "acme");
+        assertThat(query.getResultList()).containsExactly("a0", "b0", "a1", "b1", "a2", "b2", "a3", "b3");
+        for (Query shardQuery: shardQueries)
+            verify(shardQuery).setParameter("customer", "acme");
+        query = underTest.createNamedQuery("all_orders");
+        query.setFirstResult(3).setMaxResults(2);
+        assertThat(query.getResultList()).containsExactly("b1", "a2");
+        for (Query shardQuery: shardQueries)
+            verify(shardQuery).setMaxResults(5);
+    }
+
+    @Test
+    public void test_named_query_ordered()
+    {
+        for (int i = 0; i < SHARD_COUNT; ++i)
+        {
+            // Shard i holds the letters i, i + 4, i + 8... in order
+            List<Object> shardResults = new ArrayList<Object>();
+            for (char letter = (char)('a' + i); letter <= 'j'; letter += SHARD_COUNT)
+                shardResults.add(String.valueOf(letter));
+            Query shardQuery = mock(Query.class);
+            when(shardQuery.getResultList()).thenReturn(shardResults);
+            when(shards.get(i).createNamedQuery("all_orders")).thenReturn(shardQuery);
+        }
+        Comparator<Object> comparator = new Comparator<Object>(){
+
+            @Override
+            public int compare(Object lhs, Object rhs)
+            {
+                return ((String)lhs).compareTo((String)rhs);
+            }};
+        ShardedEntityManager underTest = new ShardedEntityManager(shardedUnit, shards, shardedUnit.acquireShardExecutors());
+        Query query = underTest.createNamedQuery("all_orders");
+        query.setHint(ShardedQuery.ORDER_HINT, comparator);
+        assertThat(query.getResultList()).containsExactly("a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+        // Window applies to the merged results
+        query = underTest.createNamedQuery("all_orders");
+        ((ShardedQuery)query).setComparator(comparator);
+        query.setFirstResult(3).setMaxResults(4);
+        assertThat(query.getResultList()).containsExactly("d", "e", "f", "g");
+        try
+        {
+            underTest.createNamedQuery("all_orders").setHint(ShardedQuery.ORDER_HINT, "name");
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+    }
+
+    @Test
+    public void test_named_query_single_result()
+    {
+        List<Query> shardQueries = new ArrayList<Query>();
+        for (int i = 0; i < SHARD_COUNT; ++i)
+        {
+            Query shardQuery = mock(Query.class);
+            when(shardQuery.getResultList()).thenReturn(Collections.emptyList());
+            when(shards.get(i).createNamedQuery("order_by_name")).thenReturn(shardQuery);
+            shardQueries.add(shardQuery);
+        }
+        ShardedEntityManager underTest = new ShardedEntityManager(shardedUnit, shards, shardedUnit.acquireShardExecutors());
+        try
+        {
+            underTest.createNamedQuery("order_by_name").getSingleResult();
+            failBecauseExceptionWasNotThrown(NoResultException.class);
+        }
+        catch (NoResultException e)
+        {
+        }
+        when(shardQueries.get(2).getResultList()).thenReturn(Collections.singletonList((Object)"c2"));
+        assertThat(underTest.createNamedQuery("order_by_name").getSingleResult()).isEqualTo("c2");
+        // A result on more than one shard is not unique
+        when(shardQueries.get(1).getResultList()).thenReturn(Collections.singletonList((Object)"c1"));
+        try
+        {
+            underTest.createNamedQuery("order_by_name").getSingleResult();
+            failBecauseExceptionWasNotThrown(NonUniqueResultException.class);
+        }
+        catch (NonUniqueResultException e)
+        {
+        }
+        for (Query shardQuery: shardQueries)
+            verify(shardQuery, times(3)).setMaxResults(2);
+    }
+
+    @Test
+    public void test_user_transaction()
+    {
+        ShardedEntityManager underTest = new ShardedEntityManager(shardedUnit, shards, shardedUnit.acquireShardExecutors());
+        underTest.setUserTransaction(true);
+        for (EntityManagerLite shard: shards)
+            verify((EntityManagerImpl)shard).setUserTransaction(true);
+        EntityTransaction transaction = underTest.getTransaction();
+        transaction.begin();
+        Order order = new Order(1, "acme");
+        int index = shardedUnit.getShardIndex(Integer.valueOf(1));
+        underTest.persist(order);
+        // Only the shard used joins the transaction
+        verify(transactions.get(index)).begin();
+        when(transactions.get(index).isActive()).thenReturn(true);
+        transaction.commit();
+        verify(transactions.get(index)).commit();
+        for (int i = 0; i < SHARD_COUNT; ++i)
+            if (i != index)
+            {
+                verify(transactions.get(i), never()).begin();
+                verify(transactions.get(i), never()).commit();
+            }
+        assertThat(transaction.isActive()).isFalse();
+    }
+
+    @Test
+    public void test_commit_failure()
+    {
+        ShardedEntityManager underTest = new ShardedEntityManager(shardedUnit, shards, shardedUnit.acquireShardExecutors());
+        PersistenceException exception = new PersistenceException("Disk full");
+        for (EntityTransaction shardTransaction: transactions)
+            when(shardTransaction.isActive()).thenReturn(true);
+        doThrow(exception).when(transactions.get(1)).commit();
+        EntityTransaction transaction = underTest.getTransaction();
+        transaction.begin();
+        try
+        {
+            transaction.commit();
+            failBecauseExceptionWasNotThrown(PersistenceException.class);
+        }
+        catch (PersistenceException e)
+        {
+            assertThat(e).isEqualTo(exception);
+        }
+        // Other shards complete regardless
+        for (EntityTransaction shardTransaction: transactions)
+            verify(shardTransaction).commit();
+    }
+
+    @Test
+    public void test_concurrent_commit()
+    {
+        final CyclicBarrier commitBarrier = new CyclicBarrier(SHARD_COUNT);
+        final Thread[] beginThreads = new Thread[SHARD_COUNT];
+        final Thread[] commitThreads = new Thread[SHARD_COUNT];
+        for (int i = 0; i < SHARD_COUNT; ++i)
+        {
+            final int index = i;
+            EntityTransaction shardTransaction = transactions.get(i);
+            when(shardTransaction.isActive()).thenReturn(false, true);
+            doAnswer(new Answer<Void>(){
+
+                @Override
+                public Void answer(InvocationOnMock invocation) throws Throwable
+                {
+                    beginThreads[index] = Thread.currentThread();
+                    return null;
+                }}).when(shardTransaction).begin();
+            doAnswer(new Answer<Void>(){
+
+                @Override
+                public Void answer(InvocationOnMock invocation) throws Throwable
+                {
+                    commitThreads[index] = Thread.currentThread();
+                    // Only passes if all shards commit at the same time
+                    commitBarrier.await(5, TimeUnit.SECONDS);
+                    return null;
+                }}).when(shardTransaction).commit();
+        }
+        ShardedEntityManager underTest = new ShardedEntityManager(shardedUnit, shards, shardedUnit.acquireShardExecutors());
+        EntityTransaction transaction = underTest.getTransaction();
+        transaction.begin();
+        for (int id = 0; id < SHARD_COUNT; ++id)
+            underTest.persist(new Order(id, "acme"));
+        transaction.commit();
+        underTest.close();
+        Set<Thread> shardThreads = new HashSet<Thread>();
+        for (int i = 0; i < SHARD_COUNT; ++i)
+        {
+            verify(transactions.get(i)).commit();
+            // Each shard transaction begins and commits on the shard's own thread
+            assertThat(commitThreads[i]).isSameAs(beginThreads[i]);
+            assertThat(commitThreads[i]).isNotSameAs(Thread.currentThread());
+            shardThreads.add(commitThreads[i]);
+        }
+        assertThat(shardThreads).hasSize(SHARD_COUNT);
+    }
+
+    @Test
+    public void test_sqlite_shards() throws Exception
+    {
+        ShardedPersistenceUnit sqliteUnit = new ShardedPersistenceUnit(puInfo, 2);
+        List<ShardConnectionSource> connectionSources = new ArrayList<ShardConnectionSource>();
+        try
+        {
+            for (int i = 0; i < 2; ++i)
+            {
+                ShardConnectionSource connectionSource = new ShardConnectionSource();
+                connectionSources.add(connectionSource);
+                TableUtils.createTable(connectionSource, Order.class);
+            }
+            ShardedEntityManager underTest = createSqliteEntityManager(sqliteUnit, connectionSources);
+            EntityTransaction transaction = underTest.getTransaction();
+            transaction.begin();
+            for (int id = 1; id <= 6; ++id)
+                underTest.persist(new Order(id, "customer" + id));
+            transaction.commit();
+            underTest.close();
+            // Shard executors are reused, so a left over transaction connection would be joined here
+            underTest = createSqliteEntityManager(sqliteUnit, connectionSources);
+            transaction = underTest.getTransaction();
+            transaction.begin();
+            underTest.persist(new Order(7, "customer7"));
+            underTest.persist(new Order(8, "customer8"));
+            transaction.rollback();
+            underTest.close();
+            for (int i = 0; i < 2; ++i)
+            {
+                ShardConnectionSource connectionSource = connectionSources.get(i);
+                Dao<Order, Integer> dao = DaoManager.createDao(connectionSource, Order.class);
+                assertThat(dao.countOf()).isEqualTo(3);
+                for (Order order: dao.queryForAll())
+                    assertThat(sqliteUnit.getShardIndex(Integer.valueOf(order.id))).isEqualTo(i);
+                // The transaction connection is cleared on the thread which saved it
+                assertThat(connectionSource.saveThreads).hasSize(2);
+                assertThat(connectionSource.clearThreads).isEqualTo(connectionSource.saveThreads);
+                assertThat(connectionSource.saveThreads).doesNotContain(Thread.currentThread());
+            }
+        }
+        finally
+        {
+            sqliteUnit.close();
+            DaoManager.clearCache();
+            for (ShardConnectionSource connectionSource: connectionSources)
+                connectionSource.close();
+        }
+    }
+
+    private ShardedEntityManager createSqliteEntityManager(ShardedPersistenceUnit sqliteUnit, List<ShardConnectionSource> connectionSources) throws SQLException
+    {
+        List<EntityManagerLite> sqliteShards = new ArrayList<EntityManagerLite>();
+        for (ShardConnectionSource connectionSource: connectionSources)
+        {
+            PersistenceConfig persistenceConfig = new PersistenceConfig(connectionSource.getDatabaseType());
+            persistenceConfig.getHelperFactoryMap().put(Order.class.getName(), new OrmDaoHelperFactory<Order, Integer>(Order.class));
+            sqliteShards.add(new EntityManagerImpl(connectionSource, persistenceConfig));
+        }
+        ShardedEntityManager entityManager = new ShardedEntityManager(sqliteUnit, sqliteShards, sqliteUnit.acquireShardExecutors());
+        entityManager.setUserTransaction(true);
+        return entityManager;
+    }
+}
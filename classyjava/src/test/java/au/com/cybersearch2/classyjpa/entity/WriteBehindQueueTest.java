@@ -0,0 +1,169 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.entity;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.failBecauseExceptionWasNotThrown;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import au.com.cybersearch2.classyfy.data.alfresco.RecordCategory;
+import au.com.cybersearch2.classyfy.data.alfresco.RecordFolder;
+
+/**
+ * WriteBehindQueueTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class WriteBehindQueueTest
+{
+    static class Batch
+    {
+        Class<?> entityClass;
+        boolean isRemove;
+        List<Object> entityList;
+    }
+
+    private WriteBehindQueue underTest;
+    private List<Batch> batchList;
+    private WriteBehindQueue.BatchCallback batchCallback;
+
+    @Before
+    public void setUp()
+    {
+        underTest = new WriteBehindQueue();
+        batchList = new ArrayList<Batch>();
+        batchCallback = new WriteBehindQueue.BatchCallback(){
+
+            @Override
+            public void onBatch(Class<?> entityClass, boolean isRemove, List<Object> entityList)
+            {
+                Batch batch = new Batch();
+                batch.entityClass = entityClass;
+                batch.isRemove = isRemove;
+                batch.entityList = entityList;
+                batchList.add(batch);
+            }};
+    }
+
+    @Test
+    public void test_batches_in_queue_order()
+    {
+        RecordCategory category1 = new RecordCategory();
+        RecordCategory category2 = new RecordCategory();
+        RecordFolder folder1 = new RecordFolder();
+        RecordCategory category3 = new RecordCategory();
+        underTest.queuePersist(category1, Integer.valueOf(1));
+        underTest.queuePersist(category2, Integer.valueOf(2));
+        underTest.queuePersist(folder1, Integer.valueOf(1));
+        underTest.queueRemove(category3, Integer.valueOf(3));
+        assertThat(underTest.size()).isEqualTo(4);
+        assertThat(underTest.drain(batchCallback)).isEqualTo(3);
+        assertThat(underTest.isEmpty()).isTrue();
+        assertThat(batchList).hasSize(3);
+        assertThat(batchList.get(0).entityClass).isEqualTo(RecordCategory.class);
+        assertThat(batchList.get(0).isRemove).isFalse();
+        assertThat(batchList.get(0).entityList).containsExactly(category1, category2);
+        assertThat(batchList.get(1).entityClass).isEqualTo(RecordFolder.class);
+        assertThat(batchList.get(1).entityList).containsExactly(folder1);
+        assertThat(batchList.get(2).entityClass).isEqualTo(RecordCategory.class);
+        assertThat(batchList.get(2).isRemove).isTrue();
+        assertThat(batchList.get(2).entityList).containsExactly(category3);
+    }
+
+    @Test
+    public void test_pending_lookup()
+    {
+        RecordCategory category1 = new RecordCategory();
+        RecordCategory category2 = new RecordCategory();
+        underTest.queuePersist(category1, Integer.valueOf(1));
+        underTest.queueRemove(category2, Integer.valueOf(2));
+        assertThat(underTest.getPendingPersist(RecordCategory.class, Integer.valueOf(1))).isEqualTo(category1);
+        assertThat(underTest.getPendingPersist(RecordCategory.class, Integer.valueOf(2))).isNull();
+        assertThat(underTest.getPendingPersist(RecordFolder.class, Integer.valueOf(1))).isNull();
+        assertThat(underTest.isPendingRemove(RecordCategory.class, Integer.valueOf(2))).isTrue();
+        assertThat(underTest.isPendingRemove(RecordCategory.class, Integer.valueOf(1))).isFalse();
+        underTest.clear();
+        assertThat(underTest.isEmpty()).isTrue();
+        assertThat(underTest.getPendingPersist(RecordCategory.class, Integer.valueOf(1))).isNull();
+        assertThat(underTest.drain(batchCallback)).isEqualTo(0);
+    }
+
+    @Test
+    public void test_remove_cancels_persist()
+    {
+        RecordCategory category1 = new RecordCategory();
+        RecordCategory category2 = new RecordCategory();
+        underTest.queuePersist(category1, Integer.valueOf(1));
+        underTest.queuePersist(category2, Integer.valueOf(2));
+        underTest.queueRemove(category1, Integer.valueOf(1));
+        assertThat(underTest.size()).isEqualTo(1);
+        assertThat(underTest.getPendingPersist(RecordCategory.class, Integer.valueOf(1))).isNull();
+        assertThat(underTest.isPendingRemove(RecordCategory.class, Integer.valueOf(1))).isFalse();
+        assertThat(underTest.drain(batchCallback)).isEqualTo(1);
+        assertThat(batchList.get(0).entityList).containsExactly(category2);
+    }
+
+    @Test
+    public void test_remove_then_persist()
+    {
+        RecordCategory removed = new RecordCategory();
+        RecordCategory replacement = new RecordCategory();
+        underTest.queueRemove(removed, Integer.valueOf(1));
+        underTest.queuePersist(replacement, Integer.valueOf(1));
+        assertThat(underTest.isPendingRemove(RecordCategory.class, Integer.valueOf(1))).isFalse();
+        assertThat(underTest.getPendingPersist(RecordCategory.class, Integer.valueOf(1))).isEqualTo(replacement);
+        assertThat(underTest.drain(batchCallback)).isEqualTo(2);
+        assertThat(batchList.get(0).isRemove).isTrue();
+        assertThat(batchList.get(0).entityList).containsExactly(removed);
+        assertThat(batchList.get(1).isRemove).isFalse();
+        assertThat(batchList.get(1).entityList).containsExactly(replacement);
+    }
+
+    @Test
+    public void test_remove_persist_remove()
+    {
+        RecordCategory category = new RecordCategory();
+        underTest.queueRemove(category, Integer.valueOf(1));
+        underTest.queuePersist(category, Integer.valueOf(1));
+        underTest.queueRemove(category, Integer.valueOf(1));
+        // Cancelling the persist leaves the first remove pending, so find() must not go to the database
+        assertThat(underTest.isPendingRemove(RecordCategory.class, Integer.valueOf(1))).isTrue();
+        assertThat(underTest.getPendingPersist(RecordCategory.class, Integer.valueOf(1))).isNull();
+        assertThat(underTest.size()).isEqualTo(1);
+        assertThat(underTest.drain(batchCallback)).isEqualTo(1);
+        assertThat(batchList.get(0).isRemove).isTrue();
+        assertThat(batchList.get(0).entityList).containsExactly(category);
+    }
+
+    @Test
+    public void test_null_primary_key()
+    {
+        try
+        {
+            underTest.queuePersist(new RecordCategory(), null);
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("Entity of class " + RecordCategory.class.getName() + " queued for persist does not have primary key");
+        }
+    }
+}
@@ -21,8 +21,12 @@ import static org.fest.assertions.api.Assertions.failBecauseExceptionWasNotThrow
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
 import javax.persistence.PersistenceException;
 import javax.persistence.PersistenceUnit;
+import javax.persistence.Version;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -78,6 +82,17 @@ public class ClassAnalyserTest
     {
     }
     
+    @Entity(name="versioned")
+    static class VersionedEntity
+    {
+        @Id
+        int id;
+        @Column
+        String name;
+        @Version
+        int version;
+    }
+
     static final String PU_NAME = "classy-persist";
     
     ForeignFieldData foreignFieldData;
@@ -101,6 +116,17 @@ public class ClassAnalyserTest
         assertThat(foreignFieldData.foreignFieldMap.isEmpty()).isTrue();
     }
 
+    @Test
+    public void test_getTableConfiguration_version()
+    {
+        ClassAnalyser classAnalyser = new ClassAnalyser(new SqliteDatabaseType(), new TestClassRegistry(VersionedEntity.class));
+        DatabaseTableConfig<?> config = classAnalyser.getTableConfiguration(VersionedEntity.class, foreignFieldData);
+        assertThat(config).isNotNull();
+        assertThat(config.getFieldConfigs().size()).isEqualTo(3);
+        for (DatabaseFieldConfig fieldConfig: config.getFieldConfigs())
+            assertThat(fieldConfig.isVersion()).isEqualTo(fieldConfig.getFieldName().equals("version"));
+    }
+
     @Test
     public void test_getTableConfiguration_no_name()
     {
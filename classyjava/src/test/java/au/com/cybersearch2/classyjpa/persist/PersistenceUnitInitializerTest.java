@@ -0,0 +1,183 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.persist;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.failBecauseExceptionWasNotThrown;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.PersistenceException;
+import javax.persistence.spi.PersistenceUnitInfo;
+
+import org.junit.Test;
+
+import au.com.cybersearch2.classyjpa.persist.PersistenceUnitInitializer.UnitTask;
+
+/**
+ * PersistenceUnitInitializerTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class PersistenceUnitInitializerTest
+{
+    @SuppressWarnings("unchecked")
+    static final List<List<String>> UNIT_GROUPS = Arrays.asList(
+        Arrays.asList("simple", "simple2"),
+        Arrays.asList("complex"));
+
+    @Test
+    public void test_sequential()
+    {
+        final List<String> unitList = Collections.synchronizedList(new ArrayList<String>());
+        final Thread callerThread = Thread.currentThread();
+        final boolean[] sameThread = new boolean[] { true };
+        PersistenceUnitInitializer underTest = new PersistenceUnitInitializer();
+        assertThat(underTest.isParallel()).isFalse();
+        underTest.runPhase(InitializationPhase.configure, UNIT_GROUPS, new UnitTask(){
+
+            @Override
+            public void initialize(String puName)
+            {
+                if (Thread.currentThread() != callerThread)
+                    sameThread[0] = false;
+                unitList.add(puName);
+            }});
+        assertThat(sameThread[0]).isTrue();
+        assertThat(unitList).containsExactly("simple", "simple2", "complex");
+        StartupReport report = underTest.getStartupReport();
+        assertThat(report.getPersistenceUnitNames()).containsOnly("simple", "simple2", "complex");
+        assertThat(report.getUnitTime("simple", InitializationPhase.configure)).isGreaterThanOrEqualTo(0L);
+        assertThat(report.getUnitTime("simple", InitializationPhase.database)).isEqualTo(-1L);
+        assertThat(report.getPhaseTime(InitializationPhase.configure)).isGreaterThanOrEqualTo(0L);
+        assertThat(report.toString()).contains("simple2:").contains("configure=");
+    }
+
+    @Test
+    public void test_parallel_groups_run_concurrently() throws Exception
+    {
+        // Each group waits for the other to start, which only completes if groups run in parallel
+        final CountDownLatch groupsStarted = new CountDownLatch(2);
+        final List<String> unitList = Collections.synchronizedList(new ArrayList<String>());
+        final boolean[] concurrent = new boolean[] { true };
+        PersistenceUnitInitializer underTest = new PersistenceUnitInitializer(4);
+        assertThat(underTest.isParallel()).isTrue();
+        underTest.runPhase(InitializationPhase.connect, UNIT_GROUPS, new UnitTask(){
+
+            @Override
+            public void initialize(String puName)
+            {
+                unitList.add(puName);
+                if (!puName.equals("simple2"))
+                {
+                    groupsStarted.countDown();
+                    try
+                    {
+                        if (!groupsStarted.await(5, TimeUnit.SECONDS))
+                            concurrent[0] = false;
+                    }
+                    catch (InterruptedException e)
+                    {
+                        concurrent[0] = false;
+                    }
+                }
+            }});
+        assertThat(concurrent[0]).isTrue();
+        assertThat(unitList).hasSize(3);
+        // Units sharing a database are initialized in group order
+        assertThat(unitList.indexOf("simple")).isLessThan(unitList.indexOf("simple2"));
+    }
+
+    @Test
+    public void test_failures_aggregated()
+    {
+        final List<String> unitList = Collections.synchronizedList(new ArrayList<String>());
+        PersistenceUnitInitializer underTest = new PersistenceUnitInitializer(2);
+        try
+        {
+            underTest.runPhase(InitializationPhase.database, UNIT_GROUPS, new UnitTask(){
+
+                @Override
+                public void initialize(String puName)
+                {
+                    unitList.add(puName);
+                    if (!puName.equals("simple2"))
+                        throw new PersistenceException(puName + " failed");
+                }});
+            failBecauseExceptionWasNotThrown(PersistenceException.class);
+        }
+        catch (PersistenceException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("2 persistence units failed database");
+            assertThat(e.getSuppressed()).hasSize(1);
+        }
+        // Unit sharing database with failed unit is skipped
+        assertThat(unitList).containsOnly("simple", "complex");
+        assertThat(underTest.getStartupReport().getUnitTime("simple2", InitializationPhase.database)).isEqualTo(-1L);
+    }
+
+    @Test
+    public void test_single_failure_rethrown()
+    {
+        final PersistenceException exception = new PersistenceException("complex failed");
+        PersistenceUnitInitializer underTest = new PersistenceUnitInitializer();
+        try
+        {
+            underTest.runPhase(InitializationPhase.database, UNIT_GROUPS, new UnitTask(){
+
+                @Override
+                public void initialize(String puName)
+                {
+                    if (puName.equals("complex"))
+                        throw exception;
+                }});
+            failBecauseExceptionWasNotThrown(PersistenceException.class);
+        }
+        catch (PersistenceException e)
+        {
+            assertThat(e).isEqualTo(exception);
+        }
+    }
+
+    @Test
+    public void test_startup_threads_property()
+    {
+        Map<String, PersistenceUnitInfo> puMap = new LinkedHashMap<String, PersistenceUnitInfo>();
+        puMap.put("simple", new PersistenceUnitInfoImpl("simple"));
+        assertThat(PersistenceFactory.getStartupThreads(puMap)).isEqualTo(1);
+        PersistenceUnitInfoImpl complexInfo = new PersistenceUnitInfoImpl("complex");
+        complexInfo.getProperties().setProperty(PersistenceUnitInfoImpl.STARTUP_THREADS_PROPERTY, "3");
+        puMap.put("complex", complexInfo);
+        assertThat(PersistenceFactory.getStartupThreads(puMap)).isEqualTo(3);
+        complexInfo.getProperties().setProperty(PersistenceUnitInfoImpl.STARTUP_THREADS_PROPERTY, "0");
+        try
+        {
+            PersistenceFactory.getStartupThreads(puMap);
+            failBecauseExceptionWasNotThrown(PersistenceException.class);
+        }
+        catch (PersistenceException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("\"complex\" property \"startup-threads\" is invalid: 0");
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/**
+    Copyright (C) 2014  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.persist;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.failBecauseExceptionWasNotThrown;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.PersistenceException;
+import javax.persistence.spi.PersistenceUnitInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import au.com.cybersearch2.classydb.DatabaseAdmin;
+
+/**
+ * ShardedPersistenceUnitTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class ShardedPersistenceUnitTest
+{
+    @Entity(name="orders")
+    static class Order
+    {
+        @Id
+        int id;
+        @Column
+        String customer;
+
+        public Order(int id, String customer)
+        {
+            this.id = id;
+            this.customer = customer;
+        }
+    }
+
+    static final String PU_NAME = "orders";
+
+    PersistenceUnitInfoImpl puInfo;
+
+    @Before
+    public void setUp()
+    {
+        puInfo = new PersistenceUnitInfoImpl(PU_NAME);
+        puInfo.managedClassNames.add(Order.class.getName());
+        puInfo.getProperties().setProperty(DatabaseAdmin.DATABASE_NAME, "orders.db");
+        puInfo.getProperties().setProperty(DatabaseAdmin.DATABASE_VERSION, "1");
+        puInfo.getProperties().setProperty(ShardedPersistenceUnit.SHARD_COUNT_PROPERTY, "4");
+    }
+
+    @Test
+    public void test_shard_info()
+    {
+        assertThat(ShardedPersistenceUnit.getShardCount(puInfo)).isEqualTo(4);
+        ShardedPersistenceUnit underTest = new ShardedPersistenceUnit(puInfo, 4);
+        assertThat(underTest.getShardNames()).containsExactly("orders-shard0", "orders-shard1", "orders-shard2", "orders-shard3");
+        PersistenceUnitInfo shardInfo = underTest.createShardInfo(2);
+        assertThat(shardInfo.getPersistenceUnitName()).isEqualTo("orders-shard2");
+        assertThat(shardInfo.getManagedClassNames()).containsExactly(Order.class.getName());
+        assertThat(shardInfo.getProperties().getProperty(DatabaseAdmin.DATABASE_NAME)).isEqualTo("orders_2.db");
+        assertThat(shardInfo.getProperties().getProperty(DatabaseAdmin.DATABASE_VERSION)).isEqualTo("1");
+        assertThat(shardInfo.getProperties().getProperty(PersistenceUnitInfoImpl.PU_NAME_PROPERTY)).isEqualTo("orders-shard2");
+        assertThat(shardInfo.getProperties().getProperty(ShardedPersistenceUnit.SHARD_COUNT_PROPERTY)).isNull();
+        assertThat(ShardedPersistenceUnit.getShardDatabaseName("orders", 1)).isEqualTo("orders_1");
+        assertThat(ShardedPersistenceUnit.getShardCount(new PersistenceUnitInfoImpl("plain"))).isEqualTo(0);
+        puInfo.getProperties().setProperty(ShardedPersistenceUnit.SHARD_COUNT_PROPERTY, "four");
+        try
+        {
+            ShardedPersistenceUnit.getShardCount(puInfo);
+            failBecauseExceptionWasNotThrown(PersistenceException.class);
+        }
+        catch (PersistenceException e)
+        {
+            assertThat(e.getMessage()).contains(ShardedPersistenceUnit.SHARD_COUNT_PROPERTY);
+        }
+    }
+
+    @Test
+    public void test_primary_key_routing()
+    {
+        ShardedPersistenceUnit underTest = new ShardedPersistenceUnit(puInfo, 4);
+        ShardKey shardKey = underTest.getShardKey(Order.class);
+        assertThat(shardKey.isPrimaryKey()).isTrue();
+        int[] shardTotals = new int[4];
+        for (int i = 0; i < 1000; ++i)
+        {
+            int index = underTest.getEntityShardIndex(new Order(i, "customer" + i));
+            assertThat(index).isEqualTo(underTest.getShardIndex(Integer.valueOf(i)));
+            ++shardTotals[index];
+        }
+        // Sequential keys are spread evenly
+        for (int total: shardTotals)
+            assertThat(total).isEqualTo(250);
+    }
+
+    @Test
+    public void test_field_routing()
+    {
+        puInfo.getProperties().setProperty(ShardedPersistenceUnit.SHARD_KEY_PROPERTY_PREFIX + Order.class.getName(), "customer");
+        ShardedPersistenceUnit underTest = new ShardedPersistenceUnit(puInfo, 4);
+        ShardKey shardKey = underTest.getShardKey(Order.class);
+        assertThat(shardKey.isPrimaryKey()).isFalse();
+        // Orders of the same customer are in the same shard
+        assertThat(underTest.getEntityShardIndex(new Order(1, "acme"))).isEqualTo(underTest.getEntityShardIndex(new Order(2, "acme")));
+        try
+        {
+            underTest.getEntityShardIndex(new Order(3, null));
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("Shard key of entity class " + Order.class.getName() + " is null");
+        }
+        try
+        {
+            underTest.getShardKey(String.class);
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("Class java.lang.String not an entity in this persistence context");
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.query;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.failBecauseExceptionWasNotThrown;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import au.com.cybersearch2.classydb.DatabaseSupport.ConnectionType;
+import au.com.cybersearch2.classydb.SQLiteDatabaseSupport;
+import au.com.cybersearch2.classyjpa.entity.PersistenceDao;
+import au.com.cybersearch2.classyjpa.persist.PersistenceAdmin;
+
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.table.DatabaseTable;
+import com.j256.ormlite.table.TableUtils;
+
+/**
+ * KeysetPaginationTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class KeysetPaginationTest
+{
+    @DatabaseTable(tableName = "seek_item")
+    public static class SeekItem
+    {
+        @DatabaseField(id = true)
+        int id;
+        @DatabaseField
+        String category;
+        @DatabaseField
+        int priority;
+
+        public SeekItem()
+        {
+        }
+
+        SeekItem(int id)
+        {
+            this.id = id;
+            category = (id % 2) == 1 ? "a" : "b";
+            priority = id % 5;
+        }
+    }
+
+    private static final int ROW_COUNT = 25;
+    private static final int PAGE_SIZE = 4;
+
+    JdbcConnectionSource connectionSource;
+    PersistenceDao<SeekItem, Integer> dao;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        connectionSource = new JdbcConnectionSource("jdbc:sqlite::memory:");
+        TableUtils.createTable(connectionSource, SeekItem.class);
+        dao = new PersistenceDao<SeekItem, Integer>(DaoManager.<com.j256.ormlite.dao.Dao<SeekItem, Integer>, SeekItem>createDao(connectionSource, SeekItem.class));
+        // Insert in reverse so storage order differs from key order
+        for (int id = ROW_COUNT; id > 0; --id)
+            dao.create(new SeekItem(id));
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        connectionSource.close();
+    }
+
+    @Test
+    public void test_token()
+    {
+        Keyset keyset = new Keyset("name", "created", "id");
+        Date created = new Date(1234567890L);
+        String token = keyset.encodeToken(new Object[] { "x'y", created, Long.valueOf(7) });
+        // Same values produce the same token
+        assertThat(keyset.encodeToken(new Object[] { "x'y", created, Long.valueOf(7) })).isEqualTo(token);
+        assertThat(token).matches("[0-9a-f]+");
+        assertThat(keyset.decodeToken(token)).isEqualTo(new Object[] { "x'y", created, Long.valueOf(7) });
+        try
+        {
+            new Keyset(true, "name", "created", "id").decodeToken(token);
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertThat(e.getMessage()).contains("does not belong");
+        }
+        try
+        {
+            keyset.decodeToken(token.substring(0, token.length() - 2));
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("Invalid continuation token");
+        }
+        try
+        {
+            keyset.encodeToken(new Object[] { "x", null, Long.valueOf(7) });
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertThat(e.getMessage()).isEqualTo("Key column \"created\" is null");
+        }
+    }
+
+    @Test
+    public void test_seek_selection()
+    {
+        Keyset keyset = new Keyset("priority", "id");
+        assertThat(keyset.getSeekSelection()).isEqualTo("priority >= ? AND ((priority > ?) OR (priority = ? AND id > ?))");
+        assertThat(keyset.getSeekArguments(new Object[] { 2, 9 })).containsExactly(2, 2, 2, 9);
+        assertThat(keyset.getOrderBy()).isEqualTo("priority ASC, id ASC");
+        keyset = new Keyset(true, "id");
+        assertThat(keyset.getSeekSelection()).isEqualTo("id < ?");
+        assertThat(keyset.getSeekArguments(new Object[] { 9 })).containsExactly(9);
+        assertThat(keyset.getOrderBy()).isEqualTo("id DESC");
+    }
+
+    @Test
+    public void test_entity_query_pages()
+    {
+        // Composite key combined with the query's own WHERE clause
+        List<Integer> ids = fetchEntityPages(new Keyset("priority", "id"), true);
+        assertThat(ids).isEqualTo(expectedIds(true, false));
+        // Single column key in descending order, query without WHERE clause
+        ids = fetchEntityPages(new Keyset(true, "id"), false);
+        assertThat(ids).isEqualTo(expectedIds(false, true));
+    }
+
+    @Test
+    public void test_native_query_pages()
+    {
+        final SQLiteDatabaseSupport databaseSupport = new SQLiteDatabaseSupport(ConnectionType.memory);
+        PersistenceAdmin persistenceAdmin = mock(PersistenceAdmin.class);
+        when(persistenceAdmin.getResultList(any(QueryInfo.class), anyInt(), anyInt())).thenAnswer(new Answer<List<Object>>(){
+
+            @Override
+            public List<Object> answer(InvocationOnMock invocation) throws Throwable
+            {
+                Object[] args = invocation.getArguments();
+                return databaseSupport.getResultList(connectionSource, (QueryInfo)args[0], (Integer)args[1], (Integer)args[2]);
+            }});
+        QueryInfo queryInfo = new QueryInfo(new QueryInfo.RowMapper(){
+
+            @Override
+            public Object mapRow(ResultRow resultRow)
+            {
+                return new int[] { resultRow.getInt(0), resultRow.getInt(1) };
+            }}, "seek_item", "id", "priority");
+        queryInfo.setSelection("category = ?");
+        queryInfo.setParameterNames(new String[] { "category" });
+        Keyset keyset = new Keyset("priority", "id").setKeyExtractor(new Keyset.KeyExtractor(){
+
+            @Override
+            public Object[] getKeyValues(Object result)
+            {
+                int[] row = (int[])result;
+                return new Object[] { row[1], row[0] };
+            }});
+        List<Integer> ids = new ArrayList<Integer>();
+        String token = null;
+        int pageCount = 0;
+        do
+        {
+            NativeQuery query = new NativeQuery(new SqlQuery(persistenceAdmin, queryInfo));
+            query.setParameter("category", "a");
+            query.setKeyset(keyset, token).setMaxResults(PAGE_SIZE);
+            for (Object row: query.getResultList())
+                ids.add(((int[])row)[0]);
+            token = query.getContinuationToken();
+            ++pageCount;
+        } while (token != null);
+        assertThat(ids).isEqualTo(expectedIds(true, false));
+        assertThat(pageCount).isEqualTo(4);
+        // The shared query information is not changed
+        assertThat(queryInfo.getSelection()).isEqualTo("category = ?");
+        assertThat(queryInfo.getOrderBy()).isNull();
+        try
+        {
+            new NativeQuery(new SqlQuery(persistenceAdmin, queryInfo)).setKeyset(new Keyset("id"), null);
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertThat(e.getMessage()).contains("KeyExtractor");
+        }
+    }
+
+    private List<Integer> fetchEntityPages(Keyset keyset, final boolean isFiltered)
+    {
+        List<Integer> ids = new ArrayList<Integer>();
+        String token = null;
+        do
+        {
+            DaoQuery<SeekItem> daoQuery = new DaoQuery<SeekItem>(dao){
+
+                @Override
+                protected QueryBuilder<SeekItem, ?> buildQuery(QueryBuilder<SeekItem, ?> statementBuilder) throws SQLException
+                {
+                    if (isFiltered)
+                        statementBuilder.where().eq("category", "a");
+                    return statementBuilder;
+                }};
+            EntityQuery<SeekItem> query = new EntityQuery<SeekItem>(daoQuery);
+            query.setKeyset(keyset, token).setMaxResults(PAGE_SIZE);
+            List<SeekItem> page = query.getResultList();
+            assertThat(page.size()).isLessThanOrEqualTo(PAGE_SIZE);
+            for (SeekItem item: page)
+                ids.add(item.id);
+            token = query.getContinuationToken();
+        } while (token != null);
+        return ids;
+    }
+
+    private static List<Integer> expectedIds(boolean isFiltered, final boolean isDescendingId)
+    {
+        List<SeekItem> items = new ArrayList<SeekItem>();
+        for (int id = 1; id <= ROW_COUNT; ++id)
+            if (!isFiltered || ((id % 2) == 1))
+                items.add(new SeekItem(id));
+        Collections.sort(items, new Comparator<SeekItem>(){
+
+            @Override
+            public int compare(SeekItem lhs, SeekItem rhs)
+            {
+                if (isDescendingId)
+                    return rhs.id - lhs.id;
+                return lhs.priority != rhs.priority ? lhs.priority - rhs.priority : lhs.id - rhs.id;
+            }});
+        List<Integer> ids = new ArrayList<Integer>();
+        for (SeekItem item: items)
+            ids.add(item.id);
+        return ids;
+    }
+}
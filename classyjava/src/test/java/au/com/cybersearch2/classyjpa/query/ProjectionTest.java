@@ -0,0 +1,211 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.query;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.failBecauseExceptionWasNotThrown;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import javax.persistence.NoResultException;
+import javax.persistence.Query;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import au.com.cybersearch2.classyjpa.entity.PersistenceDao;
+import au.com.cybersearch2.classyjpa.query.DaoQuery.SimpleSelectArg;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.table.DatabaseTable;
+import com.j256.ormlite.table.TableUtils;
+
+/**
+ * ProjectionTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class ProjectionTest
+{
+    @DatabaseTable(tableName = "projection_item")
+    public static class ProjectionItem
+    {
+        @DatabaseField(id = true)
+        int id;
+        @DatabaseField
+        String category;
+        @DatabaseField
+        String title;
+        @DatabaseField
+        int priority;
+
+        public ProjectionItem()
+        {
+        }
+
+        ProjectionItem(int id)
+        {
+            this.id = id;
+            category = (id % 2) == 1 ? "a" : "b";
+            title = "Item " + id;
+            priority = id % 3;
+        }
+    }
+
+    public static class ItemSummary
+    {
+        final long id;
+        final String title;
+
+        public ItemSummary(long id, String title)
+        {
+            this.id = id;
+            this.title = title;
+        }
+    }
+
+    static final DaoQueryFactory CATEGORY_QUERY_FACTORY = new DaoQueryFactory(){
+
+        @Override
+        public <T> DaoQuery<T> generateQuery(PersistenceDao<T, ?> dao) throws SQLException
+        {
+            SimpleSelectArg categoryArg = new SimpleSelectArg();
+            categoryArg.setMetaInfo("category");
+            return new DaoQuery<T>(dao, categoryArg){
+
+                @Override
+                protected QueryBuilder<T, ?> buildQuery(QueryBuilder<T, ?> statementBuilder) throws SQLException
+                {
+                    statementBuilder.where().eq("category", get("category"));
+                    statementBuilder.orderBy("id", true);
+                    return statementBuilder;
+                }};
+        }};
+
+    JdbcConnectionSource connectionSource;
+    PersistenceDao<ProjectionItem, Integer> dao;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        connectionSource = new JdbcConnectionSource("jdbc:sqlite::memory:");
+        TableUtils.createTable(connectionSource, ProjectionItem.class);
+        dao = new PersistenceDao<ProjectionItem, Integer>(DaoManager.<Dao<ProjectionItem, Integer>, ProjectionItem>createDao(connectionSource, ProjectionItem.class));
+        for (int id = 1; id <= 9; ++id)
+            dao.create(new ProjectionItem(id));
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        connectionSource.close();
+    }
+
+    @Test
+    public void test_named_constructor_projection()
+    {
+        NamedDaoQuery namedDaoQuery = new NamedDaoQuery(ProjectionItem.class, "item_summaries", CATEGORY_QUERY_FACTORY,
+                Projection.toConstructor(ItemSummary.class, "id", "title"));
+        Query query = namedDaoQuery.createQuery(dao);
+        query.setParameter("category", "a").setFirstResult(1).setMaxResults(3);
+        List<?> resultList = query.getResultList();
+        assertThat(resultList).hasSize(3);
+        long[] expectedIds = new long[] { 3, 5, 7 };
+        for (int i = 0; i < expectedIds.length; ++i)
+        {
+            ItemSummary itemSummary = (ItemSummary)resultList.get(i);
+            assertThat(itemSummary.id).isEqualTo(expectedIds[i]);
+            assertThat(itemSummary.title).isEqualTo("Item " + expectedIds[i]);
+        }
+        // Named query without projection still returns entities
+        query = new NamedDaoQuery(ProjectionItem.class, "items", CATEGORY_QUERY_FACTORY).createQuery(dao);
+        query.setParameter("category", "b");
+        assertThat(query.getResultList().get(0)).isInstanceOf(ProjectionItem.class);
+    }
+
+    @Test
+    public void test_array_and_value_projection() throws SQLException
+    {
+        EntityQuery<ProjectionItem> query = new EntityQuery<ProjectionItem>(CATEGORY_QUERY_FACTORY.generateQuery(dao));
+        query.setProjection(Projection.toArray("title", "priority")).setParameter("category", "b");
+        List<?> resultList = query.getResultList();
+        assertThat(resultList).hasSize(4);
+        assertThat((Object[])resultList.get(0)).isEqualTo(new Object[] { "Item 2", Integer.valueOf(2) });
+        query = new EntityQuery<ProjectionItem>(CATEGORY_QUERY_FACTORY.generateQuery(dao), Projection.toValue("title"));
+        query.setParameter("category", "a");
+        assertThat(query.getSingleResult()).isEqualTo("Item 1");
+        query = new EntityQuery<ProjectionItem>(CATEGORY_QUERY_FACTORY.generateQuery(dao), Projection.toValue("title"));
+        query.setParameter("category", "z");
+        try
+        {
+            query.getSingleResult();
+            failBecauseExceptionWasNotThrown(NoResultException.class);
+        }
+        catch (NoResultException e)
+        {
+        }
+    }
+
+    @Test
+    public void test_invalid_projection() throws SQLException
+    {
+        try
+        {
+            Projection.toConstructor(ItemSummary.class, "id");
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertThat(e.getMessage()).contains("no public constructor with 1 parameters");
+        }
+        EntityQuery<ProjectionItem> query = new EntityQuery<ProjectionItem>(CATEGORY_QUERY_FACTORY.generateQuery(dao), Projection.toValue("no_such_column"));
+        query.setParameter("category", "a");
+        try
+        {
+            query.getResultList();
+            failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+        query = new EntityQuery<ProjectionItem>(CATEGORY_QUERY_FACTORY.generateQuery(dao), Projection.toValue("title"));
+        query.setKeyset(new Keyset("id"), null);
+        try
+        {
+            query.getResultList();
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        }
+        catch (IllegalStateException e)
+        {
+        }
+    }
+
+    @Test
+    public void test_convert()
+    {
+        assertThat(Projection.convert(null, int.class)).isEqualTo(Integer.valueOf(0));
+        assertThat(Projection.convert(null, Integer.class)).isNull();
+        assertThat(Projection.convert(Integer.valueOf(7), long.class)).isEqualTo(Long.valueOf(7));
+        assertThat(Projection.convert(Integer.valueOf(7), String.class)).isEqualTo("7");
+        assertThat(Projection.convert(Boolean.TRUE, boolean.class)).isEqualTo(Boolean.TRUE);
+    }
+}
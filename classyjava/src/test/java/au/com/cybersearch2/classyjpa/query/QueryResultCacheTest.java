@@ -0,0 +1,267 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.query;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.Query;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import au.com.cybersearch2.classyfy.data.alfresco.RecordCategory;
+import au.com.cybersearch2.classyjpa.transaction.EntityTransactionImpl;
+
+import com.j256.ormlite.dao.BaseDaoImpl;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.support.ConnectionSource;
+
+/**
+ * QueryResultCacheTest
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class QueryResultCacheTest
+{
+    static final String[] TABLES = new String[] { "Category" };
+
+    QueryResultCache underTest;
+    ConnectionSource connectionSource;
+
+    @Before
+    public void setUp()
+    {
+        underTest = new QueryResultCache(3, 10);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        if (connectionSource != null)
+            connectionSource.close();
+    }
+
+    @Test
+    public void test_lru_eviction()
+    {
+        underTest.put("a", rows(1), TABLES, underTest.getTableVersions(TABLES));
+        underTest.put("b", rows(1), TABLES, underTest.getTableVersions(TABLES));
+        underTest.put("c", rows(1), TABLES, underTest.getTableVersions(TABLES));
+        // Access "a" so "b" becomes least recently used
+        assertThat(underTest.get("a")).isEqualTo(rows(1));
+        underTest.put("d", rows(1), TABLES, underTest.getTableVersions(TABLES));
+        assertThat(underTest.size()).isEqualTo(3);
+        assertThat(underTest.get("b")).isNull();
+        assertThat(underTest.get("a")).isNotNull();
+        assertThat(underTest.getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_weight_limit()
+    {
+        underTest.put("a", rows(4), TABLES, underTest.getTableVersions(TABLES));
+        underTest.put("b", rows(4), TABLES, underTest.getTableVersions(TABLES));
+        assertThat(underTest.getWeight()).isEqualTo(8);
+        underTest.put("c", rows(5), TABLES, underTest.getTableVersions(TABLES));
+        assertThat(underTest.getWeight()).isEqualTo(9);
+        assertThat(underTest.get("a")).isNull();
+        assertThat(underTest.get("b")).isNotNull();
+        // A result exceeding the weight limit on its own is not stored
+        assertThat(underTest.put("d", rows(11), TABLES, underTest.getTableVersions(TABLES))).isFalse();
+        assertThat(underTest.size()).isEqualTo(2);
+        // Replacing an entry releases its weight
+        underTest.put("b", rows(1), TABLES, underTest.getTableVersions(TABLES));
+        assertThat(underTest.getWeight()).isEqualTo(6);
+    }
+
+    @Test
+    public void test_table_version_invalidation()
+    {
+        underTest.put("a", rows(2), new String[] { "Category", "Node" }, underTest.getTableVersions(new String[] { "Category", "Node" }));
+        underTest.put("b", rows(2), TABLES, underTest.getTableVersions(TABLES));
+        // Table names are not case sensitive
+        underTest.invalidate(Collections.singletonList("NODE"));
+        assertThat(underTest.get("a")).isNull();
+        assertThat(underTest.get("b")).isNotNull();
+        assertThat(underTest.getStaleCount()).isEqualTo(1);
+        assertThat(underTest.size()).isEqualTo(1);
+        // A write committed while the query runs leaves the result stale, so it is not stored
+        long[] versions = underTest.getTableVersions(TABLES);
+        underTest.invalidate(Arrays.asList(TABLES));
+        assertThat(underTest.put("c", rows(2), TABLES, versions)).isFalse();
+        assertThat(underTest.get("b")).isNull();
+    }
+
+    @Test
+    public void test_metrics()
+    {
+        assertThat(underTest.getHitRatio()).isEqualTo(0.0);
+        assertThat(underTest.get("a")).isNull();
+        underTest.put("a", rows(1), TABLES, underTest.getTableVersions(TABLES));
+        underTest.get("a");
+        underTest.get("a");
+        underTest.get("a");
+        assertThat(underTest.getHitCount()).isEqualTo(3);
+        assertThat(underTest.getMissCount()).isEqualTo(1);
+        assertThat(underTest.getHitRatio()).isEqualTo(0.75);
+        // Callers receive their own copy of a cached list
+        @SuppressWarnings("unchecked")
+        List<Object> resultList = (List<Object>)underTest.get("a");
+        resultList.clear();
+        assertThat(underTest.get("a")).isEqualTo(rows(1));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void test_cached_query()
+    {
+        Query query1 = mock(Query.class);
+        when(query1.getResultList()).thenReturn(rows(2));
+        CachedQuery cachedQuery = new CachedQuery(query1, "all_categories", TABLES, underTest, true);
+        assertThat(cachedQuery.setParameter("name", "x").setFirstResult(5).getResultList()).isEqualTo(rows(2));
+        verify(query1).setParameter("name", "x");
+        verify(query1).setFirstResult(5);
+        // Same name, parameters and page window is a hit
+        Query query2 = mock(Query.class);
+        cachedQuery = new CachedQuery(query2, "all_categories", TABLES, underTest, true);
+        assertThat(cachedQuery.setFirstResult(5).setParameter("name", "x").getResultList()).isEqualTo(rows(2));
+        verify(query2, never()).getResultList();
+        // Different page window is a miss
+        Query query3 = mock(Query.class);
+        when(query3.getResultList()).thenReturn(rows(1));
+        cachedQuery = new CachedQuery(query3, "all_categories", TABLES, underTest, true);
+        assertThat(cachedQuery.setParameter("name", "x").setFirstResult(5).setMaxResults(1).getResultList()).isEqualTo(rows(1));
+        verify(query3).getResultList();
+        // Not cached unless registered or hinted
+        Query query4 = mock(Query.class);
+        when(query4.getResultList()).thenReturn(rows(2));
+        when(query4.getSingleResult()).thenReturn("row0");
+        cachedQuery = new CachedQuery(query4, "all_categories", TABLES, underTest, false);
+        cachedQuery.setParameter("name", "x").setFirstResult(5).getResultList();
+        verify(query4).getResultList();
+        cachedQuery = new CachedQuery(query4, "all_categories", TABLES, underTest, false);
+        cachedQuery.setHint(QueryResultCache.CACHEABLE_HINT, "true");
+        assertThat(cachedQuery.getHints().get(QueryResultCache.CACHEABLE_HINT)).isEqualTo(Boolean.TRUE);
+        assertThat(cachedQuery.getSingleResult()).isEqualTo("row0");
+        cachedQuery = new CachedQuery(query4, "all_categories", TABLES, underTest, false);
+        cachedQuery.setHint(QueryResultCache.CACHEABLE_HINT, Boolean.TRUE);
+        assertThat(cachedQuery.getSingleResult()).isEqualTo("row0");
+        verify(query4, times(1)).getSingleResult();
+        assertThat(underTest.getHitCount()).isEqualTo(2);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void test_cached_entities_copied() throws Exception
+    {
+        connectionSource = new JdbcConnectionSource("jdbc:sqlite::memory:");
+        Dao<RecordCategory, Integer> dao = DaoManager.createDao(connectionSource, RecordCategory.class);
+        EntityResultCopier resultCopier = new EntityResultCopier(((BaseDaoImpl<RecordCategory, Integer>)dao).getTableInfo());
+        RecordCategory category = new RecordCategory();
+        category.set_id(1);
+        category.setDescription("Corporate Management");
+        category.setCreated(new Date(1000L));
+        Query query1 = mock(Query.class);
+        when(query1.getResultList()).thenReturn(Collections.singletonList((Object)category));
+        when(query1.getSingleResult()).thenReturn(category);
+        CachedQuery cachedQuery = new CachedQuery(query1, "all_categories", TABLES, underTest, true, resultCopier);
+        // Modifying the entity returned on a miss does not change the cached entity
+        List<Object> resultList = cachedQuery.getResultList();
+        assertThat(resultList.get(0)).isSameAs(category);
+        category.setDescription("Changed on miss");
+        // Modifying the entity returned on a hit does not change the cached entity
+        Query query2 = mock(Query.class);
+        cachedQuery = new CachedQuery(query2, "all_categories", TABLES, underTest, true, resultCopier);
+        RecordCategory hit = (RecordCategory)cachedQuery.getResultList().get(0);
+        assertThat(hit.getDescription()).isEqualTo("Corporate Management");
+        hit.setDescription("Changed on hit");
+        hit.getCreated().setTime(2000L);
+        cachedQuery = new CachedQuery(query2, "all_categories", TABLES, underTest, true, resultCopier);
+        RecordCategory nextHit = (RecordCategory)cachedQuery.getResultList().get(0);
+        assertThat(nextHit).isNotSameAs(hit);
+        assertThat(nextHit.get_id()).isEqualTo(1);
+        assertThat(nextHit.getDescription()).isEqualTo("Corporate Management");
+        assertThat(nextHit.getCreated().getTime()).isEqualTo(1000L);
+        verify(query2, never()).getResultList();
+        // Same for single result
+        category.setDescription("Corporate Management");
+        cachedQuery = new CachedQuery(query1, "all_categories", TABLES, underTest, true, resultCopier);
+        cachedQuery.getSingleResult();
+        cachedQuery = new CachedQuery(query2, "all_categories", TABLES, underTest, true, resultCopier);
+        hit = (RecordCategory)cachedQuery.getSingleResult();
+        hit.setDescription("Changed on hit");
+        cachedQuery = new CachedQuery(query2, "all_categories", TABLES, underTest, true, resultCopier);
+        assertThat(((RecordCategory)cachedQuery.getSingleResult()).getDescription()).isEqualTo("Corporate Management");
+        verify(query2, never()).getSingleResult();
+    }
+
+    @Test
+    public void test_commit_invalidates() throws Exception
+    {
+        connectionSource = new JdbcConnectionSource("jdbc:sqlite::memory:");
+        underTest.put("a", rows(1), TABLES, underTest.getTableVersions(TABLES));
+        EntityTransactionImpl outer = new EntityTransactionImpl(connectionSource);
+        outer.setQueryResultCache(underTest);
+        outer.begin();
+        assertThat(outer.hasUncommittedWrites()).isFalse();
+        // Tables written in a nested transaction which is rolled back are discarded
+        EntityTransactionImpl inner = new EntityTransactionImpl(connectionSource);
+        inner.setQueryResultCache(underTest);
+        inner.begin();
+        inner.recordTableWrite("Category");
+        inner.rollback();
+        outer.commit();
+        assertThat(underTest.get("a")).isNotNull();
+        // Tables written in a committed nested transaction are invalidated with the enclosing transaction
+        outer.begin();
+        inner.begin();
+        inner.recordTableWrite("Category");
+        inner.commit();
+        assertThat(outer.hasUncommittedWrites()).isTrue();
+        assertThat(underTest.get("a")).isNotNull();
+        outer.commit();
+        assertThat(underTest.get("a")).isNull();
+        // Nothing is invalidated on rollback
+        underTest.put("a", rows(1), TABLES, underTest.getTableVersions(TABLES));
+        outer.begin();
+        outer.recordTableWrite("Category");
+        outer.setRollbackOnly();
+        outer.commit();
+        assertThat(underTest.get("a")).isNotNull();
+    }
+
+    private static List<Object> rows(int count)
+    {
+        List<Object> rowList = new ArrayList<Object>();
+        for (int i = 0; i < count; ++i)
+            rowList.add("row" + i);
+        return rowList;
+    }
+}
@@ -0,0 +1,281 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.transaction;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Test;
+
+import au.com.cybersearch2.classyjpa.transaction.ChangeStream.Backpressure;
+import au.com.cybersearch2.classylog.JavaLogger;
+import au.com.cybersearch2.classylog.Log;
+
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.support.ConnectionSource;
+
+/**
+ * ChangeStreamTest
+ * Ring buffer publication to independent subscribers, and capture of committed transaction changes
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class ChangeStreamTest
+{
+    private static final String TAG = "ChangeStreamTest";
+    private static Log log = JavaLogger.getLogger(TAG);
+    private static final int PRODUCER_COUNT = 4;
+    private static final int PUBLISH_COUNT = 5000;
+
+    ConnectionSource connectionSource;
+
+    @After
+    public void tearDown() throws Exception
+    {
+        if (connectionSource != null)
+            connectionSource.close();
+    }
+
+    @Test
+    public void test_independent_subscribers()
+    {
+        ChangeStream underTest = new ChangeStream(8);
+        ChangeSubscription cacheSubscription = underTest.subscribe("cache", Backpressure.drop);
+        ChangeSubscription auditSubscription = underTest.subscribe("audit", Backpressure.block);
+        assertThat(cacheSubscription.poll()).isNull();
+        for (int i = 0; i < 3; ++i)
+            underTest.publish(changes(i));
+        assertThat(cacheSubscription.getLag()).isEqualTo(3);
+        assertThat(cacheSubscription.poll().getChanges().get(0).getPrimaryKey()).isEqualTo(0);
+        List<ChangeSet> auditList = auditSubscription.drain(10);
+        assertThat(auditList).hasSize(3);
+        assertThat(auditList.get(2).getSequence()).isEqualTo(2L);
+        // Each cursor advances independently
+        assertThat(cacheSubscription.getCursor()).isEqualTo(1L);
+        assertThat(auditSubscription.getCursor()).isEqualTo(3L);
+        assertThat(cacheSubscription.drain(10)).hasSize(2);
+        // A late subscriber only receives change sets published after it subscribed
+        ChangeSubscription lateSubscription = underTest.subscribe("late", Backpressure.drop);
+        assertThat(lateSubscription.poll()).isNull();
+        underTest.publish(changes(3));
+        assertThat(lateSubscription.poll().getSequence()).isEqualTo(3L);
+    }
+
+    @Test
+    public void test_capacity()
+    {
+        assertThat(new ChangeStream(5).getCapacity()).isEqualTo(8);
+        assertThat(new ChangeStream(1).getCapacity()).isEqualTo(1);
+        assertThat(new ChangeStream().getCapacity()).isEqualTo(ChangeStream.DEFAULT_CAPACITY);
+    }
+
+    @Test
+    public void test_drop_subscriber_overrun()
+    {
+        ChangeStream underTest = new ChangeStream(4);
+        ChangeSubscription subscription = underTest.subscribe("index", Backpressure.drop);
+        for (int i = 0; i < 10; ++i)
+            underTest.publish(changes(i));
+        // Only the last 4 change sets are still held
+        List<ChangeSet> changeSetList = subscription.drain(10);
+        assertThat(changeSetList).hasSize(4);
+        assertThat(changeSetList.get(0).getSequence()).isEqualTo(6L);
+        assertThat(changeSetList.get(3).getSequence()).isEqualTo(9L);
+        assertThat(subscription.getMissedCount()).isEqualTo(6L);
+    }
+
+    @Test
+    public void test_block_subscriber_backpressure() throws Exception
+    {
+        final ChangeStream underTest = new ChangeStream(4);
+        underTest.setBlockTimeoutMillis(10000);
+        ChangeSubscription subscription = underTest.subscribe("audit", Backpressure.block);
+        final CountDownLatch published = new CountDownLatch(6);
+        Thread publisher = new Thread(new Runnable(){
+
+            @Override
+            public void run()
+            {
+                for (int i = 0; i < 6; ++i)
+                {
+                    underTest.publish(changes(i));
+                    published.countDown();
+                }
+            }});
+        publisher.start();
+        // Publisher waits when the buffer is full
+        assertThat(published.await(100, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(published.getCount()).isEqualTo(2L);
+        assertThat(subscription.poll().getSequence()).isEqualTo(0L);
+        assertThat(subscription.poll().getSequence()).isEqualTo(1L);
+        assertThat(published.await(5, TimeUnit.SECONDS)).isTrue();
+        publisher.join(5000);
+        assertThat(subscription.drain(10)).hasSize(4);
+        assertThat(subscription.getMissedCount()).isEqualTo(0L);
+        // A closed subscription no longer holds up publishers
+        subscription.close();
+        for (int i = 0; i < 8; ++i)
+            underTest.publish(changes(i));
+    }
+
+    @Test
+    public void test_block_timeout()
+    {
+        ChangeStream underTest = new ChangeStream(2);
+        underTest.setBlockTimeoutMillis(20);
+        ChangeSubscription subscription = underTest.subscribe("stalled", Backpressure.block);
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; ++i)
+            underTest.publish(changes(i));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(19L);
+        assertThat(subscription.drain(10)).hasSize(2);
+        assertThat(subscription.getMissedCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void test_concurrent_publishers() throws Exception
+    {
+        final ChangeStream underTest = new ChangeStream(64);
+        underTest.setBlockTimeoutMillis(10000);
+        final ChangeSubscription blockSubscription = underTest.subscribe("block", Backpressure.block);
+        final ChangeSubscription dropSubscription = underTest.subscribe("drop", Backpressure.drop);
+        final AtomicBoolean publishing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(PRODUCER_COUNT + 2);
+        Future<List<ChangeSet>> blockResult = executor.submit(new java.util.concurrent.Callable<List<ChangeSet>>(){
+
+            @Override
+            public List<ChangeSet> call() throws Exception
+            {
+                List<ChangeSet> received = new ArrayList<ChangeSet>();
+                while (received.size() < PRODUCER_COUNT * PUBLISH_COUNT)
+                {
+                    ChangeSet changeSet = blockSubscription.poll(5, TimeUnit.SECONDS);
+                    if (changeSet == null)
+                        break;
+                    received.add(changeSet);
+                }
+                return received;
+            }});
+        Future<List<ChangeSet>> dropResult = executor.submit(new java.util.concurrent.Callable<List<ChangeSet>>(){
+
+            @Override
+            public List<ChangeSet> call() throws Exception
+            {
+                List<ChangeSet> received = new ArrayList<ChangeSet>();
+                while (publishing.get() || (dropSubscription.getLag() > 0))
+                {
+                    ChangeSet changeSet = dropSubscription.poll(1, TimeUnit.MILLISECONDS);
+                    if (changeSet != null)
+                        received.add(changeSet);
+                }
+                return received;
+            }});
+        final CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<?>> producerList = new ArrayList<Future<?>>();
+        long start = System.nanoTime();
+        for (int producer = 0; producer < PRODUCER_COUNT; ++producer)
+        {
+            final int producerId = producer;
+            producerList.add(executor.submit(new Runnable(){
+
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        startGate.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                    for (int i = 0; i < PUBLISH_COUNT; ++i)
+                        underTest.publish(changes(producerId * PUBLISH_COUNT + i));
+                }}));
+        }
+        startGate.countDown();
+        for (Future<?> future: producerList)
+            future.get(30, TimeUnit.SECONDS);
+        publishing.set(false);
+        List<ChangeSet> blockReceived = blockResult.get(30, TimeUnit.SECONDS);
+        List<ChangeSet> dropReceived = dropResult.get(30, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        executor.shutdown();
+        log.info(TAG, PRODUCER_COUNT * PUBLISH_COUNT + " change sets published in " + elapsedMillis + "ms, drop subscriber missed " + dropSubscription.getMissedCount());
+        // Blocking subscriber receives every change set once, in sequence order
+        assertThat(blockReceived).hasSize(PRODUCER_COUNT * PUBLISH_COUNT);
+        for (int i = 0; i < blockReceived.size(); ++i)
+            assertThat(blockReceived.get(i).getSequence()).isEqualTo((long)i);
+        assertThat(blockSubscription.getMissedCount()).isEqualTo(0L);
+        // Dropping subscriber accounts for every change set as received or missed
+        assertThat(dropReceived.size() + dropSubscription.getMissedCount()).isEqualTo((long)(PRODUCER_COUNT * PUBLISH_COUNT));
+        for (int i = 1; i < dropReceived.size(); ++i)
+            assertThat(dropReceived.get(i).getSequence()).isGreaterThan(dropReceived.get(i - 1).getSequence());
+    }
+
+    @Test
+    public void test_committed_changes_published() throws Exception
+    {
+        connectionSource = new JdbcConnectionSource("jdbc:sqlite::memory:");
+        ChangeStream changeStream = new ChangeStream(8);
+        ChangeSubscription subscription = changeStream.subscribe("test", Backpressure.drop);
+        EntityTransactionImpl outer = new EntityTransactionImpl(connectionSource);
+        outer.setChangeStream(changeStream);
+        outer.begin();
+        outer.recordChange(new EntityChange(String.class, 1, EntityChange.Operation.insert));
+        // Changes of a committed nested transaction are published with the enclosing transaction
+        EntityTransactionImpl inner = new EntityTransactionImpl(connectionSource);
+        inner.setChangeStream(changeStream);
+        inner.begin();
+        inner.recordChange(new EntityChange(String.class, 2, EntityChange.Operation.update, Collections.singletonList("name")));
+        inner.commit();
+        assertThat(subscription.poll()).isNull();
+        // Changes of a nested transaction which is rolled back are discarded
+        inner.begin();
+        inner.recordChange(new EntityChange(String.class, 3, EntityChange.Operation.delete));
+        inner.rollback();
+        outer.commit();
+        ChangeSet changeSet = subscription.poll();
+        assertThat(changeSet.getChanges()).hasSize(2);
+        assertThat(changeSet.getChanges().get(0).getOperation()).isEqualTo(EntityChange.Operation.insert);
+        assertThat(changeSet.getChanges().get(1).getPrimaryKey()).isEqualTo(2);
+        assertThat(changeSet.getChanges().get(1).getChangedProperties()).containsExactly("name");
+        // Transactions rolled back or without changes are not published
+        outer.begin();
+        outer.recordChange(new EntityChange(String.class, 4, EntityChange.Operation.insert));
+        outer.setRollbackOnly();
+        outer.commit();
+        outer.begin();
+        outer.commit();
+        assertThat(subscription.poll()).isNull();
+        assertThat(changeStream.getNextSequence()).isEqualTo(1L);
+    }
+
+    private static List<EntityChange> changes(int primaryKey)
+    {
+        return Collections.singletonList(new EntityChange(String.class, Integer.valueOf(primaryKey), EntityChange.Operation.insert));
+    }
+}
@@ -27,6 +27,7 @@ import java.sql.SQLException;
 import java.util.concurrent.Callable;
 
 import javax.inject.Singleton;
+import javax.persistence.OptimisticLockException;
 import javax.persistence.PersistenceException;
 
 import org.junit.Before;
@@ -347,6 +348,27 @@ public class ClassyEntityTransactionTest
         assertThat(transaction.isActive()).isFalse();
     }
 
+    @Test
+    public void test_precommit_optimistic_lock_exception() throws SQLException
+    {
+        TestPrecommitCallable callable = new TestPrecommitCallable();
+        callable.persistenceException = new OptimisticLockException("Version conflict");
+        TestClassyEntityTransaction transaction = new TestClassyEntityTransaction(connectionSource, callable);
+        transaction.begin();
+        try
+        {
+            transaction.commit();
+            failBecauseExceptionWasNotThrown(OptimisticLockException.class);
+        }
+        catch (OptimisticLockException e)
+        {   // Passed through so the work can be retried
+            assertThat(e).isEqualTo(callable.persistenceException);
+        }
+        verify(transaction.mockTransactionState, times(1)).doRollback();
+        verify(transaction.mockTransactionState, times(0)).doCommit();
+        assertThat(transaction.isActive()).isFalse();
+    }
+
     @Test
     public void test_precommit_illegalArgument_exception() throws SQLException
     {
@@ -0,0 +1,183 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classyjpa.transaction;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import au.com.cybersearch2.classylog.JavaLogger;
+import au.com.cybersearch2.classylog.Log;
+
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+
+/**
+ * NestedTransactionTest
+ * Nested transactions on in-memory SQLite and H2 databases, and per-transaction overhead of
+ * top-level transactions with and without a save point
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class NestedTransactionTest
+{
+    private static final String TAG = "NestedTransactionTest";
+    private static Log log = JavaLogger.getLogger(TAG);
+    private static final String SQLITE_PATH = "jdbc:sqlite::memory:";
+    private static final String H2_PATH = "jdbc:h2:mem:nested";
+    private static final int TRANSACTION_COUNT = 2000;
+
+    ConnectionSource connectionSource;
+
+    @After
+    public void tearDown() throws Exception
+    {
+        if (connectionSource != null)
+            connectionSource.close();
+    }
+
+    @Test
+    public void test_sqlite_nested_rollback() throws Exception
+    {
+        doNestedRollback(SQLITE_PATH);
+    }
+
+    @Test
+    public void test_h2_nested_rollback() throws Exception
+    {
+        doNestedRollback(H2_PATH);
+    }
+
+    @Test
+    public void test_transaction_overhead() throws Exception
+    {
+        connectionSource = createDatabase(SQLITE_PATH);
+        // Warm up
+        runTransactions(false, 0, 200);
+        runTransactions(true, 200, 200);
+        long flatElapsed = runTransactions(false, 1000, TRANSACTION_COUNT);
+        long savePointElapsed = runTransactions(true, 1000 + TRANSACTION_COUNT, TRANSACTION_COUNT);
+        log.info(TAG, TRANSACTION_COUNT + " top-level transactions in " + flatElapsed + "ms, with save point " + savePointElapsed + "ms");
+        assertThat(queryCount()).isEqualTo(400L + 2 * TRANSACTION_COUNT);
+    }
+
+    private void doNestedRollback(String path) throws Exception
+    {
+        connectionSource = createDatabase(path);
+        EntityTransactionImpl outer = new EntityTransactionImpl(connectionSource);
+        outer.begin();
+        assertThat(outer.transactionState.getDepth()).isEqualTo(0);
+        DatabaseConnection connection = outer.transactionState.getDatabaseConnection();
+        insert(connection, 1);
+        // Nested unit of work which fails
+        EntityTransactionImpl inner = new EntityTransactionImpl(connectionSource);
+        inner.begin();
+        assertThat(inner.transactionState.getDepth()).isEqualTo(1);
+        assertThat(inner.transactionState.getDatabaseConnection()).isSameAs(connection);
+        insert(connection, 2);
+        // Deeper nesting is rolled back with the unit of work which encloses it
+        EntityTransactionImpl innermost = new EntityTransactionImpl(connectionSource);
+        innermost.begin();
+        assertThat(innermost.transactionState.getDepth()).isEqualTo(2);
+        insert(connection, 3);
+        innermost.commit();
+        inner.rollback();
+        // Nested unit of work which succeeds
+        inner = new EntityTransactionImpl(connectionSource);
+        inner.begin();
+        assertThat(inner.transactionState.getDepth()).isEqualTo(1);
+        insert(connection, 4);
+        inner.commit();
+        assertThat(outer.isActive()).isTrue();
+        outer.commit();
+        assertThat(TransactionState.getActiveState(connectionSource)).isNull();
+        DatabaseConnection readConnection = connectionSource.getReadOnlyConnection(null);
+        try
+        {
+            assertThat(readConnection.isAutoCommit()).isTrue();
+            assertThat(readConnection.queryForLong("SELECT COUNT(*) FROM nested_item")).isEqualTo(2L);
+            assertThat(readConnection.queryForLong("SELECT SUM(id) FROM nested_item")).isEqualTo(5L);
+        }
+        finally
+        {
+            connectionSource.releaseConnection(readConnection);
+        }
+    }
+
+    /**
+     * Run top-level transactions, each inserting one row
+     * @param withSavePoint Flag set true to also set a save point, as each transaction formerly did
+     * @param firstId Id of first row to insert
+     * @param count Number of transactions
+     * @return elapsed time in milliseconds
+     */
+    private long runTransactions(final boolean withSavePoint, int firstId, int count) throws SQLException
+    {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; ++i)
+        {
+            TransactionState transactionState = new TransactionState(connectionSource){
+
+                @Override
+                protected void setup() throws SQLException
+                {
+                    super.setup();
+                    if (withSavePoint)
+                        setSavePoint();
+                }};
+            insert(transactionState.getDatabaseConnection(), firstId + i);
+            transactionState.doCommit();
+        }
+        return Math.max(1L, (System.nanoTime() - start) / 1000000L);
+    }
+
+    private long queryCount() throws SQLException
+    {
+        DatabaseConnection connection = connectionSource.getReadOnlyConnection(null);
+        try
+        {
+            return connection.queryForLong("SELECT COUNT(*) FROM nested_item");
+        }
+        finally
+        {
+            connectionSource.releaseConnection(connection);
+        }
+    }
+
+    private static ConnectionSource createDatabase(String path) throws SQLException
+    {
+        ConnectionSource connectionSource = new JdbcConnectionSource(path);
+        DatabaseConnection connection = connectionSource.getReadWriteConnection(null);
+        try
+        {
+            connection.executeStatement("CREATE TABLE nested_item (id INTEGER PRIMARY KEY, name VARCHAR(20))", DatabaseConnection.DEFAULT_RESULT_FLAGS);
+        }
+        finally
+        {
+            connectionSource.releaseConnection(connection);
+        }
+        return connectionSource;
+    }
+
+    private static void insert(DatabaseConnection connection, int id) throws SQLException
+    {
+        connection.executeStatement("INSERT INTO nested_item (id, name) VALUES (" + id + ", 'item" + id + "')", DatabaseConnection.DEFAULT_RESULT_FLAGS);
+    }
+}
@@ -46,27 +46,28 @@ public class TransactionStateTest
     {
         connectionSource = mock(ConnectionSource.class);
         connection = mock(DatabaseConnection.class);
-
+        TransactionState.activeStates.remove();
     }
     
     @Test
     public void test_begin() throws Exception
     {
         int transactionId = TransactionState.savePointCounter.get() + 1;
-        String savepointName = "ORMLITE" + transactionId;
         when(connectionSource.getReadWriteConnection(DatabaseSupportBase.DATABASE_INFO_NAME)).thenReturn(connection);
         when(connectionSource.saveSpecialConnection(connection)).thenReturn(true);
         when(connection.isAutoCommitSupported()).thenReturn(true);
         when(connection.isAutoCommit()).thenReturn(true);
-        Savepoint savePoint = mock(Savepoint.class);
-        when(connection.setSavePoint(isA(String.class))).thenReturn(savePoint);
-        when(savePoint.getSavepointName()).thenReturn(savepointName);
         TransactionState transactionState = new TransactionState(connectionSource);
         verify(connectionSource).saveSpecialConnection(connection);
         verify(connection).setAutoCommit(false);
+        // Top-level transaction does not set a save point
+        verify(connection, never()).setSavePoint(isA(String.class));
         assertThat(transactionState.transactionId).isEqualTo(transactionId);
-        assertThat(transactionState.hasSavePoint).isTrue();
-        assertThat(transactionState.savePointName).isEqualTo(savepointName);
+        assertThat(transactionState.hasSavePoint).isNull();
+        assertThat(transactionState.getDepth()).isEqualTo(0);
+        assertThat(TransactionState.getActiveState(connectionSource)).isSameAs(transactionState);
+        transactionState.release();
+        assertThat(TransactionState.getActiveState(connectionSource)).isNull();
     }
 
     @Test
@@ -82,9 +83,106 @@ public class TransactionStateTest
         Savepoint savePoint = mock(Savepoint.class);
         when(connection.setSavePoint(isA(String.class))).thenReturn(savePoint);
         when(savePoint.getSavepointName()).thenReturn("mySavePoint");
-        new TransactionState(connectionSource);
+        TransactionState transactionState = new TransactionState(connectionSource);
         verify(connectionSource).saveSpecialConnection(connection);
-        verify(connection).setAutoCommit(false);
+        verify(connection, never()).setAutoCommit(false);
+        assertThat(transactionState.hasSavePoint).isTrue();
+        assertThat(transactionState.savePoint).isSameAs(savePoint);
+        transactionState.release();
+    }
+
+    @Test
+    public void test_nested_commit() throws Exception
+    {
+        Savepoint savePoint = mock(Savepoint.class);
+        TransactionState outer = beginOuter(savePoint);
+        TransactionState inner = new TransactionState(connectionSource);
+        assertThat(inner.getDepth()).isEqualTo(1);
+        assertThat(inner.parent).isSameAs(outer);
+        assertThat(inner.savePointName).isEqualTo("ORMLITE" + inner.transactionId);
+        assertThat(TransactionState.getActiveState(connectionSource)).isSameAs(inner);
+        verify(connection).setSavePoint(inner.savePointName);
+        verify(connection, times(1)).setAutoCommit(false);
+        inner.doCommit();
+        // Release save point only
+        verify(connection).commit(savePoint);
+        verify(connection, never()).commit(null);
+        verify(connection, never()).setAutoCommit(true);
+        assertThat(TransactionState.getActiveState(connectionSource)).isSameAs(outer);
+        outer.doCommit();
+        verify(connection).commit(null);
+        verify(connection).setAutoCommit(true);
+        verify(connectionSource, times(2)).clearSpecialConnection(connection);
+        assertThat(TransactionState.getActiveState(connectionSource)).isNull();
+    }
+
+    @Test
+    public void test_separate_connection_sources() throws Exception
+    {
+        Savepoint savePoint = mock(Savepoint.class);
+        TransactionState outer = beginOuter(savePoint);
+        ConnectionSource otherConnectionSource = mock(ConnectionSource.class);
+        DatabaseConnection otherConnection = mock(DatabaseConnection.class);
+        when(otherConnectionSource.getReadWriteConnection(DatabaseSupportBase.DATABASE_INFO_NAME)).thenReturn(otherConnection);
+        when(otherConnectionSource.saveSpecialConnection(otherConnection)).thenReturn(true);
+        when(otherConnection.isAutoCommitSupported()).thenReturn(true);
+        when(otherConnection.isAutoCommit()).thenReturn(true);
+        // Transaction of another connection source is top-level, not nested in the outer transaction
+        TransactionState other = new TransactionState(otherConnectionSource);
+        assertThat(other.getDepth()).isEqualTo(0);
+        assertThat(other.parent).isNull();
+        assertThat(TransactionState.getActiveState(otherConnectionSource)).isSameAs(other);
+        assertThat(TransactionState.getActiveState(connectionSource)).isSameAs(outer);
+        // Nested transaction finds the enclosing transaction of its own connection source
+        TransactionState inner = new TransactionState(connectionSource);
+        assertThat(inner.parent).isSameAs(outer);
+        other.doCommit();
+        assertThat(TransactionState.getActiveState(otherConnectionSource)).isNull();
+        assertThat(TransactionState.getActiveState(connectionSource)).isSameAs(inner);
+        inner.doCommit();
+        outer.doCommit();
+        assertThat(TransactionState.activeStates.get()).isNull();
+    }
+
+    @Test
+    public void test_nested_rollback() throws Exception
+    {
+        Savepoint savePoint = mock(Savepoint.class);
+        TransactionState outer = beginOuter(savePoint);
+        TransactionState inner = new TransactionState(connectionSource);
+        inner.doRollback();
+        // Roll back to save point, then release it
+        verify(connection).rollback(savePoint);
+        verify(connection).commit(savePoint);
+        verify(connection, never()).rollback(null);
+        // Enclosing transaction intact
+        assertThat(outer.isValid()).isTrue();
+        assertThat(TransactionState.getActiveState(connectionSource)).isSameAs(outer);
+        outer.doCommit();
+        verify(connection).commit(null);
+    }
+
+    @Test
+    public void test_nested_sql_save_point() throws Exception
+    {
+        TransactionState outer = beginOuter(null);
+        // Connection which is not JDBC, such as Android SQLiteDatabase
+        when(connection.getUnderlyingConnection()).thenReturn(new Object());
+        TransactionState inner = new TransactionState(connectionSource);
+        String savepointName = inner.savePointName;
+        assertThat(inner.isSqlSavePoint).isTrue();
+        verify(connection).executeStatement("SAVEPOINT " + savepointName, DatabaseConnection.DEFAULT_RESULT_FLAGS);
+        TransactionState inner2 = new TransactionState(connectionSource);
+        assertThat(inner2.getDepth()).isEqualTo(2);
+        String savepointName2 = inner2.savePointName;
+        inner2.doRollback();
+        verify(connection).executeStatement("ROLLBACK TO SAVEPOINT " + savepointName2, DatabaseConnection.DEFAULT_RESULT_FLAGS);
+        verify(connection).executeStatement("RELEASE SAVEPOINT " + savepointName2, DatabaseConnection.DEFAULT_RESULT_FLAGS);
+        inner.doCommit();
+        verify(connection).executeStatement("RELEASE SAVEPOINT " + savepointName, DatabaseConnection.DEFAULT_RESULT_FLAGS);
+        verify(connection, never()).setSavePoint(isA(String.class));
+        outer.doCommit();
+        verify(connection).commit(null);
     }
 
 
@@ -205,10 +303,7 @@ public class TransactionStateTest
     public void test_begin_set_save_point_exception() throws Exception
     {
         SQLException exception = new SQLException("setSavePoint failed");
-        when(connectionSource.getReadWriteConnection(DatabaseSupportBase.DATABASE_INFO_NAME)).thenReturn(connection);
-        when(connectionSource.saveSpecialConnection(connection)).thenReturn(true);
-        when(connection.isAutoCommitSupported()).thenReturn(true);
-        when(connection.isAutoCommit()).thenReturn(true);
+        TransactionState outer = beginOuter(null);
         doThrow(exception).when(connection).setSavePoint(isA(String.class));
         try
         {
@@ -220,28 +315,26 @@ public class TransactionStateTest
             assertThat(e.getMessage()).contains("setSavePoint failed");
         }
         verify(connection).setAutoCommit(false);
-        verify(connectionSource).saveSpecialConnection(connection);
-        verify(connection).setAutoCommit(true);
+        verify(connectionSource, times(2)).saveSpecialConnection(connection);
+        verify(connectionSource).clearSpecialConnection(connection);
+        verify(connection, never()).setAutoCommit(true);
+        assertThat(TransactionState.getActiveState(connectionSource)).isSameAs(outer);
+        outer.release();
    }
 
     @Test
     public void test_commit() throws Exception
     {
-        int transactionId = TransactionState.savePointCounter.get() + 1;
-        String savepointName = "ORMLITE" + transactionId;
         when(connectionSource.getReadWriteConnection(DatabaseSupportBase.DATABASE_INFO_NAME)).thenReturn(connection);
         when(connectionSource.saveSpecialConnection(connection)).thenReturn(true);
         when(connection.isAutoCommitSupported()).thenReturn(true);
         when(connection.isAutoCommit()).thenReturn(true, false);
-        Savepoint savePoint = mock(Savepoint.class);
-        when(connection.setSavePoint(savepointName)).thenReturn(savePoint);
-        when(savePoint.getSavepointName()).thenReturn("mySavePoint");
         TransactionState transactionState = new TransactionState(connectionSource);
         verify(connectionSource).saveSpecialConnection(connection);
         verify(connection).setAutoCommit(false);
-        when(savePoint.getSavepointName()).thenReturn(savepointName);
         transactionState.doCommit();
-        verify(connection).commit(savePoint);
+        verify(connection).commit(null);
+        verify(connection).setAutoCommit(true);
         assertThat(transactionState.hasSavePoint).isNull();
         assertThat(transactionState.savePoint).isNull();
         assertThat(transactionState.connection).isNull();
@@ -250,21 +343,16 @@ public class TransactionStateTest
     @Test
     public void test_rollback() throws Exception
     {
-        int transactionId = TransactionState.savePointCounter.get() + 1;
-        String savepointName = "ORMLITE" + transactionId;
         when(connectionSource.getReadWriteConnection(DatabaseSupportBase.DATABASE_INFO_NAME)).thenReturn(connection);
         when(connectionSource.saveSpecialConnection(connection)).thenReturn(true);
         when(connection.isAutoCommitSupported()).thenReturn(true);
         when(connection.isAutoCommit()).thenReturn(true, false);
-        Savepoint savePoint = mock(Savepoint.class);
-        when(connection.setSavePoint(savepointName)).thenReturn(savePoint);
-        when(savePoint.getSavepointName()).thenReturn("mySavePoint");
         TransactionState transactionState = new TransactionState(connectionSource);
         verify(connectionSource).saveSpecialConnection(connection);
         verify(connection).setAutoCommit(false);
-        when(savePoint.getSavepointName()).thenReturn(savepointName);
         transactionState.doRollback();
-        verify(connection).rollback(savePoint);
+        verify(connection).rollback(null);
+        verify(connection).setAutoCommit(true);
         assertThat(transactionState.hasSavePoint).isNull();
         assertThat(transactionState.savePoint).isNull();
         assertThat(transactionState.connection).isNull();
@@ -274,20 +362,14 @@ public class TransactionStateTest
     public void test_commit_rollback() throws Exception
     {
         SQLException exception = new SQLException("doCommit failed");
-        int transactionId = TransactionState.savePointCounter.get() + 1;
-        String savepointName = "ORMLITE" + transactionId;
         when(connectionSource.getReadWriteConnection(DatabaseSupportBase.DATABASE_INFO_NAME)).thenReturn(connection);
         when(connectionSource.saveSpecialConnection(connection)).thenReturn(true);
         when(connection.isAutoCommitSupported()).thenReturn(true);
         when(connection.isAutoCommit()).thenReturn(true, false);
-        Savepoint savePoint = mock(Savepoint.class);
-        when(connection.setSavePoint(savepointName)).thenReturn(savePoint);
-        when(savePoint.getSavepointName()).thenReturn(savepointName);
         TransactionState transactionState = new TransactionState(connectionSource);
         verify(connectionSource).saveSpecialConnection(connection);
         verify(connection).setAutoCommit(false);
-        when(savePoint.getSavepointName()).thenReturn("mySavePoint");
-        doThrow(exception).when(connection).commit(savePoint);
+        doThrow(exception).when(connection).commit(null);
         try
         {
             transactionState.doCommit();
@@ -297,9 +379,27 @@ public class TransactionStateTest
         {
             assertThat(e.getMessage()).contains("doCommit failed");
         }
-        verify(connection).rollback(savePoint);
+        verify(connection).rollback(null);
         assertThat(transactionState.hasSavePoint).isNull();
         assertThat(transactionState.savePoint).isNull();
         assertThat(transactionState.connection).isNull();
     }
+
+    /**
+     * Begin top-level transaction on mock connection, ready for nested transactions to begin
+     * @param savePoint Save point returned when set
+     * @return TransactionState
+     */
+    private TransactionState beginOuter(Savepoint savePoint) throws SQLException
+    {
+        when(connectionSource.getReadWriteConnection(DatabaseSupportBase.DATABASE_INFO_NAME)).thenReturn(connection);
+        // Connection already saved when nested transaction begins
+        when(connectionSource.saveSpecialConnection(connection)).thenReturn(true, false);
+        when(connection.isAutoCommitSupported()).thenReturn(true);
+        when(connection.isAutoCommit()).thenReturn(true, false);
+        when(connection.setSavePoint(isA(String.class))).thenReturn(savePoint);
+        TransactionState outer = new TransactionState(connectionSource);
+        assertThat(outer.getDepth()).isEqualTo(0);
+        return outer;
+    }
 }
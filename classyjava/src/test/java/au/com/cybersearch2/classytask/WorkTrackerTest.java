@@ -0,0 +1,183 @@
+/**
+    Copyright (C) 2026  www.cybersearch2.com.au
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/> */
+package au.com.cybersearch2.classytask;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import au.com.cybersearch2.classylog.JavaLogger;
+import au.com.cybersearch2.classylog.Log;
+
+/**
+ * WorkTrackerTest
+ * Completion signalling, including a stress test of concurrent completions racing waiters
+ * @author Andrew Bowley
+ * 19 Oct 2026
+ */
+public class WorkTrackerTest
+{
+    private static final String TAG = "WorkTrackerTest";
+    private static Log log = JavaLogger.getLogger(TAG);
+    private static final int TASK_COUNT = 5000;
+    private static final int THREAD_COUNT = 8;
+
+    @Test
+    public void test_completed_before_wait() throws InterruptedException
+    {
+        WorkTracker underTest = new WorkTracker();
+        underTest.setStatus(WorkStatus.RUNNING);
+        underTest.setStatus(WorkStatus.FINISHED);
+        underTest.notifyCompletion();
+        assertThat(underTest.waitForTask()).isEqualTo(WorkStatus.FINISHED);
+        assertThat(underTest.waitForTask(0)).isEqualTo(WorkStatus.FINISHED);
+    }
+
+    @Test
+    public void test_timeout() throws InterruptedException
+    {
+        WorkTracker underTest = new WorkTracker();
+        underTest.setStatus(WorkStatus.RUNNING);
+        long start = System.nanoTime();
+        assertThat(underTest.waitForTask(20)).isEqualTo(WorkStatus.RUNNING);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(19L);
+    }
+
+    @Test
+    public void test_wake_latency() throws InterruptedException
+    {
+        final WorkTracker underTest = new WorkTracker();
+        underTest.setStatus(WorkStatus.RUNNING);
+        final AtomicLong wakeTime = new AtomicLong();
+        final CountDownLatch waiting = new CountDownLatch(1);
+        Thread waiter = new Thread(new Runnable(){
+
+            @Override
+            public void run()
+            {
+                waiting.countDown();
+                try
+                {
+                    underTest.waitForTask();
+                    wakeTime.set(System.nanoTime());
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }});
+        waiter.start();
+        waiting.await();
+        Thread.sleep(50);
+        long completeTime = System.nanoTime();
+        underTest.setStatus(WorkStatus.FINISHED);
+        underTest.notifyCompletion();
+        waiter.join(5000);
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(wakeTime.get() - completeTime);
+        log.info(TAG, "Wake latency " + latencyMicros + " microseconds");
+        // Previously up to one second waiting on a polling tick
+        assertThat(latencyMicros).isLessThan(100000L);
+    }
+
+    @Test
+    public void test_wait_for_work_tracker() throws InterruptedException
+    {
+        final WorkTracker workTracker = new WorkTracker("test");
+        workTracker.setStatus(WorkStatus.RUNNING);
+        Thread completer = new Thread(new Runnable(){
+
+            @Override
+            public void run()
+            {
+                workTracker.setStatus(WorkStatus.FINISHED);
+                workTracker.notifyCompletion();
+            }});
+        long start = System.nanoTime();
+        completer.start();
+        assertThat(new WorkTracker().waitForTask(workTracker, 5)).isEqualTo(WorkStatus.FINISHED);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000L);
+        completer.join();
+    }
+
+    @Test
+    public void test_concurrent_completions() throws InterruptedException
+    {
+        final WorkTracker[] workTrackers = new WorkTracker[TASK_COUNT];
+        for (int i = 0; i < TASK_COUNT; ++i)
+        {
+            workTrackers[i] = new WorkTracker();
+            workTrackers[i].setStatus(WorkStatus.RUNNING);
+        }
+        final CountDownLatch startGate = new CountDownLatch(1);
+        final AtomicInteger finishedCount = new AtomicInteger();
+        ExecutorService waiters = Executors.newFixedThreadPool(THREAD_COUNT);
+        ExecutorService completers = Executors.newFixedThreadPool(THREAD_COUNT);
+        long start = System.nanoTime();
+        for (int i = 0; i < TASK_COUNT; ++i)
+        {
+            final WorkTracker workTracker = workTrackers[i];
+            waiters.execute(new Runnable(){
+
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        startGate.await();
+                        if (workTracker.waitForTask(10000) == WorkStatus.FINISHED)
+                            finishedCount.incrementAndGet();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }});
+            completers.execute(new Runnable(){
+
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        startGate.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                    workTracker.setStatus(WorkStatus.FINISHED);
+                    workTracker.notifyCompletion();
+                }});
+        }
+        startGate.countDown();
+        completers.shutdown();
+        waiters.shutdown();
+        assertThat(completers.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(waiters.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info(TAG, TASK_COUNT + " concurrent completions in " + elapsedMillis + " ms");
+        assertThat(finishedCount.get()).isEqualTo(TASK_COUNT);
+        // A single lost wakeup would cost the full 10 second timeout
+        assertThat(elapsedMillis).isLessThan(10000L);
+    }
+}